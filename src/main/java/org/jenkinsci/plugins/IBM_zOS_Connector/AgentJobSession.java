@@ -0,0 +1,305 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <h2>AgentJobSession</h2>
+ * Whole connector session run on the agent holding the workspace:
+ * the JCL is read and expanded there, the job log goes straight from the LPAR to the workspace file.
+ * <br>Only the step results, search terms and the console excerpt come back to the controller.
+ * Submission is reported to the controller as it happens, so the job can still be followed after a restart.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see ZOSJobSubmitter
+ */
+class AgentJobSession extends MasterToSlaveFileCallable<AgentJobSession.Outcome> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Connector to create on the agent.
+     */
+    private final ConnectorSettings settings;
+    /**
+     * Job file.
+     */
+    private final JclSource jcl;
+    /**
+     * Listener to log to.
+     */
+    private final TaskListener listener;
+    /**
+     * Controller side of the session.
+     */
+    private final Callback callback;
+    /**
+     * Log prefix.
+     */
+    private final String logPrefix;
+    /**
+     * Whether we need for the job to complete.
+     */
+    private boolean wait;
+    /**
+     * Maximum wait time in minutes.
+     */
+    private int waitTime;
+    /**
+     * Whether the job log should be deleted from spool upon job end.
+     */
+    private boolean deleteJobFromSpool;
+    /**
+     * Whether to print the job log to the console.
+     */
+    private boolean jobLogToConsole;
+    /**
+     * First job log lines on the console.
+     */
+    private int consoleHeadLines;
+    /**
+     * Last job log lines on the console.
+     */
+    private int consoleTailLines;
+    /**
+     * Whether to save the job log compressed.
+     */
+    private boolean compressJobLog;
+    /**
+     * Build part of the saved log name (<code>project - build</code>).
+     */
+    private String buildName;
+
+    /**
+     * @param settings  Connector to create on the agent.
+     * @param jcl       Job file.
+     * @param listener  Listener to log to.
+     * @param callback  Controller side of the session (exported to the agent channel).
+     * @param logPrefix Log prefix.
+     */
+    AgentJobSession(ConnectorSettings settings, JclSource jcl, TaskListener listener, Callback callback, String logPrefix) {
+        this.settings = settings;
+        this.jcl = jcl;
+        this.listener = listener;
+        this.callback = callback;
+        this.logPrefix = logPrefix;
+    }
+
+    /**
+     * @param wait               Whether we need for the job to complete.
+     * @param waitTime           Maximum wait time in minutes. If set to <code>0</code>, will wait forever.
+     * @param deleteJobFromSpool Whether the job log should be deleted from spool upon job end.
+     */
+    void setWait(boolean wait, int waitTime, boolean deleteJobFromSpool) {
+        this.wait = wait;
+        this.waitTime = waitTime;
+        this.deleteJobFromSpool = deleteJobFromSpool;
+    }
+
+    /**
+     * @param jobLogToConsole  Whether to print the job log to the console.
+     * @param consoleHeadLines First job log lines on the console.
+     * @param consoleTailLines Last job log lines on the console.
+     * @param compressJobLog   Whether to save the job log compressed.
+     * @param buildName        Build part of the saved log name.
+     */
+    void setJobLog(boolean jobLogToConsole, int consoleHeadLines, int consoleTailLines, boolean compressJobLog, String buildName) {
+        this.jobLogToConsole = jobLogToConsole;
+        this.consoleHeadLines = consoleHeadLines;
+        this.consoleTailLines = consoleTailLines;
+        this.compressJobLog = compressJobLog;
+        this.buildName = buildName;
+    }
+
+    @Override
+    public Outcome invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+        JobConnector connector = this.settings.create(this.logPrefix);
+        connector.setCancelOnInterrupt(this.callback::cancelOnInterrupt, 0);
+        connector.setSubmitListener(this.callback::submitted);
+
+        // The log is written as it comes, under a temporary name until the job CC is known.
+        File temp = File.createTempFile(".zosjob", ".tmp", workspace);
+        StepResultParser stepParser;
+        JobLogTerms searchTerms;
+        boolean result;
+        try {
+            try (OutputStream file = this.compressJobLog
+                    ? new GZIPOutputStream(new FileOutputStream(temp), 64 * 1024)
+                    : new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024)) {
+                searchTerms = new JobLogTerms(file);
+                stepParser = new StepResultParser(searchTerms);
+                try (InputStream jcl = this.jcl.open(workspace)) {
+                    result = connector.submit(jcl, this.wait, this.waitTime, stepParser, this.deleteJobFromSpool, this.listener);
+                }
+            }
+
+            Outcome outcome = new Outcome(connector, result, stepParser.getSteps(), searchTerms.getTerms());
+            if (this.wait) {
+                String printableCC = ZOSJobSubmitter.printableCC(outcome.jobCC);
+                outcome.savedName = ZOSJobSubmitter.savedName(outcome.jobName, printableCC, this.settings.getServer(), outcome.jobID, this.buildName);
+                String logName = outcome.savedName + (this.compressJobLog ? ".log.gz" : ".log");
+                if (this.jobLogToConsole)
+                    this.print(temp, "./" + logName);
+                Files.move(temp.toPath(), new File(workspace, logName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return outcome;
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Print the job log (or its head and tail) to the console.
+     *
+     * @param log     Saved job log.
+     * @param fullLog Name of the full log for the excerpt note.
+     * @throws IOException on read failure.
+     */
+    private void print(File log, String fullLog) throws IOException {
+        try (InputStream in = this.compressJobLog
+                ? new GZIPInputStream(new FileInputStream(log), 64 * 1024)
+                : new BufferedInputStream(new FileInputStream(log), 64 * 1024)) {
+            if (this.consoleHeadLines > 0 || this.consoleTailLines > 0) {
+                JobLogExcerpt excerpt = new JobLogExcerpt(this.consoleHeadLines, this.consoleTailLines);
+                copy(in, excerpt);
+                excerpt.printTo(this.listener.getLogger(), StandardCharsets.US_ASCII, fullLog);
+            } else {
+                copy(in, this.listener.getLogger());
+                this.listener.getLogger().println();
+            }
+        }
+    }
+
+    /**
+     * @param in  Source stream.
+     * @param out Target stream.
+     * @throws IOException on read or write failure.
+     */
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+    }
+
+    /**
+     * <h2>AgentJobSession.Callback</h2>
+     * Controller side of the session, called back from the agent.
+     */
+    public interface Callback {
+        /**
+         * @param jobID JobID of the submitted job.
+         */
+        void submitted(String jobID);
+
+        /**
+         * @return Whether to cancel the job now that the wait was interrupted.
+         */
+        boolean cancelOnInterrupt();
+    }
+
+    /**
+     * <h2>AgentJobSession.Outcome</h2>
+     * What the controller needs of the session.
+     */
+    static class Outcome implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * JobID in JES.
+         */
+        final String jobID;
+        /**
+         * Jobname in JES.
+         */
+        final String jobName;
+        /**
+         * Job completion or the reason of the failure.
+         */
+        final String jobCC;
+        /**
+         * UserID the connector logged on with.
+         */
+        final String userID;
+        /**
+         * Whether the job was cancelled because the wait was interrupted.
+         */
+        final boolean cancelled;
+        /**
+         * Whether the job was submitted and its log fetched.
+         */
+        final boolean result;
+        /**
+         * DD names of the retrieved spool files, <code>null</code> if not listed.
+         */
+        final ArrayList<String> spoolFileNames;
+        /**
+         * Step results.
+         */
+        final ArrayList<ZOSJobStepsAction.Step> steps;
+        /**
+         * Search terms of the job log.
+         */
+        final LinkedHashMap<String, Long> terms;
+        /**
+         * Name of the log saved in the workspace (without suffix), <code>null</code> if not saved.
+         */
+        String savedName;
+
+        /**
+         * @param connector Connector after the session.
+         * @param result    Whether the job was submitted and its log fetched.
+         * @param steps     Step results.
+         * @param terms     Search terms of the job log.
+         */
+        Outcome(JobConnector connector, boolean result, List<ZOSJobStepsAction.Step> steps, Map<String, Long> terms) {
+            this(connector.getJobID(), connector.getJobName(), connector.getJobCC(), connector.getUserID(),
+                    connector.isJobCancelled(), result, connector.getSpoolFileNames(), steps, terms);
+        }
+
+        /**
+         * @param jobID          JobID in JES.
+         * @param jobName        Jobname in JES.
+         * @param jobCC          Job completion or the reason of the failure.
+         * @param userID         UserID the connector logged on with.
+         * @param cancelled      Whether the job was cancelled.
+         * @param result         Whether the job was submitted and its log fetched.
+         * @param spoolFileNames Qualified DD names of the retrieved spool files.
+         * @param steps          Step results.
+         * @param terms          Search terms of the job log.
+         */
+        Outcome(String jobID, String jobName, String jobCC, String userID, boolean cancelled, boolean result,
+                List<String> spoolFileNames, List<ZOSJobStepsAction.Step> steps, Map<String, Long> terms) {
+            this.jobID = jobID;
+            this.jobName = jobName;
+            this.jobCC = jobCC;
+            this.userID = userID;
+            this.cancelled = cancelled;
+            this.result = result;
+            this.spoolFileNames = spoolFileNames == null ? null : new ArrayList<>(spoolFileNames);
+            this.steps = new ArrayList<>(steps);
+            this.terms = new LinkedHashMap<>(terms);
+            this.savedName = null;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.Serializable;
+
+/**
+ * <h2>ConnectorSettings</h2>
+ * Everything needed to create the {@link JobConnector} of a build step, wherever it runs.
+ * <br>Sent to the build agent when the session runs there, so it holds resolved values only:
+ * the expanded server name and the plain credentials of the lease.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see AgentJobSession
+ */
+class ConnectorSettings implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * {@link ZOSJobSubmitter#TRANSPORT_FTP} or {@link ZOSJobSubmitter#TRANSPORT_ZOSMF}.
+     */
+    private final String transport;
+    /**
+     * LPAR name or IP address (or z/OSMF URL).
+     */
+    private final String server;
+    /**
+     * Port to connect to.
+     */
+    private final int port;
+    /**
+     * UserID.
+     */
+    private final String userID;
+    /**
+     * User password (or secured signon key).
+     */
+    private final String password;
+    /**
+     * Whether FTP server is in JESINTERFACELEVEL=1.
+     */
+    private final boolean JESINTERFACELEVEL1;
+    /**
+     * FTP data transfer mode.
+     */
+    private final boolean FTPActiveMode;
+    /**
+     * Connect timeout (seconds).
+     */
+    private final int connectTimeout;
+    /**
+     * Control connection read timeout (seconds).
+     */
+    private final int readTimeout;
+    /**
+     * Data connection read timeout (seconds).
+     */
+    private final int dataTimeout;
+    /**
+     * Control connection keep-alive interval during transfers (seconds).
+     */
+    private final int keepAliveInterval;
+    /**
+     * Attempts per idempotent operation.
+     */
+    private final int retryAttempts;
+    /**
+     * Delay before the first retry (seconds).
+     */
+    private final int retryBackoff;
+    /**
+     * Whether broken job log retrievals continue where they stopped.
+     */
+    private final boolean resumeTransfers;
+    /**
+     * Whether job logs are retrieved compressed.
+     */
+    private final boolean compressTransfers;
+    /**
+     * Whether the FTP session is protected with TLS.
+     */
+    private final boolean ftps;
+    /**
+     * Whether TLS starts on connect.
+     */
+    private final boolean ftpsImplicit;
+    /**
+     * DD names to retrieve.
+     */
+    private final String spoolInclude;
+    /**
+     * DD names not to retrieve.
+     */
+    private final String spoolExclude;
+    /**
+     * Size limits of retrieved spool files.
+     */
+    private final String spoolLimits;
+
+    /**
+     * @param step     Build step configuration.
+     * @param server   Expanded LPAR name or IP address.
+     * @param userID   UserID.
+     * @param password User password.
+     */
+    ConnectorSettings(ZOSJobSubmitter step, String server, String userID, String password) {
+        this.transport = step.getTransport();
+        this.server = server;
+        this.port = step.getPort();
+        this.userID = userID;
+        this.password = password;
+        this.JESINTERFACELEVEL1 = step.getJESINTERFACELEVEL1();
+        this.FTPActiveMode = step.getFTPActiveMode();
+        this.connectTimeout = step.getConnectTimeout();
+        this.readTimeout = step.getReadTimeout();
+        this.dataTimeout = step.getDataTimeout();
+        this.keepAliveInterval = step.getKeepAliveInterval();
+        this.retryAttempts = step.getRetryAttempts();
+        this.retryBackoff = step.getRetryBackoff();
+        this.resumeTransfers = step.getResumeTransfers();
+        this.compressTransfers = step.getCompressTransfers();
+        this.ftps = step.getFtps();
+        this.ftpsImplicit = step.getFtpsImplicit();
+        this.spoolInclude = step.getSpoolInclude();
+        this.spoolExclude = step.getSpoolExclude();
+        this.spoolLimits = step.getSpoolLimits();
+    }
+
+    /**
+     * @return LPAR name or IP address (or z/OSMF URL).
+     */
+    String getServer() {
+        return this.server;
+    }
+
+    /**
+     * @return UserID.
+     */
+    String getUserID() {
+        return this.userID;
+    }
+
+    /**
+     * @return Spool files to retrieve.
+     * @throws IllegalArgumentException on malformed size limit.
+     */
+    SpoolSelection getSpoolSelection() {
+        return SpoolSelection.of(this.spoolInclude, this.spoolExclude, this.spoolLimits);
+    }
+
+    /**
+     * @param logPrefix Log prefix.
+     * @return New connector. Submit and cancel callbacks are left to the caller.
+     * @throws IllegalArgumentException on malformed size limit.
+     */
+    JobConnector create(String logPrefix) {
+        String target = ZOSJobSubmitter.TRANSPORT_ZOSMF.equals(this.transport) ? this.baseURL() : this.server;
+        JobConnector connector = new TransportConnector(this.probe(logPrefix), target, this.userID, logPrefix);
+        connector.setRetries(this.retryAttempts, this.retryBackoff);
+        connector.setSpoolSelection(this.getSpoolSelection());
+        return connector;
+    }
+
+    /**
+     * @param logPrefix Log prefix.
+     * @return New transport for job operations outside of a build (e.g. spool purges).
+     */
+    JobTransport transport(String logPrefix) {
+        if (ZOSJobSubmitter.TRANSPORT_ZOSMF.equals(this.transport))
+            return this.zosmf();
+        ZFTPConnector ftp = this.ftp(logPrefix);
+        ftp.setRetries(this.retryAttempts, this.retryBackoff);
+        return ftp;
+    }
+
+    /**
+     * @param logPrefix Log prefix.
+     * @return New transport for callers that retry themselves: a single attempt per operation.
+     * Status probes on {@link JobWaitScheduler} back off on failure instead of sleeping,
+     * {@link TransportConnector} retries with its own policy.
+     */
+    JobTransport probe(String logPrefix) {
+        if (ZOSJobSubmitter.TRANSPORT_ZOSMF.equals(this.transport))
+            return this.zosmf();
+        ZFTPConnector ftp = this.ftp(logPrefix);
+        ftp.setRetries(1, this.retryBackoff);
+        return ftp;
+    }
+
+    /**
+     * @return z/OSMF base URL.
+     */
+    private String baseURL() {
+        return this.server.startsWith("https://") || this.server.startsWith("http://")
+                ? this.server : "https://" + this.server + ":" + this.port;
+    }
+
+    /**
+     * @return New z/OSMF transport.
+     */
+    private ZOSMFTransport zosmf() {
+        ZOSMFTransport zosmf = new ZOSMFTransport(this.baseURL(), this.userID, this.password);
+        zosmf.setTimeouts(this.connectTimeout, this.dataTimeout);
+        return zosmf;
+    }
+
+    /**
+     * @param logPrefix Log prefix.
+     * @return New FTP transport.
+     */
+    private ZFTPConnector ftp(String logPrefix) {
+        ZFTPConnector ftp = new ZFTPConnector(this.server,
+                this.port,
+                this.userID,
+                this.password,
+                this.JESINTERFACELEVEL1,
+                logPrefix,
+                this.FTPActiveMode);
+        ftp.setTimeouts(this.connectTimeout, this.readTimeout, this.dataTimeout, this.keepAliveInterval);
+        ftp.setResumeTransfers(this.resumeTransfers);
+        ftp.setCompressTransfers(this.compressTransfers);
+        ftp.setFTPS(this.ftps, this.ftpsImplicit);
+        return ftp;
+    }
+}
@@ -0,0 +1,206 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import hudson.model.Run;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * <h2>CredentialsPool</h2>
+ * Spreads FTP sessions over several z/OS user IDs.
+ * <br>JES limits (jobs in the system, FTP sessions per user ID) apply per user ID,
+ * so every session is charged to the least loaded ID of the pool for the time it is open.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class CredentialsPool {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(CredentialsPool.class.getName());
+    /**
+     * Number of open sessions per <code>server/userID</code>.
+     */
+    private static final Map<String, AtomicInteger> load = new ConcurrentHashMap<>();
+    /**
+     * Round-robin counter to break ties between equally loaded IDs.
+     */
+    private static final AtomicInteger nextIndex = new AtomicInteger();
+
+    /**
+     * Split comma-separated credentials IDs.
+     *
+     * @param ids Credentials IDs separated by comma (can be <code>null</code>).
+     * @return List of non-empty IDs.
+     */
+    static List<String> parseIds(String ids) {
+        List<String> result = new LinkedList<>();
+        if (ids == null)
+            return result;
+        for (String temp : ids.split(",")) {
+            temp = temp.replaceAll("\\s", "");
+            if (!temp.isEmpty() && !result.contains(temp))
+                result.add(temp);
+        }
+        return result;
+    }
+
+    /**
+     * Resolve primary credentials and the pool.
+     *
+     * @param credentialsId Primary credentials ID.
+     * @param pool          Additional credentials IDs separated by comma.
+     * @param run           Run to resolve credentials for.
+     * @param unresolved    Receives IDs that could not be resolved.
+     * @return Resolved credentials, primary first.
+     */
+    static List<StandardUsernamePasswordCredentials> resolve(String credentialsId, String pool, Run<?, ?> run, List<String> unresolved) {
+        List<String> ids = parseIds(credentialsId);
+        for (String id : parseIds(pool)) {
+            if (!ids.contains(id))
+                ids.add(id);
+        }
+        List<StandardUsernamePasswordCredentials> result = new LinkedList<>();
+        DomainRequirement domain = new DomainRequirement();
+        for (String id : ids) {
+            StandardUsernamePasswordCredentials creds = CredentialsProvider.findCredentialById(id,
+                    StandardUsernamePasswordCredentials.class,
+                    run, domain);
+            if (creds == null) {
+                unresolved.add(id);
+            } else {
+                result.add(creds);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Take the least loaded credentials for the server.
+     *
+     * @param server LPAR name or IP address.
+     * @param pool   Candidate credentials (must not be empty).
+     * @return Lease to be closed once the session is over.
+     */
+    static Lease acquire(String server, List<StandardUsernamePasswordCredentials> pool) {
+        return acquire(server, pool, null);
+    }
+
+    /**
+     * @param pool   Candidate credentials.
+     * @param userID z/OS user ID.
+     * @return Credentials of the pool logging on as the user ID.
+     */
+    static List<StandardUsernamePasswordCredentials> owners(List<StandardUsernamePasswordCredentials> pool, String userID) {
+        List<StandardUsernamePasswordCredentials> owners = new LinkedList<>();
+        for (StandardUsernamePasswordCredentials creds : pool) {
+            if (creds.getUsername().equalsIgnoreCase(userID))
+                owners.add(creds);
+        }
+        return owners;
+    }
+
+    /**
+     * Take the least loaded credentials of the user ID.
+     * Used to follow a job owned by a known user ID: over FTP, JES shows a session the jobs of its own user ID only.
+     *
+     * @param server LPAR name or IP address.
+     * @param pool   Candidate credentials (must not be empty).
+     * @param owner  z/OS user ID to log on as, <code>null</code> for any.
+     * @return Lease to be closed once the session is over.
+     * @throws IllegalArgumentException if the pool has no credentials of the owner.
+     */
+    static Lease acquire(String server, List<StandardUsernamePasswordCredentials> pool, String owner) {
+        if (owner != null) {
+            pool = owners(pool, owner);
+            if (pool.isEmpty())
+                throw new IllegalArgumentException("OWNER_CREDENTIALS_UNAVAILABLE: no credentials of " + owner);
+        }
+
+        // Group by user ID: the same ID stored under several credentials shares JES limits.
+        Map<String, StandardUsernamePasswordCredentials> byUser = new LinkedHashMap<>();
+        for (StandardUsernamePasswordCredentials creds : pool)
+            byUser.putIfAbsent(creds.getUsername().toUpperCase(), creds);
+
+        List<StandardUsernamePasswordCredentials> candidates = new LinkedList<>(byUser.values());
+        int start = Math.floorMod(nextIndex.getAndIncrement(), candidates.size());
+        StandardUsernamePasswordCredentials best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++) {
+            StandardUsernamePasswordCredentials creds = candidates.get((start + i) % candidates.size());
+            int current = counter(server, creds.getUsername()).get();
+            if (current < bestLoad) {
+                best = creds;
+                bestLoad = current;
+            }
+        }
+        counter(server, best.getUsername()).incrementAndGet();
+        logger.fine("Acquired " + best.getUsername() + "@" + server + " (sessions before: " + bestLoad + ")");
+        return new Lease(server, best);
+    }
+
+    /**
+     * @param server LPAR name or IP address.
+     * @param userID z/OS user ID.
+     * @return Session counter for the pair.
+     */
+    private static AtomicInteger counter(String server, String userID) {
+        return load.computeIfAbsent(server.toUpperCase() + "/" + userID.toUpperCase(), k -> new AtomicInteger());
+    }
+
+    /**
+     * <h2>CredentialsPool.Lease</h2>
+     * Credentials taken from the pool. Closing releases the load.
+     */
+    static class Lease implements AutoCloseable {
+        /**
+         * LPAR the credentials were taken for.
+         */
+        private final String server;
+        /**
+         * Chosen credentials.
+         */
+        private final StandardUsernamePasswordCredentials credentials;
+        /**
+         * Whether the lease was already released.
+         */
+        private boolean released;
+
+        /**
+         * @param server      LPAR name or IP address.
+         * @param credentials Chosen credentials.
+         */
+        private Lease(String server, StandardUsernamePasswordCredentials credentials) {
+            this.server = server;
+            this.credentials = credentials;
+            this.released = false;
+        }
+
+        /**
+         * @return Chosen credentials.
+         */
+        StandardUsernamePasswordCredentials getCredentials() {
+            return this.credentials;
+        }
+
+        /**
+         * Release the session slot.
+         */
+        @Override
+        public synchronized void close() {
+            if (!this.released) {
+                this.released = true;
+                counter(this.server, this.credentials.getUsername()).decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * <h2>ExpandingInputStream</h2>
+ * JCL text with build variables expanded as it is read, in a bounded buffer:
+ * a job with a large instream deck is never held in memory as a whole.
+ * <br>Same rules as <code>EnvVars.expand</code>: <code>$NAME</code> and <code>${NAME}</code> are replaced
+ * with the variable value, <code>$$</code> with <code>$</code>, unknown variables are kept as they are.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class ExpandingInputStream extends InputStream {
+    /**
+     * Characters expanded at once.
+     */
+    private static final int CHUNK = 8 * 1024;
+    /**
+     * Longest variable name: longer ones are kept unexpanded.
+     */
+    private static final int MAX_NAME = 256;
+
+    /**
+     * JCL text.
+     */
+    private final PushbackReader in;
+    /**
+     * Variables.
+     */
+    private final Map<String, String> variables;
+    /**
+     * Expanded text being collected.
+     */
+    private final StringBuilder text;
+    /**
+     * Expanded bytes not read yet.
+     */
+    private byte[] pending;
+    /**
+     * Position in <code>pending</code>.
+     */
+    private int position;
+    /**
+     * Whether the JCL text has ended.
+     */
+    private boolean eof;
+
+    /**
+     * @param in        JCL text (UTF-8).
+     * @param variables Variables to expand.
+     */
+    ExpandingInputStream(InputStream in, Map<String, String> variables) {
+        this.in = new PushbackReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), CHUNK), MAX_NAME + 3);
+        this.variables = variables;
+        this.text = new StringBuilder(CHUNK + MAX_NAME);
+        this.pending = new byte[0];
+        this.position = 0;
+        this.eof = false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.fill())
+            return -1;
+        return this.pending[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!this.fill())
+            return -1;
+        int n = Math.min(len, this.pending.length - this.position);
+        System.arraycopy(this.pending, this.position, b, off, n);
+        this.position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return this.pending.length - this.position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Expand the next chunk if everything expanded so far was read.
+     *
+     * @return Whether there are bytes to read.
+     * @throws IOException on read failure.
+     */
+    private boolean fill() throws IOException {
+        while (this.position >= this.pending.length) {
+            if (this.eof)
+                return false;
+            this.text.setLength(0);
+            while (this.text.length() < CHUNK && !this.eof)
+                this.expandNext();
+            // Never split a surrogate pair between chunks.
+            if (!this.eof && Character.isHighSurrogate(this.text.charAt(this.text.length() - 1)))
+                this.expandNext();
+            this.pending = this.text.toString().getBytes(StandardCharsets.UTF_8);
+            this.position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Append the next character, or the expansion of the variable reference starting with it.
+     *
+     * @throws IOException on read failure.
+     */
+    private void expandNext() throws IOException {
+        int c = this.in.read();
+        if (c == -1) {
+            this.eof = true;
+            return;
+        }
+        if (c != '$') {
+            this.text.append((char) c);
+            return;
+        }
+        int next = this.in.read();
+        if (next == '$') {
+            this.text.append('$');
+        } else if (next == '{') {
+            StringBuilder name = new StringBuilder();
+            int n;
+            while ((n = this.in.read()) != -1 && name.length() <= MAX_NAME && isNameChar(n, true))
+                name.append((char) n);
+            if (n == '}' && name.length() > 0 && name.length() <= MAX_NAME) {
+                String value = this.variables.get(name.toString());
+                this.text.append(value != null ? value : "${" + name + "}");
+            } else {
+                // Not a reference: keep the text, look at the character that ended it again.
+                this.text.append("${").append(name);
+                if (n != -1)
+                    this.in.unread(n);
+            }
+        } else if (next != -1 && isNameChar(next, false)) {
+            StringBuilder name = new StringBuilder().append((char) next);
+            int n;
+            while ((n = this.in.read()) != -1 && name.length() <= MAX_NAME && isNameChar(n, false))
+                name.append((char) n);
+            if (n != -1)
+                this.in.unread(n);
+            String value = name.length() > MAX_NAME ? null : this.variables.get(name.toString());
+            this.text.append(value != null ? value : "$" + name);
+        } else {
+            this.text.append('$');
+            if (next != -1)
+                this.in.unread(next);
+        }
+    }
+
+    /**
+     * @param c      Character.
+     * @param braced Whether the name is within braces (dots allowed).
+     * @return Whether the character can be part of a variable name.
+     */
+    private static boolean isNameChar(int c, boolean braced) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || (braced && c == '.');
+    }
+}
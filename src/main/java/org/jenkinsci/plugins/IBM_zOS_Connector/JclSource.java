@@ -0,0 +1,124 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+
+/**
+ * <h2>JclSource</h2>
+ * Job file of a build step and how to turn it into the JCL to submit: plain variable expansion,
+ * or rendering as a {@link JclTemplate} when an include library is configured.
+ * <br>Opened on the controller through the workspace {@link FilePath}, or on the agent through the local file.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class JclSource implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Job file path within the workspace.
+     */
+    private final String jobFile;
+    /**
+     * Build environment to expand the JCL with.
+     */
+    private final EnvVars environment;
+    /**
+     * Include library directories within the workspace (comma separated), <code>null</code> for no templates.
+     */
+    private final String includeLibrary;
+    /**
+     * Library on the controller, looked in after the workspace one. <code>null</code> if none.
+     */
+    private final JclTemplate.Library controllerLibrary;
+
+    /**
+     * @param jobFile           Job file path within the workspace.
+     * @param environment       Build environment to expand the JCL with.
+     * @param includeLibrary    Include library directories within the workspace, <code>null</code> for no templates.
+     * @param controllerLibrary Library on the controller (exported to the agent channel), <code>null</code> if none.
+     */
+    JclSource(String jobFile, EnvVars environment, String includeLibrary, JclTemplate.Library controllerLibrary) {
+        this.jobFile = jobFile;
+        this.environment = environment;
+        this.includeLibrary = includeLibrary;
+        this.controllerLibrary = controllerLibrary;
+    }
+
+    /**
+     * @return Job file path within the workspace.
+     */
+    String getJobFile() {
+        return this.jobFile;
+    }
+
+    /**
+     * Open the JCL on the node holding the workspace.
+     *
+     * @param workspace Workspace directory.
+     * @return Expanded JCL, produced as it is read.
+     * @throws IOException on read failure ({@link FileNotFoundException} if there is no job file).
+     */
+    InputStream open(File workspace) throws IOException {
+        File jcl = new File(workspace, this.jobFile);
+        if (!jcl.isFile())
+            throw new FileNotFoundException(jcl.getPath());
+        if (this.includeLibrary == null)
+            return new ExpandingInputStream(new FileInputStream(jcl), this.environment);
+        return JclTemplate.compile(Files.readAllBytes(jcl.toPath()))
+                .render(this.environment, JclTemplate.library(workspace, this.includeLibrary, this.controllerLibrary));
+    }
+
+    /**
+     * Open the JCL from the controller, wherever the workspace is.
+     *
+     * @param workspace Workspace.
+     * @return Expanded JCL, produced as it is read.
+     * @throws IOException on read failure ({@link FileNotFoundException} if there is no job file).
+     * @throws InterruptedException if interrupted.
+     */
+    InputStream open(FilePath workspace) throws IOException, InterruptedException {
+        FilePath jcl = workspace.child(this.jobFile);
+        if (!jcl.exists() || jcl.isDirectory())
+            throw new FileNotFoundException(this.jobFile);
+        if (this.includeLibrary == null)
+            return new ExpandingInputStream(jcl.read(), this.environment);
+        JclTemplate.Library next = this.controllerLibrary;
+        return JclTemplate.compile(read(jcl)).render(this.environment, name -> {
+            String[] fileNames = JclTemplate.fileNames(name);
+            try {
+                for (String directory : JclTemplate.directories(this.includeLibrary)) {
+                    for (String fileName : fileNames) {
+                        FilePath fragment = workspace.child(directory).child(fileName);
+                        if (fragment.exists() && !fragment.isDirectory())
+                            return read(fragment);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted reading JCL fragment " + name);
+            }
+            return next == null ? null : next.read(name);
+        });
+    }
+
+    /**
+     * @param file File.
+     * @return File content.
+     * @throws IOException on read failure.
+     * @throws InterruptedException if interrupted.
+     */
+    private static byte[] read(FilePath file) throws IOException, InterruptedException {
+        try (InputStream in = file.read()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <h2>JclTemplate</h2>
+ * JCL put together from shared fragments: a line <code>//*#INCLUDE NAME</code> is replaced with
+ * fragment <code>NAME</code> from the include library (fragments may include others).
+ * Build variables are expanded as by <code>EnvVars.expand</code>.
+ * <br>A template is parsed once into literal text, variable references and includes,
+ * and kept by the SHA-256 of its content: the next submission of the same JCL or fragment skips parsing.
+ * Rendering is streamed piece by piece, the whole job is never put together in memory.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class JclTemplate {
+    /**
+     * Include directive, a JCL comment (so a template is still valid JCL).
+     */
+    private static final Pattern INCLUDE = Pattern.compile("^//\\*#INCLUDE[ \\t]+(\\S+)[ \\t]*$", Pattern.MULTILINE);
+    /**
+     * Variable reference (as in <code>Util.replaceMacro</code>).
+     */
+    private static final Pattern VARIABLE = Pattern.compile("\\$([A-Za-z0-9_]+|\\{[A-Za-z0-9_.]+\\}|\\$)");
+    /**
+     * Deepest include nesting.
+     */
+    private static final int MAX_DEPTH = 16;
+    /**
+     * Most template text kept parsed (bytes).
+     */
+    private static final long CACHE_BYTES = Long.getLong(JclTemplate.class.getName() + ".cacheBytes", 32L * 1024 * 1024);
+    /**
+     * Parsed templates by content digest, least recently used first.
+     */
+    private static final Map<String, JclTemplate> cache = new LinkedHashMap<>(64, 0.75f, true);
+    /**
+     * Bytes of template text in <code>cache</code>.
+     */
+    private static long cachedBytes = 0;
+
+    /**
+     * Template pieces in order.
+     */
+    private final List<Segment> segments;
+    /**
+     * Template text size (bytes).
+     */
+    private final int size;
+    /**
+     * Whether the text ends with a line end (a fragment that does not gets one, so the next line stays apart).
+     */
+    private final boolean lineEnd;
+
+    /**
+     * @param segments Template pieces in order.
+     * @param size     Template text size (bytes).
+     * @param lineEnd  Whether the text ends with a line end.
+     */
+    private JclTemplate(List<Segment> segments, int size, boolean lineEnd) {
+        this.segments = segments;
+        this.size = size;
+        this.lineEnd = lineEnd;
+    }
+
+    /**
+     * Get the parsed template, parsing it only if this content was not seen before.
+     *
+     * @param content Template text (UTF-8).
+     * @return Parsed template.
+     */
+    static JclTemplate compile(byte[] content) {
+        String key = digest(content);
+        synchronized (cache) {
+            JclTemplate template = cache.get(key);
+            if (template != null)
+                return template;
+        }
+        JclTemplate template = parse(new String(content, StandardCharsets.UTF_8), content.length);
+        synchronized (cache) {
+            if (content.length <= CACHE_BYTES / 4 && cache.put(key, template) == null) {
+                cachedBytes += content.length;
+                Iterator<JclTemplate> eldest = cache.values().iterator();
+                while (cachedBytes > CACHE_BYTES && eldest.hasNext()) {
+                    cachedBytes -= eldest.next().size;
+                    eldest.remove();
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * @param text Template text.
+     * @param size Template text size (bytes).
+     * @return Parsed template.
+     */
+    private static JclTemplate parse(String text, int size) {
+        List<Segment> segments = new ArrayList<>();
+        Matcher include = INCLUDE.matcher(text);
+        int start = 0;
+        while (include.find()) {
+            parseVariables(text.substring(start, include.start()), segments);
+            segments.add(new Segment(Segment.INCLUDE, include.group(1), null));
+            // The directive line goes, its line end with it.
+            start = include.end();
+            if (start < text.length() && text.charAt(start) == '\r')
+                start++;
+            if (start < text.length() && text.charAt(start) == '\n')
+                start++;
+        }
+        parseVariables(text.substring(start), segments);
+        return new JclTemplate(segments, size, text.isEmpty() || text.endsWith("\n"));
+    }
+
+    /**
+     * @param text     Template text without includes.
+     * @param segments Pieces to add to.
+     */
+    private static void parseVariables(String text, List<Segment> segments) {
+        Matcher variable = VARIABLE.matcher(text);
+        StringBuilder literal = new StringBuilder();
+        int start = 0;
+        while (variable.find()) {
+            literal.append(text, start, variable.start());
+            String name = variable.group(1);
+            if (name.equals("$")) {
+                literal.append('$');
+            } else {
+                if (literal.length() > 0)
+                    segments.add(new Segment(Segment.LITERAL, null, literal.toString().getBytes(StandardCharsets.UTF_8)));
+                literal.setLength(0);
+                if (name.startsWith("{"))
+                    name = name.substring(1, name.length() - 1);
+                segments.add(new Segment(Segment.VARIABLE, name, variable.group().getBytes(StandardCharsets.UTF_8)));
+            }
+            start = variable.end();
+        }
+        literal.append(text, start, text.length());
+        if (literal.length() > 0)
+            segments.add(new Segment(Segment.LITERAL, null, literal.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param variables Variables to expand.
+     * @param library   Include library.
+     * @return Rendered JCL, produced as it is read.
+     */
+    InputStream render(Map<String, String> variables, Library library) {
+        return new Renderer(this, variables, library);
+    }
+
+    /**
+     * @param library Include library directories (comma separated).
+     * @return Directories in search order.
+     */
+    static List<String> directories(String library) {
+        List<String> directories = new ArrayList<>();
+        for (String directory : library.split(",")) {
+            if (!directory.trim().isEmpty())
+                directories.add(directory.trim());
+        }
+        return directories;
+    }
+
+    /**
+     * @param name Fragment name from the include directive.
+     * @return Paths to try within a library directory: <code>NAME</code>, then <code>NAME.jcl</code>.
+     * @throws IOException if the name leads out of the library.
+     */
+    static String[] fileNames(String name) throws IOException {
+        if (name.startsWith("/") || name.startsWith("\\") || name.contains(":") || name.matches("(.*[/\\\\])?\\.\\.([/\\\\].*)?"))
+            throw new IOException("JCL fragment name must stay within the include library: " + name);
+        return new String[]{name, name + ".jcl"};
+    }
+
+    /**
+     * @param base        Directory the library directories are relative to.
+     * @param directories Include library directories (comma separated).
+     * @param next        Library to look in for fragments not found here, <code>null</code> if none.
+     * @return Library of fragment files.
+     */
+    static Library library(File base, String directories, Library next) {
+        List<String> list = directories(directories);
+        return name -> {
+            String[] fileNames = fileNames(name);
+            for (String directory : list) {
+                for (String fileName : fileNames) {
+                    File file = new File(new File(base, directory), fileName);
+                    if (file.isFile())
+                        return Files.readAllBytes(file.toPath());
+                }
+            }
+            return next == null ? null : next.read(name);
+        };
+    }
+
+    /**
+     * @param content Template text.
+     * @return Hex SHA-256 digest.
+     */
+    private static String digest(byte[] content) {
+        try {
+            return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * <h2>JclTemplate.Library</h2>
+     * Where fragments come from. Public, so the controller library can be exported to an agent.
+     */
+    @FunctionalInterface
+    public interface Library {
+        /**
+         * @param name Fragment name from the include directive.
+         * @return Fragment text (UTF-8), <code>null</code> if there is no such fragment.
+         * @throws IOException on read failure.
+         */
+        byte[] read(String name) throws IOException;
+    }
+
+    /**
+     * <h2>JclTemplate.Segment</h2>
+     * Piece of a template.
+     */
+    private static class Segment {
+        /**
+         * Text as it is.
+         */
+        static final int LITERAL = 0;
+        /**
+         * Variable reference.
+         */
+        static final int VARIABLE = 1;
+        /**
+         * Include directive.
+         */
+        static final int INCLUDE = 2;
+
+        /**
+         * {@link #LITERAL}, {@link #VARIABLE} or {@link #INCLUDE}.
+         */
+        final int kind;
+        /**
+         * Variable or fragment name.
+         */
+        final String name;
+        /**
+         * Literal text, or the reference text to keep if the variable is not set.
+         */
+        final byte[] bytes;
+
+        /**
+         * @param kind  Piece kind.
+         * @param name  Variable or fragment name.
+         * @param bytes Literal or reference text.
+         */
+        Segment(int kind, String name, byte[] bytes) {
+            this.kind = kind;
+            this.name = name;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * <h2>JclTemplate.Renderer</h2>
+     * Walks the pieces of the template and its fragments, one piece in memory at a time.
+     */
+    private static class Renderer extends InputStream {
+        /**
+         * Variables to expand.
+         */
+        private final Map<String, String> variables;
+        /**
+         * Include library.
+         */
+        private final Library library;
+        /**
+         * Templates being rendered (the innermost last) and their positions.
+         */
+        private final Deque<Iterator<Segment>> stack;
+        /**
+         * Whether the templates being rendered end with a line end.
+         */
+        private final Deque<Boolean> lineEnds;
+        /**
+         * Fragment names being rendered, to stop include loops.
+         */
+        private final Deque<String> names;
+        /**
+         * Current piece.
+         */
+        private InputStream current;
+
+        /**
+         * @param template  Template to render.
+         * @param variables Variables to expand.
+         * @param library   Include library.
+         */
+        Renderer(JclTemplate template, Map<String, String> variables, Library library) {
+            this.variables = variables;
+            this.library = library;
+            this.stack = new ArrayDeque<>();
+            this.lineEnds = new ArrayDeque<>();
+            this.names = new ArrayDeque<>();
+            this.stack.push(template.segments.iterator());
+            this.lineEnds.push(true);
+            this.names.push("");
+            this.current = null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            while (true) {
+                if (this.current != null) {
+                    int read = this.current.read(b, off, len);
+                    if (read != -1)
+                        return read;
+                    this.current = null;
+                }
+                if (!this.next())
+                    return -1;
+            }
+        }
+
+        /**
+         * Move to the next piece, entering and leaving fragments.
+         *
+         * @return Whether there is a piece.
+         * @throws IOException on fragment read failure, missing fragment or include loop.
+         */
+        private boolean next() throws IOException {
+            while (!this.stack.isEmpty()) {
+                Iterator<Segment> segments = this.stack.peek();
+                if (!segments.hasNext()) {
+                    this.stack.pop();
+                    this.names.pop();
+                    if (!this.lineEnds.pop()) {
+                        this.current = new ByteArrayInputStream(new byte[]{'\n'});
+                        return true;
+                    }
+                    continue;
+                }
+                Segment segment = segments.next();
+                switch (segment.kind) {
+                    case Segment.LITERAL:
+                        this.current = new ByteArrayInputStream(segment.bytes);
+                        return true;
+                    case Segment.VARIABLE:
+                        String value = this.variables.get(segment.name);
+                        this.current = new ByteArrayInputStream(
+                                value == null ? segment.bytes : value.getBytes(StandardCharsets.UTF_8));
+                        return true;
+                    default:
+                        this.enter(segment.name);
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param name Fragment name.
+         * @throws IOException on fragment read failure, missing fragment or include loop.
+         */
+        private void enter(String name) throws IOException {
+            if (this.names.contains(name))
+                throw new IOException("JCL fragment " + name + " includes itself");
+            if (this.stack.size() > MAX_DEPTH)
+                throw new IOException("JCL fragments nested deeper than " + MAX_DEPTH + " at " + name);
+            byte[] content = this.library.read(name);
+            if (content == null)
+                throw new IOException("JCL fragment not found in the include library: " + name);
+            JclTemplate fragment = compile(content);
+            this.stack.push(fragment.segments.iterator());
+            this.lineEnds.push(fragment.lineEnd);
+            this.names.push(name);
+        }
+    }
+}
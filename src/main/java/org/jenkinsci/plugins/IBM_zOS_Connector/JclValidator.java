@@ -0,0 +1,680 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <h2>JclValidator</h2>
+ * Local pre-flight check of the expanded JCL, so that obvious mistakes fail the build
+ * before a JES round trip (submit, wait, log retrieval and <code>JCL ERROR</code>).
+ * <br>Checks statement structure, names, operations, continuation rules, column limits,
+ * <code>EXEC</code> and <code>DD</code> syntax, in-stream data, <code>IF</code>/<code>PROC</code> nesting
+ * and unresolved symbols. It is deliberately conservative: anything it cannot judge is left to JES.
+ * <br>Build variables left unexpanded are errors, or only warnings within apostrophes, where they may be
+ * literal text (e.g. a shell command). JCL symbols not set within the job are only warnings,
+ * as they may be installation system symbols.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class JclValidator implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Record length of a JCL card.
+     */
+    private static final int RECORD = 80;
+    /**
+     * Last column of the statement fields.
+     */
+    private static final int LAST_COLUMN = 71;
+    /**
+     * Last column a continued parameter may start in.
+     */
+    private static final int CONTINUATION_COLUMN = 16;
+    /**
+     * Operations JES accepts.
+     */
+    private static final Set<String> OPERATIONS = new HashSet<>(Arrays.asList(
+            "JOB", "EXEC", "DD", "PROC", "PEND", "SET", "IF", "ELSE", "ENDIF", "JCLLIB", "INCLUDE",
+            "OUTPUT", "CNTL", "ENDCNTL", "EXPORT", "COMMAND", "XMIT", "SCHEDULE", "NOTIFY",
+            "JOBGROUP", "ENDGROUP", "GJOB", "JOBSET", "SJOB", "ENDSET", "AFTER", "BEFORE", "CONCURRENT"));
+    /**
+     * Date and time symbols every job may use (besides the <code>SYS*</code> ones).
+     */
+    private static final Set<String> SYSTEM_SYMBOLS = new HashSet<>(Arrays.asList(
+            "DAY", "HHMMSS", "HR", "JDAY", "MIN", "MON", "SEC", "SEQ", "WDAY", "YR2", "YR4", "YYMMDD",
+            "LDAY", "LHHMMSS", "LHR", "LJDAY", "LMIN", "LMON", "LSEC", "LWDAY", "LYR2", "LYR4", "LYYMMDD"));
+    /**
+     * Build variable reference left in the JCL.
+     */
+    private static final Pattern BUILD_VARIABLE = Pattern.compile("\\$\\{[A-Za-z0-9_.]+}");
+    /**
+     * Name of a job, step, DD, procedure or symbol.
+     */
+    private static final Pattern NAME = Pattern.compile("[A-Z@#$][A-Z0-9@#$]{0,7}");
+
+    /**
+     * Problems that make JES reject the job.
+     */
+    private final ArrayList<String> errors = new ArrayList<>();
+    /**
+     * Likely problems.
+     */
+    private final ArrayList<String> warnings = new ArrayList<>();
+
+    /**
+     * Symbols set within the current job.
+     */
+    private transient Set<String> symbols;
+    /**
+     * Statement being collected, <code>null</code> if none.
+     */
+    private transient Statement statement;
+    /**
+     * Whether the statement being collected is continued on the next line.
+     */
+    private transient boolean continued;
+    /**
+     * Whether the continuation is within an apostrophe-enclosed value.
+     */
+    private transient boolean quoted;
+    /**
+     * Delimiter of the in-stream data being read, <code>null</code> outside in-stream data.
+     */
+    private transient String delimiter;
+    /**
+     * Whether the in-stream data also ends with a JCL statement (<code>DD *</code>).
+     */
+    private transient boolean endsWithStatement;
+    /**
+     * Whether a <code>JOB</code> statement was seen.
+     */
+    private transient boolean job;
+    /**
+     * Open <code>IF</code> statements.
+     */
+    private transient int ifDepth;
+    /**
+     * Line of the open in-stream <code>PROC</code>, <code>0</code> if none.
+     */
+    private transient int procLine;
+
+    /**
+     * Check the JCL.
+     *
+     * @param jcl Expanded JCL (UTF-8). Not closed.
+     * @throws IOException on read failure.
+     */
+    void validate(InputStream jcl) throws IOException {
+        this.symbols = new HashSet<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(jcl, StandardCharsets.UTF_8));
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null)
+            this.line(++number, line);
+        this.end(number);
+    }
+
+    /**
+     * @return Problems that make JES reject the job.
+     */
+    List<String> getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * @return Likely problems.
+     */
+    List<String> getWarnings() {
+        return this.warnings;
+    }
+
+    /**
+     * @param number Line number.
+     * @param line   Line.
+     */
+    private void line(int number, String line) {
+        // In-stream data first: it may look like anything.
+        if (this.delimiter != null) {
+            if (line.startsWith(this.delimiter)) {
+                this.delimiter = null;
+                return;
+            }
+            if (!this.endsWithStatement || !line.startsWith("//")) {
+                if (line.length() > RECORD)
+                    this.warning(number, "in-stream record is longer than " + RECORD + " columns");
+                return;
+            }
+            this.delimiter = null;
+        }
+
+        if (line.startsWith("//*"))
+            return;
+        if (!line.startsWith("//")) {
+            if (this.abandon()) {
+                this.line(number, line);
+                return;
+            }
+            if (line.startsWith("/*"))
+                return;
+            if (!this.job) {
+                this.error(number, "JCL must start with a JOB statement");
+                this.job = true;
+            }
+            // JES reads it as in-stream data of an implicit SYSIN DD *.
+            this.delimiter = "/*";
+            this.endsWithStatement = true;
+            this.line(number, line);
+            return;
+        }
+
+        String fields = line.length() > LAST_COLUMN ? line.substring(0, LAST_COLUMN) : line;
+        boolean blank = fields.substring(2).trim().isEmpty();
+        boolean continuation = this.continued && !blank && fields.charAt(2) == ' ';
+        if (!continuation && this.abandon()) {
+            this.line(number, line);
+            return;
+        }
+
+        if (line.length() > RECORD)
+            this.error(number, "line is longer than " + RECORD + " columns");
+        if (line.indexOf('\t') >= 0)
+            this.error(number, "tab character in a JCL statement");
+        // Null statement: end of job.
+        if (blank)
+            return;
+        if (continuation) {
+            int start = firstNonBlank(fields, 2);
+            if (this.quoted ? start != CONTINUATION_COLUMN - 1 : start > CONTINUATION_COLUMN - 1)
+                this.error(number, this.quoted
+                        ? "continued value must resume in column " + CONTINUATION_COLUMN
+                        : "continued parameters must start in columns 4-" + CONTINUATION_COLUMN);
+            this.operands(number, line, fields, start);
+            return;
+        }
+
+        // Name field (optional), operation, operands.
+        int position = 2;
+        String name = null;
+        if (fields.charAt(2) != ' ') {
+            position = fields.indexOf(' ', 2);
+            if (position < 0)
+                position = fields.length();
+            name = fields.substring(2, position);
+        }
+        int start = firstNonBlank(fields, position);
+        if (start >= fields.length()) {
+            this.error(number, "statement has no operation");
+            return;
+        }
+        int end = fields.indexOf(' ', start);
+        if (end < 0)
+            end = fields.length();
+        String operation = fields.substring(start, end);
+        if (!OPERATIONS.contains(operation)) {
+            this.error(number, "unknown operation '" + operation + "'");
+            return;
+        }
+        if (name != null && !validName(name, operation))
+            this.error(number, "invalid name '" + name + "'");
+        this.statement = new Statement(number, name, operation);
+        if (!this.job && !operation.equals("JOB"))
+            this.error(number, "JCL must start with a JOB statement");
+        this.job = true;
+        this.operands(number, line, fields, firstNonBlank(fields, end));
+    }
+
+    /**
+     * Collect the operand field of a statement line.
+     *
+     * @param number Line number.
+     * @param line   Line.
+     * @param fields Statement fields (columns 1-71).
+     * @param start  Start of the operands.
+     */
+    private void operands(int number, String line, String fields, int start) {
+        boolean quote = this.quoted;
+        int position = start;
+        if (this.statement.operation.equals("IF")) {
+            // The condition has blanks of its own: the statement ends with THEN.
+            String text = fields.substring(Math.min(start, fields.length())).trim();
+            this.statement.operands.append(text).append(' ');
+            this.continued = !this.statement.operands.toString().matches(".*\\bTHEN\\b.*");
+            this.quoted = false;
+            if (!this.continued)
+                this.finish();
+            return;
+        }
+        while (position < fields.length() && (quote || fields.charAt(position) != ' ')) {
+            if (fields.charAt(position) == '\'')
+                quote = !quote;
+            position++;
+        }
+        String text = fields.substring(Math.min(start, fields.length()), position);
+        this.statement.operands.append(text);
+        if (quote) {
+            // A value may go on through column 71 and resume on the next line.
+            this.continued = position == LAST_COLUMN;
+            this.quoted = this.continued;
+            if (!this.continued) {
+                this.error(number, "unbalanced apostrophe");
+                this.finish();
+            }
+            return;
+        }
+        if (position == LAST_COLUMN && line.length() > LAST_COLUMN && line.charAt(LAST_COLUMN) != ' ')
+            this.error(number, "parameters extend past column " + LAST_COLUMN);
+        this.continued = text.endsWith(",");
+        this.quoted = false;
+        if (!this.continued)
+            this.finish();
+    }
+
+    /**
+     * Give up a statement that was to be continued but is not.
+     *
+     * @return Whether the statement started in-stream data the current line belongs to.
+     */
+    private boolean abandon() {
+        if (!this.continued)
+            return false;
+        this.error(this.statement.line, "statement is not continued on the next line");
+        this.finish();
+        return this.delimiter != null;
+    }
+
+    /**
+     * Check the collected statement.
+     */
+    private void finish() {
+        Statement statement = this.statement;
+        this.statement = null;
+        this.continued = false;
+        this.quoted = false;
+        if (statement == null)
+            return;
+        int number = statement.line;
+        String operands = statement.operands.toString().trim();
+        this.buildVariables(number, operands);
+        List<String> parameters = parameters(operands);
+        if (parameters == null) {
+            this.error(number, "unbalanced parentheses");
+            return;
+        }
+        this.symbolReferences(number, operands);
+
+        switch (statement.operation) {
+            case "JOB":
+                if (statement.name == null)
+                    this.error(number, "JOB statement needs a job name");
+                if (this.ifDepth > 0)
+                    this.error(number, "IF without ENDIF before the next job");
+                if (this.procLine > 0)
+                    this.error(this.procLine, "PROC without PEND");
+                this.ifDepth = 0;
+                this.procLine = 0;
+                this.symbols.clear();
+                break;
+            case "EXEC":
+                this.exec(number, parameters);
+                break;
+            case "DD":
+                this.dd(number, parameters);
+                break;
+            case "SET":
+                for (String parameter : parameters)
+                    this.defineSymbol(number, parameter);
+                break;
+            case "PROC":
+                if (statement.name == null)
+                    this.error(number, "in-stream PROC needs a name");
+                else if (this.procLine > 0)
+                    this.error(number, "PROC within a PROC");
+                this.procLine = number;
+                for (String parameter : parameters)
+                    this.defineSymbol(number, parameter);
+                break;
+            case "PEND":
+                if (this.procLine == 0)
+                    this.error(number, "PEND without PROC");
+                this.procLine = 0;
+                break;
+            case "IF":
+                this.ifDepth++;
+                break;
+            case "ELSE":
+                if (this.ifDepth == 0)
+                    this.error(number, "ELSE without IF");
+                break;
+            case "ENDIF":
+                if (this.ifDepth == 0)
+                    this.error(number, "ENDIF without IF");
+                else
+                    this.ifDepth--;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @param number     Line number.
+     * @param parameters EXEC parameters.
+     */
+    private void exec(int number, List<String> parameters) {
+        if (parameters.isEmpty() || parameters.get(0).isEmpty()) {
+            this.error(number, "EXEC needs PGM= or a procedure name");
+            return;
+        }
+        String first = parameters.get(0);
+        String program = first.startsWith("PGM=") ? first.substring(4) : first.startsWith("PROC=") ? first.substring(5) : first;
+        if (program.indexOf('=') >= 0) {
+            this.error(number, "EXEC needs PGM= or a procedure name");
+        } else if (!program.startsWith("*.") && program.indexOf('&') < 0 && !NAME.matcher(program).matches()) {
+            this.error(number, "invalid program or procedure name '" + program + "'");
+        }
+        // Keyword overrides set the symbols of the procedure called.
+        for (String parameter : parameters.subList(1, parameters.size())) {
+            int eq = parameter.indexOf('=');
+            if (eq > 0 && NAME.matcher(parameter.substring(0, eq)).matches())
+                this.symbols.add(parameter.substring(0, eq));
+        }
+    }
+
+    /**
+     * @param number     Line number.
+     * @param parameters DD parameters.
+     */
+    private void dd(int number, List<String> parameters) {
+        String delimiter = null;
+        boolean data = false;
+        boolean star = false;
+        for (String parameter : parameters) {
+            if (parameter.equals("*")) {
+                star = true;
+            } else if (parameter.equals("DATA")) {
+                data = true;
+            } else if (parameter.startsWith("DLM=")) {
+                delimiter = unquote(parameter.substring(4));
+                if (delimiter.length() != 2)
+                    this.error(number, "DLM must be two characters");
+            } else if (parameter.startsWith("DSN=") || parameter.startsWith("DSNAME=")) {
+                this.dataSetName(number, parameter.substring(parameter.indexOf('=') + 1));
+            }
+        }
+        if (star || data) {
+            this.delimiter = delimiter != null ? delimiter : "/*";
+            this.endsWithStatement = star;
+        }
+    }
+
+    /**
+     * @param number Line number.
+     * @param name   DSN value.
+     */
+    private void dataSetName(int number, String name) {
+        // Temporary, referred back, symbolic and quoted names are left to JES.
+        if (name.isEmpty() || name.startsWith("*.") || name.startsWith("'") || name.indexOf('&') >= 0 || name.contains("${"))
+            return;
+        int member = name.indexOf('(');
+        if (member >= 0)
+            name = name.substring(0, member);
+        boolean valid = name.length() <= 44;
+        for (String qualifier : name.split("\\.", -1))
+            valid &= NAME.matcher(qualifier).matches() || qualifier.matches("[A-Z@#$][A-Z0-9@#$-]{0,7}");
+        if (!valid)
+            this.error(number, "invalid data set name '" + name + "'");
+    }
+
+    /**
+     * @param number    Line number.
+     * @param parameter <code>SYMBOL=value</code>.
+     */
+    private void defineSymbol(int number, String parameter) {
+        int eq = parameter.indexOf('=');
+        String name = eq < 0 ? parameter : parameter.substring(0, eq);
+        if (!NAME.matcher(name).matches())
+            this.error(number, "invalid symbol name '" + name + "'");
+        else
+            this.symbols.add(name);
+    }
+
+    /**
+     * Report build variables left unexpanded: errors, or warnings within apostrophes.
+     *
+     * @param number   Line number.
+     * @param operands Operand field.
+     */
+    private void buildVariables(int number, String operands) {
+        Matcher variable = BUILD_VARIABLE.matcher(operands);
+        boolean quote = false;
+        int position = 0;
+        while (variable.find()) {
+            for (; position < variable.start(); position++) {
+                if (operands.charAt(position) == '\'')
+                    quote = !quote;
+            }
+            if (quote)
+                this.warning(number, "build variable " + variable.group() + " within apostrophes is not expanded");
+            else
+                this.error(number, "unresolved build variable " + variable.group());
+        }
+    }
+
+    /**
+     * Warn about JCL symbols not set within the job. Values within apostrophes are left alone.
+     *
+     * @param number   Line number.
+     * @param operands Operand field.
+     */
+    private void symbolReferences(int number, String operands) {
+        boolean quote = false;
+        for (int i = 0; i < operands.length(); i++) {
+            char c = operands.charAt(i);
+            if (c == '\'') {
+                quote = !quote;
+            } else if (c == '&' && !quote) {
+                if (i + 1 < operands.length() && operands.charAt(i + 1) == '&') {
+                    // Temporary data set name.
+                    i++;
+                    continue;
+                }
+                int end = i + 1;
+                while (end < operands.length() && end - i <= 8 && isNameChar(operands.charAt(end)))
+                    end++;
+                String name = operands.substring(i + 1, end);
+                if (!name.isEmpty() && !this.symbols.contains(name) && !name.startsWith("SYS") && !SYSTEM_SYMBOLS.contains(name))
+                    this.warning(number, "symbol &" + name + " is not set in this job");
+                i = end - 1;
+            }
+        }
+    }
+
+    /**
+     * @param number Number of lines.
+     */
+    private void end(int number) {
+        if (this.continued) {
+            this.error(this.statement.line, "last statement is not continued");
+            this.finish();
+        }
+        if (!this.job)
+            this.error(number, "no JOB statement");
+        if (this.ifDepth > 0)
+            this.error(number, "IF without ENDIF");
+        if (this.procLine > 0)
+            this.error(this.procLine, "PROC without PEND");
+    }
+
+    /**
+     * @param number  Line number.
+     * @param message Problem.
+     */
+    private void error(int number, String message) {
+        this.errors.add("line " + number + ": " + message);
+    }
+
+    /**
+     * @param number  Line number.
+     * @param message Problem.
+     */
+    private void warning(int number, String message) {
+        this.warnings.add("line " + number + ": " + message);
+    }
+
+    /**
+     * @param operands Operand field.
+     * @return Top-level parameters, <code>null</code> if parentheses are unbalanced.
+     */
+    private static List<String> parameters(String operands) {
+        List<String> parameters = new ArrayList<>();
+        if (operands.isEmpty())
+            return parameters;
+        int depth = 0;
+        boolean quote = false;
+        int start = 0;
+        for (int i = 0; i < operands.length(); i++) {
+            char c = operands.charAt(i);
+            if (c == '\'') {
+                quote = !quote;
+            } else if (!quote && c == '(') {
+                depth++;
+            } else if (!quote && c == ')') {
+                if (--depth < 0)
+                    return null;
+            } else if (!quote && depth == 0 && c == ',') {
+                parameters.add(operands.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (depth != 0)
+            return null;
+        parameters.add(operands.substring(start));
+        return parameters;
+    }
+
+    /**
+     * @param name      Name field.
+     * @param operation Operation.
+     * @return Whether the name is valid (<code>procstep.ddname</code> for DD overrides).
+     */
+    private static boolean validName(String name, String operation) {
+        if (operation.equals("DD")) {
+            for (String part : name.split("\\.", -1)) {
+                if (!NAME.matcher(part).matches())
+                    return false;
+            }
+            return name.split("\\.", -1).length <= 2;
+        }
+        return NAME.matcher(name).matches();
+    }
+
+    /**
+     * @param value Value, possibly within apostrophes.
+     * @return Value without apostrophes.
+     */
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("'") && value.endsWith("'")
+                ? value.substring(1, value.length() - 1).replace("''", "'")
+                : value;
+    }
+
+    /**
+     * @param text  Text.
+     * @param start Where to start.
+     * @return Index of the first non-blank character, or the text length.
+     */
+    private static int firstNonBlank(String text, int start) {
+        int i = start;
+        while (i < text.length() && text.charAt(i) == ' ')
+            i++;
+        return i;
+    }
+
+    /**
+     * @param c Character.
+     * @return Whether the character can be part of a name.
+     */
+    private static boolean isNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '@' || c == '#' || c == '$';
+    }
+
+    /**
+     * <h2>JclValidator.Statement</h2>
+     * JCL statement with its continuation lines.
+     */
+    private static class Statement {
+        /**
+         * Line the statement starts on.
+         */
+        final int line;
+        /**
+         * Name field, <code>null</code> if none.
+         */
+        final String name;
+        /**
+         * Operation.
+         */
+        final String operation;
+        /**
+         * Operand field, continuation lines appended.
+         */
+        final StringBuilder operands = new StringBuilder();
+
+        /**
+         * @param line      Line the statement starts on.
+         * @param name      Name field.
+         * @param operation Operation.
+         */
+        Statement(int line, String name, String operation) {
+            this.line = line;
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * <h2>JclValidator.Check</h2>
+     * Validation run on the agent holding the workspace: only the findings come back.
+     */
+    static class Check extends MasterToSlaveFileCallable<JclValidator> {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Job file.
+         */
+        private final JclSource jcl;
+
+        /**
+         * @param jcl Job file.
+         */
+        Check(JclSource jcl) {
+            this.jcl = jcl;
+        }
+
+        @Override
+        public JclValidator invoke(File workspace, VirtualChannel channel) throws IOException {
+            JclValidator validator = new JclValidator();
+            try (InputStream jcl = this.jcl.open(workspace)) {
+                validator.validate(jcl);
+            }
+            return validator;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.model.TaskListener;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * <h2>JobConnector</h2>
+ * Runs a whole job: submits it, waits for it, fetches its log and cleans up.
+ * <br>Done by {@link TransportConnector} over any {@link JobTransport}.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+interface JobConnector {
+    /**
+     * Submit job for execution.
+     *
+     * @param inputStream        JCL text of the job.
+     * @param wait               Whether we need for the job to complete.
+     * @param waitTime           Maximum wait time in minutes. If set to <code>0</code>, will wait forever.
+     * @param outputStream       Stream to put job log. Can be <code>Null</code>.
+     * @param deleteLogFromSpool Whether the job log should be deleted fro spool upon job end.
+     * @param taskListener       Listener to log to.
+     * @return Whether the job was successfully submitted and the job log was fetched.
+     */
+    boolean submit(InputStream inputStream, boolean wait, int waitTime, OutputStream outputStream, boolean deleteLogFromSpool, TaskListener taskListener);
+
+    /**
+     * Fetch the log of a job submitted earlier that has ended, without waiting for it.
+     *
+     * @param jobID              JobID in JES.
+     * @param outputStream       Stream to put job log. Can be <code>Null</code>.
+     * @param deleteLogFromSpool Whether the job log should be deleted fro spool.
+     * @param taskListener       Listener to log to.
+     * @return Whether the job log was fetched.
+     */
+    boolean collect(String jobID, OutputStream outputStream, boolean deleteLogFromSpool, TaskListener taskListener);
+
+    /**
+     * @param submitListener Receives the JobID as soon as the job is submitted, before waiting for it.
+     */
+    void setSubmitListener(Consumer<String> submitListener);
+
+    /**
+     * @param cancelOnInterrupt Asked once the wait is interrupted: whether to cancel the job.
+     * @param cancelTimeout     Time given to cancel the job (seconds). Non-positive for default.
+     */
+    void setCancelOnInterrupt(BooleanSupplier cancelOnInterrupt, int cancelTimeout);
+
+    /**
+     * @param retryAttempts Attempts per idempotent operation. Non-positive for default.
+     * @param retryBackoff  Delay before the first retry (seconds). Non-positive for default.
+     */
+    void setRetries(int retryAttempts, int retryBackoff);
+
+    /**
+     * @param spoolSelection Spool files to retrieve. <code>null</code> for all.
+     */
+    void setSpoolSelection(SpoolSelection spoolSelection);
+
+    /**
+     * @return UserID the connector logs on with.
+     */
+    String getUserID();
+
+    /**
+     * @return JobID in JES.
+     */
+    String getJobID();
+
+    /**
+     * @return Jobname in JES.
+     */
+    String getJobName();
+
+    /**
+     * @return Job completion or the reason of the failure.
+     */
+    String getJobCC();
+
+    /**
+     * @return Whether the job was cancelled because the wait was interrupted.
+     */
+    boolean isJobCancelled();
+
+    /**
+     * @return Qualified DD names (<code>STEPNAME.PROCSTEP.DDNAME</code>) of the retrieved spool files,
+     * <code>null</code> if the spool files could not be listed (<code>JESINTERFACELEVEL=1</code>).
+     */
+    List<String> getSpoolFileNames();
+}
@@ -0,0 +1,544 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.Util;
+import jenkins.model.Jenkins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <h2>JobLogChunkStore</h2>
+ * Controller-wide store of job logs split into content-defined chunks, each unique chunk kept once (gzip-compressed).
+ * <br>Chunk ends are chosen by a rolling (gear) hash of the content and moved to the next line end.
+ * As in FastCDC, the high-order hash bits are tested (they depend on the last 64 bytes, the low ones on the last few)
+ * and chunking is normalized: a cut is harder to reach below {@value #NORMAL_CHUNK} bytes and easier above it,
+ * which keeps chunk sizes close to it. Logs of consecutive builds differing in a few lines share all the other chunks.
+ * A log is kept as a recipe: the list of its chunks.
+ * <br>Recipes are registered relative to <code>JENKINS_HOME</code>, chunks no recipe refers to anymore
+ * are removed by {@link #collectGarbage()}.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see ZOSJobLogChunkCleanup
+ */
+class JobLogChunkStore {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(JobLogChunkStore.class.getName());
+    /**
+     * Smallest chunk (bytes).
+     */
+    private static final int MIN_CHUNK = 2 * 1024;
+    /**
+     * Largest chunk (bytes).
+     */
+    private static final int MAX_CHUNK = 64 * 1024;
+    /**
+     * Normal chunk size (bytes): 13 hash bits, one bit more or less either side.
+     */
+    private static final int NORMAL_CHUNK = 8 * 1024;
+    /**
+     * High-order hash bits that must be zero to end a chunk smaller than the normal size.
+     */
+    private static final long MASK_SMALL = -1L << (Long.SIZE - 15);
+    /**
+     * High-order hash bits that must be zero to end a chunk of the normal size or larger.
+     */
+    private static final long MASK_LARGE = -1L << (Long.SIZE - 11);
+    /**
+     * Chunks younger than this are never removed: they may belong to a recipe being written.
+     */
+    private static final long GRACE_PERIOD = 24 * 60 * 60 * 1000L;
+    /**
+     * Recipe file signature.
+     */
+    private static final int MAGIC = 0x5A4C4352; // "ZLCR"
+    /**
+     * Recipe file format version.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Gear table of the rolling hash. Fixed seed: chunk ends must not change between restarts.
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x5A4F53L);
+        for (int i = 0; i < GEAR.length; i++)
+            GEAR[i] = random.nextLong();
+    }
+
+    /**
+     * Shared instance.
+     */
+    private static JobLogChunkStore instance;
+
+    /**
+     * <code>JENKINS_HOME</code>, recipes are registered relative to it.
+     */
+    private final File home;
+    /**
+     * Directory holding chunks.
+     */
+    private final File directory;
+    /**
+     * List of registered recipe files.
+     */
+    private final File registry;
+
+    /**
+     * @param home <code>JENKINS_HOME</code>.
+     */
+    private JobLogChunkStore(File home) {
+        this.home = home;
+        this.directory = new File(home, "zos-connector/chunks");
+        this.registry = new File(this.directory, "recipes.txt");
+    }
+
+    /**
+     * @return Shared instance.
+     */
+    static synchronized JobLogChunkStore get() {
+        if (instance == null)
+            instance = new JobLogChunkStore(Jenkins.get().getRootDir());
+        return instance;
+    }
+
+    /**
+     * Store the log and write its recipe.
+     *
+     * @param log    Job log, read to its end. Not closed.
+     * @param recipe Recipe file to write.
+     * @return Number of chunks that were new to the store.
+     * @throws IOException on read or write failure.
+     */
+    int store(InputStream log, File recipe) throws IOException {
+        Chunker chunker = new Chunker();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = log.read(buffer)) != -1)
+            chunker.write(buffer, 0, read);
+        chunker.close();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recipe)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(chunker.hashes.size());
+            for (int i = 0; i < chunker.hashes.size(); i++) {
+                out.write(chunker.hashes.get(i));
+                out.writeInt(chunker.lengths.get(i));
+            }
+        }
+        this.register(recipe);
+        return chunker.added;
+    }
+
+    /**
+     * Keep a stored log under another recipe as well.
+     *
+     * @param recipe Recipe file.
+     * @param copy   Recipe file to write.
+     * @throws IOException on read or write failure.
+     */
+    void copy(File recipe, File copy) throws IOException {
+        Files.copy(recipe.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        this.register(copy);
+    }
+
+    /**
+     * Check that all the chunks of a stored log are there.
+     *
+     * @param recipe Recipe file.
+     * @throws FileNotFoundException if a chunk is missing.
+     * @throws IOException           on read failure.
+     */
+    void check(File recipe) throws IOException {
+        List<byte[]> hashes = new ArrayList<>();
+        readRecipe(recipe, hashes, new ArrayList<>());
+        this.checkChunks(hashes, 0);
+    }
+
+    /**
+     * @param hashes Chunk hashes.
+     * @param first  First chunk to check.
+     * @throws FileNotFoundException if a chunk is missing.
+     */
+    private void checkChunks(List<byte[]> hashes, int first) throws FileNotFoundException {
+        for (int i = first; i < hashes.size(); i++) {
+            File chunk = this.chunkFile(hashes.get(i));
+            if (!chunk.isFile())
+                throw new FileNotFoundException("Missing job log chunk " + chunk);
+        }
+    }
+
+    /**
+     * Open a stored log.
+     *
+     * @param recipe Recipe file.
+     * @param offset Offset to start at.
+     * @return Log content from the offset.
+     * @throws FileNotFoundException if a chunk is missing.
+     * @throws IOException           on read failure.
+     */
+    InputStream open(File recipe, long offset) throws IOException {
+        List<byte[]> hashes = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        readRecipe(recipe, hashes, lengths);
+        int first = 0;
+        long skip = offset;
+        while (first < lengths.size() && skip >= lengths.get(first)) {
+            skip -= lengths.get(first);
+            first++;
+        }
+        this.checkChunks(hashes, first);
+        int start = first;
+        InputStream in;
+        try {
+            in = new SequenceInputStream(new Enumeration<InputStream>() {
+                private int next = start;
+
+                @Override
+                public boolean hasMoreElements() {
+                    return this.next < hashes.size();
+                }
+
+                @Override
+                public InputStream nextElement() {
+                    if (!this.hasMoreElements())
+                        throw new NoSuchElementException();
+                    File chunk = JobLogChunkStore.this.chunkFile(hashes.get(this.next++));
+                    try {
+                        return new GZIPInputStream(new FileInputStream(chunk), 16 * 1024);
+                    } catch (FileNotFoundException e) {
+                        // Removed since the check: unwrapped by ChunkInputStream.
+                        throw new UncheckedIOException(new FileNotFoundException("Missing job log chunk " + chunk));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // The first chunk is opened right away.
+            throw e.getCause();
+        }
+        in = new ChunkInputStream(new BufferedInputStream(in, 64 * 1024));
+        try {
+            long skipped = in.skip(skip);
+            while (skipped < skip) {
+                long more = in.skip(skip - skipped);
+                if (more <= 0)
+                    break;
+                skipped += more;
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Remove chunks no registered recipe refers to and forget deleted recipes.
+     * <br>Nothing is removed if a registered recipe cannot be read: its chunks would be lost with it.
+     */
+    void collectGarbage() {
+        List<String> recipes;
+        try {
+            recipes = this.readRegistry();
+        } catch (IOException e) {
+            logger.warning("Cannot read job log chunk registry, skipping cleanup: " + e.getMessage());
+            return;
+        }
+        Set<String> live = new HashSet<>();
+        Set<String> deleted = new HashSet<>();
+        boolean complete = true;
+        for (String path : recipes) {
+            File recipe = new File(path).isAbsolute() ? new File(path) : new File(this.home, path);
+            if (!recipe.isFile()) {
+                deleted.add(path);
+                continue;
+            }
+            List<byte[]> hashes = new ArrayList<>();
+            try {
+                readRecipe(recipe, hashes, new ArrayList<>());
+            } catch (IOException e) {
+                // Unreadable now is not deleted: keep it registered and its chunks with it.
+                logger.warning("Cannot read job log recipe " + recipe + ", no chunk removed this time: " + e.getMessage());
+                complete = false;
+            }
+            for (byte[] hash : hashes)
+                live.add(Util.toHexString(hash));
+        }
+        this.forget(deleted);
+        if (!complete)
+            return;
+
+        long removed = 0;
+        long limit = System.currentTimeMillis() - GRACE_PERIOD;
+        File[] buckets = this.directory.listFiles(File::isDirectory);
+        if (buckets == null)
+            return;
+        for (File bucket : buckets) {
+            File[] chunks = bucket.listFiles((dir, name) -> name.endsWith(".gz"));
+            if (chunks == null)
+                continue;
+            for (File chunk : chunks) {
+                String hash = chunk.getName().substring(0, chunk.getName().length() - 3);
+                if (live.contains(hash))
+                    continue;
+                // Checked again under the lock: a log being stored may have just touched it.
+                synchronized (this) {
+                    if (chunk.lastModified() < limit && chunk.delete())
+                        removed++;
+                }
+            }
+        }
+        logger.fine("Job log chunk cleanup: " + (recipes.size() - deleted.size()) + " recipes, " + live.size() + " live chunks, " + removed + " removed");
+    }
+
+    /**
+     * @return Registered recipes.
+     * @throws IOException on read failure.
+     */
+    private synchronized List<String> readRegistry() throws IOException {
+        List<String> recipes = new ArrayList<>();
+        if (this.registry.isFile())
+            recipes.addAll(new LinkedHashSet<>(Files.readAllLines(this.registry.toPath(), StandardCharsets.UTF_8)));
+        return recipes;
+    }
+
+    /**
+     * @param deleted Recipes not to protect anymore.
+     */
+    private synchronized void forget(Set<String> deleted) {
+        if (deleted.isEmpty())
+            return;
+        try {
+            // Read again: recipes registered meanwhile stay.
+            List<String> kept = this.readRegistry();
+            kept.removeAll(deleted);
+            Files.write(this.registry.toPath(), kept, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warning("Cannot update job log chunk registry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param recipe Recipe file to protect the chunks of.
+     * @throws IOException on write failure.
+     */
+    private synchronized void register(File recipe) throws IOException {
+        // Relative: the registry stays valid when JENKINS_HOME moves.
+        String path;
+        try {
+            path = this.home.getAbsoluteFile().toPath().relativize(recipe.getAbsoluteFile().toPath()).toString();
+        } catch (IllegalArgumentException e) {
+            path = recipe.getAbsolutePath();
+        }
+        try (OutputStream out = new FileOutputStream(this.registry, true)) {
+            out.write((path + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param recipe  Recipe file.
+     * @param hashes  Receives chunk hashes.
+     * @param lengths Receives chunk lengths.
+     * @throws IOException on read failure or unknown format.
+     */
+    private static void readRecipe(File recipe, List<byte[]> hashes, List<Integer> lengths) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(recipe)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Unknown job log recipe format: " + recipe);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] hash = new byte[32];
+                in.readFully(hash);
+                hashes.add(hash);
+                lengths.add(in.readInt());
+            }
+        }
+    }
+
+    /**
+     * @param hash Chunk hash.
+     * @return Chunk file.
+     */
+    private File chunkFile(byte[] hash) {
+        String hex = Util.toHexString(hash);
+        return new File(new File(this.directory, hex.substring(0, 2)), hex + ".gz");
+    }
+
+    /**
+     * <h2>JobLogChunkStore.Chunker</h2>
+     * Splits the log into chunks and stores the new ones.
+     */
+    private class Chunker extends OutputStream {
+        /**
+         * Chunk being collected.
+         */
+        private final byte[] chunk = new byte[MAX_CHUNK];
+        /**
+         * Bytes in <code>chunk</code>.
+         */
+        private int length = 0;
+        /**
+         * Rolling hash.
+         */
+        private long hash = 0;
+        /**
+         * Whether the chunk ends at the next line end.
+         */
+        private boolean cutPending = false;
+        /**
+         * Hashes of the chunks in order.
+         */
+        private final List<byte[]> hashes = new ArrayList<>();
+        /**
+         * Lengths of the chunks in order.
+         */
+        private final List<Integer> lengths = new ArrayList<>();
+        /**
+         * Number of chunks that were new to the store.
+         */
+        private int added = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            this.chunk[this.length++] = (byte) b;
+            // Earlier bytes are shifted out of the hash before the smallest chunk size anyway.
+            if (this.length <= MIN_CHUNK - Long.SIZE)
+                return;
+            this.hash = (this.hash << 1) + GEAR[b & 0xFF];
+            if (this.length >= MIN_CHUNK && (this.hash & (this.length < NORMAL_CHUNK ? MASK_SMALL : MASK_LARGE)) == 0)
+                this.cutPending = true;
+            if ((this.cutPending && b == '\n') || this.length == MAX_CHUNK)
+                this.cut();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++)
+                this.write(b[i]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.length > 0)
+                this.cut();
+        }
+
+        /**
+         * End the chunk and store it unless already stored.
+         *
+         * @throws IOException on write failure.
+         */
+        private void cut() throws IOException {
+            byte[] digest;
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                md.update(this.chunk, 0, this.length);
+                digest = md.digest();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            File file = chunkFile(digest);
+            boolean stored;
+            // Under the lock: garbage collection must not remove it between the check and the touch.
+            synchronized (JobLogChunkStore.this) {
+                stored = file.isFile();
+                // Fresh again: garbage collection must not take it while the recipe is being written.
+                if (stored && !file.setLastModified(System.currentTimeMillis()))
+                    logger.fine("Cannot touch " + file);
+            }
+            if (!stored) {
+                File bucket = file.getParentFile();
+                if (!bucket.isDirectory() && !bucket.mkdirs())
+                    throw new IOException("Cannot create " + bucket);
+                File temp = File.createTempFile("chunk", ".tmp", bucket);
+                try (OutputStream out = new GZIPOutputStream(new FileOutputStream(temp))) {
+                    out.write(this.chunk, 0, this.length);
+                }
+                if (!temp.renameTo(file) && !file.isFile()) {
+                    Files.deleteIfExists(temp.toPath());
+                    throw new IOException("Cannot store " + file);
+                }
+                Files.deleteIfExists(temp.toPath());
+                this.added++;
+            }
+            this.hashes.add(digest);
+            this.lengths.add(this.length);
+            this.length = 0;
+            this.hash = 0;
+            this.cutPending = false;
+        }
+    }
+
+    /**
+     * <h2>JobLogChunkStore.ChunkInputStream</h2>
+     * Reports a chunk that cannot be opened on the way as the <code>IOException</code> it is.
+     */
+    private static class ChunkInputStream extends FilterInputStream {
+        /**
+         * @param in Chunks in sequence.
+         */
+        private ChunkInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return this.in.read();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return this.in.read(b, off, len);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                return this.in.skip(n);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <h2>JobLogExcerpt</h2>
+ * Bounded excerpt of a job log for the console: the first lines as they come,
+ * the last lines in a ring buffer. Lines in between are only counted.
+ * <br>Memory use does not depend on the log size, so a huge job log costs the build console
+ * a few hundred lines and a pointer to the saved log.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class JobLogExcerpt extends OutputStream {
+    /**
+     * Longest line kept (bytes), the rest of the line is cut.
+     */
+    static final int MAX_LINE_LENGTH = 1024;
+
+    /**
+     * Number of first lines to keep.
+     */
+    private final int headLines;
+    /**
+     * First lines.
+     */
+    private final ByteArrayOutputStream head;
+    /**
+     * Number of first lines kept.
+     */
+    private int headCount;
+    /**
+     * Last lines (ring buffer).
+     */
+    private final byte[][] tail;
+    /**
+     * Next position in <code>tail</code>.
+     */
+    private int tailPosition;
+    /**
+     * Number of lines in <code>tail</code>.
+     */
+    private int tailCount;
+    /**
+     * Line being collected.
+     */
+    private final byte[] line;
+    /**
+     * Bytes in <code>line</code>.
+     */
+    private int lineLength;
+    /**
+     * Whether the line being collected was cut.
+     */
+    private boolean lineCut;
+    /**
+     * Lines neither in head nor in tail.
+     */
+    private long omitted;
+
+    /**
+     * @param headLines Number of first lines to keep.
+     * @param tailLines Number of last lines to keep.
+     */
+    JobLogExcerpt(int headLines, int tailLines) {
+        this.headLines = Math.max(headLines, 0);
+        this.head = new ByteArrayOutputStream();
+        this.headCount = 0;
+        this.tail = new byte[Math.max(tailLines, 0)][];
+        this.tailPosition = 0;
+        this.tailCount = 0;
+        this.line = new byte[MAX_LINE_LENGTH];
+        this.lineLength = 0;
+        this.lineCut = false;
+        this.omitted = 0;
+    }
+
+    @Override
+    public void write(int b) {
+        if (b == '\n') {
+            this.endLine();
+        } else if (this.lineLength < this.line.length) {
+            this.line[this.lineLength++] = (byte) b;
+        } else {
+            this.lineCut = true;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            this.write(b[i]);
+    }
+
+    /**
+     * Finish the last line if it has no line end.
+     */
+    @Override
+    public void close() {
+        if (this.lineLength > 0 || this.lineCut)
+            this.endLine();
+    }
+
+    /**
+     * Put the collected line to head or tail.
+     */
+    private void endLine() {
+        byte[] text = Arrays.copyOf(this.line, this.lineLength);
+        if (this.lineCut) {
+            byte[] marker = " [...]".getBytes(StandardCharsets.US_ASCII);
+            text = Arrays.copyOf(text, text.length + marker.length);
+            System.arraycopy(marker, 0, text, this.lineLength, marker.length);
+        }
+        this.lineLength = 0;
+        this.lineCut = false;
+
+        if (this.headCount < this.headLines) {
+            this.head.write(text, 0, text.length);
+            this.head.write('\n');
+            this.headCount++;
+            return;
+        }
+        if (this.tail.length == 0) {
+            this.omitted++;
+            return;
+        }
+        if (this.tailCount == this.tail.length)
+            this.omitted++;
+        else
+            this.tailCount++;
+        this.tail[this.tailPosition] = text;
+        this.tailPosition = (this.tailPosition + 1) % this.tail.length;
+    }
+
+    /**
+     * @return Lines left out of the excerpt.
+     */
+    long getOmitted() {
+        return this.omitted;
+    }
+
+    /**
+     * Print the excerpt.
+     *
+     * @param out     Console.
+     * @param charset Log charset.
+     * @param fullLog Where the full log can be found (printed in place of the omitted lines).
+     */
+    void printTo(PrintStream out, Charset charset, String fullLog) {
+        this.close();
+        out.print(new String(this.head.toByteArray(), charset));
+        if (this.omitted > 0) {
+            out.println("... " + this.omitted + " lines of the job log are not shown. Full job log: " + fullLog + " ...");
+        }
+        int first = (this.tailPosition - this.tailCount + this.tail.length) % Math.max(this.tail.length, 1);
+        for (int i = 0; i < this.tailCount; i++) {
+            out.println(new String(this.tail[(first + i) % this.tail.length], charset));
+        }
+    }
+}
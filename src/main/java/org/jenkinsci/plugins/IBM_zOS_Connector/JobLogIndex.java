@@ -0,0 +1,762 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <h2>JobLogIndex</h2>
+ * Offsets of spool files (with the steps they belong to) and lines in a saved job log, so any part of a large log can be read without scanning it.
+ * <br>Every {@value #CHECKPOINT}-th line start is kept, the lines in between are found by a short forward scan.
+ * <br>A compressed log is a series of gzip members, one per checkpoint (a valid gzip file as a whole),
+ * so reading still starts at the closest checkpoint.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see ZOSJobLogAction
+ */
+class JobLogIndex {
+    /**
+     * Separator of spool files in the job log retrieved through FTP.
+     */
+    static final String SPOOL_FILE_SEPARATOR = "!! END OF JES SPOOL FILE !!";
+    /**
+     * Names of the spool files JES always puts first.
+     */
+    private static final String[] SYSTEM_DDS = {"JESMSGLG", "JESJCL", "JESYSMSG"};
+    /**
+     * Distance between kept line offsets.
+     */
+    static final int CHECKPOINT = 1024;
+    /**
+     * Index file signature.
+     */
+    private static final int MAGIC = 0x5A4C4958; // "ZLIX"
+    /**
+     * Index file format version.
+     */
+    private static final int VERSION = 3;
+    /**
+     * Size of the memory-mapped window for reading the log.
+     */
+    private static final int WINDOW = 16 * 1024 * 1024;
+
+    /**
+     * Log size (bytes).
+     */
+    private long size;
+    /**
+     * Number of lines.
+     */
+    private long lines;
+    /**
+     * Offsets of lines <code>0, CHECKPOINT, 2*CHECKPOINT...</code>
+     */
+    private long[] checkpoints;
+    /**
+     * Offsets of gzip members starting at the checkpoints, empty if the log is not compressed.
+     */
+    private long[] blocks;
+    /**
+     * Spool files in order.
+     */
+    private final List<SpoolFile> spoolFiles;
+
+    /**
+     * Empty index.
+     */
+    private JobLogIndex() {
+        this.size = 0;
+        this.lines = 0;
+        this.checkpoints = new long[0];
+        this.blocks = new long[0];
+        this.spoolFiles = new ArrayList<>();
+    }
+
+    /**
+     * @return Log size (bytes).
+     */
+    long getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return Number of lines.
+     */
+    long getLines() {
+        return this.lines;
+    }
+
+    /**
+     * @return Spool files in order.
+     */
+    List<SpoolFile> getSpoolFiles() {
+        return Collections.unmodifiableList(this.spoolFiles);
+    }
+
+    /**
+     * @param line Line number (from <code>0</code>).
+     * @return Offset of the closest kept line start at or before the line.
+     */
+    long checkpointOffset(long line) {
+        int i = (int) Math.min(line / CHECKPOINT, this.checkpoints.length - 1);
+        return i < 0 ? 0 : this.checkpoints[i];
+    }
+
+    /**
+     * @param line Line number (from <code>0</code>).
+     * @return Line number of the closest kept line start at or before the line.
+     */
+    long checkpointLine(long line) {
+        long i = Math.min(line / CHECKPOINT, this.checkpoints.length - 1);
+        return i < 0 ? 0 : i * CHECKPOINT;
+    }
+
+    /**
+     * @return Whether the log is stored compressed.
+     */
+    boolean isCompressed() {
+        return this.blocks.length > 0;
+    }
+
+    /**
+     * Open a log written by {@link Writer#Writer(File, boolean)}.
+     *
+     * @param log Log file this index is about.
+     * @return Log content (decompressed if stored compressed).
+     * @throws IOException on read failure.
+     */
+    InputStream open(File log) throws IOException {
+        InputStream in = new FileInputStream(log);
+        try {
+            // GZIPInputStream goes on through the following members.
+            return this.isCompressed() ? new GZIPInputStream(in, 64 * 1024) : new BufferedInputStream(in, 64 * 1024);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a range of lines of the log.
+     *
+     * @param log   Log file this index is about.
+     * @param first First line to copy (from <code>0</code>).
+     * @param end   Line after the last one to copy.
+     * @param out   Target stream.
+     * @throws IOException on read or write failure.
+     */
+    void copyLines(File log, long first, long end, OutputStream out) throws IOException {
+        if (first >= end)
+            return;
+        if (this.isCompressed()) {
+            this.copyCompressedLines(log, first, end, out);
+        } else {
+            this.copyMappedLines(log, first, end, out);
+        }
+    }
+
+    /**
+     * Copy a range of lines of a compressed log, decompressing from the closest checkpoint.
+     *
+     * @param log   Log file this index is about.
+     * @param first First line to copy (from <code>0</code>).
+     * @param end   Line after the last one to copy.
+     * @param out   Target stream.
+     * @throws IOException on read or write failure.
+     */
+    private void copyCompressedLines(File log, long first, long end, OutputStream out) throws IOException {
+        int block = (int) Math.min(first / CHECKPOINT, this.blocks.length - 1);
+        try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+            channel.position(this.blocks[block]);
+            // GZIPInputStream goes on through the following members.
+            try (InputStream gzip = new GZIPInputStream(Channels.newInputStream(channel), 64 * 1024);
+                 InputStream in = new BufferedInputStream(gzip, 64 * 1024)) {
+                copyStream(in, (long) block * CHECKPOINT, first, end, out);
+            }
+        }
+    }
+
+    /**
+     * Copy a range of lines of a log kept in the chunk store.
+     *
+     * @param store  Chunk store.
+     * @param recipe Recipe of the log this index is about.
+     * @param first  First line to copy (from <code>0</code>).
+     * @param end    Line after the last one to copy.
+     * @param out    Target stream.
+     * @throws IOException on read or write failure.
+     */
+    void copyLines(JobLogChunkStore store, File recipe, long first, long end, OutputStream out) throws IOException {
+        if (first >= end)
+            return;
+        try (InputStream in = store.open(recipe, this.checkpointOffset(first))) {
+            copyStream(in, this.checkpointLine(first), first, end, out);
+        }
+    }
+
+    /**
+     * @param in    Log from the start of a line.
+     * @param line  Number of that line.
+     * @param first First line to copy.
+     * @param end   Line after the last one to copy.
+     * @param out   Target stream.
+     * @throws IOException on read or write failure.
+     */
+    private static void copyStream(InputStream in, long line, long first, long end, OutputStream out) throws IOException {
+        int b;
+        while (line < end && (b = in.read()) >= 0) {
+            if (line >= first)
+                out.write(b);
+            if (b == '\n')
+                line++;
+        }
+    }
+
+    /**
+     * Copy a range of lines of an uncompressed log, reading it through memory-mapped windows.
+     *
+     * @param log   Log file this index is about.
+     * @param first First line to copy (from <code>0</code>).
+     * @param end   Line after the last one to copy.
+     * @param out   Target stream.
+     * @throws IOException on read or write failure.
+     */
+    private void copyMappedLines(File log, long first, long end, OutputStream out) throws IOException {
+        byte[] chunk = new byte[64 * 1024];
+        try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = this.checkpointOffset(first);
+            long line = this.checkpointLine(first);
+            while (position < size && line < end) {
+                int window = (int) Math.min(WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+                int from = line >= first ? 0 : -1;
+                int to = window;
+                for (int i = 0; i < window; i++) {
+                    if (buffer.get(i) != '\n')
+                        continue;
+                    line++;
+                    if (from < 0 && line == first) {
+                        from = i + 1;
+                    } else if (line == end) {
+                        to = i + 1;
+                        break;
+                    }
+                }
+                if (from >= 0) {
+                    buffer.position(from);
+                    while (buffer.position() < to) {
+                        int length = Math.min(chunk.length, to - buffer.position());
+                        buffer.get(chunk, 0, length);
+                        out.write(chunk, 0, length);
+                    }
+                }
+                position += window;
+            }
+        }
+    }
+
+    /**
+     * Give spool files their names and steps (e.g. from the spool file listing).
+     *
+     * @param names Qualified DD names (<code>STEPNAME.PROCSTEP.DDNAME</code>) in spool order.
+     */
+    void nameSpoolFiles(List<String> names) {
+        for (int i = 0; i < this.spoolFiles.size() && i < names.size(); i++) {
+            String name = names.get(i);
+            if (name == null)
+                continue;
+            int dot = name.lastIndexOf('.');
+            this.spoolFiles.get(i).name = name.substring(dot + 1);
+            this.spoolFiles.get(i).step = dot < 0 ? "" : name.substring(0, dot);
+        }
+    }
+
+    /**
+     * Find a spool file by name, e.g. <code>SYSPRINT</code> of step <code>STEP37</code>.
+     *
+     * @param step Step name, <code>STEPNAME</code> or <code>STEPNAME.PROCSTEP</code>. <code>null</code> for any step.
+     * @param dd   DD name.
+     * @return First matching spool file number, <code>-1</code> if there is none.
+     */
+    int findSpoolFile(String step, String dd) {
+        for (int i = 0; i < this.spoolFiles.size(); i++) {
+            SpoolFile spoolFile = this.spoolFiles.get(i);
+            if (spoolFile.name.equalsIgnoreCase(dd) && (step == null || spoolFile.step.equalsIgnoreCase(step)
+                    || spoolFile.step.toUpperCase().startsWith(step.toUpperCase() + ".")))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param file Index file.
+     * @throws IOException on write failure.
+     */
+    void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(this.size);
+            out.writeLong(this.lines);
+            out.writeInt(CHECKPOINT);
+            out.writeInt(this.checkpoints.length);
+            for (long offset : this.checkpoints)
+                out.writeLong(offset);
+            out.writeInt(this.blocks.length);
+            for (long offset : this.blocks)
+                out.writeLong(offset);
+            out.writeInt(this.spoolFiles.size());
+            for (SpoolFile spoolFile : this.spoolFiles) {
+                out.writeUTF(spoolFile.name);
+                out.writeUTF(spoolFile.step);
+                out.writeLong(spoolFile.offset);
+                out.writeLong(spoolFile.length);
+                out.writeLong(spoolFile.firstLine);
+                out.writeLong(spoolFile.lineCount);
+            }
+        }
+    }
+
+    /**
+     * @param file Index file.
+     * @return Loaded index.
+     * @throws IOException on read failure or unknown format.
+     */
+    static JobLogIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Unknown job log index format: " + file);
+            JobLogIndex index = new JobLogIndex();
+            index.size = in.readLong();
+            index.lines = in.readLong();
+            if (in.readInt() != CHECKPOINT)
+                throw new IOException("Unknown job log index format: " + file);
+            index.checkpoints = new long[in.readInt()];
+            for (int i = 0; i < index.checkpoints.length; i++)
+                index.checkpoints[i] = in.readLong();
+            index.blocks = new long[in.readInt()];
+            for (int i = 0; i < index.blocks.length; i++)
+                index.blocks[i] = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                String step = in.readUTF();
+                SpoolFile spoolFile = new SpoolFile(name, in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                spoolFile.step = step;
+                index.spoolFiles.add(spoolFile);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * <h2>JobLogIndex.SpoolFile</h2>
+     * Spool file (DD) within the job log.
+     */
+    public static class SpoolFile {
+        /**
+         * DD name (empty if unknown).
+         */
+        private String name;
+        /**
+         * Step (<code>STEPNAME</code> or <code>STEPNAME.PROCSTEP</code>, empty if unknown).
+         */
+        private String step;
+        /**
+         * Offset of the first byte.
+         */
+        private final long offset;
+        /**
+         * Length in bytes (without the separator).
+         */
+        private final long length;
+        /**
+         * Number of the first line.
+         */
+        private final long firstLine;
+        /**
+         * Number of lines (without the separator).
+         */
+        private final long lineCount;
+
+        /**
+         * @param name      DD name.
+         * @param offset    Offset of the first byte.
+         * @param length    Length in bytes.
+         * @param firstLine Number of the first line.
+         * @param lineCount Number of lines.
+         */
+        SpoolFile(String name, long offset, long length, long firstLine, long lineCount) {
+            this.name = name;
+            this.step = "";
+            this.offset = offset;
+            this.length = length;
+            this.firstLine = firstLine;
+            this.lineCount = lineCount;
+        }
+
+        /**
+         * @return DD name (empty if unknown).
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return Step (<code>STEPNAME</code> or <code>STEPNAME.PROCSTEP</code>, empty if unknown).
+         */
+        public String getStep() {
+            return this.step;
+        }
+
+        /**
+         * @return Offset of the first byte.
+         */
+        public long getOffset() {
+            return this.offset;
+        }
+
+        /**
+         * @return Length in bytes.
+         */
+        public long getLength() {
+            return this.length;
+        }
+
+        /**
+         * @return Number of the first line.
+         */
+        public long getFirstLine() {
+            return this.firstLine;
+        }
+
+        /**
+         * @return Number of lines.
+         */
+        public long getLineCount() {
+            return this.lineCount;
+        }
+    }
+
+    /**
+     * <h2>JobLogIndex.BlockWriter</h2>
+     * Compresses the log as it comes into one gzip member per checkpoint.
+     * <br>Checkpoints are found the same way as by {@link Writer}: at the start of every {@value #CHECKPOINT}-th line.
+     */
+    private static class BlockWriter extends OutputStream {
+        /**
+         * Target file stream.
+         */
+        private final FileOutputStream file;
+        /**
+         * Offsets of members.
+         */
+        private long[] blocks;
+        /**
+         * Number of members started.
+         */
+        private int blockCount;
+        /**
+         * Current member.
+         */
+        private GZIPOutputStream member;
+        /**
+         * Number of lines started.
+         */
+        private long lines;
+        /**
+         * Whether no byte of the current line was written yet.
+         */
+        private boolean atLineStart;
+
+        /**
+         * @param file Target file stream.
+         */
+        private BlockWriter(FileOutputStream file) {
+            this.file = file;
+            this.blocks = new long[16];
+            this.blockCount = 0;
+            this.member = null;
+            this.lines = 0;
+            this.atLineStart = true;
+        }
+
+        /**
+         * Finish the current member and start the next one.
+         *
+         * @throws IOException on write failure.
+         */
+        private void nextBlock() throws IOException {
+            if (this.member != null)
+                this.member.finish();
+            if (this.blockCount == this.blocks.length)
+                this.blocks = Arrays.copyOf(this.blocks, this.blockCount * 2);
+            this.blocks[this.blockCount++] = this.file.getChannel().position();
+            this.member = new GZIPOutputStream(new NonClosing(this.file), 64 * 1024);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (this.atLineStart) {
+                    this.atLineStart = false;
+                    if (this.lines % CHECKPOINT == 0) {
+                        if (i > start)
+                            this.member.write(b, start, i - start);
+                        this.nextBlock();
+                        start = i;
+                    }
+                }
+                if (b[i] == '\n') {
+                    this.lines++;
+                    this.atLineStart = true;
+                }
+            }
+            if (start < off + len)
+                this.member.write(b, start, off + len - start);
+        }
+
+        /**
+         * Finish the last member. Nothing is to be written after that.
+         *
+         * @return Offsets of members.
+         * @throws IOException on write failure.
+         */
+        private long[] finish() throws IOException {
+            // An empty log is still a valid gzip file.
+            if (this.member == null)
+                this.nextBlock();
+            this.member.finish();
+            return Arrays.copyOf(this.blocks, this.blockCount);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.file.close();
+        }
+    }
+
+    /**
+     * <h2>JobLogIndex.NonClosing</h2>
+     * Keeps the file open when a gzip member is done.
+     */
+    private static class NonClosing extends FilterOutputStream {
+        /**
+         * @param out Target stream.
+         */
+        private NonClosing(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.flush();
+        }
+    }
+
+    /**
+     * <h2>JobLogIndex.Writer</h2>
+     * Builds the index of the log passing through, or of the log it writes to a file.
+     */
+    static class Writer extends FilterOutputStream {
+        /**
+         * Separator line as bytes.
+         */
+        private static final byte[] SEPARATOR = SPOOL_FILE_SEPARATOR.getBytes(StandardCharsets.US_ASCII);
+
+        /**
+         * Index being built.
+         */
+        private final JobLogIndex index;
+        /**
+         * Kept line offsets.
+         */
+        private long[] checkpoints;
+        /**
+         * Number of kept line offsets.
+         */
+        private int checkpointCount;
+        /**
+         * Start of the current line.
+         */
+        private long lineStart;
+        /**
+         * Whether no byte of the current line was written yet.
+         */
+        private boolean atLineStart;
+        /**
+         * Whether the current line still can be the separator.
+         */
+        private boolean separatorCandidate;
+        /**
+         * Separator bytes matched on the current line.
+         */
+        private int separatorMatched;
+        /**
+         * Start offset of the current spool file.
+         */
+        private long spoolFileOffset;
+        /**
+         * First line of the current spool file.
+         */
+        private long spoolFileLine;
+        /**
+         * Compressing file writer, <code>null</code> if the log is not compressed.
+         */
+        private final BlockWriter blockWriter;
+
+        /**
+         * @param out Target stream.
+         */
+        Writer(OutputStream out) {
+            super(out);
+            this.blockWriter = out instanceof BlockWriter ? (BlockWriter) out : null;
+            this.index = new JobLogIndex();
+            this.checkpoints = new long[16];
+            this.checkpointCount = 0;
+            this.lineStart = 0;
+            this.atLineStart = true;
+            this.separatorCandidate = true;
+            this.separatorMatched = 0;
+            this.spoolFileOffset = 0;
+            this.spoolFileLine = 0;
+        }
+
+        /**
+         * Write the log to a file while indexing it.
+         * <br>A compressed log is compressed as it comes, so it is never held as a whole.
+         *
+         * @param log      Log file to write.
+         * @param compress Whether to compress the log.
+         * @throws IOException on failure to create the file.
+         */
+        Writer(File log, boolean compress) throws IOException {
+            this(compress ? new BlockWriter(new FileOutputStream(log)) : new BufferedOutputStream(new FileOutputStream(log), 64 * 1024));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.collect(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            for (int i = off; i < off + len; i++)
+                this.collect(b[i]);
+        }
+
+        /**
+         * @param b Next byte of the log.
+         */
+        private void collect(int b) {
+            if (this.atLineStart) {
+                this.atLineStart = false;
+                if (this.index.lines % CHECKPOINT == 0) {
+                    if (this.checkpointCount == this.checkpoints.length)
+                        this.checkpoints = Arrays.copyOf(this.checkpoints, this.checkpointCount * 2);
+                    this.checkpoints[this.checkpointCount++] = this.lineStart;
+                }
+            }
+            this.index.size++;
+            if (b == '\n') {
+                this.endLine();
+                return;
+            }
+            if (!this.separatorCandidate)
+                return;
+            if (this.separatorMatched < SEPARATOR.length && b == SEPARATOR[this.separatorMatched]) {
+                this.separatorMatched++;
+            } else if (!(b == '\r' || (b == ' ' && (this.separatorMatched == 0 || this.separatorMatched == SEPARATOR.length)))) {
+                // Only blanks and CR are allowed around the separator.
+                this.separatorCandidate = false;
+            }
+        }
+
+        /**
+         * The line just ended.
+         */
+        private void endLine() {
+            if (this.separatorCandidate && this.separatorMatched == SEPARATOR.length) {
+                this.addSpoolFile(this.lineStart, this.index.lines);
+                this.spoolFileOffset = this.index.size;
+                this.spoolFileLine = this.index.lines + 1;
+            }
+            this.index.lines++;
+            this.lineStart = this.index.size;
+            this.atLineStart = true;
+            this.separatorCandidate = true;
+            this.separatorMatched = 0;
+        }
+
+        /**
+         * @param end     Offset after the spool file.
+         * @param endLine Line after the spool file.
+         */
+        private void addSpoolFile(long end, long endLine) {
+            int number = this.index.spoolFiles.size();
+            String name = number < SYSTEM_DDS.length ? SYSTEM_DDS[number] : "";
+            this.index.spoolFiles.add(new SpoolFile(name, this.spoolFileOffset, end - this.spoolFileOffset,
+                    this.spoolFileLine, endLine - this.spoolFileLine));
+        }
+
+        /**
+         * Complete the index, and the log file if this writes one. Nothing is to be written after that.
+         *
+         * @return Index of the log.
+         * @throws IOException on write failure.
+         */
+        JobLogIndex getIndex() throws IOException {
+            if (!this.atLineStart) {
+                // Last line without line end.
+                this.index.lines++;
+                this.lineStart = this.index.size;
+                this.atLineStart = true;
+            }
+            if (this.spoolFileOffset < this.index.size)
+                this.addSpoolFile(this.index.size, this.index.lines);
+            this.spoolFileOffset = this.index.size;
+            this.spoolFileLine = this.index.lines;
+            this.index.checkpoints = Arrays.copyOf(this.checkpoints, this.checkpointCount);
+            if (this.blockWriter != null) {
+                this.index.blocks = this.blockWriter.finish();
+            } else {
+                this.out.flush();
+            }
+            return this.index;
+        }
+    }
+}
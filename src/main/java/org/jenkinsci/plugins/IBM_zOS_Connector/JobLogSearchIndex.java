@@ -0,0 +1,869 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * <h2>JobLogSearchIndex</h2>
+ * Controller-wide inverted index of job log terms over all builds.
+ * <br>Every indexed job log adds a small immutable segment file under <code>JENKINS_HOME/zos-connector/search</code>.
+ * A segment holds its terms sorted on disk, with every {@value #DIRECTORY_INTERVAL}-th term kept in memory,
+ * so a query reads a short stretch of each segment and postings never pile up in the heap.
+ * <br>Segments are merged on a background thread: the smallest ones once there are too many of them,
+ * all of them daily, dropping builds deleted by the retention policy.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see JobLogTerms
+ * @see ZOSJobLogSearch
+ * @see ZOSJobLogChunkCleanup
+ */
+class JobLogSearchIndex {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(JobLogSearchIndex.class.getName());
+    /**
+     * Whether indexing is disabled.
+     */
+    static final boolean DISABLED = Boolean.getBoolean(JobLogSearchIndex.class.getName() + ".disabled");
+    /**
+     * Number of segments that triggers a merge.
+     */
+    private static final int MAX_SEGMENTS = 32;
+    /**
+     * Distance between terms kept in memory.
+     */
+    private static final int DIRECTORY_INTERVAL = 64;
+    /**
+     * Searches of a query at most, when merges keep replacing the segments searched.
+     */
+    private static final int MAX_SEARCH_ATTEMPTS = 3;
+    /**
+     * Segment file signature.
+     */
+    private static final int MAGIC = 0x5A4C5349; // "ZLSI"
+    /**
+     * Segment file format version.
+     */
+    private static final int VERSION = 2;
+    /**
+     * Shared instance.
+     */
+    private static JobLogSearchIndex instance;
+
+    /**
+     * Directory holding segments.
+     */
+    private final File directory;
+    /**
+     * Segments searched.
+     */
+    private final List<Segment> segments;
+    /**
+     * Number of the last segment file.
+     */
+    private long sequence;
+    /**
+     * Whether a merge is running.
+     */
+    private boolean merging;
+
+    /**
+     * @param directory Directory holding segments.
+     */
+    private JobLogSearchIndex(File directory) {
+        this.directory = directory;
+        this.segments = new ArrayList<>();
+        this.sequence = 0;
+        this.merging = false;
+    }
+
+    /**
+     * @return Shared instance, loaded on first use.
+     */
+    static synchronized JobLogSearchIndex get() {
+        if (instance == null) {
+            instance = new JobLogSearchIndex(new File(Jenkins.get().getRootDir(), "zos-connector/search"));
+            instance.load();
+        }
+        return instance;
+    }
+
+    /**
+     * Index a job log.
+     *
+     * @param run     Build the log belongs to.
+     * @param jobID   JobID in JES.
+     * @param jobName Jobname in JES.
+     * @param terms   Term to the line of its first occurrence.
+     */
+    void add(Run<?, ?> run, String jobID, String jobName, Map<String, Long> terms) {
+        Entry entry = new Entry(run.getExternalizableId(), jobID, jobName, System.currentTimeMillis());
+        Segment segment;
+        try {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs())
+                throw new IOException("Cannot create " + this.directory);
+            segment = this.write(Collections.singletonList(entry), new long[0], writer -> {
+                for (Map.Entry<String, Long> term : new TreeMap<>(terms).entrySet())
+                    writer.add(term.getKey(), new int[]{0}, new long[]{term.getValue()}, 1);
+            });
+        } catch (IOException e) {
+            logger.warning("Cannot index job log [" + jobID + "] of " + entry.build + ": " + e.getMessage());
+            return;
+        }
+        boolean due;
+        synchronized (this) {
+            this.segments.add(segment);
+            due = this.segments.size() > MAX_SEGMENTS && !this.merging;
+        }
+        if (due)
+            Timer.get().submit(() -> this.merge(false));
+    }
+
+    /**
+     * Find job logs containing a term.
+     *
+     * @param query Term, or term prefix followed by <code>*</code>.
+     * @param limit Maximum number of results.
+     * @return Matches, newest first. Builds the current user cannot see are skipped.
+     */
+    List<Posting> search(String query, int limit) {
+        String term = query.trim().toUpperCase();
+        boolean prefix = term.endsWith("*");
+        if (prefix)
+            term = term.substring(0, term.length() - 1);
+        if (term.isEmpty() || limit <= 0)
+            return new ArrayList<>();
+        // Only the newest visible matches are kept while scanning, a common prefix does not fill the heap.
+        PriorityQueue<Posting> newest = new PriorityQueue<>(limit + 1, Comparator.comparingLong(Posting::getTime));
+        Map<String, Boolean> visible = new HashMap<>();
+        Consumer<Posting> collect = posting -> {
+            if (newest.size() >= limit && posting.getTime() <= newest.peek().getTime())
+                return;
+            if (!visible.computeIfAbsent(posting.getBuild(), build -> Run.fromExternalizableId(build) != null))
+                return;
+            newest.add(posting);
+            if (newest.size() > limit)
+                newest.poll();
+        };
+        for (int attempt = 1; !this.searchSegments(term, prefix, collect, attempt < MAX_SEARCH_ATTEMPTS); attempt++) {
+            // A merge deleted a segment of the snapshot: its postings are in the merged segment now.
+            newest.clear();
+        }
+        List<Posting> found = new ArrayList<>(newest);
+        found.sort(Comparator.comparingLong(Posting::getTime).reversed());
+        return found;
+    }
+
+    /**
+     * Search a snapshot of the segments.
+     *
+     * @param term    Term or term prefix.
+     * @param prefix  Whether <code>term</code> is a prefix.
+     * @param collect Match consumer.
+     * @param retry   Whether to give up on the snapshot when one of its segments was merged away meanwhile.
+     * @return Whether the snapshot was searched, <code>false</code> to search a new one.
+     */
+    private boolean searchSegments(String term, boolean prefix, Consumer<Posting> collect, boolean retry) {
+        List<Segment> segments;
+        synchronized (this) {
+            segments = new ArrayList<>(this.segments);
+        }
+        for (Segment segment : segments) {
+            try {
+                segment.find(term, prefix, collect);
+            } catch (IOException e) {
+                boolean merged;
+                synchronized (this) {
+                    merged = !this.segments.contains(segment);
+                }
+                if (merged && retry)
+                    return false;
+                logger.warning("Cannot search job log index segment " + segment.file + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Open all the segments, dropping the ones already merged into others.
+     */
+    private synchronized void load() {
+        File[] files = this.directory.listFiles();
+        if (files == null)
+            return;
+        Arrays.sort(files);
+        Map<File, Long> numbers = new HashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.matches("\\p{XDigit}{16}\\.seg")) {
+                numbers.put(file, Long.parseLong(name.substring(0, 16), 16));
+                this.sequence = Math.max(this.sequence, numbers.get(file));
+            } else if (name.endsWith(".tmp") && !file.delete()) {
+                // Left by a write that did not finish.
+                logger.warning("Cannot delete " + file);
+            }
+        }
+        List<Segment> loaded = new ArrayList<>();
+        Set<Long> replaced = new HashSet<>();
+        for (File file : files) {
+            if (!numbers.containsKey(file))
+                continue;
+            try {
+                Segment segment = Segment.open(file, numbers.get(file));
+                loaded.add(segment);
+                for (long merged : segment.replaced)
+                    replaced.add(merged);
+            } catch (IOException e) {
+                logger.warning("Dropping unreadable job log index segment " + file + ": " + e.getMessage());
+                if (!file.delete())
+                    logger.warning("Cannot delete " + file);
+            }
+        }
+        for (Segment segment : loaded) {
+            if (!replaced.contains(segment.number)) {
+                this.segments.add(segment);
+            } else if (!segment.file.delete()) {
+                logger.warning("Cannot delete merged segment " + segment.file);
+            }
+        }
+    }
+
+    /**
+     * Merge segments into one on the calling thread, at most one merge at a time.
+     * Builds are resolved outside the index lock, searches and new job logs go on meanwhile.
+     *
+     * @param all Whether to merge all the segments and drop deleted builds, or just the smallest half.
+     */
+    void merge(boolean all) {
+        List<Segment> inputs = new ArrayList<>();
+        synchronized (this) {
+            if (this.merging)
+                return;
+            inputs.addAll(this.segments);
+            if (!all) {
+                inputs.sort(Comparator.comparingLong(segment -> segment.file.length()));
+                inputs.subList(inputs.size() / 2, inputs.size()).clear();
+            }
+            if (inputs.size() < (all ? 1 : 2))
+                return;
+            this.merging = true;
+        }
+        boolean failed = false;
+        try {
+            // Entry numbers of each input in the merged segment, -1 to drop.
+            List<Entry> entries = new ArrayList<>();
+            int[][] maps = new int[inputs.size()][];
+            Map<String, Boolean> live = new HashMap<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                List<Entry> input = inputs.get(i).entries;
+                maps[i] = new int[input.size()];
+                for (int j = 0; j < input.size(); j++) {
+                    Entry entry = input.get(j);
+                    boolean keep = !all || live.computeIfAbsent(entry.build, JobLogSearchIndex::exists);
+                    maps[i][j] = keep ? entries.size() : -1;
+                    if (keep)
+                        entries.add(entry);
+                }
+            }
+            int dropped = inputs.stream().mapToInt(segment -> segment.entries.size()).sum() - entries.size();
+            if (inputs.size() == 1 && dropped == 0)
+                return;
+
+            List<Long> replaced = new ArrayList<>();
+            for (Segment input : inputs) {
+                replaced.add(input.number);
+                // Merged earlier but still there: deletion failed.
+                for (long number : input.replaced) {
+                    if (this.segmentFile(number).exists())
+                        replaced.add(number);
+                }
+            }
+            Segment merged = this.write(entries, replaced.stream().mapToLong(Long::longValue).toArray(),
+                    writer -> mergeTerms(inputs, maps, writer));
+            synchronized (this) {
+                this.segments.removeAll(inputs);
+                this.segments.add(merged);
+            }
+            for (Segment input : inputs) {
+                if (!input.file.delete())
+                    logger.warning("Cannot delete merged segment " + input.file);
+            }
+            logger.fine("Merged " + inputs.size() + " job log index segments, " + dropped + " deleted builds dropped");
+        } catch (IOException e) {
+            logger.warning("Cannot merge job log index segments: " + e.getMessage());
+            failed = true;
+        } finally {
+            boolean again;
+            synchronized (this) {
+                this.merging = false;
+                again = !failed && this.segments.size() > MAX_SEGMENTS;
+            }
+            // Job logs indexed during the merge.
+            if (again)
+                Timer.get().submit(() -> this.merge(false));
+        }
+    }
+
+    /**
+     * @param build Externalizable ID of the build.
+     * @return Whether the build still exists, regardless of the permissions of the current user.
+     */
+    private static boolean exists(String build) {
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            return Run.fromExternalizableId(build) != null;
+        }
+    }
+
+    /**
+     * Merge the sorted terms of the segments, one term at a time.
+     *
+     * @param inputs Segments.
+     * @param maps   Entry numbers of each segment in the merged one, <code>-1</code> to drop.
+     * @param writer Merged segment.
+     * @throws IOException on read or write failure.
+     */
+    private static void mergeTerms(List<Segment> inputs, int[][] maps, SegmentWriter writer) throws IOException {
+        List<Cursor> cursors = new ArrayList<>();
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Comparator.comparing((Cursor cursor) -> cursor.term));
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                Cursor cursor = new Cursor(inputs.get(i), maps[i]);
+                cursors.add(cursor);
+                if (cursor.next())
+                    queue.add(cursor);
+            }
+            int[] entryIndices = new int[16];
+            long[] lines = new long[16];
+            while (!queue.isEmpty()) {
+                String term = queue.peek().term;
+                int count = 0;
+                List<Cursor> same = new ArrayList<>();
+                while (!queue.isEmpty() && queue.peek().term.equals(term))
+                    same.add(queue.poll());
+                for (Cursor cursor : same) {
+                    for (int i = 0; i < cursor.count; i++) {
+                        int entry = cursor.map[cursor.entryIndices[i]];
+                        if (entry < 0)
+                            continue;
+                        if (count == entryIndices.length) {
+                            entryIndices = Arrays.copyOf(entryIndices, count * 2);
+                            lines = Arrays.copyOf(lines, count * 2);
+                        }
+                        entryIndices[count] = entry;
+                        lines[count++] = cursor.lines[i];
+                    }
+                    if (cursor.next())
+                        queue.add(cursor);
+                }
+                if (count > 0)
+                    writer.add(term, entryIndices, lines, count);
+            }
+        } finally {
+            for (Cursor cursor : cursors)
+                cursor.close();
+        }
+    }
+
+    /**
+     * Write a segment and give it the next number.
+     *
+     * @param entries  Job logs.
+     * @param replaced Numbers of the segments it replaces.
+     * @param terms    Writes the terms in order.
+     * @return New segment.
+     * @throws IOException on write failure.
+     */
+    private Segment write(List<Entry> entries, long[] replaced, Terms terms) throws IOException {
+        File temp = File.createTempFile("segment", ".tmp", this.directory);
+        try {
+            String[] keys;
+            long[] offsets;
+            try (SegmentWriter writer = new SegmentWriter(temp, entries, replaced)) {
+                terms.writeTo(writer);
+                writer.finish();
+                keys = writer.keys.toArray(new String[0]);
+                offsets = Arrays.copyOf(writer.offsets, keys.length);
+            }
+            long number;
+            synchronized (this) {
+                number = ++this.sequence;
+            }
+            File file = this.segmentFile(number);
+            if (!temp.renameTo(file))
+                throw new IOException("Cannot rename " + temp + " to " + file);
+            return new Segment(file, number, replaced, entries, keys, offsets);
+        } finally {
+            if (temp.exists() && !temp.delete())
+                logger.warning("Cannot delete " + temp);
+        }
+    }
+
+    /**
+     * @param number Segment number.
+     * @return Segment file, named to sort in order of creation.
+     */
+    private File segmentFile(long number) {
+        return new File(this.directory, String.format("%016x.seg", number));
+    }
+
+    /**
+     * <h2>JobLogSearchIndex.Terms</h2>
+     * Source of the sorted terms of a new segment.
+     */
+    private interface Terms {
+        /**
+         * @param writer Segment being written.
+         * @throws IOException on read or write failure.
+         */
+        void writeTo(SegmentWriter writer) throws IOException;
+    }
+
+    /**
+     * <h2>JobLogSearchIndex.Segment</h2>
+     * Immutable segment file: replaced segment numbers, job logs, then sorted terms with their postings,
+     * then every {@value #DIRECTORY_INTERVAL}-th term with its offset and finally the offset of that directory.
+     */
+    private static class Segment {
+        /**
+         * Segment file.
+         */
+        private final File file;
+        /**
+         * Segment number.
+         */
+        private final long number;
+        /**
+         * Numbers of the segments merged into this one.
+         */
+        private final long[] replaced;
+        /**
+         * Job logs.
+         */
+        private final List<Entry> entries;
+        /**
+         * Every {@value #DIRECTORY_INTERVAL}-th term.
+         */
+        private final String[] keys;
+        /**
+         * Offsets of the terms in <code>keys</code>.
+         */
+        private final long[] offsets;
+
+        /**
+         * @param file     Segment file.
+         * @param number   Segment number.
+         * @param replaced Numbers of the segments merged into this one.
+         * @param entries  Job logs.
+         * @param keys     Every {@value #DIRECTORY_INTERVAL}-th term.
+         * @param offsets  Offsets of the terms in <code>keys</code>.
+         */
+        private Segment(File file, long number, long[] replaced, List<Entry> entries, String[] keys, long[] offsets) {
+            this.file = file;
+            this.number = number;
+            this.replaced = replaced;
+            this.entries = entries;
+            this.keys = keys;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Read the job logs and the term directory of a segment.
+         *
+         * @param file   Segment file.
+         * @param number Segment number.
+         * @return Segment.
+         * @throws IOException on read failure or unknown format.
+         */
+        private static Segment open(File file, long number) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    throw new IOException("Unknown format");
+                long[] replaced = new long[in.readInt()];
+                for (int i = 0; i < replaced.length; i++)
+                    replaced[i] = in.readLong();
+                int count = in.readInt();
+                List<Entry> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    entries.add(new Entry(in.readUTF(), in.readUTF(), in.readUTF(), in.readLong()));
+
+                ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+                channel.position(channel.size() - Long.BYTES);
+                while (trailer.hasRemaining()) {
+                    if (channel.read(trailer) < 0)
+                        throw new IOException("Truncated");
+                }
+                trailer.flip();
+                channel.position(trailer.getLong());
+                in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                String[] keys = new String[in.readInt()];
+                long[] offsets = new long[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = in.readUTF();
+                    offsets[i] = in.readLong();
+                }
+                return new Segment(file, number, replaced, entries, keys, offsets);
+            }
+        }
+
+        /**
+         * Read the postings of a term, or of all the terms with a prefix.
+         *
+         * @param term   Term or prefix.
+         * @param prefix Whether the term is a prefix.
+         * @param found  Receives the postings.
+         * @throws IOException on read failure.
+         */
+        private void find(String term, boolean prefix, Consumer<Posting> found) throws IOException {
+            if (this.keys.length == 0)
+                return;
+            int i = Arrays.binarySearch(this.keys, term);
+            if (i < 0)
+                i = Math.max(-i - 2, 0);
+            try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+                channel.position(this.offsets[i]);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 16 * 1024));
+                for (String next = in.readUTF(); !next.isEmpty(); next = in.readUTF()) {
+                    boolean match = prefix ? next.startsWith(term) : next.equals(term);
+                    if (!match && next.compareTo(term) > 0)
+                        return;
+                    int count = in.readInt();
+                    if (!match) {
+                        in.skipBytes(count * (Integer.BYTES + Long.BYTES));
+                        continue;
+                    }
+                    for (int j = 0; j < count; j++)
+                        found.accept(new Posting(this.entries.get(in.readInt()), in.readLong()));
+                    if (!prefix)
+                        return;
+                }
+            }
+        }
+    }
+
+    /**
+     * <h2>JobLogSearchIndex.SegmentWriter</h2>
+     * Writes a segment, terms coming in order.
+     */
+    private static class SegmentWriter implements AutoCloseable {
+        /**
+         * Target file stream.
+         */
+        private final FileOutputStream file;
+        /**
+         * Buffered target.
+         */
+        private final DataOutputStream out;
+        /**
+         * Every {@value #DIRECTORY_INTERVAL}-th term.
+         */
+        private final List<String> keys;
+        /**
+         * Offsets of the terms in <code>keys</code>.
+         */
+        private long[] offsets;
+        /**
+         * Number of terms written.
+         */
+        private long terms;
+
+        /**
+         * Write the segment header.
+         *
+         * @param target   Segment file.
+         * @param entries  Job logs.
+         * @param replaced Numbers of the segments it replaces.
+         * @throws IOException on write failure.
+         */
+        private SegmentWriter(File target, List<Entry> entries, long[] replaced) throws IOException {
+            this.file = new FileOutputStream(target);
+            this.out = new DataOutputStream(new BufferedOutputStream(this.file, 64 * 1024));
+            this.keys = new ArrayList<>();
+            this.offsets = new long[16];
+            this.terms = 0;
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+            this.out.writeInt(replaced.length);
+            for (long number : replaced)
+                this.out.writeLong(number);
+            this.out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                this.out.writeUTF(entry.build);
+                this.out.writeUTF(entry.jobID);
+                this.out.writeUTF(entry.jobName == null ? "" : entry.jobName);
+                this.out.writeLong(entry.time);
+            }
+        }
+
+        /**
+         * @return Current offset in the file.
+         * @throws IOException on write failure.
+         */
+        private long position() throws IOException {
+            this.out.flush();
+            return this.file.getChannel().position();
+        }
+
+        /**
+         * @param term         Term, greater than the previous one.
+         * @param entryIndices Job logs containing it.
+         * @param lines        Lines of its first occurrence.
+         * @param count        Number of postings.
+         * @throws IOException on write failure.
+         */
+        private void add(String term, int[] entryIndices, long[] lines, int count) throws IOException {
+            if (this.terms++ % DIRECTORY_INTERVAL == 0) {
+                if (this.keys.size() == this.offsets.length)
+                    this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+                this.offsets[this.keys.size()] = this.position();
+                this.keys.add(term);
+            }
+            this.out.writeUTF(term);
+            this.out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                this.out.writeInt(entryIndices[i]);
+                this.out.writeLong(lines[i]);
+            }
+        }
+
+        /**
+         * End the terms and write the directory.
+         *
+         * @throws IOException on write failure.
+         */
+        private void finish() throws IOException {
+            this.out.writeUTF("");
+            long directory = this.position();
+            this.out.writeInt(this.keys.size());
+            for (int i = 0; i < this.keys.size(); i++) {
+                this.out.writeUTF(this.keys.get(i));
+                this.out.writeLong(this.offsets[i]);
+            }
+            this.out.writeLong(directory);
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+
+    /**
+     * <h2>JobLogSearchIndex.Cursor</h2>
+     * Reads the terms of a segment in order, for merging.
+     */
+    private static class Cursor {
+        /**
+         * Open segment file.
+         */
+        private final FileChannel channel;
+        /**
+         * Buffered segment file.
+         */
+        private final DataInputStream in;
+        /**
+         * Whether the segment has no terms.
+         */
+        private final boolean empty;
+        /**
+         * Entry numbers in the merged segment.
+         */
+        private final int[] map;
+        /**
+         * Current term, <code>null</code> at the end.
+         */
+        private String term;
+        /**
+         * Job logs containing the current term.
+         */
+        private int[] entryIndices;
+        /**
+         * Lines of the first occurrence.
+         */
+        private long[] lines;
+        /**
+         * Number of postings of the current term.
+         */
+        private int count;
+
+        /**
+         * @param segment Segment.
+         * @param map     Entry numbers in the merged segment.
+         * @throws IOException on read failure.
+         */
+        private Cursor(Segment segment, int[] map) throws IOException {
+            this.channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ);
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(this.channel), 64 * 1024));
+            this.empty = segment.offsets.length == 0;
+            if (!this.empty)
+                this.channel.position(segment.offsets[0]);
+            this.map = map;
+            this.entryIndices = new int[16];
+            this.lines = new long[16];
+        }
+
+        /**
+         * @return Whether there is another term.
+         * @throws IOException on read failure.
+         */
+        private boolean next() throws IOException {
+            this.term = this.empty ? "" : this.in.readUTF();
+            if (this.term.isEmpty())
+                return false;
+            this.count = this.in.readInt();
+            if (this.count > this.entryIndices.length) {
+                this.entryIndices = new int[this.count];
+                this.lines = new long[this.count];
+            }
+            for (int i = 0; i < this.count; i++) {
+                this.entryIndices[i] = this.in.readInt();
+                this.lines[i] = this.in.readLong();
+            }
+            return true;
+        }
+
+        /**
+         * Close the segment file.
+         */
+        private void close() {
+            try {
+                this.channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * <h2>JobLogSearchIndex.Entry</h2>
+     * Indexed job log.
+     */
+    private static class Entry {
+        /**
+         * Externalizable ID of the build.
+         */
+        private final String build;
+        /**
+         * JobID in JES.
+         */
+        private final String jobID;
+        /**
+         * Jobname in JES.
+         */
+        private final String jobName;
+        /**
+         * Time of indexing.
+         */
+        private final long time;
+
+        /**
+         * @param build   Externalizable ID of the build.
+         * @param jobID   JobID in JES.
+         * @param jobName Jobname in JES.
+         * @param time    Time of indexing.
+         */
+        private Entry(String build, String jobID, String jobName, long time) {
+            this.build = build;
+            this.jobID = jobID;
+            this.jobName = jobName;
+            this.time = time;
+        }
+    }
+
+    /**
+     * <h2>JobLogSearchIndex.Posting</h2>
+     * Occurrence of a term in a job log.
+     */
+    public static class Posting {
+        /**
+         * Job log.
+         */
+        private final Entry entry;
+        /**
+         * Line of the first occurrence (<code>-1</code> if unknown).
+         */
+        private final long line;
+
+        /**
+         * @param entry Job log.
+         * @param line  Line of the first occurrence.
+         */
+        private Posting(Entry entry, long line) {
+            this.entry = entry;
+            this.line = line;
+        }
+
+        /**
+         * @return Externalizable ID of the build.
+         */
+        public String getBuild() {
+            return this.entry.build;
+        }
+
+        /**
+         * @return JobID in JES.
+         */
+        public String getJobID() {
+            return this.entry.jobID;
+        }
+
+        /**
+         * @return Jobname in JES.
+         */
+        public String getJobName() {
+            return this.entry.jobName;
+        }
+
+        /**
+         * @return Time of indexing.
+         */
+        public long getTime() {
+            return this.entry.time;
+        }
+
+        /**
+         * @return Line of the first occurrence.
+         */
+        public long getLine() {
+            return this.line;
+        }
+
+        /**
+         * @return URL of the build relative to Jenkins root, <code>null</code> if it is not visible.
+         */
+        public String getBuildUrl() {
+            Run<?, ?> run = Run.fromExternalizableId(this.entry.build);
+            return run == null ? null : run.getUrl();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <h2>JobLogTerms</h2>
+ * Collects searchable terms of the job log passing through: message IDs (<code>IGZ0035S</code>, <code>$HASP373</code>)
+ * and DD names from the JCL listing, each with the line of its first occurrence.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see JobLogSearchIndex
+ */
+class JobLogTerms extends FilterOutputStream {
+    /**
+     * Longest line inspected (bytes).
+     */
+    private static final int MAX_LINE_LENGTH = 256;
+    /**
+     * Most terms kept per log, a runaway log must not blow up the index.
+     */
+    private static final int MAX_TERMS = 10000;
+    /**
+     * Message ID: 2-5 letters prefix, 3-5 digits, optional severity.
+     */
+    private static final Pattern MESSAGE_ID = Pattern.compile("(?<![A-Z0-9$#@])\\$?[A-Z]{2,5}\\d{3,5}[A-Z]?(?![A-Z0-9$#@])");
+    /**
+     * DD statement in the JCL listing.
+     */
+    private static final Pattern DD = Pattern.compile("^\\s*\\d*\\s*//(?:[A-Z$#@][A-Z0-9$#@]{0,7}\\.)?([A-Z$#@][A-Z0-9$#@]{0,7})\\s+DD\\b");
+
+    /**
+     * Term to its first line.
+     */
+    private final Map<String, Long> terms;
+    /**
+     * Line being collected.
+     */
+    private final byte[] line;
+    /**
+     * Bytes in <code>line</code>.
+     */
+    private int lineLength;
+    /**
+     * Number of the line being collected.
+     */
+    private long lineNumber;
+
+    /**
+     * @param out Target stream.
+     */
+    JobLogTerms(OutputStream out) {
+        super(out);
+        this.terms = new LinkedHashMap<>();
+        this.line = new byte[MAX_LINE_LENGTH];
+        this.lineLength = 0;
+        this.lineNumber = 0;
+    }
+
+    /**
+     * Add a term known from elsewhere (jobname, ABEND code).
+     *
+     * @param term Term.
+     * @param line Line of its first occurrence (<code>-1</code> if unknown).
+     */
+    void add(String term, long line) {
+        if (term != null && !term.isEmpty() && this.terms.size() < MAX_TERMS)
+            this.terms.putIfAbsent(term.toUpperCase(), line);
+    }
+
+    /**
+     * @return Term to the line of its first occurrence.
+     */
+    Map<String, Long> getTerms() {
+        if (this.lineLength > 0)
+            this.endLine();
+        return Collections.unmodifiableMap(this.terms);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        this.collect(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.out.write(b, off, len);
+        for (int i = off; i < off + len; i++)
+            this.collect(b[i]);
+    }
+
+    /**
+     * @param b Next byte of the log.
+     */
+    private void collect(int b) {
+        if (b == '\n') {
+            this.endLine();
+        } else if (this.lineLength < this.line.length) {
+            this.line[this.lineLength++] = (byte) b;
+        }
+    }
+
+    /**
+     * Take terms of the collected line.
+     */
+    private void endLine() {
+        String text = new String(this.line, 0, this.lineLength, StandardCharsets.US_ASCII);
+        this.lineLength = 0;
+        long number = this.lineNumber++;
+        if (this.terms.size() >= MAX_TERMS)
+            return;
+        Matcher m = MESSAGE_ID.matcher(text);
+        while (m.find())
+            this.add(m.group(), number);
+        m = DD.matcher(text);
+        if (m.find())
+            this.add(m.group(1), number);
+    }
+}
@@ -0,0 +1,188 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h2>JobTransport</h2>
+ * Way of talking to JES: the elementary job operations, each a self-contained request.
+ * <br>Implemented over FTP by {@link ZFTPConnector} and over the z/OSMF REST jobs API by {@link ZOSMFTransport}.
+ * {@link TransportConnector} runs whole jobs on any of them: retries, waits, cancels and judges the job the same way.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+interface JobTransport {
+    /**
+     * Make sure the server is reachable and accepts the credentials, before anything is sent.
+     * Safe to repeat, unlike {@link #submitJob(InputStream)}.
+     *
+     * @throws LogonRejected if the server rejected the credentials.
+     * @throws IOException   on communication failure.
+     */
+    default void open() throws IOException {
+    }
+
+    /**
+     * Submit a job.
+     *
+     * @param jcl JCL text of the job.
+     * @return JobID in JES.
+     * @throws IOException on communication failure or if JES did not accept the job.
+     */
+    String submitJob(InputStream jcl) throws IOException;
+
+    /**
+     * @param jobID JobID in JES.
+     * @return Job status, <code>null</code> if JES does not know the job.
+     * @throws IOException on communication failure.
+     */
+    Status getStatus(String jobID) throws IOException;
+
+    /**
+     * @param jobID JobID in JES.
+     * @return Spool files of the job in spool order.
+     * @throws IOException on communication failure.
+     */
+    List<SpoolSelection.SpoolFile> listSpoolFiles(String jobID) throws IOException;
+
+    /**
+     * Read a spool file.
+     *
+     * @param jobID     JobID in JES.
+     * @param spoolFile Spool file.
+     * @param limit     Most bytes to read, <code>-1</code> for all.
+     * @param out       Target stream.
+     * @return Whether the spool file was cut at the limit.
+     * @throws IOException on communication failure.
+     */
+    boolean readSpoolFile(String jobID, SpoolSelection.SpoolFile spoolFile, long limit, OutputStream out) throws IOException;
+
+    /**
+     * Read the whole job log at once, as JES puts it together: every spool file followed by the separator line.
+     * A transport that cannot do it returns <code>false</code>, the spool files are then read one by one.
+     *
+     * @param jobID JobID in JES.
+     * @param out   Target stream, kept over the retries: a broken read may continue where it stopped.
+     * @return Whether the job log was read.
+     * @throws IOException on communication failure.
+     */
+    default boolean readJobLog(String jobID, ResumableOutputStream out) throws IOException {
+        return false;
+    }
+
+    /**
+     * Cancel the job if it has not finished and purge it from spool.
+     *
+     * @param jobID JobID in JES.
+     * @return Whether JES accepted the request.
+     * @throws IOException on communication failure.
+     */
+    boolean purgeJob(String jobID) throws IOException;
+
+    /**
+     * Purge several jobs from spool, as cheaply as the transport allows.
+     *
+     * @param jobIDs JobIDs in JES.
+     * @return JobIDs purged, the others are to be tried again later.
+     * @throws IOException on communication failure before any job was purged.
+     */
+    default List<String> purgeJobs(List<String> jobIDs) throws IOException {
+        List<String> purged = new ArrayList<>();
+        for (String jobID : jobIDs) {
+            try {
+                if (this.purgeJob(jobID))
+                    purged.add(jobID);
+            } catch (IOException e) {
+                if (purged.isEmpty())
+                    throw e;
+                break;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * @param jobNames Jobname pattern (<code>*</code> and <code>?</code> wildcards).
+     * @return JobIDs of the ended jobs of the user with matching names.
+     * @throws IOException on communication failure.
+     */
+    List<String> listEndedJobs(String jobNames) throws IOException;
+
+    /**
+     * Release connections held.
+     */
+    void close();
+
+    /**
+     * <h2>JobTransport.LogonRejected</h2>
+     * The server rejected the credentials: the operation is not repeated, to avoid revoking the user ID.
+     */
+    class LogonRejected extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param message Failure description.
+         */
+        LogonRejected(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * <h2>JobTransport.Status</h2>
+     * Job status as reported by JES.
+     */
+    class Status {
+        /**
+         * Jobname.
+         */
+        final String jobName;
+        /**
+         * Phase: <code>INPUT</code>, <code>ACTIVE</code> or <code>OUTPUT</code>.
+         */
+        final String phase;
+        /**
+         * Completion in <code>jobCC</code> form (<code>0004</code>, <code>ABEND_S0C4</code>, <code>JCL_ERROR</code>),
+         * <code>null</code> until the job finished or if not reported.
+         */
+        final String cc;
+        /**
+         * Spool files in spool order, when the status comes with them (the FTP job listing does),
+         * <code>null</code> otherwise.
+         */
+        final List<SpoolSelection.SpoolFile> spoolFiles;
+
+        /**
+         * @param jobName Jobname.
+         * @param phase   Phase.
+         * @param cc      Completion.
+         */
+        Status(String jobName, String phase, String cc) {
+            this(jobName, phase, cc, null);
+        }
+
+        /**
+         * @param jobName    Jobname.
+         * @param phase      Phase.
+         * @param cc         Completion.
+         * @param spoolFiles Spool files in spool order.
+         */
+        Status(String jobName, String phase, String cc, List<SpoolSelection.SpoolFile> spoolFiles) {
+            this.jobName = jobName;
+            this.phase = phase;
+            this.cc = cc;
+            this.spoolFiles = spoolFiles;
+        }
+
+        /**
+         * @return Whether the job has finished (its output is complete).
+         */
+        boolean isFinished() {
+            return "OUTPUT".equalsIgnoreCase(this.phase);
+        }
+    }
+}
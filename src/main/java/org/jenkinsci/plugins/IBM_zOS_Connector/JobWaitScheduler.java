@@ -0,0 +1,244 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <h2>JobWaitScheduler</h2>
+ * Single scheduler for status checks of all the z/OS jobs being waited for.
+ * <br>One timer thread holds every pending check and hands due checks to a small worker pool,
+ * deadlines and cancellation are handled here. The number of concurrent status polls is bounded by the pool size.
+ * <br>Checks are short status probes: the pool is shared by all the waits, so a check never transfers
+ * a job log nor sleeps. A failed probe asks for a {@link Backoff} instead of sleeping, and the job log
+ * is fetched by the waiting thread once the check reports the job ended.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class JobWaitScheduler {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(JobWaitScheduler.class.getName());
+    /**
+     * Number of threads performing status checks.
+     */
+    private static final int workers = Integer.getInteger(JobWaitScheduler.class.getName() + ".workers", 8);
+    /**
+     * Shared instance.
+     */
+    private static JobWaitScheduler instance;
+
+    /**
+     * Timer holding pending checks.
+     */
+    private final ScheduledExecutorService timer;
+    /**
+     * Pool performing the checks.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Create timer and worker pool.
+     */
+    private JobWaitScheduler() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, daemonThreads("z/OS job wait timer"));
+        // Cancelled waits must not keep their entries until the deadline.
+        timer.setRemoveOnCancelPolicy(true);
+        this.timer = timer;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("z/OS job status check"));
+        pool.allowCoreThreadTimeOut(true);
+        this.pool = pool;
+    }
+
+    /**
+     * @return Shared instance.
+     */
+    static synchronized JobWaitScheduler get() {
+        if (instance == null)
+            instance = new JobWaitScheduler();
+        return instance;
+    }
+
+    /**
+     * Status check of a job.
+     */
+    @FunctionalInterface
+    interface Check {
+        /**
+         * @return <code>true</code> or <code>false</code> if the wait is over with success or failure,
+         * <code>null</code> to check again after the interval.
+         * @throws Backoff to check again after a longer delay, e.g. when the probe failed.
+         */
+        Boolean check() throws Backoff;
+    }
+
+    /**
+     * <h2>JobWaitScheduler.Backoff</h2>
+     * Request to check again after the given delay rather than the interval.
+     */
+    static class Backoff extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Delay before the next check (milliseconds).
+         */
+        final long delay;
+
+        /**
+         * @param delay Delay before the next check (milliseconds).
+         */
+        Backoff(long delay) {
+            super(null, null, false, false);
+            this.delay = delay;
+        }
+    }
+
+    /**
+     * Check the job every <code>interval</code> until the check decides or the deadline passes.
+     * The first check happens after one interval.
+     *
+     * @param name     Job description for the log.
+     * @param interval Time between checks (milliseconds).
+     * @param deadline Time to give up (milliseconds since epoch). <code>0</code> to wait forever.
+     * @param check    Status check.
+     * @return Future completed with the check decision, or exceptionally with {@link TimeoutException}
+     * once the deadline passes. Cancelling it removes the pending check and interrupts the running one.
+     */
+    Wait await(String name, long interval, long deadline, Check check) {
+        Wait result = new Wait();
+        this.schedule(name, interval, interval, deadline, check, result);
+        return result;
+    }
+
+    /**
+     * Put the next check on the timer.
+     *
+     * @param name     Job description for the log.
+     * @param delay    Time before the next check (milliseconds).
+     * @param interval Time between checks (milliseconds).
+     * @param deadline Time to give up (milliseconds since epoch). <code>0</code> to wait forever.
+     * @param check    Status check.
+     * @param result   Future of the wait.
+     */
+    private void schedule(String name, long delay, long interval, long deadline, Check check, Wait result) {
+        try {
+            this.timer.schedule(() -> this.dispatch(name, interval, deadline, check, result), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Hand a due check over to the pool, then decide on the wait.
+     *
+     * @param name     Job description for the log.
+     * @param interval Time between checks (milliseconds).
+     * @param deadline Time to give up (milliseconds since epoch). <code>0</code> to wait forever.
+     * @param check    Status check.
+     * @param result   Future of the wait.
+     */
+    private void dispatch(String name, long interval, long deadline, Check check, Wait result) {
+        if (result.isDone())
+            return;
+        try {
+            this.pool.execute(() -> {
+                if (result.isDone())
+                    return;
+                Boolean decision;
+                long delay = interval;
+                result.started();
+                try {
+                    decision = check.check();
+                } catch (Backoff e) {
+                    decision = null;
+                    delay = e.delay;
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Status check of " + name + " failed", e);
+                    result.completeExceptionally(e);
+                    return;
+                } finally {
+                    result.finished();
+                }
+                if (decision != null) {
+                    result.complete(decision);
+                } else if (deadline != 0 && System.currentTimeMillis() > deadline) {
+                    result.completeExceptionally(new TimeoutException("Gave up waiting for " + name));
+                } else if (!result.isDone()) {
+                    this.schedule(name, delay, interval, deadline, check, result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * <h2>JobWaitScheduler.Wait</h2>
+     * Future of a wait, knows the thread running its check.
+     */
+    static class Wait extends CompletableFuture<Boolean> {
+        /**
+         * Thread running the check (<code>null</code> between checks).
+         */
+        private Thread worker;
+
+        /**
+         * Check started on the current thread.
+         */
+        private synchronized void started() {
+            this.worker = Thread.currentThread();
+        }
+
+        /**
+         * Check finished, the pool thread must not stay interrupted.
+         */
+        private synchronized void finished() {
+            this.worker = null;
+            Thread.interrupted();
+        }
+
+        /**
+         * Cancel the wait, interrupting the running check if asked to.
+         *
+         * @param mayInterruptIfRunning Whether to interrupt the running check.
+         * @return <code>true</code> if the wait is cancelled now.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (this.worker != null)
+                        this.worker.interrupt();
+                }
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * @param name Thread name prefix.
+     * @return Factory of named daemon threads.
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + " #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h2>PassTicketGenerator</h2>
+ * Pure Java generator of RACF PassTickets (secured signon, DES key).
+ * <br>A PassTicket is an 8 character one-time password derived from the user ID,
+ * the application name, the time and the secured signon application key
+ * (<code>RDEFINE PTKTDATA ... SSIGNON(KEYMASKED(...))</code>).
+ * RACF checks it without a password verification, so logons are cheap and cannot revoke the ID.
+ * <br>Only the DES and padding steps are checked against published reference values (FIPS 81, IBM-1047)
+ * in <code>PassTicketGeneratorTest</code>, the other steps against the algorithm description only.
+ * No end-to-end ticket published by IBM is available to check the whole chain, so PassTicket logons are not
+ * offered in the job configuration, and the connectors refuse them unless enabled with the
+ * <code>org.jenkinsci.plugins.IBM_zOS_Connector.PassTicketGenerator.enabled</code> system property
+ * (after checking a generated ticket against <code>RACROUTE REQUEST=EXTRACT,TYPE=ENVRXTR</code> or IRRSPK00).
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class PassTicketGenerator {
+    /**
+     * Whether PassTicket logons are allowed.
+     */
+    static final boolean ENABLED = Boolean.getBoolean(PassTicketGenerator.class.getName() + ".enabled");
+    /**
+     * Translation table for the last step: 6-bit values to PassTicket characters.
+     */
+    private static final char[] translation =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ01".toCharArray();
+    /**
+     * User ID and application name are encrypted in EBCDIC.
+     */
+    private static final Charset EBCDIC = Charset.forName("IBM1047");
+    /**
+     * Number of time-coder rounds.
+     */
+    private static final int timeCoderRounds = 6;
+    /**
+     * RACF accepts PassTickets generated within this many seconds from its clock.
+     */
+    private static final long maxSkew = 10 * 60;
+    /**
+     * Last time value used per <code>userID/application</code>.
+     * RACF rejects a PassTicket replayed within the same second, so every logon takes its own second.
+     */
+    private static final Map<String, Long> lastUsed = new ConcurrentHashMap<>();
+
+    /**
+     * Generate a PassTicket that was not handed out before for the user and application.
+     *
+     * @param userID      z/OS user ID.
+     * @param application RACF application name (e.g. <code>FTPD</code>).
+     * @param key         Secured signon application key (16 hexadecimal digits).
+     * @return PassTicket.
+     * @throws IllegalArgumentException If the key, user ID or application name is malformed,
+     *                                  PassTicket logons are not enabled, or the wait for an unused ticket is interrupted.
+     */
+    static String generate(String userID, String application, String key) {
+        if (!ENABLED)
+            throw new IllegalArgumentException("PassTicket logons are disabled, set the "
+                    + PassTicketGenerator.class.getName() + ".enabled system property to enable them");
+        String id = userID.toUpperCase() + "/" + application.toUpperCase();
+        while (true) {
+            long now = System.currentTimeMillis() / 1000;
+            Long last = lastUsed.get(id);
+            // Tickets slightly ahead of the clock are still valid, so bursts do not need to wait.
+            long time = last == null || last < now ? now : last + 1;
+            if (time - now > maxSkew) {
+                // Every valid second is taken: wait for the next one rather than reuse a ticket.
+                try {
+                    Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalArgumentException("Interrupted while waiting for an unused PassTicket");
+                }
+                continue;
+            }
+            if (last == null ? lastUsed.putIfAbsent(id, time) == null : lastUsed.replace(id, last, time))
+                return generate(userID, application, key, time);
+        }
+    }
+
+    /**
+     * Generate a PassTicket.
+     * <ol>
+     * <li>Result-1 = DES(user ID).</li>
+     * <li>Result-3 = DES(Result-1 XOR application name).</li>
+     * <li>Result-5 = left 32 bits of Result-3 XOR time.</li>
+     * <li>Result-6 = time-coder(Result-5): 6 Feistel rounds over 16-bit halves,
+     * the round function is the left 16 bits of DES(right half, right 48 bits of Result-3).</li>
+     * <li>Result-6 is translated to 8 characters, 6 bits at a time, rotating it left by 6 bits after each.</li>
+     * </ol>
+     *
+     * @param userID      z/OS user ID.
+     * @param application RACF application name.
+     * @param key         Secured signon application key (16 hexadecimal digits).
+     * @param time        Seconds since 1970-01-01 00:00 GMT.
+     * @return PassTicket.
+     * @throws IllegalArgumentException If the key, user ID or application name is malformed.
+     */
+    static String generate(String userID, String application, String key, long time) {
+        Cipher des = cipher(key);
+        byte[] result1 = encrypt(des, pad(userID, "user ID"));
+
+        byte[] result2 = pad(application, "application name");
+        for (int i = 0; i < 8; i++)
+            result2[i] ^= result1[i];
+        byte[] result3 = encrypt(des, result2);
+
+        int result5 = (((result3[0] & 0xFF) << 24)
+                | ((result3[1] & 0xFF) << 16)
+                | ((result3[2] & 0xFF) << 8)
+                | (result3[3] & 0xFF)) ^ (int) time;
+        return translate(timeCoder(des, result3, result5));
+    }
+
+    /**
+     * Time-coder: 6 Feistel rounds over the 16-bit halves of Result-5.
+     *
+     * @param des     Cipher with the application key.
+     * @param result3 Result-3, its right 48 bits pad the round input.
+     * @param result5 Result-5.
+     * @return Result-6.
+     */
+    static int timeCoder(Cipher des, byte[] result3, int result5) {
+        int left = result5 >>> 16;
+        int right = result5 & 0xFFFF;
+        byte[] block = new byte[8];
+        for (int round = 0; round < timeCoderRounds; round++) {
+            int temp = (left ^ round(des, result3, right, block)) & 0xFFFF;
+            left = right;
+            right = temp;
+        }
+        return (left << 16) | right;
+    }
+
+    /**
+     * Round function of the time-coder.
+     *
+     * @param des     Cipher with the application key.
+     * @param result3 Result-3, its right 48 bits pad the round input.
+     * @param half    Right half of the round input.
+     * @param block   Work block (8 bytes).
+     * @return Left 16 bits of DES(half, right 48 bits of Result-3).
+     */
+    static int round(Cipher des, byte[] result3, int half, byte[] block) {
+        block[0] = (byte) (half >>> 8);
+        block[1] = (byte) half;
+        System.arraycopy(result3, 2, block, 2, 6);
+        byte[] encrypted = encrypt(des, block);
+        return ((encrypted[0] & 0xFF) << 8) | (encrypted[1] & 0xFF);
+    }
+
+    /**
+     * Translate Result-6 to PassTicket characters, 6 bits at a time, rotating it left by 6 bits after each.
+     *
+     * @param result6 Result-6.
+     * @return PassTicket.
+     */
+    static String translate(int result6) {
+        char[] ticket = new char[8];
+        for (int i = 0; i < ticket.length; i++) {
+            ticket[i] = translation[result6 >>> 26];
+            result6 = Integer.rotateLeft(result6, 6);
+        }
+        return new String(ticket);
+    }
+
+    /**
+     * Check whether the key can be used for PassTicket generation.
+     *
+     * @param key Secured signon application key.
+     * @return Whether the key is 16 hexadecimal digits.
+     */
+    static boolean isValidKey(String key) {
+        return key != null && key.matches("[0-9A-Fa-f]{16}");
+    }
+
+    /**
+     * @param key Secured signon application key (16 hexadecimal digits).
+     * @return DES cipher initialized for encryption.
+     */
+    static Cipher cipher(String key) {
+        if (!isValidKey(key))
+            throw new IllegalArgumentException("Secured signon key must be 16 hexadecimal digits");
+        byte[] rawKey = new byte[8];
+        for (int i = 0; i < rawKey.length; i++)
+            rawKey[i] = (byte) Integer.parseInt(key.substring(2 * i, 2 * i + 2), 16);
+        try {
+            Cipher des = Cipher.getInstance("DES/ECB/NoPadding");
+            des.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(rawKey, "DES"));
+            return des;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("DES is not available", e);
+        } finally {
+            Arrays.fill(rawKey, (byte) 0);
+        }
+    }
+
+    /**
+     * @param des   Initialized cipher.
+     * @param block 8 bytes to encrypt.
+     * @return Encrypted block.
+     */
+    static byte[] encrypt(Cipher des, byte[] block) {
+        try {
+            return des.doFinal(block);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("DES encryption failed", e);
+        }
+    }
+
+    /**
+     * Uppercase, convert to EBCDIC and pad with blanks to 8 bytes.
+     *
+     * @param value Value (1-8 characters).
+     * @param what  Value description for the error message.
+     * @return 8 bytes in EBCDIC.
+     */
+    static byte[] pad(String value, String what) {
+        if (value == null || value.isEmpty() || value.length() > 8)
+            throw new IllegalArgumentException("PassTicket " + what + " must be 1-8 characters: '" + value + "'");
+        byte[] result = new byte[8];
+        Arrays.fill(result, (byte) 0x40);
+        byte[] encoded = value.toUpperCase().getBytes(EBCDIC);
+        System.arraycopy(encoded, 0, result, 0, encoded.length);
+        return result;
+    }
+}
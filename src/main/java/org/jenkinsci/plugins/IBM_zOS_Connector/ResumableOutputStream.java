@@ -0,0 +1,98 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <h2>ResumableOutputStream</h2>
+ * Output of a transfer that may be repeated.
+ * <br>Counts the bytes passed through. When the transfer is repeated from the beginning,
+ * the bytes already written are dropped, so the target never gets the same data twice.
+ * When the transfer is resumed from where it broke off, the bytes are passed through as they come.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class ResumableOutputStream extends FilterOutputStream {
+    /**
+     * Bytes written to the underlying stream.
+     */
+    private long written;
+    /**
+     * Line ends (<code>LF</code>) written to the underlying stream.
+     */
+    private long lineEnds;
+    /**
+     * Bytes of the current transfer still to be dropped.
+     */
+    private long skip;
+
+    /**
+     * @param out Underlying stream.
+     */
+    ResumableOutputStream(OutputStream out) {
+        super(out);
+        this.written = 0;
+        this.lineEnds = 0;
+        this.skip = 0;
+    }
+
+    /**
+     * @return Bytes written to the underlying stream.
+     */
+    long getWritten() {
+        return this.written;
+    }
+
+    /**
+     * @return Line ends written to the underlying stream.
+     */
+    long getLineEnds() {
+        return this.lineEnds;
+    }
+
+    /**
+     * Prepare for a transfer that starts from the beginning of the data.
+     */
+    void restart() {
+        this.skip = this.written;
+    }
+
+    /**
+     * Prepare for a transfer that continues after the bytes already written.
+     */
+    void resume() {
+        this.skip = 0;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (this.skip > 0) {
+            this.skip--;
+            return;
+        }
+        this.out.write(b);
+        this.written++;
+        if (b == '\n')
+            this.lineEnds++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.skip > 0) {
+            int dropped = (int) Math.min(this.skip, len);
+            this.skip -= dropped;
+            off += dropped;
+            len -= dropped;
+        }
+        if (len > 0) {
+            this.out.write(b, off, len);
+            this.written += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n')
+                    this.lineEnds++;
+            }
+        }
+    }
+}
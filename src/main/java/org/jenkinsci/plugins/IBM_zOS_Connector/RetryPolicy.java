@@ -0,0 +1,87 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h2>RetryPolicy</h2>
+ * Exponential backoff for idempotent FTP operations (logon, listing, retrieval, deletion).
+ * <br>Each operation gets <code>attempts</code> tries, and the whole job gets a budget of retries,
+ * so a flapping network cannot stretch a build indefinitely.
+ * Job submission (STOR) is never retried: a repeated STOR would run the job twice.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class RetryPolicy {
+    /**
+     * Default number of attempts per operation.
+     */
+    static final int DEFAULT_ATTEMPTS = 4;
+    /**
+     * Default delay before the first retry (seconds).
+     */
+    static final int DEFAULT_BACKOFF = 2;
+    /**
+     * Upper bound for a single delay (milliseconds).
+     */
+    private static final long maxBackoff = 60 * 1000;
+    /**
+     * Retries allowed over the whole job per allowed attempt.
+     */
+    private static final int budgetFactor = 10;
+
+    /**
+     * Attempts per operation.
+     */
+    private final int attempts;
+    /**
+     * Delay before the first retry (milliseconds).
+     */
+    private final long initialBackoff;
+    /**
+     * Retries left for the job.
+     */
+    private int budget;
+
+    /**
+     * @param attempts       Attempts per operation. Non-positive for default.
+     * @param backoffSeconds Delay before the first retry (seconds). Non-positive for default.
+     */
+    RetryPolicy(int attempts, int backoffSeconds) {
+        this.attempts = attempts > 0 ? attempts : DEFAULT_ATTEMPTS;
+        this.initialBackoff = (backoffSeconds > 0 ? backoffSeconds : DEFAULT_BACKOFF) * 1000L;
+        this.budget = (this.attempts - 1) * budgetFactor;
+    }
+
+    /**
+     * @return Attempts per operation.
+     */
+    int getAttempts() {
+        return this.attempts;
+    }
+
+    /**
+     * Take a retry from the budget.
+     *
+     * @param attempt Number of the attempt that just failed (starting from 1).
+     * @return Whether one more attempt is allowed.
+     */
+    synchronized boolean allowRetry(int attempt) {
+        if (attempt >= this.attempts || this.budget <= 0)
+            return false;
+        this.budget--;
+        return true;
+    }
+
+    /**
+     * Delay before the next attempt: doubles every time, with jitter so that many builds hit by
+     * the same outage do not reconnect in lockstep.
+     *
+     * @param attempt Number of the attempt that just failed (starting from 1).
+     * @return Delay in milliseconds.
+     */
+    long backoff(int attempt) {
+        long delay = Math.min(this.initialBackoff << Math.min(attempt - 1, 20), maxBackoff);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+}
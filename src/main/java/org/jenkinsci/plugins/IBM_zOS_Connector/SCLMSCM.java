@@ -19,6 +19,7 @@ import hudson.util.ListBoxModel;
 import jenkins.model.Jenkins;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import javax.annotation.Nonnull;
@@ -48,6 +49,46 @@ public class SCLMSCM extends SCM {
      * Credentials id to be converted to login+pw.
      */
     private String credentialsId;
+    /**
+     * Additional credentials ids (separated by comma) to spread logons over.
+     */
+    private String credentialsPool;
+    /**
+     * FTP connect timeout (seconds). <code>0</code> for default.
+     */
+    private int connectTimeout;
+    /**
+     * FTP control connection read timeout (seconds). <code>0</code> for default.
+     */
+    private int readTimeout;
+    /**
+     * FTP data connection read timeout (seconds). <code>0</code> for default.
+     */
+    private int dataTimeout;
+    /**
+     * FTP control connection keep-alive interval during transfers (seconds). <code>0</code> for default.
+     */
+    private int keepAliveInterval;
+    /**
+     * Attempts per idempotent FTP operation (logon, listing, retrieval). <code>0</code> for default.
+     */
+    private int retryAttempts;
+    /**
+     * Delay before the first retry (seconds). <code>0</code> for default.
+     */
+    private int retryBackoff;
+    /**
+     * Whether job logs are retrieved compressed (<code>MODE Z</code>).
+     */
+    private boolean compressTransfers;
+    /**
+     * Whether the FTP session is protected by TLS.
+     */
+    private boolean ftps;
+    /**
+     * Whether FTPS is implicit rather than explicit.
+     */
+    private boolean ftpsImplicit;
     /**
      * FTP server JESINTERFACELEVEL=1?
      */
@@ -231,6 +272,158 @@ public class SCLMSCM extends SCM {
         return credentialsId;
     }
 
+    /**
+     * @return additional credentials ids provided.
+     */
+    public String getCredentialsPool() {
+        return this.credentialsPool;
+    }
+
+    /**
+     * Set additional credentials to spread logons over.
+     *
+     * @param credentialsPool Credentials ids separated by comma.
+     */
+    @DataBoundSetter
+    public void setCredentialsPool(String credentialsPool) {
+        this.credentialsPool = String.join(",", CredentialsPool.parseIds(credentialsPool));
+    }
+
+    /**
+     * @return FTP connect timeout (seconds).
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout > 0 ? this.connectTimeout : ZFTPConnector.DEFAULT_CONNECT_TIMEOUT;
+    }
+
+    /**
+     * @param connectTimeout FTP connect timeout (seconds).
+     */
+    @DataBoundSetter
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return FTP control connection read timeout (seconds).
+     */
+    public int getReadTimeout() {
+        return this.readTimeout > 0 ? this.readTimeout : ZFTPConnector.DEFAULT_READ_TIMEOUT;
+    }
+
+    /**
+     * @param readTimeout FTP control connection read timeout (seconds).
+     */
+    @DataBoundSetter
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return FTP data connection read timeout (seconds).
+     */
+    public int getDataTimeout() {
+        return this.dataTimeout > 0 ? this.dataTimeout : ZFTPConnector.DEFAULT_DATA_TIMEOUT;
+    }
+
+    /**
+     * @param dataTimeout FTP data connection read timeout (seconds).
+     */
+    @DataBoundSetter
+    public void setDataTimeout(int dataTimeout) {
+        this.dataTimeout = dataTimeout;
+    }
+
+    /**
+     * @return FTP control connection keep-alive interval (seconds).
+     */
+    public int getKeepAliveInterval() {
+        return this.keepAliveInterval > 0 ? this.keepAliveInterval : ZFTPConnector.DEFAULT_KEEP_ALIVE_INTERVAL;
+    }
+
+    /**
+     * @param keepAliveInterval FTP control connection keep-alive interval during transfers (seconds).
+     */
+    @DataBoundSetter
+    public void setKeepAliveInterval(int keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    /**
+     * @return Attempts per idempotent FTP operation.
+     */
+    public int getRetryAttempts() {
+        return this.retryAttempts > 0 ? this.retryAttempts : RetryPolicy.DEFAULT_ATTEMPTS;
+    }
+
+    /**
+     * @param retryAttempts Attempts per idempotent FTP operation (logon, listing, retrieval).
+     */
+    @DataBoundSetter
+    public void setRetryAttempts(int retryAttempts) {
+        this.retryAttempts = retryAttempts;
+    }
+
+    /**
+     * @return Delay before the first retry (seconds).
+     */
+    public int getRetryBackoff() {
+        return this.retryBackoff > 0 ? this.retryBackoff : RetryPolicy.DEFAULT_BACKOFF;
+    }
+
+    /**
+     * @param retryBackoff Delay before the first retry (seconds), doubled for each next one.
+     */
+    @DataBoundSetter
+    public void setRetryBackoff(int retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * @return Whether job logs are retrieved compressed.
+     */
+    public boolean getCompressTransfers() {
+        return this.compressTransfers;
+    }
+
+    /**
+     * @param compressTransfers Whether to retrieve job logs compressed (<code>MODE Z</code>) if the FTP server supports it.
+     */
+    @DataBoundSetter
+    public void setCompressTransfers(boolean compressTransfers) {
+        this.compressTransfers = compressTransfers;
+    }
+
+    /**
+     * @return Whether the FTP session is protected by TLS.
+     */
+    public boolean getFtps() {
+        return this.ftps;
+    }
+
+    /**
+     * @param ftps Whether to protect control and data connections with TLS (FTPS, <code>PROT P</code>).
+     */
+    @DataBoundSetter
+    public void setFtps(boolean ftps) {
+        this.ftps = ftps;
+    }
+
+    /**
+     * @return Whether FTPS is implicit.
+     */
+    public boolean getFtpsImplicit() {
+        return this.ftpsImplicit;
+    }
+
+    /**
+     * @param ftpsImplicit Whether TLS starts on connect (implicit FTPS) instead of after <code>AUTH TLS</code>.
+     */
+    @DataBoundSetter
+    public void setFtpsImplicit(boolean ftpsImplicit) {
+        this.ftpsImplicit = ftpsImplicit;
+    }
+
     /**
      * Get JESINTERFACELEVEL1.
      *
@@ -307,23 +500,50 @@ public class SCLMSCM extends SCM {
      * Fetch new remote revision.
      *
      * @param baseline Last revision.
-     * @param user     username for logon
-     * @param password password for logon
+     * @param pool     credentials to logon with (the least loaded is used)
      * @return New remote revision.
-     * @see ZFTPConnector
+     * @see TransportConnector
+     * @see CredentialsPool
      */
     private SCLMSCMRevisionState getNewRevision(SCLMSCMRevisionState baseline,
-                                                String user, String password) {
+                                                List<StandardUsernamePasswordCredentials> pool) {
         logger.info(logPrefix + "Will get new Revision State.");
 
-        // Construct connector.
-        ZFTPConnector zFTPConnector = new ZFTPConnector(
-                this.server,
-                this.port,
-                user, password, this.JESINTERFACELEVEL1, logPrefix, this.FTPActiveMode);
+        try (CredentialsPool.Lease lease = CredentialsPool.acquire(this.server, pool)) {
+            StandardUsernamePasswordCredentials creds = lease.getCredentials();
+
+            // Construct connector.
+            ZFTPConnector zFTPConnector = new ZFTPConnector(
+                    this.server,
+                    this.port,
+                    creds.getUsername(), creds.getPassword().getPlainText(), this.JESINTERFACELEVEL1, logPrefix, this.FTPActiveMode);
+            zFTPConnector.setTimeouts(this.connectTimeout, this.readTimeout, this.dataTimeout, this.keepAliveInterval);
+            // The job connector retries.
+            zFTPConnector.setRetries(1, this.retryBackoff);
+            zFTPConnector.setCompressTransfers(this.compressTransfers);
+            zFTPConnector.setFTPS(this.ftps, this.ftpsImplicit);
+            JobConnector connector = new TransportConnector(zFTPConnector, this.server, creds.getUsername(), logPrefix);
+            connector.setRetries(this.retryAttempts, this.retryBackoff);
+
+            // Fetch revision.
+            return new SCLMSCMRevisionState(this.project, this.alternate, this.group, this.types, this.JobHeader + "\n" + this.JobStep, connector, baseline);
+        }
+    }
 
-        // Fetch revision.
-        return new SCLMSCMRevisionState(this.project, this.alternate, this.group, this.types, this.JobHeader + "\n" + this.JobStep, zFTPConnector, baseline);
+    /**
+     * Resolve primary credentials and the pool, reporting the ones missing.
+     *
+     * @param run      Run to resolve credentials for.
+     * @param listener Current listener.
+     * @return Resolved credentials.
+     */
+    private List<StandardUsernamePasswordCredentials> resolveCredentials(Run<?, ?> run, TaskListener listener) {
+        List<String> unresolved = new ArrayList<>();
+        List<StandardUsernamePasswordCredentials> pool = CredentialsPool.resolve(this.credentialsId, this.credentialsPool, run, unresolved);
+        for (String id : unresolved) {
+            listener.getLogger().println("Cannot resolve credentials: " + id);
+        }
+        return pool;
     }
 
     /**
@@ -357,25 +577,20 @@ public class SCLMSCM extends SCM {
      * @return PollingResult with comparison.
      * @see PollingResult
      * @see SCLMSCMRevisionState
-     * @see SCLMSCM#getNewRevision(SCLMSCMRevisionState, String, String)
+     * @see SCLMSCM#getNewRevision(SCLMSCMRevisionState, List)
      */
     @Override
     public PollingResult compareRemoteRevisionWith(@Nonnull Job<?, ?> project, Launcher launcher, FilePath workspace, @Nonnull TaskListener listener, @Nonnull SCMRevisionState _baseline) {
         Run<?, ?> lastRun = project.getLastBuild();
         // Get login + pw.
-        DomainRequirement domain = new DomainRequirement();
-        StandardUsernamePasswordCredentials creds = CredentialsProvider.findCredentialById(credentialsId,
-                StandardUsernamePasswordCredentials.class, lastRun,
-                domain);
-        if (creds == null) {
-            listener.getLogger().println("Cannot resolve credentials: " + credentialsId);
+        List<StandardUsernamePasswordCredentials> pool = this.resolveCredentials(lastRun, listener);
+        if (pool.isEmpty()) {
             return PollingResult.NO_CHANGES;
         }
 
         // Get new revision.
         SCLMSCMRevisionState baseline = (SCLMSCMRevisionState) _baseline;
-        SCLMSCMRevisionState tempRevision = this.getNewRevision(baseline,
-                creds.getUsername(), creds.getPassword().getPlainText());
+        SCLMSCMRevisionState tempRevision = this.getNewRevision(baseline, pool);
 
         // Compare cached state with latest polled state.
         boolean changes = !tempRevision.getChangedOnly().isEmpty();
@@ -395,25 +610,20 @@ public class SCLMSCM extends SCM {
      * @param changelogFile Current changeLogFile.
      * @param baseline      Last revision.
      * @see SCLMSCMRevisionState
-     * @see SCLMSCM#getNewRevision(SCLMSCMRevisionState, String, String)
+     * @see SCLMSCM#getNewRevision(SCLMSCMRevisionState, List)
      */
     @Override
     public void checkout(@Nonnull Run<?, ?> build, @Nonnull Launcher launcher, @Nonnull FilePath workspace, @Nonnull TaskListener listener, File changelogFile, SCMRevisionState baseline) throws IOException {
         logger.info(logPrefix + "Will checkout");
         // Get login + pw.
-        DomainRequirement domain = new DomainRequirement();
-        StandardUsernamePasswordCredentials creds = CredentialsProvider.findCredentialById(credentialsId,
-                StandardUsernamePasswordCredentials.class, build,
-                domain);
-        if (creds == null) {
-            listener.getLogger().println("Cannot resolve credentials: " + credentialsId);
+        List<StandardUsernamePasswordCredentials> pool = this.resolveCredentials(build, listener);
+        if (pool.isEmpty()) {
             this.createEmptyChangeLog(changelogFile, listener, "changelog");
             return;
         }
 
         // Get new revision.
-        this.currentRevision = this.getNewRevision((SCLMSCMRevisionState) baseline,
-                creds.getUsername(), creds.getPassword().getPlainText());
+        this.currentRevision = this.getNewRevision((SCLMSCMRevisionState) baseline, pool);
 
         if (changelogFile != null) {
             // Need to write changelog.xml.
@@ -626,6 +836,23 @@ public class SCLMSCM extends SCM {
             return FormValidation.ok();
         }
 
+        /**
+         * @param item  configuration entity to use permissions from.
+         * @param value Additional credentials ids separated by comma.
+         * @return Whether all the credentials in the pool can be found.
+         */
+        public FormValidation doCheckCredentialsPool(
+                @AncestorInPath Item item,
+                @QueryParameter String value) {
+            for (String id : CredentialsPool.parseIds(value)) {
+                FormValidation resp = this.doCheckCredentialsId(item, id);
+                if (resp.kind == FormValidation.Kind.ERROR) {
+                    return FormValidation.error("Cannot find credentials: " + id);
+                }
+            }
+            return FormValidation.ok();
+        }
+
 
         /**
          * Get printable name.
@@ -49,11 +49,11 @@ public class SCLMSCMRevisionState extends SCMRevisionState {
      * @param group         SCLM Group.
      * @param types         List of types under interest.
      * @param SCLMJob       Prefix pf job to be invoked for DBUTIL report.
-     * @param ZFTPConnector Connector initialized with basic information like server and user.
+     * @param connector     Connector initialized with basic information like server and user.
      * @param baseline      Previous revision state.
-     * @see ZFTPConnector
+     * @see JobConnector
      */
-    SCLMSCMRevisionState(String project, String alternate, String group, LinkedList<String> types, String SCLMJob, ZFTPConnector ZFTPConnector, SCLMSCMRevisionState baseline) {
+    SCLMSCMRevisionState(String project, String alternate, String group, LinkedList<String> types, String SCLMJob, JobConnector connector, SCLMSCMRevisionState baseline) {
         // Copy types.
         this.types = types;
 
@@ -78,7 +78,7 @@ public class SCLMSCMRevisionState extends SCMRevisionState {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
         // Submit the job for the DBUTIL report and build remote file list.
-        if (ZFTPConnector.submit(inputStream, true, 0, outputStream, true)) {
+        if (connector.submit(inputStream, true, 0, outputStream, true, null)) {
             String out = "";
             try {
                 out = outputStream.toString("UTF-8");
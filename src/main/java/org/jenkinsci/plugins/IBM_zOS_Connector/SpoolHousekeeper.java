@@ -0,0 +1,326 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <h2>SpoolHousekeeper</h2>
+ * Spool purges taken off the end of the builds.
+ * <br>Jobs to purge are queued per LPAR and user ID, and purged in batches over one session a little later.
+ * Failed purges are tried again with backoff. Stale ended jobs can be swept as well: jobs matching a jobname pattern
+ * are purged once they have been seen ended for the given number of hours.
+ * <br>The queue is kept in memory only, as it holds passwords: purges still pending at controller shutdown are lost.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see JobTransport#purgeJobs(List)
+ */
+class SpoolHousekeeper {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(SpoolHousekeeper.class.getName());
+    /**
+     * Time to collect a batch before purging it (seconds).
+     */
+    private static final long delay = Long.getLong(SpoolHousekeeper.class.getName() + ".delay", 30);
+    /**
+     * Purge attempts before giving up on a job.
+     */
+    private static final int attempts = Integer.getInteger(SpoolHousekeeper.class.getName() + ".attempts", 5);
+    /**
+     * Time between sweeps of the same jobname pattern (milliseconds).
+     */
+    private static final long SWEEP_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    /**
+     * Shared instance.
+     */
+    private static SpoolHousekeeper instance;
+
+    /**
+     * Housekeeping thread.
+     */
+    private final ScheduledExecutorService timer;
+    /**
+     * Batches by <code>server/userID</code>.
+     */
+    private final Map<String, Batch> batches;
+
+    /**
+     * Create the housekeeping thread.
+     */
+    private SpoolHousekeeper() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                new NamingThreadFactory(new DaemonThreadFactory(), "z/OS spool housekeeping"));
+        timer.setKeepAliveTime(60, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        this.timer = timer;
+        this.batches = new LinkedHashMap<>();
+    }
+
+    /**
+     * @return Shared instance.
+     */
+    static synchronized SpoolHousekeeper get() {
+        if (instance == null)
+            instance = new SpoolHousekeeper();
+        return instance;
+    }
+
+    /**
+     * Queue a job for purge.
+     *
+     * @param settings  Connector to purge with.
+     * @param jobID     JobID in JES.
+     * @param logPrefix Log prefix.
+     */
+    void purge(ConnectorSettings settings, String jobID, String logPrefix) {
+        Batch batch = this.batch(settings, logPrefix);
+        synchronized (this) {
+            batch.jobs.putIfAbsent(jobID, 0);
+        }
+        this.schedule(batch, delay);
+    }
+
+    /**
+     * Sweep stale ended jobs of the user, at most once an hour per pattern.
+     *
+     * @param settings  Connector to purge with.
+     * @param jobNames  Jobname pattern (<code>*</code> and <code>?</code> wildcards).
+     * @param age       Hours a job has to be seen ended before it is purged.
+     * @param logPrefix Log prefix.
+     */
+    void sweep(ConnectorSettings settings, String jobNames, int age, String logPrefix) {
+        Batch batch = this.batch(settings, logPrefix);
+        boolean due;
+        synchronized (this) {
+            Sweep sweep = batch.sweeps.computeIfAbsent(jobNames.toUpperCase(), Sweep::new);
+            sweep.age = TimeUnit.HOURS.toMillis(Math.max(age, 1));
+            due = System.currentTimeMillis() - sweep.last >= SWEEP_INTERVAL;
+        }
+        if (due)
+            this.schedule(batch, delay);
+    }
+
+    /**
+     * @param settings  Connector to purge with.
+     * @param logPrefix Log prefix.
+     * @return Batch of the LPAR and user ID, with the latest settings (the password may have changed).
+     */
+    private synchronized Batch batch(ConnectorSettings settings, String logPrefix) {
+        Batch batch = this.batches.computeIfAbsent(settings.getServer() + "/" + settings.getUserID(), key -> new Batch());
+        batch.settings = settings;
+        batch.logPrefix = logPrefix;
+        return batch;
+    }
+
+    /**
+     * @param batch   Batch.
+     * @param seconds Time before the batch is processed.
+     */
+    private void schedule(Batch batch, long seconds) {
+        synchronized (this) {
+            if (batch.scheduled)
+                return;
+            batch.scheduled = true;
+        }
+        this.timer.schedule(() -> this.process(batch), seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sweep and purge the batch over one session, then reschedule the failed purges.
+     *
+     * @param batch Batch.
+     */
+    private void process(Batch batch) {
+        ConnectorSettings settings;
+        String logPrefix;
+        List<Sweep> sweeps = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            batch.scheduled = false;
+            settings = batch.settings;
+            logPrefix = batch.logPrefix;
+            for (Sweep sweep : batch.sweeps.values()) {
+                if (now - sweep.last >= SWEEP_INTERVAL) {
+                    sweep.last = now;
+                    sweeps.add(sweep);
+                }
+            }
+        }
+
+        String target = settings.getUserID() + "@" + settings.getServer();
+        JobTransport transport;
+        try {
+            transport = settings.transport(logPrefix);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, logPrefix + "cannot connect to " + target, e);
+            this.retry(batch, this.queued(batch), Collections.emptySet(), logPrefix + target);
+            return;
+        }
+        try {
+            for (Sweep sweep : sweeps) {
+                try {
+                    List<String> stale = sweep.stale(transport.listEndedJobs(sweep.jobNames), now);
+                    synchronized (this) {
+                        for (String jobID : stale)
+                            batch.jobs.putIfAbsent(jobID, 0);
+                    }
+                } catch (IOException e) {
+                    logger.warning(logPrefix + "cannot list " + sweep.jobNames + " jobs of " + target + ": " + e.getMessage());
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, logPrefix + "cannot list " + sweep.jobNames + " jobs of " + target, e);
+                }
+            }
+
+            List<String> jobIDs = this.queued(batch);
+            if (jobIDs.isEmpty())
+                return;
+            Set<String> purged = new HashSet<>();
+            try {
+                purged.addAll(transport.purgeJobs(jobIDs));
+            } catch (IOException e) {
+                logger.warning(logPrefix + "cannot purge jobs of " + target + ": " + e.getMessage());
+            } catch (RuntimeException e) {
+                // Counted as a failed attempt like any other failure, so the batch is not stuck.
+                logger.log(Level.WARNING, logPrefix + "cannot purge jobs of " + target, e);
+            }
+            logger.fine(logPrefix + "purged " + purged.size() + " of " + jobIDs.size() + " jobs of " + target);
+            this.retry(batch, jobIDs, purged, logPrefix + target);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * @param batch Batch.
+     * @return Jobs queued for purge.
+     */
+    private synchronized List<String> queued(Batch batch) {
+        return new ArrayList<>(batch.jobs.keySet());
+    }
+
+    /**
+     * Count the attempt, drop the purged jobs and the hopeless ones, schedule the others with backoff.
+     *
+     * @param batch  Batch.
+     * @param jobIDs Jobs tried.
+     * @param purged Jobs purged.
+     * @param target Batch description for the log.
+     */
+    private void retry(Batch batch, List<String> jobIDs, Set<String> purged, String target) {
+        int retry = 0;
+        synchronized (this) {
+            for (String jobID : jobIDs) {
+                if (purged.contains(jobID)) {
+                    batch.jobs.remove(jobID);
+                    continue;
+                }
+                int failed = batch.jobs.merge(jobID, 1, Integer::sum);
+                if (failed >= attempts) {
+                    batch.jobs.remove(jobID);
+                    logger.warning(target + ": giving up purging job [" + jobID + "] after " + failed + " attempts");
+                } else {
+                    retry = Math.max(retry, failed);
+                }
+            }
+            // Jobs queued during the session.
+            if (retry == 0 && !batch.jobs.isEmpty())
+                retry = 1;
+            if (retry == 0 && batch.sweeps.isEmpty())
+                this.batches.values().remove(batch);
+        }
+        if (retry > 0)
+            this.schedule(batch, delay << Math.min(retry, 6));
+    }
+
+    /**
+     * <h2>SpoolHousekeeper.Batch</h2>
+     * Pending work for an LPAR and user ID.
+     */
+    private static class Batch {
+        /**
+         * Connector to purge with.
+         */
+        ConnectorSettings settings;
+        /**
+         * Log prefix.
+         */
+        String logPrefix;
+        /**
+         * Jobs to purge, with failed attempts.
+         */
+        final Map<String, Integer> jobs = new LinkedHashMap<>();
+        /**
+         * Stale job sweeps by jobname pattern.
+         */
+        final Map<String, Sweep> sweeps = new HashMap<>();
+        /**
+         * Whether the batch is on the timer.
+         */
+        boolean scheduled;
+    }
+
+    /**
+     * <h2>SpoolHousekeeper.Sweep</h2>
+     * Stale job sweep for a jobname pattern.
+     * <br>JES listings tell no end time, so a job's age counts from the first sweep that saw it ended.
+     */
+    private static class Sweep {
+        /**
+         * Jobname pattern.
+         */
+        final String jobNames;
+        /**
+         * Time a job has to be seen ended before it is purged (milliseconds).
+         */
+        long age;
+        /**
+         * Last sweep (milliseconds since epoch).
+         */
+        long last;
+        /**
+         * Ended jobs by the time they were first seen.
+         */
+        final Map<String, Long> seen = new HashMap<>();
+
+        /**
+         * @param jobNames Jobname pattern.
+         */
+        Sweep(String jobNames) {
+            this.jobNames = jobNames;
+        }
+
+        /**
+         * @param ended Ended jobs listed now.
+         * @param now   Listing time.
+         * @return Jobs seen ended for long enough.
+         */
+        synchronized List<String> stale(List<String> ended, long now) {
+            // Forget the jobs gone from spool.
+            this.seen.keySet().retainAll(ended);
+            List<String> stale = new ArrayList<>();
+            for (String jobID : ended) {
+                long first = this.seen.computeIfAbsent(jobID, id -> now);
+                if (now - first >= this.age)
+                    stale.add(jobID);
+            }
+            return stale;
+        }
+    }
+}
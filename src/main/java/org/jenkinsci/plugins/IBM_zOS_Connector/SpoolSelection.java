@@ -0,0 +1,365 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParserImpl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * <h2>SpoolSelection</h2>
+ * Which spool files of the job are retrieved, and how much of each.
+ * <br>DD names are matched against comma or blank separated patterns, where <code>*</code> stands
+ * for any characters and <code>?</code> for one (<code>SYSPRINT, JES*</code>).
+ * A spool file is retrieved if it matches an include pattern (or there are none) and no exclude pattern.
+ * <br>Size limits are <code>PATTERN=KiB</code> pairs (<code>SYSUDUMP=64, *=10240</code>), the first matching one applies.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class SpoolSelection {
+    /**
+     * Retrieve everything.
+     */
+    static final SpoolSelection ALL = new SpoolSelection(Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+
+    /**
+     * DD names to retrieve (all if empty).
+     */
+    private final List<Pattern> include;
+    /**
+     * DD names not to retrieve.
+     */
+    private final List<Pattern> exclude;
+    /**
+     * DD name pattern to the most bytes retrieved.
+     */
+    private final Map<Pattern, Long> limits;
+
+    /**
+     * @param include DD names to retrieve (all if empty).
+     * @param exclude DD names not to retrieve.
+     * @param limits  DD name pattern to the most bytes retrieved.
+     */
+    private SpoolSelection(List<Pattern> include, List<Pattern> exclude, Map<Pattern, Long> limits) {
+        this.include = include;
+        this.exclude = exclude;
+        this.limits = limits;
+    }
+
+    /**
+     * @param include DD name patterns to retrieve, <code>null</code> or empty for all.
+     * @param exclude DD name patterns not to retrieve, <code>null</code> or empty for none.
+     * @param limits  Size limits (<code>PATTERN=KiB</code>), <code>null</code> or empty for none.
+     * @return Selection.
+     * @throws IllegalArgumentException on malformed size limit.
+     */
+    static SpoolSelection of(String include, String exclude, String limits) {
+        Map<Pattern, Long> sizes = new LinkedHashMap<>();
+        for (String limit : split(limits)) {
+            int eq = limit.indexOf('=');
+            if (eq <= 0)
+                throw new IllegalArgumentException("Spool size limit must be PATTERN=KiB: '" + limit + "'");
+            try {
+                sizes.put(glob(limit.substring(0, eq)), Long.parseLong(limit.substring(eq + 1)) * 1024);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Spool size limit must be PATTERN=KiB: '" + limit + "'");
+            }
+        }
+        List<Pattern> included = new ArrayList<>();
+        for (String pattern : split(include))
+            included.add(glob(pattern));
+        List<Pattern> excluded = new ArrayList<>();
+        for (String pattern : split(exclude))
+            excluded.add(glob(pattern));
+        return new SpoolSelection(included, excluded, sizes);
+    }
+
+    /**
+     * @return Whether only some spool files or some of their content are retrieved.
+     */
+    boolean isSelective() {
+        return !(this.include.isEmpty() && this.exclude.isEmpty() && this.limits.isEmpty());
+    }
+
+    /**
+     * @param ddName DD name of a spool file.
+     * @return Whether the spool file is retrieved.
+     */
+    boolean selects(String ddName) {
+        if (!this.include.isEmpty() && this.include.stream().noneMatch(p -> p.matcher(ddName).matches()))
+            return false;
+        return this.exclude.stream().noneMatch(p -> p.matcher(ddName).matches());
+    }
+
+    /**
+     * @param ddName DD name of a spool file.
+     * @return Most bytes retrieved from the spool file, <code>-1</code> if unlimited.
+     */
+    long limit(String ddName) {
+        for (Map.Entry<Pattern, Long> limit : this.limits.entrySet()) {
+            if (limit.getKey().matcher(ddName).matches())
+                return limit.getValue();
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieve the selected spool files one after another, separated as in the whole job log.
+     * A spool file cut at its size limit ends with a note.
+     *
+     * @param spoolFiles All spool files of the job.
+     * @param reader     Reads a spool file.
+     * @param out        Target stream.
+     * @param log        Receives the summary.
+     * @return Qualified DD names of the retrieved spool files in order.
+     * @throws IOException on communication failure.
+     * @see SpoolFile#getQualifiedName()
+     */
+    List<String> retrieve(List<SpoolFile> spoolFiles, Reader reader, OutputStream out, Consumer<String> log) throws IOException {
+        List<String> names = new ArrayList<>();
+        long skipped = 0;
+        for (SpoolFile spoolFile : spoolFiles) {
+            if (!this.selects(spoolFile.ddName)) {
+                skipped += spoolFile.bytes;
+                continue;
+            }
+            Counter counter = new Counter(out);
+            boolean truncated = reader.read(spoolFile, this.limit(spoolFile.ddName), counter);
+            StringBuilder end = new StringBuilder();
+            if (counter.last != '\n')
+                end.append('\n');
+            if (truncated) {
+                end.append(" ++ ").append(spoolFile.ddName).append(" truncated after ").append(counter.count)
+                        .append(" bytes of about ").append(spoolFile.bytes).append(" ++\n");
+                skipped += Math.max(spoolFile.bytes - counter.count, 0);
+            }
+            end.append(' ').append(JobLogIndex.SPOOL_FILE_SEPARATOR).append('\n');
+            out.write(end.toString().getBytes(StandardCharsets.US_ASCII));
+            names.add(spoolFile.getQualifiedName());
+        }
+        log.accept("Retrieved " + names.size() + " of " + spoolFiles.size() + " spool files, " + skipped + " bytes skipped");
+        return names;
+    }
+
+    /**
+     * Copy a spool file, at most <code>limit</code> bytes.
+     *
+     * @param in    Spool file content.
+     * @param limit Most bytes to copy, <code>-1</code> for all.
+     * @param out   Target stream.
+     * @return Whether the spool file was cut at the limit.
+     * @throws IOException on read or write failure.
+     */
+    static boolean copy(InputStream in, long limit, OutputStream out) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        long copied = 0;
+        int read;
+        while ((limit < 0 || copied < limit)
+                && (read = in.read(buffer, 0, (int) (limit < 0 ? buffer.length : Math.min(buffer.length, limit - copied)))) != -1) {
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+        return limit >= 0 && copied >= limit && in.read() != -1;
+    }
+
+    /**
+     * @param patterns Comma or blank separated list.
+     * @return Items of the list.
+     */
+    private static List<String> split(String patterns) {
+        List<String> items = new ArrayList<>();
+        if (patterns == null)
+            return items;
+        for (String item : patterns.trim().split("[,\\s]+")) {
+            if (!item.isEmpty())
+                items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * @param glob DD name pattern.
+     * @return Pattern matching DD names (case-insensitive).
+     */
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.trim().toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * <h2>SpoolSelection.Reader</h2>
+     * Reads one spool file.
+     */
+    @FunctionalInterface
+    interface Reader {
+        /**
+         * @param spoolFile Spool file.
+         * @param limit     Most bytes to read, <code>-1</code> for all.
+         * @param out       Target stream.
+         * @return Whether the spool file was cut at the limit.
+         * @throws IOException on communication failure.
+         */
+        boolean read(SpoolFile spoolFile, long limit, OutputStream out) throws IOException;
+    }
+
+    /**
+     * <h2>SpoolSelection.Counter</h2>
+     * Counts the bytes of a spool file and remembers the last one.
+     */
+    private static class Counter extends FilterOutputStream {
+        /**
+         * Bytes written.
+         */
+        private long count = 0;
+        /**
+         * Last byte written.
+         */
+        private int last = '\n';
+
+        /**
+         * @param out Target stream.
+         */
+        private Counter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+            this.last = b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return;
+            this.out.write(b, off, len);
+            this.count += len;
+            this.last = b[off + len - 1];
+        }
+    }
+
+    /**
+     * <h2>SpoolSelection.SpoolFile</h2>
+     * Spool file from the JES job listing.
+     */
+    static class SpoolFile {
+        /**
+         * Spool file number within the job.
+         */
+        final int id;
+        /**
+         * Step name.
+         */
+        final String stepName;
+        /**
+         * Procedure step name (<code>null</code> if none).
+         */
+        final String procStep;
+        /**
+         * DD name.
+         */
+        final String ddName;
+        /**
+         * Size (bytes).
+         */
+        final long bytes;
+        /**
+         * Number of records (<code>-1</code> if unknown).
+         */
+        final long records;
+
+        /**
+         * @param id       Spool file number within the job.
+         * @param stepName Step name.
+         * @param procStep Procedure step name.
+         * @param ddName   DD name.
+         * @param bytes    Size (bytes).
+         * @param records  Number of records, <code>-1</code> if unknown.
+         */
+        SpoolFile(int id, String stepName, String procStep, String ddName, long bytes, long records) {
+            this.id = id;
+            this.stepName = stepName;
+            this.procStep = procStep;
+            this.ddName = ddName;
+            this.bytes = bytes;
+            this.records = records;
+        }
+
+        /**
+         * @return <code>STEPNAME.PROCSTEP.DDNAME</code> as JES names a spool file, without the missing parts.
+         */
+        String getQualifiedName() {
+            StringBuilder name = new StringBuilder();
+            for (String part : new String[]{this.stepName, this.procStep}) {
+                if (part != null && !part.isEmpty())
+                    name.append(part).append('.');
+            }
+            return name.append(this.ddName).toString();
+        }
+
+        /**
+         * Parse spool files from the listing of a job (<code>JESINTERFACELEVEL=2</code>):
+         * <pre>
+         *          ID  STEPNAME PROCSTEP C DDNAME   BYTE-COUNT
+         *          001 JES2              A JESMSGLG      1200
+         *          004 STEP1    COMPILE  A SYSPRINT     38210
+         * </pre>
+         *
+         * @param lines Listing lines.
+         * @return Spool files in listing order.
+         */
+        static List<SpoolFile> parse(List<String> lines) {
+            List<SpoolFile> spoolFiles = new ArrayList<>();
+            for (String line : lines) {
+                String[] f = line.trim().split("\\s+");
+                if ((f.length != 5 && f.length != 6) || !f[0].matches("\\d+") || !f[f.length - 1].matches("\\d+"))
+                    continue;
+                spoolFiles.add(new SpoolFile(Integer.parseInt(f[0]), f[1], f.length == 6 ? f[2] : null,
+                        f[f.length - 2], Long.parseLong(f[f.length - 1]), -1));
+            }
+            return spoolFiles;
+        }
+    }
+
+    /**
+     * <h2>SpoolSelection.ListParser</h2>
+     * Keeps listing lines as they are: the stock MVS parser only knows job lines, not spool file lines.
+     */
+    static class ListParser extends FTPFileEntryParserImpl {
+        /**
+         * Parser key to request this parser with.
+         */
+        static final String KEY = "ZOS-JES-SPOOL";
+
+        @Override
+        public FTPFile parseFTPEntry(String entry) {
+            if (entry == null || entry.trim().isEmpty())
+                return null;
+            FTPFile file = new FTPFile();
+            file.setRawListing(entry);
+            return file;
+        }
+    }
+}
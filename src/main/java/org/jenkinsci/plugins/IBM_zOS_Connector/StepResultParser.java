@@ -0,0 +1,212 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <h2>StepResultParser</h2>
+ * Collects step completion data from the job log while it passes through to the target stream.
+ * <br>Recognized messages:
+ * <ul>
+ * <li><code>IEF142I</code> step executed, condition code;</li>
+ * <li><code>IEF272I</code> step not executed;</li>
+ * <li><code>IEF472I</code>, <code>IEF450I</code> step ABENDed;</li>
+ * <li><code>IEF373I</code>, <code>IEF374I</code>/<code>IEF032I</code> step start, stop and CPU time.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class StepResultParser extends FilterOutputStream {
+    /**
+     * Longest line inspected (bytes). The messages of interest are much shorter.
+     */
+    private static final int MAX_LINE_LENGTH = 256;
+    /**
+     * Job, step and optional procedure step names before the message text.
+     */
+    private static final String NAMES = "\\S+\\s+(\\S+)(?:\\s+(?!-)(\\S+))?\\s+-\\s+";
+    private static final Pattern IEF142I = Pattern.compile("IEF142I\\s+" + NAMES + "STEP WAS EXECUTED\\s+-\\s+COND CODE\\s+(\\d{4})");
+    private static final Pattern IEF272I = Pattern.compile("IEF272I\\s+" + NAMES + "STEP WAS NOT EXECUTED");
+    private static final Pattern IEF472I = Pattern.compile("IEF472I\\s+" + NAMES + "COMPLETION CODE\\s+-\\s+SYSTEM=(\\w{3})\\s+USER=(\\d{4})(?:\\s+REASON=(\\w+))?");
+    private static final Pattern IEF450I = Pattern.compile("IEF450I\\s+" + NAMES + "ABEND=(S\\w{3})\\s+(U\\d{4})(?:\\s+REASON=(\\w+))?");
+    private static final Pattern START = Pattern.compile("IEF373I\\s+STEP/(\\S+?)\\s*/START\\s+(\\d{7}\\.\\d{4})");
+    private static final Pattern STOP = Pattern.compile("IEF(?:374I|032I)\\s+STEP/(\\S+?)\\s*/STOP\\s+(\\d{7}\\.\\d{4})(?:\\s+CPU\\s+(\\d+)MIN\\s+(\\d+(?:\\.\\d+)?)SEC)?");
+    private static final Pattern CPU = Pattern.compile("^\\s*CPU:\\s+(\\d+)\\s+HR\\s+(\\d+)\\s+MIN\\s+(\\d+(?:\\.\\d+)?)\\s+SEC");
+    /**
+     * Format of start/stop times.
+     */
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("uuuuDDD.HHmm");
+
+    /**
+     * Steps in order of appearance.
+     */
+    private final List<ZOSJobStepsAction.Step> steps;
+    /**
+     * Line being collected.
+     */
+    private final byte[] line;
+    /**
+     * Bytes in <code>line</code>.
+     */
+    private int lineLength;
+    /**
+     * Step of the last <code>STOP</code> message (CPU time may follow on the next line).
+     */
+    private ZOSJobStepsAction.Step stopped;
+
+    /**
+     * @param out Target stream.
+     */
+    StepResultParser(OutputStream out) {
+        super(out);
+        this.steps = new ArrayList<>();
+        this.line = new byte[MAX_LINE_LENGTH];
+        this.lineLength = 0;
+        this.stopped = null;
+    }
+
+    /**
+     * @return Steps in order of appearance.
+     */
+    List<ZOSJobStepsAction.Step> getSteps() {
+        if (this.lineLength > 0)
+            this.endLine();
+        return this.steps;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        this.collect(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.out.write(b, off, len);
+        for (int i = off; i < off + len; i++)
+            this.collect(b[i]);
+    }
+
+    /**
+     * @param b Next byte of the log.
+     */
+    private void collect(int b) {
+        if (b == '\n') {
+            this.endLine();
+        } else if (this.lineLength < this.line.length) {
+            this.line[this.lineLength++] = (byte) b;
+        }
+    }
+
+    /**
+     * Inspect the collected line.
+     */
+    private void endLine() {
+        String text = new String(this.line, 0, this.lineLength, StandardCharsets.US_ASCII);
+        this.lineLength = 0;
+        ZOSJobStepsAction.Step lastStopped = this.stopped;
+        this.stopped = null;
+        // Cheap filter: every message of interest has one of these.
+        if (text.indexOf("IEF") < 0 && text.indexOf("CPU:") < 0)
+            return;
+
+        Matcher m;
+        if ((m = IEF142I.matcher(text)).find()) {
+            this.step(m.group(1), m.group(2), false).cc = m.group(3);
+        } else if ((m = IEF272I.matcher(text)).find()) {
+            this.step(m.group(1), m.group(2), false).cc = "FLUSH";
+        } else if ((m = IEF472I.matcher(text)).find()) {
+            ZOSJobStepsAction.Step step = this.step(m.group(1), m.group(2), true);
+            step.cc = "000".equals(m.group(3)) ? "U" + m.group(4) : "S" + m.group(3);
+            step.reason = m.group(5);
+        } else if ((m = IEF450I.matcher(text)).find()) {
+            ZOSJobStepsAction.Step step = this.step(m.group(1), m.group(2), true);
+            step.cc = "S000".equals(m.group(3)) ? m.group(4) : m.group(3);
+            step.reason = m.group(5);
+        } else if ((m = START.matcher(text)).find()) {
+            this.timed(m.group(1)).start = m.group(2);
+        } else if ((m = STOP.matcher(text)).find()) {
+            ZOSJobStepsAction.Step step = this.timed(m.group(1));
+            step.stop = m.group(2);
+            if (m.group(3) != null)
+                step.cpuSeconds = Integer.parseInt(m.group(3)) * 60 + Double.parseDouble(m.group(4));
+            step.elapsedSeconds = elapsed(step.start, step.stop);
+            this.stopped = step;
+        } else if (lastStopped != null && (m = CPU.matcher(text)).find()) {
+            lastStopped.cpuSeconds = Integer.parseInt(m.group(1)) * 3600 + Integer.parseInt(m.group(2)) * 60
+                    + Double.parseDouble(m.group(3));
+        }
+    }
+
+    /**
+     * Find the step a completion message is about, or add it.
+     * The same step name repeats for every step of a procedure, so the procedure step decides.
+     * <br>An ABEND reported again (JESYSMSG follows JESMSGLG) moves the step to its place among the steps of JESYSMSG.
+     *
+     * @param stepName Step name.
+     * @param procStep Procedure step name (can be <code>null</code>).
+     * @param abend    Whether the message reports an ABEND (it is reported both in JESMSGLG and JESYSMSG).
+     * @return Step record.
+     */
+    private ZOSJobStepsAction.Step step(String stepName, String procStep, boolean abend) {
+        for (int i = this.steps.size() - 1; i >= 0; i--) {
+            ZOSJobStepsAction.Step step = this.steps.get(i);
+            boolean open = step.cc == null || (abend && !step.cc.matches("\\d{4}|FLUSH"));
+            if (open && step.getStepName().equals(stepName)
+                    && (procStep == null ? step.getProcStep() == null : procStep.equals(step.getProcStep()))) {
+                if (abend && step.cc != null) {
+                    this.steps.remove(i);
+                    this.steps.add(step);
+                }
+                return step;
+            }
+        }
+        ZOSJobStepsAction.Step step = new ZOSJobStepsAction.Step(stepName, procStep);
+        this.steps.add(step);
+        return step;
+    }
+
+    /**
+     * Find the step a start/stop message is about (it names the procedure step inside procedures), or add it.
+     *
+     * @param name Step or procedure step name.
+     * @return Step record.
+     */
+    private ZOSJobStepsAction.Step timed(String name) {
+        for (int i = this.steps.size() - 1; i >= 0; i--) {
+            ZOSJobStepsAction.Step step = this.steps.get(i);
+            String own = step.getProcStep() != null ? step.getProcStep() : step.getStepName();
+            if (own.equals(name) && step.stop == null)
+                return step;
+        }
+        ZOSJobStepsAction.Step step = new ZOSJobStepsAction.Step(name, null);
+        this.steps.add(step);
+        return step;
+    }
+
+    /**
+     * @param start Step start (<code>yyyyddd.hhmm</code>).
+     * @param stop  Step stop (<code>yyyyddd.hhmm</code>).
+     * @return Elapsed seconds, <code>-1</code> if unknown.
+     */
+    private static long elapsed(String start, String stop) {
+        if (start == null || stop == null)
+            return -1;
+        try {
+            return ChronoUnit.SECONDS.between(LocalDateTime.parse(start, TIME), LocalDateTime.parse(stop, TIME));
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
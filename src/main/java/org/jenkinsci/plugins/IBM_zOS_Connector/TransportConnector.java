@@ -0,0 +1,520 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * <h2>TransportConnector</h2>
+ * Runs a whole job over a {@link JobTransport}: submits it, polls its status, reads the spool files and cleans up.
+ * <br><code>jobCC</code> values are the same whatever the transport, so builds are judged the same way.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class TransportConnector implements JobConnector {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(TransportConnector.class.getName());
+    /**
+     * Time to wait before polling the job status again (milliseconds).
+     */
+    private static final long waitInterval = 10 * 1000;
+    /**
+     * Default time given to cancel the job once the wait is interrupted (seconds).
+     */
+    static final int DEFAULT_CANCEL_TIMEOUT = 30;
+
+    /**
+     * Transport to JES.
+     */
+    private final JobTransport transport;
+    /**
+     * UserID the transport logs on with.
+     */
+    private final String userID;
+    /**
+     * Log prefix.
+     */
+    private final String logPrefix;
+    /**
+     * Where the transport leads (for log and scheduler keys).
+     */
+    private final String target;
+
+    /**
+     * JobID in JES.
+     */
+    private String jobID;
+    /**
+     * Jobname in JES.
+     */
+    private String jobName;
+    /**
+     * Job completion or the reason of the failure.
+     */
+    private String jobCC;
+    /**
+     * Whether the job was cancelled because the wait was interrupted.
+     */
+    private volatile boolean jobCancelled;
+    /**
+     * DD names of the retrieved spool files.
+     */
+    private List<String> spoolFileNames;
+    /**
+     * Listener to log to.
+     */
+    private TaskListener listener;
+    /**
+     * Receives the JobID as soon as the job is submitted.
+     */
+    private Consumer<String> submitListener;
+    /**
+     * Asked once the wait is interrupted: whether to cancel the job.
+     */
+    private BooleanSupplier cancelOnInterrupt;
+    /**
+     * Time given to cancel the job (seconds).
+     */
+    private int cancelTimeout;
+    /**
+     * Attempts per idempotent operation (non-positive for default).
+     */
+    private int retryAttempts;
+    /**
+     * Delay before the first retry (seconds, non-positive for default).
+     */
+    private int retryBackoff;
+    /**
+     * Retry policy of the current job.
+     */
+    private RetryPolicy retryPolicy;
+    /**
+     * Spool files to retrieve.
+     */
+    private SpoolSelection spoolSelection;
+    /**
+     * Time the wait for the current job ends (<code>0</code> for no limit).
+     */
+    private long jobEndTime;
+
+    /**
+     * @param transport Transport to JES.
+     * @param target    Where the transport leads (for the log).
+     * @param userID    UserID the transport logs on with.
+     * @param logPrefix Log prefix.
+     */
+    TransportConnector(JobTransport transport, String target, String userID, String logPrefix) {
+        this.transport = transport;
+        this.target = target;
+        this.userID = userID;
+        this.logPrefix = logPrefix == null ? "" : logPrefix;
+        this.submitListener = null;
+        this.cancelOnInterrupt = () -> false;
+        this.cancelTimeout = DEFAULT_CANCEL_TIMEOUT;
+        this.retryPolicy = new RetryPolicy(0, 0);
+        this.spoolSelection = SpoolSelection.ALL;
+    }
+
+    @Override
+    public void setSubmitListener(Consumer<String> submitListener) {
+        this.submitListener = submitListener;
+    }
+
+    @Override
+    public void setCancelOnInterrupt(BooleanSupplier cancelOnInterrupt, int cancelTimeout) {
+        this.cancelOnInterrupt = cancelOnInterrupt == null ? () -> false : cancelOnInterrupt;
+        this.cancelTimeout = cancelTimeout > 0 ? cancelTimeout : DEFAULT_CANCEL_TIMEOUT;
+    }
+
+    @Override
+    public void setRetries(int retryAttempts, int retryBackoff) {
+        this.retryAttempts = retryAttempts;
+        this.retryBackoff = retryBackoff;
+    }
+
+    @Override
+    public void setSpoolSelection(SpoolSelection spoolSelection) {
+        this.spoolSelection = spoolSelection == null ? SpoolSelection.ALL : spoolSelection;
+    }
+
+    @Override
+    public boolean submit(InputStream inputStream, boolean wait, int waitTime, OutputStream outputStream, boolean deleteLogFromSpool, TaskListener taskListener) {
+        this.listener = taskListener;
+        this.prepare(((long) waitTime) * 60 * 1000); // Minutes to milliseconds.
+
+        // Verify connection. Nothing is submitted yet, so this can be retried.
+        try {
+            this.retry("Logon", () -> {
+                this.transport.open();
+                return true;
+            });
+        } catch (IOException e) {
+            this.jobCC = "COULD_NOT_CONNECT";
+            this.transport.close();
+            return false;
+        }
+
+        // Never retried: if the data reached the server, JES may already run the job.
+        try {
+            this.jobID = this.transport.submitJob(inputStream);
+            this.log("Submitted job [" + this.jobID + "]");
+            if (this.submitListener != null)
+                this.submitListener.accept(this.jobID);
+            inputStream.close();
+        } catch (SocketTimeoutException e) {
+            this.err("Job submission timed out on " + this.target);
+            this.jobCC = "SUBMIT_TIMEOUT";
+            this.transport.close();
+            return false;
+        } catch (IOException e) {
+            this.err("Job submission failed: " + e.getMessage());
+            this.jobCC = "IO_ERROR";
+            this.transport.close();
+            return false;
+        }
+
+        if (wait)
+            return this.awaitJob(outputStream, deleteLogFromSpool);
+        this.transport.close();
+        return true;
+    }
+
+    @Override
+    public boolean collect(String jobID, OutputStream outputStream, boolean deleteLogFromSpool, TaskListener taskListener) {
+        this.listener = taskListener;
+        this.prepare(0);
+        this.jobID = jobID;
+        this.log("Collecting log of job [" + this.jobID + "]");
+        JobTransport.Status status;
+        try {
+            status = this.retry("Job status check", () -> this.transport.getStatus(this.jobID));
+        } catch (IOException e) {
+            this.jobCC = e instanceof JobTransport.LogonRejected
+                    ? "CHECK_JOB_AVAILABILITY_ERROR_LOGIN" : "CHECK_JOB_AVAILABILITY_IO_ERROR";
+            this.transport.close();
+            return false;
+        }
+        if (status == null || !status.isFinished()) {
+            this.err("Job [" + this.jobID + "] " + (status == null ? "cannot be found in JES" : "has not ended"));
+            this.jobCC = status == null ? "JOB_NOT_FOUND_IN_JES" : "JOB_NOT_FINISHED";
+            this.transport.close();
+            return false;
+        }
+        this.jobName = status.jobName;
+        return this.collectJobLog(new ResumableOutputStream(
+                outputStream == null ? OutputStream.nullOutputStream() : outputStream), status, deleteLogFromSpool);
+    }
+
+    /**
+     * Reset job info for a new job.
+     *
+     * @param waitTime Maximum wait time in milliseconds. If set to <code>0</code>, will wait forever.
+     */
+    private void prepare(long waitTime) {
+        this.jobEndTime = waitTime == 0 ? 0 : System.currentTimeMillis() + waitTime;
+        this.jobID = "";
+        this.jobName = "";
+        this.jobCC = "";
+        this.jobCancelled = false;
+        this.spoolFileNames = null;
+        this.retryPolicy = new RetryPolicy(this.retryAttempts, this.retryBackoff);
+    }
+
+    /**
+     * Wait for the submitted job, fetch its log, then optionally purge it from spool.
+     *
+     * @param outputStream       Stream to put job log. Can be <code>Null</code>.
+     * @param deleteLogFromSpool Whether the job log should be deleted fro spool upon job end.
+     * @return Whether the job log was fetched.
+     */
+    private boolean awaitJob(OutputStream outputStream, boolean deleteLogFromSpool) {
+        boolean[] jobWasObserved = {false};
+        int[] failures = {0};
+        JobTransport.Status[] ended = {null};
+        // Survives failed retrievals, so the log is never written twice.
+        ResumableOutputStream jobLogStream = new ResumableOutputStream(
+                outputStream == null ? OutputStream.nullOutputStream() : outputStream);
+
+        // Only the status probe runs on the scheduler, the log is fetched on this thread.
+        JobWaitScheduler.Wait done = JobWaitScheduler.get().await(this.jobID + "@" + this.target,
+                waitInterval, this.jobEndTime, () -> {
+                    JobTransport.Status status;
+                    try {
+                        status = this.transport.getStatus(this.jobID);
+                        failures[0] = 0;
+                    } catch (JobTransport.LogonRejected e) {
+                        this.err("Job status check failed: " + e.getMessage());
+                        this.jobCC = "CHECK_JOB_AVAILABILITY_ERROR_LOGIN";
+                        return false;
+                    } catch (IOException e) {
+                        this.err("Job status check failed: " + e.getMessage());
+                        return this.backoff("Job status check", ++failures[0], "CHECK_JOB_AVAILABILITY_IO_ERROR");
+                    }
+                    if (status == null) {
+                        if (jobWasObserved[0]) {
+                            this.err("Job [" + this.jobID + "] cannot be found in JES");
+                            this.jobCC = "JOB_NOT_FOUND_IN_JES";
+                            return false;
+                        }
+                        return null;
+                    }
+                    jobWasObserved[0] = true;
+                    this.jobName = status.jobName;
+                    if (!status.isFinished())
+                        return null;
+                    ended[0] = status;
+                    return true;
+                });
+
+        boolean finished;
+        try {
+            finished = done.get();
+        } catch (InterruptedException e) {
+            done.cancel(true);
+            this.err("Interrupted.");
+            this.jobCC = "WAIT_INTERRUPTED";
+            if (this.cancelOnInterrupt.getAsBoolean())
+                this.cancelJob();
+            this.transport.close();
+            return false;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TimeoutException))
+                this.err("Wait failed: " + e.getCause());
+            // As over FTP: a timeout is a wait error too.
+            this.jobCC = "WAIT_ERROR";
+            this.transport.close();
+            return false;
+        }
+
+        if (!finished) {
+            this.transport.close();
+            return false;
+        }
+        return this.collectJobLog(jobLogStream, ended[0], deleteLogFromSpool);
+    }
+
+    /**
+     * Fetch the log of the ended job, then optionally purge it from spool.
+     *
+     * @param jobLogStream       Stream to put job log.
+     * @param status             Status of the ended job.
+     * @param deleteLogFromSpool Whether the job log should be deleted fro spool.
+     * @return Whether the job log was fetched.
+     */
+    private boolean collectJobLog(ResumableOutputStream jobLogStream, JobTransport.Status status, boolean deleteLogFromSpool) {
+        boolean fetched = this.fetchJobLog(jobLogStream, status);
+        if (fetched && deleteLogFromSpool) {
+            try {
+                this.retry("Job log deletion", () -> this.transport.purgeJob(this.jobID));
+            } catch (IOException ignored) {
+                // Logged by retry(), the log is already fetched.
+            }
+        }
+        this.transport.close();
+        return fetched;
+    }
+
+    /**
+     * Fetch the selected spool files of the finished job and take its completion.
+     * The whole job log is read at once when nothing is left out and the transport can do it.
+     * Either way the spool files are named from the listing, so they can be found by step and DD name.
+     *
+     * @param outputStream Stream to hold the job log.
+     * @param status       Status of the finished job.
+     * @return Whether the job log was fetched.
+     */
+    private boolean fetchJobLog(ResumableOutputStream outputStream, JobTransport.Status status) {
+        try {
+            this.spoolFileNames = this.retry("Job log retrieval", () -> {
+                List<SpoolSelection.SpoolFile> spoolFiles = status.spoolFiles != null
+                        ? status.spoolFiles : this.transport.listSpoolFiles(this.jobID);
+                if ((!this.spoolSelection.isSelective() || spoolFiles.isEmpty())
+                        && this.transport.readJobLog(this.jobID, outputStream)) {
+                    if (spoolFiles.isEmpty()) {
+                        if (this.spoolSelection.isSelective())
+                            this.log("No spool files in the listing of job [" + this.jobID + "], retrieved the whole job log");
+                        return null;
+                    }
+                    // The whole job log holds every spool file in listing order.
+                    List<String> names = new ArrayList<>();
+                    for (SpoolSelection.SpoolFile spoolFile : spoolFiles)
+                        names.add(spoolFile.getQualifiedName());
+                    return names;
+                }
+                outputStream.restart();
+                return this.spoolSelection.retrieve(spoolFiles,
+                        (spoolFile, limit, out) -> this.transport.readSpoolFile(this.jobID, spoolFile, limit, out),
+                        outputStream, this::log);
+            });
+        } catch (IOException e) {
+            this.jobCC = "FETCH_LOG_IO_ERROR";
+            return false;
+        }
+        this.jobCC = status.cc == null ? "COULD_NOT_RETRIEVE_JOB_RC" : status.cc;
+        return true;
+    }
+
+    /**
+     * Cancel the job. Runs on a separate thread and is given at most <code>cancelTimeout</code> seconds,
+     * so an aborted build does not hang on an unreachable LPAR.
+     */
+    private void cancelJob() {
+        this.log("Cancelling job [" + this.jobID + "]");
+        Thread canceller = new Thread(() -> {
+            try {
+                this.jobCancelled = this.retry("Job cancel", () -> this.transport.purgeJob(this.jobID));
+            } catch (IOException ignored) {
+                // Logged by retry().
+            }
+        }, "z/OS job cancel " + this.jobID);
+        canceller.setDaemon(true);
+        canceller.start();
+        try {
+            canceller.join(this.cancelTimeout * 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (canceller.isAlive()) {
+            // Unblock the canceller, it will fail on the closed connection.
+            this.transport.close();
+            canceller.interrupt();
+        }
+        if (this.jobCancelled) {
+            this.log("Job [" + this.jobID + "] cancelled and purged from spool");
+        } else {
+            this.err("Failed to cancel job [" + this.jobID + "] in " + this.cancelTimeout + " seconds, it may still be running");
+        }
+    }
+
+    /**
+     * Have a failed status probe tried again later, without sleeping on the scheduler pool.
+     *
+     * @param operation Operation description for the log.
+     * @param attempt   Number of the failed attempt in a row (starting from 1).
+     * @param failedCC  <code>jobCC</code> once the retries are used up.
+     * @return <code>false</code> once the retries are used up.
+     * @throws JobWaitScheduler.Backoff to probe again after the backoff delay.
+     */
+    private Boolean backoff(String operation, int attempt, String failedCC) throws JobWaitScheduler.Backoff {
+        if (!this.retryPolicy.allowRetry(attempt)) {
+            this.jobCC = failedCC;
+            return false;
+        }
+        long delay = this.retryPolicy.backoff(attempt);
+        this.log(operation + ": retry " + attempt + "/" + (this.retryPolicy.getAttempts() - 1)
+                + " in " + (delay / 1000) + "s");
+        throw new JobWaitScheduler.Backoff(delay);
+    }
+
+    /**
+     * Idempotent transport operation: safe to repeat after a failure.
+     *
+     * @param <T> Result type.
+     */
+    @FunctionalInterface
+    private interface Operation<T> {
+        /**
+         * @return Operation result.
+         * @throws IOException on communication failure (the operation will be retried).
+         */
+        T run() throws IOException;
+    }
+
+    /**
+     * Run an idempotent operation, retrying with backoff on communication failures.
+     * Rejected logons are not retried, to avoid revoking the user ID.
+     *
+     * @param operation Operation description for the log.
+     * @param op        Operation.
+     * @param <T>       Result type.
+     * @return Operation result.
+     * @throws IOException the last failure, once the retries are exhausted or the thread is interrupted.
+     * @see RetryPolicy
+     */
+    private <T> T retry(String operation, Operation<T> op) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return op.run();
+            } catch (IOException e) {
+                this.err(operation + " failed: " + e.getMessage());
+                if (e instanceof JobTransport.LogonRejected || !this.retryPolicy.allowRetry(attempt))
+                    throw e;
+                long delay = this.retryPolicy.backoff(attempt);
+                this.log(operation + ": retry " + attempt + "/" + (this.retryPolicy.getAttempts() - 1)
+                        + " in " + (delay / 1000) + "s");
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    // Let the caller see the interruption.
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getUserID() {
+        return this.userID;
+    }
+
+    @Override
+    public String getJobID() {
+        return this.jobID;
+    }
+
+    @Override
+    public String getJobName() {
+        return this.jobName;
+    }
+
+    @Override
+    public String getJobCC() {
+        return this.jobCC;
+    }
+
+    @Override
+    public boolean isJobCancelled() {
+        return this.jobCancelled;
+    }
+
+    @Override
+    public List<String> getSpoolFileNames() {
+        return this.spoolFileNames;
+    }
+
+    /**
+     * Log information into logger.info and listener logger
+     *
+     * @param text Text for logging.
+     */
+    private void log(String text) {
+        logger.info(this.logPrefix + text);
+        if (this.listener != null)
+            this.listener.getLogger().println(text);
+    }
+
+    /**
+     * Log information into logger.severe and listener error logger
+     *
+     * @param text Text for logging.
+     */
+    private void err(String text) {
+        logger.severe(this.logPrefix + text);
+        if (this.listener != null)
+            this.listener.error(text);
+    }
+}
@@ -1,15 +1,25 @@
 package org.jenkinsci.plugins.IBM_zOS_Connector;
 
-import hudson.model.TaskListener;
 import org.apache.commons.net.PrintCommandListener;
+import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
-import org.apache.commons.net.ftp.FTPConnectionClosedException;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
 import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.commons.net.ftp.parser.DefaultFTPFileEntryParserFactory;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
 import java.io.*;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -19,16 +29,58 @@ import java.util.regex.Pattern;
  * <h2>ZFTPConnector</h2>
  * FTP-based communication with z/OS-like systems.
  * Used for submitting jobs, fetching job log and extraction of MaxCC.
+ * <br>Serves the single job operations ({@link JobTransport}), {@link TransportConnector} runs whole jobs on them.
  *
  * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
  * @version 1.0
  */
-class ZFTPConnector {
+class ZFTPConnector implements JobTransport {
     // Server info.
     /**
-     * Will ask LPAR once in 10 seconds.
+     * Default time to establish the control connection (seconds).
      */
-    private static final long waitInterval = 10 * 1000;
+    static final int DEFAULT_CONNECT_TIMEOUT = 30;
+    /**
+     * Default time to wait for a reply on the control connection (seconds).
+     */
+    static final int DEFAULT_READ_TIMEOUT = 60;
+    /**
+     * Default time to wait for data on the data connection (seconds).
+     */
+    static final int DEFAULT_DATA_TIMEOUT = 120;
+    /**
+     * Default interval of NOOPs on the control connection during transfers (seconds).
+     */
+    static final int DEFAULT_KEEP_ALIVE_INTERVAL = 60;
+    /**
+     * Lifetime of cached TLS sessions (seconds): covers the polls of a long job.
+     */
+    private static final int TLS_SESSION_TIMEOUT = 4 * 60 * 60;
+    /**
+     * Shared TLS context. Its client session cache lets every reconnect to a server resume the TLS session
+     * instead of a full handshake, across polls, jobs and connectors.
+     */
+    private static SSLContext tlsContext;
+    /**
+     * Job phase in the job listing.
+     */
+    private static final Pattern PHASE = Pattern.compile("\\b(INPUT|ACTIVE|OUTPUT)\\b");
+    /**
+     * Completion code in the job listing.
+     */
+    private static final Pattern CC = Pattern.compile(".* RC=(\\S+) .*");
+    /**
+     * Completion code in the job listing when the job did not end normally (e.g. <code>RC unknown</code>).
+     */
+    private static final Pattern CCUndefined = Pattern.compile(".* RC\\s+(\\S+)\\s+.*");
+    /**
+     * ABEND code in the job listing.
+     */
+    private static final Pattern ABEND = Pattern.compile(".* ABEND=(.*?) .*");
+    /**
+     * JCL error in the job listing.
+     */
+    private static final Pattern JCLERROR = Pattern.compile(".* \\(JCL error\\) .*");
     /**
      * Pattern for search of jobName
      */
@@ -56,49 +108,80 @@ class ZFTPConnector {
      */
     private final String userID;
     /**
-     * User password.
+     * User password (or secured signon key when PassTickets are used).
      */
     private final String password;
     /**
-     * Time to wait before giving up in milliseconds. If set to <code>0</code> will wait forever.
+     * RACF application name to generate PassTickets for. Password is used as is if <code>null</code>.
      */
-    private long waitTime;
+    private String passTicketApplication;
+    // JESINTERFACELEVEL=1
+    private final boolean JESINTERFACELEVEL1;
     /**
-     * JobID in JES.
+     * FTPClient from <i>Apache Commons-Net</i>. Used for FTP communication.
      */
-    private String jobID;
+    private FTPClient FTPClient;
     /**
-     * Whether job log was successfully captured
+     * Log prefix (default: "ZFTPConnector")
      */
-    private boolean jobLogCaptured;
-
-    // Work elements.
+    private String logPrefix;
     /**
-     * Jobname in JES.
+     * FTP transfer mode
      */
-    private String jobName;
+    private final boolean FTPActiveMode;
     /**
-     * Job's MaxCC.
+     * Connect timeout (seconds).
      */
-    private String jobCC;
-    // JESINTERFACELEVEL=1
-    private final boolean JESINTERFACELEVEL1;
+    private int connectTimeout;
     /**
-     * FTPClient from <i>Apache Commons-Net</i>. Used for FTP communication.
+     * Control connection read timeout (seconds).
      */
-    private FTPClient FTPClient;
+    private int readTimeout;
     /**
-     * Log prefix (default: "ZFTPConnector")
+     * Data connection read timeout (seconds).
      */
-    private String logPrefix;
+    private int dataTimeout;
     /**
-     * Task listener (if provided).
+     * Control connection keep-alive interval during transfers (seconds). <code>0</code> to disable.
      */
-    private TaskListener listener;
+    private int keepAliveInterval;
     /**
-     * FTP transfer mode
+     * Retry policy of idempotent operations.
      */
-    private final boolean FTPActiveMode;
+    private RetryPolicy retryPolicy;
+    /**
+     * Whether the last logon was rejected by the server (as opposed to failed to communicate).
+     */
+    private boolean logonRejected;
+    /**
+     * Held by the operation using the FTP session: operations may come from several threads
+     * (status checks on {@link JobWaitScheduler}, job cancel).
+     */
+    private final ReentrantLock session = new ReentrantLock();
+    /**
+     * Whether a broken job log retrieval continues where it stopped (<code>REST</code>) instead of starting over.
+     */
+    private boolean resumeTransfers;
+    /**
+     * Whether the server restarts transfers at an offset, <code>null</code> until asked.
+     */
+    private Boolean restSupported;
+    /**
+     * Whether job logs are retrieved compressed (<code>MODE Z</code>) if the server accepts it.
+     */
+    private boolean compressTransfers;
+    /**
+     * Whether the server accepts <code>MODE Z</code>, <code>null</code> until asked.
+     */
+    private Boolean deflateSupported;
+    /**
+     * Whether the session is protected by TLS (FTPS).
+     */
+    private boolean ftps;
+    /**
+     * Whether FTPS is implicit (TLS from the first byte) rather than explicit (<code>AUTH TLS</code>).
+     */
+    private boolean ftpsImplicit;
 
     /**
      * Basic constructor with minimal parameters required.
@@ -127,7 +210,146 @@ class ZFTPConnector {
             this.logPrefix = logPrefix;
         this.log("Created ZFTPConnector");
 
-        this.listener = null;
+        this.passTicketApplication = null;
+
+        this.setTimeouts(0, 0, 0, 0);
+        this.setRetries(0, 0);
+        this.logonRejected = false;
+    }
+
+    /**
+     * Continue a broken job log retrieval at the byte it stopped at, if the server supports <code>REST STREAM</code>.
+     * Otherwise (and for spool files retrieved one by one) the retrieval starts over.
+     *
+     * @param resumeTransfers Whether to resume broken retrievals.
+     */
+    void setResumeTransfers(boolean resumeTransfers) {
+        this.resumeTransfers = resumeTransfers;
+    }
+
+    /**
+     * Protect the control and data connections with TLS (<code>PROT P</code>).
+     *
+     * @param ftps         Whether to use FTPS.
+     * @param ftpsImplicit Whether TLS starts on connect (usually port 990) instead of after <code>AUTH TLS</code>.
+     */
+    void setFTPS(boolean ftps, boolean ftpsImplicit) {
+        this.ftps = ftps;
+        this.ftpsImplicit = ftpsImplicit;
+    }
+
+    /**
+     * @return Shared TLS context, created on first use.
+     * @throws GeneralSecurityException if TLS is not available.
+     */
+    private static synchronized SSLContext tlsContext() throws GeneralSecurityException {
+        if (tlsContext == null) {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            context.getClientSessionContext().setSessionTimeout(TLS_SESSION_TIMEOUT);
+            tlsContext = context;
+        }
+        return tlsContext;
+    }
+
+    /**
+     * Retrieve job logs deflate-compressed (<code>MODE Z</code>), falling back to stream mode if the server rejects it.
+     * Job logs are repetitive text and usually shrink several times.
+     *
+     * @param compressTransfers Whether to retrieve job logs compressed.
+     */
+    void setCompressTransfers(boolean compressTransfers) {
+        this.compressTransfers = compressTransfers;
+    }
+
+    /**
+     * Set retry policy for idempotent operations (logon, listing, retrieval, deletion).
+     * Non-positive values select the defaults.
+     *
+     * @param retryAttempts Attempts per operation.
+     * @param retryBackoff  Delay before the first retry (seconds), doubled for each next one.
+     * @see RetryPolicy
+     */
+    void setRetries(int retryAttempts, int retryBackoff) {
+        this.retryPolicy = new RetryPolicy(retryAttempts, retryBackoff);
+    }
+
+    /**
+     * Set network timeouts. Non-positive values select the defaults.
+     *
+     * @param connectTimeout    Time to establish the control connection (seconds).
+     * @param readTimeout       Time to wait for a reply on the control connection (seconds).
+     * @param dataTimeout       Time to wait for data on the data connection (seconds).
+     * @param keepAliveInterval Interval of NOOPs on the control connection during transfers (seconds).
+     */
+    void setTimeouts(int connectTimeout, int readTimeout, int dataTimeout, int keepAliveInterval) {
+        this.connectTimeout = connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECT_TIMEOUT;
+        this.readTimeout = readTimeout > 0 ? readTimeout : DEFAULT_READ_TIMEOUT;
+        this.dataTimeout = dataTimeout > 0 ? dataTimeout : DEFAULT_DATA_TIMEOUT;
+        this.keepAliveInterval = keepAliveInterval > 0 ? keepAliveInterval : DEFAULT_KEEP_ALIVE_INTERVAL;
+    }
+
+    /**
+     * Logon with PassTickets instead of the password.
+     * The password passed to the constructor is then the secured signon application key.
+     *
+     * @param passTicketApplication RACF application name of the FTP server (e.g. <code>FTPD</code>).
+     *                              <code>null</code> or empty to logon with the password.
+     * @see PassTicketGenerator
+     */
+    void setPassTicketApplication(String passTicketApplication) {
+        this.passTicketApplication = (passTicketApplication == null || passTicketApplication.isEmpty()) ? null : passTicketApplication;
+    }
+
+    /**
+     * Create FTP client with timeouts applied.
+     * A stalled transfer or a dead control connection fails within the timeouts instead of blocking the build.
+     *
+     * @return New FTP client.
+     */
+    private FTPClient createClient() {
+        FTPClient client;
+        if (this.ftps) {
+            SSLContext context;
+            try {
+                context = tlsContext();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("TLS is not available: " + e.getMessage(), e);
+            }
+            FTPSClient ftpsClient = new FTPSClient(this.ftpsImplicit, context);
+            ftpsClient.setEndpointCheckingEnabled(true);
+            client = ftpsClient;
+        } else {
+            client = new FTPClient();
+        }
+        client.setConnectTimeout(this.connectTimeout * 1000);
+        // Applied to the control socket on every connect.
+        client.setDefaultTimeout(this.readTimeout * 1000);
+        client.setDataTimeout(Duration.ofSeconds(this.dataTimeout));
+        // NOOPs keep firewalls from dropping the idle control connection during long transfers.
+        client.setControlKeepAliveTimeout(Duration.ofSeconds(this.keepAliveInterval));
+        client.setControlKeepAliveReplyTimeout(Duration.ofSeconds(Math.min(this.readTimeout, 10)));
+        client.setParserFactory(new DefaultFTPFileEntryParserFactory() {
+            @Override
+            public FTPFileEntryParser createFileEntryParser(String key) {
+                return SpoolSelection.ListParser.KEY.equals(key) ? new SpoolSelection.ListParser() : super.createFileEntryParser(key);
+            }
+        });
+        return client;
+    }
+
+    /**
+     * Drop the session after a timeout: the server did not answer in time, so it is not asked to logout.
+     *
+     * @param operation Operation that timed out.
+     */
+    private void dropHungSession(String operation) {
+        this.err(operation + " timed out (connect " + this.connectTimeout + "s, read " + this.readTimeout
+                + "s, data " + this.dataTimeout + "s). Dropping FTP session to " + this.server + ".");
+        try {
+            this.FTPClient.disconnect();
+        } catch (IOException ignored) {
+        }
     }
 
     /**
@@ -158,6 +380,8 @@ class ZFTPConnector {
                 this.err("FTP server refused connection."); // Print error.
                 return false; // Finish with failure.
             }
+            // Let TCP notice a half-open connection while we wait between polls.
+            this.FTPClient.setKeepAlive(true);
             this.log("FTP: connected to " + server + ":" + port);
         }
         // IOException handling
@@ -170,7 +394,11 @@ class ZFTPConnector {
                     // Do nothing
                 }
             }
-            this.err("Could not connect to server.");
+            if (e instanceof SocketTimeoutException) {
+                this.err("Could not connect to server in " + this.connectTimeout + " seconds.");
+            } else {
+                this.err("Could not connect to server.");
+            }
             e.printStackTrace();
             return false;
         }
@@ -187,6 +415,7 @@ class ZFTPConnector {
      * @see ZFTPConnector#connect()
      */
     private boolean logon() {
+        this.logonRejected = false;
         // 1. log out, ignore error
         try {
             this.FTPClient.logout();
@@ -201,13 +430,41 @@ class ZFTPConnector {
         try {
             int reply; // Temp value for server reply code.
 
+            // Password or one-time PassTicket.
+            String logonPassword = this.password;
+            if (this.passTicketApplication != null) {
+                try {
+                    logonPassword = PassTicketGenerator.generate(this.userID, this.passTicketApplication, this.password);
+                } catch (IllegalArgumentException e) {
+                    this.err("Could not generate PassTicket: " + e.getMessage());
+                    this.FTPClient.disconnect();
+                    this.logonRejected = true;
+                    return false;
+                }
+            }
+
             // Try to login.
-            if (!this.FTPClient.login(this.userID, this.password)) {
+            if (!this.FTPClient.login(this.userID, logonPassword)) {
                 // If couldn't login, we should logout and return failure.
+                this.err("Logon rejected for " + this.userID + ".");
                 this.FTPClient.logout();
+                this.logonRejected = true;
                 return false;
             }
 
+            if (this.FTPClient instanceof FTPSClient) {
+                // Protect the data connections too.
+                try {
+                    ((FTPSClient) this.FTPClient).execPBSZ(0);
+                    ((FTPSClient) this.FTPClient).execPROT("P");
+                } catch (SSLException e) {
+                    this.FTPClient.disconnect();
+                    this.err("FTP server refused to protect data connections: " + e.getMessage());
+                    this.logonRejected = true;
+                    return false;
+                }
+            }
+
             // Try to set filetype, jesjobname and jesstatus.
             this.FTPClient.site("filetype=jes jesjobname=* jesstatus=ALL");
             // Check reply.
@@ -215,6 +472,7 @@ class ZFTPConnector {
             if (!FTPReply.isPositiveCompletion(reply)) {
                 this.FTPClient.disconnect();
                 this.err("FTP server refused to change FileType and JESJobName.");
+                this.logonRejected = true;
                 return false;
             }
         } catch (IOException e) {
@@ -252,394 +510,505 @@ class ZFTPConnector {
         }
     }
 
-    boolean submit(InputStream inputStream, boolean wait, int waitTime, OutputStream outputStream, boolean deleteLogFromSpool, TaskListener taskListener) {
-        this.listener = taskListener;
-        return this.submit(inputStream, wait, waitTime, outputStream, deleteLogFromSpool);
+    /**
+     * Store the job into JES. Session must be established.
+     *
+     * @param inputStream JCL text of the job.
+     * @return JobID in JES, <code>null</code> if the reply holds none.
+     * @throws IOException on FTP communication failure.
+     */
+    private String storeJob(InputStream inputStream) throws IOException {
+        this.FTPClient.storeFile("jenkins.sub", inputStream);
+
+        // Scan reply from server to get JobID.
+        for (String s : this.FTPClient.getReplyStrings()) {
+            Matcher matcher = JesJobName.matcher(s);
+            if (matcher.matches())
+                return matcher.group(1);
+        }
+        this.err("Failed to parse JES job ID. Response lines:---->\n");
+        Arrays.stream(this.FTPClient.getReplyStrings()).forEachOrdered(this::err);
+        this.err("Failed to parse JES job ID. Response lines:<----\n");
+        return null;
     }
 
     /**
-     * Submit job for execution.
-     *
-     * @param inputStream        JCL text of the job.
-     * @param wait               Whether we need for the job to complete.
-     * @param waitTime           Maximum wait time in minutes. If set to <code>0</code>, will wait forever.
-     * @param outputStream       Stream to put job log. Can be <code>Null</code>.
-     * @param deleteLogFromSpool Whether the job log should be deleted fro spool upon job end.
-     * @return Whether the job was successfully submitted and the job log was fetched.
-     * <br><b><code>jobCC</code></b> holds the response of the operation (including errors).
-     * @see ZFTPConnector#logon()
-     * @see ZFTPConnector#waitForCompletion(OutputStream)
-     * @see ZFTPConnector#deleteJobLog()
-     */
-    boolean submit(InputStream inputStream, boolean wait, int waitTime, OutputStream outputStream, boolean deleteLogFromSpool) {
-        this.waitTime = ((long) waitTime) * 60 * 1000; // Minutes to milliseconds.
-
-        // Clean-up
-        this.jobID = "";
-        this.jobName = "";
-        this.jobCC = "";
-        this.jobLogCaptured = false;
-
-        // Create FTPClient
-        this.FTPClient = new FTPClient();
+     * Create FTP client for the session.
+     */
+    private void prepare() {
+        this.FTPClient = this.createClient();
         // Make password invisible from log
         this.FTPClient.addProtocolCommandListener(new PrintCommandListener(new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), true));
+    }
 
-
-        // Verify connection.
-        if (!this.logon()) {
-            this.disconnect();
-            this.jobCC = "COULD_NOT_CONNECT";
-            return false;
+    /**
+     * Retrieve the whole job log, continuing a broken retrieval if allowed. Session must be established.
+     *
+     * @param jobID        JobID in JES.
+     * @param outputStream Stream to hold the job log.
+     * @return Whether the job log was fetched.
+     * @throws IOException on FTP communication failure.
+     */
+    private boolean retrieveJobLog(String jobID, ResumableOutputStream outputStream) throws IOException {
+        long offset = this.resumeOffset(outputStream);
+        if (offset == 0) {
+            outputStream.restart();
+            return this.retrieve(jobID, outputStream);
         }
 
+        this.log("Resuming job log retrieval after " + outputStream.getWritten() + " bytes");
+        outputStream.resume();
+        long written = outputStream.getWritten();
+        boolean retrieved;
         try {
-            // Submit the job.
-        	if (!this.FTPActiveMode) {
-        		this.FTPClient.enterLocalPassiveMode();
-        	}
-            this.FTPClient.storeFile("jenkins.sub", inputStream);
-
-            // Scan reply from server to get JobID.
-            for (String s : this.FTPClient.getReplyStrings()) {
-                Matcher matcher = JesJobName.matcher(s);
-                if (matcher.matches()) {
-                    // Set jobID
-                    this.jobID = matcher.group(1);
-                    break;
-                }
-            }
-            if (this.jobID.isEmpty()) {
-                this.err("Failed to parse JES job ID. Response lines:---->\n");
-                Arrays.stream(this.FTPClient.getReplyStrings()).forEachOrdered(this::err);
-                this.err("Failed to parse JES job ID. Response lines:<----\n");
-                this.jobCC = "FAILED_TO_PARSE_JOB_ID";
-                return false;
-            }
-            this.log("Submitted job [" + this.jobID + "]");
-            inputStream.close();
-        } catch (FTPConnectionClosedException e) {
-            this.err("Server closed connection.");
-            e.printStackTrace();
-            this.jobCC = "SERVER_CLOSED_CONNECTION";
-            return false;
+            this.FTPClient.setRestartOffset(offset);
+            retrieved = this.FTPClient.retrieveFile(jobID, outputStream);
         } catch (IOException e) {
-            e.printStackTrace();
-            this.jobCC = "IO_ERROR";
-            return false;
-        }
-
-        if (wait) {
-            // Wait for completion.
-            if (this.waitForCompletion(outputStream)) {
-                if (deleteLogFromSpool) {
-                    // Delete job log from spool.
-                    this.deleteJobLog();
-                }
-                this.disconnect();
-                return true;
-            } else {
-                if (this.jobCC == null)
-                    this.jobCC = "JOB_DID_NOT_FINISH_IN_TIME";
-                this.disconnect();
-                return false;
-            }
+            if (outputStream.getWritten() == written)
+                this.restSupported = false; // Nothing came after REST: do not try it again.
+            throw e;
+        } finally {
+            this.FTPClient.setRestartOffset(0);
         }
-
-        // If we are here, everything went fine.
-        this.disconnect();
-        return true;
+        if (retrieved)
+            return true;
+        // The job had finished already, so it is REST the server rejected.
+        this.err("FTP server rejected REST " + offset + ": " + this.FTPClient.getReplyString());
+        this.restSupported = false;
+        outputStream.restart();
+        return this.retrieve(jobID, outputStream);
     }
 
     /**
-     * Wait for he completion of the job.
+     * Retrieve a file, compressed if allowed. Session must be established.
      *
-     * @param outputStream Stream to hold job log.
-     * @return Whether the job finished in time.
-     * @see ZFTPConnector#submit(InputStream, boolean, int, OutputStream, boolean)
-     * @see ZFTPConnector#fetchJobLog(OutputStream)
-     */
-    private boolean waitForCompletion(OutputStream outputStream) {
-        // Initialize current time and estimated time.
-        long curr = System.currentTimeMillis();
-        long jobEndTime = curr + this.waitTime;
-        boolean eternal = (waitTime == 0);
-        boolean jobWasObserved = false;
-
-        // Perform wait
-        do {
-            // Wait
-            try {
-                Thread.sleep(waitInterval);
-                curr = System.currentTimeMillis();
-            } catch (InterruptedException e) {
-                this.err("Interrupted.");
-                this.jobCC = "WAIT_INTERRUPTED";
-                return false;
-            }
+     * @param remote       Remote file name.
+     * @param outputStream Target stream.
+     * @return Whether the file was retrieved.
+     * @throws IOException on FTP communication failure.
+     */
+    private boolean retrieve(String remote, OutputStream outputStream) throws IOException {
+        boolean compressed = this.beginCompressed();
+        boolean retrieved = this.FTPClient.retrieveFile(remote, outputStream);
+        this.endCompressed(compressed);
+        return retrieved;
+    }
 
-            // check job state
-            if (this.checkJobAvailability()) {
-                jobWasObserved = true;
+    /**
+     * Switch to <code>MODE Z</code> for the next retrieval, if allowed and accepted by the server.
+     * Listings are not compressed: commons-net reads them as they come.
+     *
+     * @return Whether the transfer mode was switched.
+     * @throws IOException on FTP communication failure.
+     */
+    private boolean beginCompressed() throws IOException {
+        if (!this.compressTransfers || Boolean.FALSE.equals(this.deflateSupported))
+            return false;
+        boolean accepted = this.FTPClient.setFileTransferMode(FTP.DEFLATE_TRANSFER_MODE);
+        if (this.deflateSupported == null) {
+            this.deflateSupported = accepted;
+            if (accepted) {
+                this.log("Retrieving job logs compressed (MODE Z)");
             } else {
-                if (jobWasObserved) {
-                    return false;
-                }
+                this.log("FTP server rejected MODE Z, retrieving job logs uncompressed: " + this.FTPClient.getReplyString());
             }
-            // Try to fetch job log.
-            if (this.fetchJobLog(outputStream))
-                return true;
-        } while (eternal || (curr <= jobEndTime));
-
-        // Exit with wait error.
-        this.jobCC = "WAIT_ERROR";
-        return false;
+        }
+        return accepted;
     }
 
     /**
-     * @return true if job can be listed through FTP.
+     * Switch back to stream mode after a compressed retrieval.
+     * A session broken during the retrieval is not switched back: the next one starts in stream mode anyway.
+     *
+     * @param compressed Whether the retrieval was compressed.
+     * @throws IOException on FTP communication failure.
      */
-    private boolean checkJobAvailability() {
-    	if (!this.FTPActiveMode) {
-    		this.FTPClient.enterLocalPassiveMode();
-    	}
-        // Verify connection.
-        if (!this.logon()) {
-            this.jobCC = "CHECK_JOB_AVAILABILITY_ERROR_LOGIN";
-            return false;
-        }
+    private void endCompressed(boolean compressed) throws IOException {
+        if (compressed && !this.FTPClient.setFileTransferMode(FTP.STREAM_TRANSFER_MODE))
+            throw new IOException("failed to switch back to stream mode: " + this.FTPClient.getReplyString());
+    }
 
-        // Try listing files
-        try {
-            String[] availableJobs = this.FTPClient.listNames("*");
-            if (availableJobs == null) {
-                this.err("failed to list available jobs");
-                return false;
-            }
-            if (Arrays.stream(availableJobs).anyMatch(name -> this.jobID.equals(name))) {
-                return true;
-            }
-            this.err("Job [" + this.jobID + "] cannot be found in JES");
-            this.jobCC = "JOB_NOT_FOUND_IN_JES";
-            return false;
-        } catch (IOException e) {
-            this.jobCC = "CHECK_JOB_AVAILABILITY_IO_ERROR";
-            return false;
+    /**
+     * @param outputStream Stream holding the part of the job log retrieved so far.
+     * @return Offset to resume the retrieval at, <code>0</code> to start over.
+     * @throws IOException on FTP communication failure.
+     */
+    private long resumeOffset(ResumableOutputStream outputStream) throws IOException {
+        if (!this.resumeTransfers || outputStream.getWritten() == 0 || Boolean.FALSE.equals(this.restSupported))
+            return 0;
+        if (this.restSupported == null) {
+            this.restSupported = this.FTPClient.hasFeature("REST", "STREAM");
+            if (!this.restSupported)
+                this.log("FTP server does not support REST STREAM, broken job log retrievals start over");
         }
+        if (!this.restSupported)
+            return 0;
+        // The offset counts bytes on the wire, where every line end is CRLF.
+        return outputStream.getWritten() + ("\r\n".equals(System.lineSeparator()) ? 0 : outputStream.getLineEnds());
     }
 
     /**
-     * Fetch job log from spool.
+     * Retrieve one spool file, at most <code>limit</code> bytes. Session must be established.
      *
-     * @param outputStream Stream to hold the job log.
-     * @return Whether the job log was fetched from the LPAR.
-     * @see ZFTPConnector#waitForCompletion(OutputStream)
+     * @param jobID        JobID in JES.
+     * @param spoolFile    Spool file.
+     * @param limit        Most bytes to retrieve, <code>-1</code> for all.
+     * @param outputStream Target stream.
+     * @return Whether the spool file was cut at the limit.
+     * @throws IOException on FTP communication failure.
      */
-    private boolean fetchJobLog(OutputStream outputStream) {
-        // Verify connection.
-        if (!this.logon()) {
-            this.jobCC = "FETCH_LOG_ERROR_LOGIN";
-            return false;
+    private boolean readSpoolFileData(String jobID, SpoolSelection.SpoolFile spoolFile, long limit, OutputStream outputStream) throws IOException {
+        boolean truncated;
+        boolean compressed = this.beginCompressed();
+        try (InputStream in = this.FTPClient.retrieveFileStream(jobID + "." + spoolFile.id)) {
+            if (in == null)
+                throw new IOException("failed to retrieve spool file " + spoolFile.ddName + ": " + this.FTPClient.getReplyString());
+            truncated = SpoolSelection.copy(in, limit, outputStream);
         }
+        // A transfer closed early is reported as aborted, that is expected.
+        if (!this.FTPClient.completePendingCommand() && !truncated)
+            throw new IOException("failed to retrieve spool file " + spoolFile.ddName + ": " + this.FTPClient.getReplyString());
+        this.endCompressed(compressed);
+        return truncated;
+    }
 
-    	if (!this.FTPActiveMode) {
-    		this.FTPClient.enterLocalPassiveMode();
-    	}
-        if (!this.jobLogCaptured) {
-            // Try fetching.
-            try {
-                // Try fetching the log.
-                this.jobLogCaptured = this.FTPClient.retrieveFile(this.jobID, outputStream);
-                if (!this.jobLogCaptured) {
-                    this.jobCC = "RETR_ERR_JOB_NOT_FINISHED_OR_NOT_FOUND";
-                    return false;
-                }
-            } catch (IOException e) {
-                this.jobCC = "FETCH_LOG_IO_ERROR";
-                return false;
-            }
-        }
-        return this.obtainJobRC();
+    /**
+     * @param rcPart Job listing line after the JobID (JESINTERFACELEVEL=2 format).
+     * @return Job completion in <code>jobCC</code> form, <code>null</code> if the line holds none.
+     */
+    private static String parseCC(String rcPart) {
+        if (JCLERROR.matcher(rcPart).matches())
+            return "JCL_ERROR";
+        Matcher ABENDMatcher = ABEND.matcher(rcPart);
+        if (ABENDMatcher.matches())
+            return "ABEND_" + ABENDMatcher.group(1);
+        Matcher CCUndefinedMatcher = CCUndefined.matcher(rcPart);
+        if (CCUndefinedMatcher.matches())
+            return CCUndefinedMatcher.group(1).toUpperCase();
+        Matcher CCMatcher = CC.matcher(rcPart);
+        if (CCMatcher.matches())
+            return CCMatcher.group(1);
+        return null;
     }
 
     /**
-     * @return Whether job RC was correctly obtained or not.
+     * List a job with its spool files. Session must be established.
+     *
+     * @param jobID JobID in JES.
+     * @return Listing lines as they come.
+     * @throws IOException on FTP communication failure.
      */
-    private boolean obtainJobRC() {
-        this.jobCC = "COULD_NOT_RETRIEVE_JOB_RC";
-        // Verify connection.
-        if (!this.logon()) {
-            return false;
+    private List<String> listJob(String jobID) throws IOException {
+        List<String> listing = new ArrayList<>();
+        // The parser is kept for later listings of the session: job listings are read raw anyway.
+        for (FTPFile line : this.FTPClient.initiateListParsing(SpoolSelection.ListParser.KEY, jobID).getFiles())
+            listing.add(line.getRawListing());
+        return listing;
+    }
+
+    /**
+     * @param jobID   JobID in JES.
+     * @param listing Job listing lines.
+     * @return Job status from the job line, <code>null</code> if there is none.
+     */
+    private static JobTransport.Status parseStatus(String jobID, List<String> listing) {
+        Pattern jobLine = Pattern.compile("\\s*(\\S+)\\s+" + Pattern.quote(jobID) + "\\s+(.*)");
+        for (String line : listing) {
+            Matcher matcher = jobLine.matcher(line);
+            if (matcher.matches()) {
+                // The owner column is there with JESINTERFACELEVEL=2 only.
+                Matcher phase = PHASE.matcher(matcher.group(2));
+                return new JobTransport.Status(matcher.group(1), phase.find() ? phase.group() : null,
+                        parseCC(matcher.group(2) + " "));
+            }
         }
+        return null;
+    }
 
-        // JOB NAME
-        Pattern JOBNAME = Pattern.compile("(\\S+)\\s+" + jobID + "\\s+(.*)");
 
-        Pattern CC = Pattern.compile(".* RC=(\\S+) .*");
-        Pattern CCUndefined = Pattern.compile(".* RC\\s+(\\S+)\\s+.*");
-        Pattern ABEND = Pattern.compile(".* ABEND=(.*?) .*");
-        Pattern JCLERROR = Pattern.compile(".* \\(JCL error\\) .*");
+    @Override
+    public void open() throws IOException {
+        this.require("Logon", () -> true);
+    }
 
-    	if (!this.FTPActiveMode) {
-    		this.FTPClient.enterLocalPassiveMode();
-    	}
-        // Check RC.
+    @Override
+    public String submitJob(InputStream jcl) throws IOException {
+        this.lockSession();
         try {
-            for (FTPFile ftpFile : this.FTPClient.listFiles("*")) {
-                String fileName = ftpFile.toString();
-
-                Matcher JOBNAMEMatcher = JOBNAME.matcher(fileName);
-                if (JOBNAMEMatcher.matches()) {
-                    this.jobName = JOBNAMEMatcher.group(1);
-                    this.log("Found job " + this.jobID + " with name " + this.jobName + " in JES");
-                    String rcPart = JOBNAMEMatcher.group(2);
-                    this.log("Will check JOB status in '" + rcPart + "'");
-                    if (this.JESINTERFACELEVEL1) {
-                        if (rcPart.startsWith("INPUT")) {
-                            this.log("Found job " + jobName + " in INPUT");
-                            return false;
-                        }
-                        if (rcPart.startsWith("ACTIVE")) {
-                            this.log("Found job " + jobName + " in ACTIVE");
-                            return false;
-                        }
-                        if (rcPart.startsWith("OUTPUT")) {
-                            this.log("Found job " + jobName + " in OUTPUT, will fetch log for additional scan");
-                            Pattern HASP395 = Pattern.compile(".*HASP395\\s+" + jobName + "\\s+ENDED(\\s+-\\s+(\\S+)\\s*)?.*");
-                            // Try fetching the log.
-                            ByteArrayOutputStream tempOutputStream = new ByteArrayOutputStream();
-                            boolean gotHASP395 = false;
-                            // If we see "JCL ERROR" line before HASP365 without actual RC - use JCL ERROR
-                            boolean sawJCLError = false;
-                            if (this.FTPClient.retrieveFile(this.jobID, tempOutputStream)) {
-                                for (String line : tempOutputStream.toString(StandardCharsets.US_ASCII.name()).split("\\n")) {
-                                    sawJCLError |= line.contains("JCL ERROR");
-                                    Matcher HASP395Matcher = HASP395.matcher(line);
-                                    if (HASP395Matcher.matches()) {
-                                        rcPart = HASP395Matcher.group(2);
-                                        if (rcPart == null) {
-                                            if (sawJCLError) {
-                                                this.jobCC = "JCL_ERROR";
-                                                return true;
-                                            }
-                                            this.err("Found HASP395 with no RC info: '" + line + "'");
-                                            return false;
-                                        }
-                                        this.log("Found HASP395: '" + rcPart + "'");
-                                        rcPart = "FROM_JOB_LOG " + rcPart + " FROM_JOB_LOG";
-                                        gotHASP395 = true;
-                                        break;
-                                    }
-                                }
-                            }
-                            if (!gotHASP395) {
-                                this.err("Failed to find HASP395 in job log");
-                                return false;
-                            }
-                        }
-                    }
-                    // Here we either have rcPart in JESINTERFACELEVEL=2 format
-                    Matcher JCLERRORMatcher = JCLERROR.matcher(rcPart);
-                    if (JCLERRORMatcher.matches()) {
-                        this.jobCC = "JCL_ERROR";
-                        return true;
-                    }
-                    Matcher ABENDMatcher = ABEND.matcher(rcPart);
-                    if (ABENDMatcher.matches()) {
-                        this.jobCC = "ABEND_" + ABENDMatcher.group(1);
-                        return true;
-                    }
-                    Matcher CCUndefinedMatcher = CCUndefined.matcher(rcPart);
-                    if (CCUndefinedMatcher.matches()) {
-                        this.jobCC = CCUndefinedMatcher.group(1).toUpperCase();
-                        return true;
-                    }
-                    Matcher CCMatcher = CC.matcher(rcPart);
-                    if (CCMatcher.matches()) {
-                        this.jobCC = CCMatcher.group(1);
-                        return true;
-                    }
-                    this.err("Unexpected rc part: '" + rcPart + "'");
+            // Logged on by open(): the job itself is never sent twice.
+            if (this.FTPClient == null || !this.FTPClient.isConnected())
+                this.open();
+            String submitted;
+            try {
+                submitted = this.storeJob(jcl);
+            } catch (SocketTimeoutException e) {
+                this.dropHungSession("Job submission");
+                throw e;
+            }
+            if (submitted == null)
+                throw new IOException("Failed to parse JES job ID");
+            return submitted;
+        } finally {
+            this.session.unlock();
+        }
+    }
 
-                    return false;
+    @Override
+    public JobTransport.Status getStatus(String jobID) throws IOException {
+        JobTransport.Status[] status = {null};
+        this.require("Job status listing", () -> {
+            List<String> listing = this.listJob(jobID);
+            status[0] = parseStatus(jobID, listing);
+            if (status[0] == null)
+                return true;
+            // The same listing names the spool files, so they need not be listed again for the job log.
+            String cc = this.JESINTERFACELEVEL1 && status[0].isFinished() ? this.scanJobLog(jobID, status[0].jobName) : status[0].cc;
+            status[0] = new JobTransport.Status(status[0].jobName, status[0].phase, cc, SpoolSelection.SpoolFile.parse(listing));
+            return true;
+        });
+        return status[0];
+    }
+
+    /**
+     * Find the completion of the ended job in its log: the job listing does not show it with
+     * <code>JESINTERFACELEVEL=1</code>. Session must be established.
+     *
+     * @param jobID   JobID in JES.
+     * @param jobName Jobname in JES.
+     * @return Job completion in <code>jobCC</code> form, <code>null</code> if the log holds none.
+     * @throws IOException on FTP communication failure.
+     */
+    private String scanJobLog(String jobID, String jobName) throws IOException {
+        Pattern HASP395 = Pattern.compile(".*HASP395\\s+" + Pattern.quote(jobName) + "\\s+ENDED(\\s+-\\s+(\\S+)\\s*)?.*");
+        ByteArrayOutputStream jobLog = new ByteArrayOutputStream();
+        if (!this.FTPClient.retrieveFile(jobID, jobLog))
+            return null;
+        // If we see "JCL ERROR" line before HASP395 without actual RC - use JCL ERROR
+        boolean sawJCLError = false;
+        for (String line : jobLog.toString(StandardCharsets.US_ASCII.name()).split("\\n")) {
+            sawJCLError |= line.contains("JCL ERROR");
+            Matcher HASP395Matcher = HASP395.matcher(line);
+            if (HASP395Matcher.matches()) {
+                String rcPart = HASP395Matcher.group(2);
+                if (rcPart == null) {
+                    if (sawJCLError)
+                        return "JCL_ERROR";
+                    this.err("Found HASP395 with no RC info: '" + line + "'");
+                    return null;
                 }
+                this.log("Found HASP395: '" + rcPart + "'");
+                return parseCC("FROM_JOB_LOG " + rcPart + " FROM_JOB_LOG");
             }
-        } catch (IOException ignored) {
-            // Do nothing.
         }
-        return false;
+        this.err("Failed to find HASP395 in job log");
+        return null;
+    }
+
+    @Override
+    public List<SpoolSelection.SpoolFile> listSpoolFiles(String jobID) throws IOException {
+        List<SpoolSelection.SpoolFile> spoolFiles = new ArrayList<>();
+        this.require("Spool file listing", () -> {
+            spoolFiles.clear();
+            spoolFiles.addAll(SpoolSelection.SpoolFile.parse(this.listJob(jobID)));
+            return true;
+        });
+        return spoolFiles;
+    }
+
+    @Override
+    public boolean readJobLog(String jobID, ResumableOutputStream out) throws IOException {
+        this.require("Job log retrieval", () -> {
+            if (!this.retrieveJobLog(jobID, out))
+                throw new IOException("RETR " + jobID + " failed: " + this.FTPClient.getReplyString());
+            return true;
+        });
+        return true;
+    }
+
+    @Override
+    public boolean readSpoolFile(String jobID, SpoolSelection.SpoolFile spoolFile, long limit, OutputStream out) throws IOException {
+        ResumableOutputStream resumable = new ResumableOutputStream(out);
+        boolean[] truncated = {false};
+        this.require("Spool file retrieval", () -> {
+            resumable.restart();
+            truncated[0] = this.readSpoolFileData(jobID, spoolFile, limit, resumable);
+            return true;
+        });
+        return truncated[0];
     }
 
     /**
-     * Delete job log from spool. Job is distinguished by previously obtained <code>jobID</code>.
+     * Purge the job (JES cancels an input or executing job on DELE and purges its output).
      *
-     * @see ZFTPConnector#submit(InputStream, boolean, int, OutputStream, boolean)
+     * @param jobID JobID in JES.
+     * @return Whether JES accepted the request.
+     * @throws IOException on FTP communication failure.
      */
-    private void deleteJobLog() {
-        // Verify connection.
-        if (!this.logon()) {
-            return;
-        }
+    @Override
+    public boolean purgeJob(String jobID) throws IOException {
+        boolean[] purged = {false};
+        this.require("Job purge", () -> {
+            purged[0] = this.FTPClient.deleteFile(jobID);
+            return true;
+        });
+        return purged[0];
+    }
 
-        // Delete log.
-    	if (!this.FTPActiveMode) {
-    		this.FTPClient.enterLocalPassiveMode();
-    	}
+    @Override
+    public List<String> purgeJobs(List<String> jobIDs) throws IOException {
+        // One logon for the whole batch: purged jobs are not tried again on retry.
+        List<String> purged = new ArrayList<>();
         try {
-            this.FTPClient.deleteFile(this.jobID);
+            this.require("Job purge", () -> {
+                for (String jobID : jobIDs) {
+                    if (!purged.contains(jobID) && this.FTPClient.deleteFile(jobID))
+                        purged.add(jobID);
+                }
+                return true;
+            });
         } catch (IOException e) {
-            // Do nothing.
+            if (purged.isEmpty())
+                throw e;
         }
+        return purged;
+    }
+
+    @Override
+    public List<String> listEndedJobs(String jobNames) throws IOException {
+        List<String> jobIDs = new ArrayList<>();
+        this.require("Job listing", () -> {
+            jobIDs.clear();
+            if (!this.FTPClient.sendSiteCommand("jesjobname=" + jobNames + " jesstatus=OUTPUT"))
+                return false;
+            try {
+                String[] names = this.FTPClient.listNames();
+                if (names != null)
+                    jobIDs.addAll(Arrays.asList(names));
+            } finally {
+                this.FTPClient.sendSiteCommand("jesjobname=* jesstatus=ALL");
+            }
+            return true;
+        });
+        return jobIDs;
+    }
+
+    /**
+     * Drop the session. Does not wait for the operation using it: an operation stuck on the FTP session
+     * (e.g. on an unreachable LPAR) fails on the closed connection.
+     */
+    @Override
+    public void close() {
+        this.disconnect();
     }
 
     /**
-     * Get JobID.
+     * Take the FTP session for an operation.
      *
-     * @return Current <b><code>jobID</code></b>.
+     * @throws InterruptedIOException if interrupted while another operation uses the session.
      */
-    String getJobID() {
-        return this.jobID;
+    private void lockSession() throws InterruptedIOException {
+        try {
+            this.session.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the FTP session to " + this.server);
+        }
     }
 
     /**
-     * Get Jobname.
+     * Logon and run an idempotent operation with retries.
      *
-     * @return Current <b><code>jobName</code></b>.
+     * @param operation Operation description for the log.
+     * @param op        Operation to perform once logged on.
+     * @throws JobTransport.LogonRejected if the server rejected the logon.
+     * @throws IOException                if the operation failed after all the retries.
+     */
+    private void require(String operation, Operation op) throws IOException {
+        this.lockSession();
+        try {
+            if (this.FTPClient == null)
+                this.prepare();
+            if (this.retry(operation, op))
+                return;
+            if (this.logonRejected)
+                throw new JobTransport.LogonRejected("Logon rejected for " + this.userID + " on " + this.server);
+            throw new IOException(operation + " failed on " + this.server);
+        } finally {
+            this.session.unlock();
+        }
+    }
+
+    /**
+     * Idempotent FTP operation: safe to repeat after a failure.
      */
-    String getJobName() {
-        return this.jobName;
+    @FunctionalInterface
+    private interface Operation {
+        /**
+         * @return Operation result.
+         * @throws IOException on FTP communication failure (the operation will be retried).
+         */
+        boolean run() throws IOException;
     }
 
     /**
-     * Get JobCC.
+     * Logon and run an idempotent operation, retrying with backoff on communication failures.
+     * Rejected logons are not retried, to avoid revoking the user ID.
      *
-     * @return Current <b><code>jobCC</code></b>.
+     * @param operation Operation description for the log.
+     * @param op        Operation to perform once logged on.
+     * @return Operation result; <code>false</code> if it failed after all the retries.
+     * @see RetryPolicy
      */
-    String getJobCC() {
-        return this.jobCC;
+    private boolean retry(String operation, Operation op) {
+        for (int attempt = 1; ; attempt++) {
+            if (!this.logon()) {
+                if (this.logonRejected)
+                    return false;
+            } else {
+                if (!this.FTPActiveMode) {
+                    this.FTPClient.enterLocalPassiveMode();
+                }
+                try {
+                    return op.run();
+                } catch (SocketTimeoutException e) {
+                    this.dropHungSession(operation);
+                } catch (IOException e) {
+                    this.err(operation + " failed: " + e.getMessage());
+                }
+            }
+
+            if (!this.retryPolicy.allowRetry(attempt))
+                return false;
+            long delay = this.retryPolicy.backoff(attempt);
+            this.log(operation + ": retry " + attempt + "/" + (this.retryPolicy.getAttempts() - 1)
+                    + " in " + (delay / 1000) + "s");
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                // Let the caller see the interruption.
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
     }
 
     /**
-     * Log information into logger.info and listener logger
+     * Log information into logger.info
      *
      * @param text Text for logging.
      */
     private void log(String text) {
         logger.info(logPrefix + text);
         System.out.println(text);
-        if (listener != null)
-            listener.getLogger().println(text);
     }
 
     /**
-     * Log information into logger.severe and listener error logger
+     * Log information into logger.severe
      *
      * @param text Text for logging.
      */
     private void err(String text) {
         logger.severe(logPrefix + text);
         System.err.println(text);
-        if (listener != null)
-            listener.error(text);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,518 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.Util;
+import hudson.model.Run;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.model.Jenkins;
+import jenkins.model.RunAction2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * <h2>ZOSJobAction</h2>
+ * z/OS job submitted by a build, saved with the build.
+ * <br>If the controller restarts while the build waits for the job, the build is lost but the record stays,
+ * with the step that submitted the job: {@link ZOSJobHarvester} then follows the job in the background
+ * and attaches its result to the lost build. Jobs submitted too long ago are given up instead.
+ * <br>A finished job may also carry a result key (JCL, input files and LPAR): a later build with the same key
+ * can then reuse its result instead of submitting the same job again.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see ZOSJobSubmitter
+ */
+public class ZOSJobAction implements RunAction2 {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(ZOSJobAction.class.getName());
+    /**
+     * Oldest job of a lost build to follow (hours since submit).
+     */
+    private static final int recoverMaxAge = Integer.getInteger(ZOSJobAction.class.getName() + ".recoverMaxAge", 24);
+    /**
+     * How many previous builds are checked for a result to reuse.
+     */
+    private static final int reuseDepth = 50;
+
+    /**
+     * Job state as seen by Jenkins.
+     */
+    public enum State {
+        /**
+         * Submitted, the build waits for it.
+         */
+        SUBMITTED,
+        /**
+         * Submitted, the build did not wait for it.
+         */
+        NOT_MONITORED,
+        /**
+         * The build saw the job end (or gave up waiting).
+         */
+        FINISHED,
+        /**
+         * The build was lost, the job is followed in the background.
+         */
+        RESUMED,
+        /**
+         * The build was aborted and the job cancelled.
+         */
+        CANCELLED,
+        /**
+         * Not submitted: the result of the same job in an earlier build was reused.
+         */
+        REUSED,
+        /**
+         * Nobody waits for the job anymore: the build failed while waiting, or the job of a lost build
+         * could not be followed.
+         */
+        FAILED
+    }
+
+    /**
+     * LPAR name or IP address.
+     */
+    private final String server;
+    /**
+     * FTP port.
+     */
+    private final int port;
+    /**
+     * z/OS user ID owning the job.
+     */
+    private final String userID;
+    /**
+     * JobID in JES.
+     */
+    private final String jobID;
+    /**
+     * Time the job was submitted (milliseconds since epoch).
+     */
+    private final long submitted;
+    /**
+     * Maximum wait time in minutes (<code>0</code> - forever).
+     */
+    private final int waitTime;
+    /**
+     * Whether the job log is to be deleted from spool.
+     */
+    private final boolean deleteJobFromSpool;
+    /**
+     * Current state.
+     */
+    private State state;
+    /**
+     * Final job CC (if finished).
+     */
+    private String jobCC;
+    /**
+     * Digest of the LPAR, expanded JCL and input files, if the result may be reused.
+     */
+    private String resultKey;
+    /**
+     * Time the job was seen to end (milliseconds since epoch).
+     */
+    private long ended;
+    /**
+     * Build the result was reused from.
+     */
+    private String reusedFrom;
+    /**
+     * Step that submitted the job, to follow it if the build is lost. <code>null</code> if the build did not wait.
+     */
+    private ZOSJobSubmitter step;
+    /**
+     * Expanded maximum acceptable CC, to follow the job if the build is lost.
+     */
+    private String maxCC;
+    /**
+     * Build holding this action.
+     */
+    private transient Run<?, ?> run;
+
+    /**
+     * @param server             LPAR name or IP address.
+     * @param port               FTP port.
+     * @param userID             z/OS user ID owning the job.
+     * @param jobID              JobID in JES.
+     * @param submitted          Time the job was submitted.
+     * @param wait               Whether the build waits for the job.
+     * @param waitTime           Maximum wait time in minutes.
+     * @param deleteJobFromSpool Whether the job log is to be deleted from spool.
+     */
+    ZOSJobAction(String server, int port, String userID, String jobID, long submitted,
+                 boolean wait, int waitTime, boolean deleteJobFromSpool) {
+        this.server = server;
+        this.port = port;
+        this.userID = userID;
+        this.jobID = jobID;
+        this.submitted = submitted;
+        this.waitTime = waitTime;
+        this.deleteJobFromSpool = deleteJobFromSpool;
+        this.state = wait ? State.SUBMITTED : State.NOT_MONITORED;
+        this.jobCC = null;
+    }
+
+    /**
+     * Keep what is needed to follow the job if the build is lost.
+     *
+     * @param step  Step that submitted the job.
+     * @param maxCC Expanded maximum acceptable CC.
+     */
+    void recoverWith(ZOSJobSubmitter step, String maxCC) {
+        this.step = step;
+        this.maxCC = maxCC;
+    }
+
+    /**
+     * @return Whether the build waits for the job.
+     */
+    boolean isWaiting() {
+        return this.state == State.SUBMITTED;
+    }
+
+    /**
+     * Take over the job of a lost build (not running anymore, job not seen to end).
+     * Jobs submitted more than {@link #recoverMaxAge} hours ago, or past their wait time, are given up.
+     *
+     * @return Background wait for the job, <code>null</code> if there is nothing to follow.
+     */
+    synchronized ZOSJobHarvestAction recover() {
+        if (this.state != State.SUBMITTED || this.run == null || this.run.isBuilding())
+            return null;
+        long now = System.currentTimeMillis();
+        if (this.step == null) {
+            this.fail("NOT_RECOVERABLE");
+        } else if (this.submitted < now - recoverMaxAge * 3600L * 1000) {
+            this.fail("TOO_OLD_TO_RECOVER");
+        } else if (this.waitTime != 0 && this.submitted + this.waitTime * 60L * 1000 <= now) {
+            this.fail("JOB_DID_NOT_FINISH_IN_TIME");
+        } else {
+            this.state = State.RESUMED;
+            this.save();
+            return new ZOSJobHarvestAction(this.step, this.server, this.maxCC, this.userID, this.jobID, this.submitted);
+        }
+        logger.warning("Cannot follow z/OS job [" + this.jobID + "] of lost build " + this.run.getExternalizableId() + ": " + this.jobCC);
+        return null;
+    }
+
+    /**
+     * Find the result of the same job finished by an earlier build, if still fresh.
+     *
+     * @param run       Current build.
+     * @param server    LPAR name or IP address.
+     * @param resultKey Digest of the LPAR, expanded JCL and input files.
+     * @param maxAge    Oldest result to reuse (minutes), <code>0</code> for no limit.
+     * @param acceptCC  Whether a job CC may be reused.
+     * @return Record holding the result or <code>null</code> if there is nothing to reuse.
+     */
+    static synchronized ZOSJobAction findReusable(Run<?, ?> run, String server, String resultKey, int maxAge, Predicate<String> acceptCC) {
+        long oldest = maxAge == 0 ? 0 : System.currentTimeMillis() - maxAge * 60L * 1000;
+        Run<?, ?> previous = run.getPreviousBuild();
+        for (int i = 0; previous != null && i < reuseDepth; i++, previous = previous.getPreviousBuild()) {
+            for (ZOSJobAction action : previous.getActions(ZOSJobAction.class)) {
+                if ((action.state == State.FINISHED || action.state == State.REUSED)
+                        && resultKey.equals(action.resultKey)
+                        && action.server.equalsIgnoreCase(server)
+                        && action.ended >= oldest
+                        && acceptCC.test(action.jobCC))
+                    return action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Record of the reused result for the current build.
+     */
+    ZOSJobAction reused() {
+        ZOSJobAction action = new ZOSJobAction(this.server, this.port, this.userID, this.jobID, this.submitted,
+                true, this.waitTime, this.deleteJobFromSpool);
+        action.state = State.REUSED;
+        action.jobCC = this.jobCC;
+        action.resultKey = this.resultKey;
+        // Age counts from the job that actually ran.
+        action.ended = this.ended;
+        action.reusedFrom = this.run == null ? this.reusedFrom : this.run.getExternalizableId();
+        return action;
+    }
+
+    /**
+     * Record the end of waiting.
+     * A wait interrupted by controller shutdown leaves the job to follow after the restart.
+     *
+     * @param jobCC     Final job CC (or failure reason).
+     * @param resultKey Digest of the LPAR, expanded JCL and input files if the result may be reused, <code>null</code> if not.
+     */
+    synchronized void finished(String jobCC, String resultKey) {
+        if (this.state == State.RESUMED || (this.state == State.SUBMITTED && !shutdown()))
+            this.state = State.FINISHED;
+        this.jobCC = jobCC;
+        this.resultKey = resultKey;
+        this.ended = System.currentTimeMillis();
+        this.save();
+    }
+
+    /**
+     * Record the job cancel on build abort.
+     *
+     * @param jobCC Job CC at the moment of cancel.
+     */
+    synchronized void cancelled(String jobCC) {
+        this.state = State.CANCELLED;
+        this.jobCC = jobCC;
+        this.save();
+    }
+
+    /**
+     * Record that the build stopped waiting without seeing the job end, e.g. on a failure talking to the agent.
+     * Does nothing once the end of waiting is recorded, or on controller shutdown (the job is followed after the restart).
+     */
+    synchronized void abandoned() {
+        if (this.state == State.SUBMITTED && !shutdown())
+            this.fail("WAIT_ABANDONED");
+    }
+
+    /**
+     * @param reason Why nobody waits for the job anymore.
+     */
+    private void fail(String reason) {
+        this.state = State.FAILED;
+        this.jobCC = reason;
+        this.ended = System.currentTimeMillis();
+        this.save();
+    }
+
+    /**
+     * @return Whether the controller is shutting down.
+     */
+    private static boolean shutdown() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null && jenkins.isTerminating();
+    }
+
+    /**
+     * Save the build holding the action.
+     */
+    void save() {
+        if (this.run == null)
+            return;
+        try {
+            this.run.save();
+        } catch (IOException e) {
+            logger.warning("Failed to save z/OS job [" + this.jobID + "] state for " + this.run.getExternalizableId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return LPAR name or IP address.
+     */
+    public String getServer() {
+        return this.server;
+    }
+
+    /**
+     * @return FTP port.
+     */
+    public int getPort() {
+        return this.port;
+    }
+
+    /**
+     * @return z/OS user ID owning the job.
+     */
+    public String getUserID() {
+        return this.userID;
+    }
+
+    /**
+     * @return JobID in JES.
+     */
+    public String getJobID() {
+        return this.jobID;
+    }
+
+    /**
+     * @return Time the job was submitted.
+     */
+    public long getSubmitted() {
+        return this.submitted;
+    }
+
+    /**
+     * @return Maximum wait time in minutes.
+     */
+    public int getWaitTime() {
+        return this.waitTime;
+    }
+
+    /**
+     * @return Whether the job log is to be deleted from spool.
+     */
+    public boolean getDeleteJobFromSpool() {
+        return this.deleteJobFromSpool;
+    }
+
+    /**
+     * @return Current state.
+     */
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * @return Final job CC (if finished).
+     */
+    public String getJobCC() {
+        return this.jobCC;
+    }
+
+    /**
+     * @return Build the result was reused from.
+     */
+    public String getReusedFrom() {
+        return this.reusedFrom;
+    }
+
+    /**
+     * @return Build holding the action.
+     */
+    Run<?, ?> getRun() {
+        return this.run;
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "z/OS job " + this.jobID;
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+    /**
+     * <h2>ZOSJobAction.ResultKey</h2>
+     * Result key computed where the workspace is: the JCL and input files are read there, only the key comes back.
+     * <br>The JCL may be checked in the same pass, so that it is not read once more for that.
+     */
+    static class ResultKey extends MasterToSlaveFileCallable<ResultKey> {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Job file, opened on the node.
+         */
+        private final JclSource jcl;
+        /**
+         * LPAR name or IP address.
+         */
+        private final String server;
+        /**
+         * Input files (Ant patterns, comma separated), <code>null</code> for none.
+         */
+        private final String inputs;
+        /**
+         * Extra key, <code>null</code> for none.
+         */
+        private final String salt;
+        /**
+         * Findings of the JCL check, <code>null</code> if the JCL is not checked.
+         */
+        private JclValidator validator;
+        /**
+         * Hex SHA-256 key, once computed.
+         */
+        private String key;
+
+        /**
+         * @param jcl      Job file, opened on the node.
+         * @param server   LPAR name or IP address.
+         * @param inputs   Input files (Ant patterns relative to the workspace, comma separated), <code>null</code> for none.
+         * @param salt     Extra key (change it to invalidate cached results), <code>null</code> for none.
+         * @param validate Whether the JCL is checked while it is read.
+         */
+        ResultKey(JclSource jcl, String server, String inputs, String salt, boolean validate) {
+            this.jcl = jcl;
+            this.server = server;
+            this.inputs = inputs;
+            this.salt = salt;
+            this.validator = validate ? new JclValidator() : null;
+        }
+
+        /**
+         * @return Hex SHA-256 digest of the LPAR, expanded JCL, input files and extra key.
+         */
+        String getKey() {
+            return this.key;
+        }
+
+        /**
+         * @return Findings of the JCL check, <code>null</code> if the JCL was not checked.
+         */
+        JclValidator getValidator() {
+            return this.validator;
+        }
+
+        @Override
+        public ResultKey invoke(File workspace, VirtualChannel channel) throws IOException {
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                md.update((this.server.toUpperCase() + "\n" + (this.salt == null ? "" : this.salt) + "\n").getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[64 * 1024];
+                try (InputStream in = new DigestInputStream(this.jcl.open(workspace), md)) {
+                    if (this.validator != null)
+                        this.validator.validate(in);
+                    // The validator may stop at the last line end: digest what is left.
+                    while (in.read(buffer) != -1) {
+                        // Digested as read.
+                    }
+                }
+                if (this.inputs != null) {
+                    md.update((byte) '\n');
+                    String[] files = Util.createFileSet(workspace, this.inputs).getDirectoryScanner().getIncludedFiles();
+                    Arrays.sort(files);
+                    MessageDigest file = MessageDigest.getInstance("SHA-256");
+                    for (String name : files) {
+                        try (InputStream in = new FileInputStream(new File(workspace, name))) {
+                            int read;
+                            while ((read = in.read(buffer)) != -1)
+                                file.update(buffer, 0, read);
+                        }
+                        md.update((name.replace('\\', '/') + "\n" + Util.toHexString(file.digest()) + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                this.key = Util.toHexString(md.digest());
+                return this;
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.model.RunAction2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * <h2>ZOSJobHarvestAction</h2>
+ * Job submitted by a build that did not wait for it, whose result is collected in the background.
+ * <br>Once the job ends, its CC, step results and job log are attached to the build,
+ * as if the build had waited. The step configuration is saved with the build, so that
+ * the result can still be collected after a controller restart.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see ZOSJobHarvester
+ */
+public class ZOSJobHarvestAction implements RunAction2 {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(ZOSJobHarvestAction.class.getName());
+    /**
+     * Failed attempts to collect the result before giving up.
+     */
+    private static final int MAX_ATTEMPTS = Integer.getInteger(ZOSJobHarvestAction.class.getName() + ".attempts", 5);
+
+    /**
+     * Harvest state.
+     */
+    public enum State {
+        /**
+         * Job result not collected yet.
+         */
+        PENDING,
+        /**
+         * Job result attached to the build.
+         */
+        HARVESTED,
+        /**
+         * Job result could not be collected.
+         */
+        FAILED
+    }
+
+    /**
+     * Build step that submitted the job.
+     */
+    private final ZOSJobSubmitter step;
+    /**
+     * Expanded LPAR name or IP address.
+     */
+    private final String server;
+    /**
+     * Expanded maximum acceptable CC.
+     */
+    private final String maxCC;
+    /**
+     * z/OS user ID owning the job.
+     */
+    private final String userID;
+    /**
+     * JobID in JES.
+     */
+    private final String jobID;
+    /**
+     * Time the job was submitted (milliseconds since epoch).
+     */
+    private final long submitted;
+    /**
+     * Current state.
+     */
+    private State state;
+    /**
+     * Final job CC, or why it could not be collected.
+     */
+    private String jobCC;
+    /**
+     * Failed attempts to collect the result so far.
+     */
+    private int attempts;
+    /**
+     * Build holding this action.
+     */
+    private transient Run<?, ?> run;
+
+    /**
+     * @param step      Build step that submitted the job.
+     * @param server    Expanded LPAR name or IP address.
+     * @param maxCC     Expanded maximum acceptable CC.
+     * @param userID    z/OS user ID owning the job.
+     * @param jobID     JobID in JES.
+     * @param submitted Time the job was submitted.
+     */
+    ZOSJobHarvestAction(ZOSJobSubmitter step, String server, String maxCC, String userID, String jobID, long submitted) {
+        this.step = step;
+        this.server = server;
+        this.maxCC = maxCC;
+        this.userID = userID;
+        this.jobID = jobID;
+        this.submitted = submitted;
+        this.state = State.PENDING;
+        this.jobCC = null;
+        this.attempts = 0;
+    }
+
+    /**
+     * Status probe of the job, to run on {@link JobWaitScheduler} until the job ends.
+     *
+     * @return Probe, <code>null</code> if the result cannot be collected (the action failed then).
+     */
+    Probe probe() {
+        List<StandardUsernamePasswordCredentials> pool = this.resolveCredentials();
+        return pool == null ? null : new Probe(pool);
+    }
+
+    /**
+     * Collect the result of the ended job and attach it to the build.
+     *
+     * @param listener Listener to log to.
+     */
+    void harvest(TaskListener listener) {
+        String logPrefix = this.getLogPrefix();
+        List<StandardUsernamePasswordCredentials> pool = this.resolveCredentials();
+        if (pool == null)
+            return;
+
+        // The job log goes to a file in the build directory as it comes.
+        File logTemp;
+        try {
+            logTemp = ZOSJobLogAction.tempFile(this.run);
+        } catch (IOException e) {
+            this.attemptFailed(e.toString());
+            return;
+        }
+        try (JobLogIndex.Writer indexWriter = new JobLogIndex.Writer(logTemp, this.step.getCompressJobLog())) {
+            this.harvest(listener, pool, logPrefix, indexWriter, logTemp);
+        } catch (IOException e) {
+            this.attemptFailed(e.toString());
+        } finally {
+            if (!logTemp.delete() && logTemp.exists())
+                logger.warning("Cannot delete " + logTemp);
+        }
+    }
+
+    /**
+     * Collect the result of the ended job into a log file and attach it to the build.
+     *
+     * @param listener    Listener to log to.
+     * @param pool        Credentials to collect with.
+     * @param logPrefix   Log prefix.
+     * @param indexWriter Writes the job log to <code>logTemp</code>, building its index.
+     * @param logTemp     Job log file being written.
+     * @throws IOException on failure to write the log.
+     */
+    private void harvest(TaskListener listener, List<StandardUsernamePasswordCredentials> pool, String logPrefix,
+                         JobLogIndex.Writer indexWriter, File logTemp) throws IOException {
+        JobLogTerms searchTerms = new JobLogTerms(indexWriter);
+        StepResultParser stepParser = new StepResultParser(searchTerms);
+        JobConnector connector;
+        boolean result;
+        try (CredentialsPool.Lease lease = CredentialsPool.acquire(this.server, pool, this.userID)) {
+            StandardUsernamePasswordCredentials creds = lease.getCredentials();
+            ConnectorSettings settings = new ConnectorSettings(this.step, this.server, creds.getUsername(), creds.getPassword().getPlainText());
+            connector = settings.create(logPrefix);
+            result = connector.collect(this.jobID, stepParser, this.step.purgeOnEnd(), listener);
+            this.step.housekeep(settings, result ? this.jobID : null, logPrefix);
+        } catch (IllegalArgumentException e) {
+            this.done(State.FAILED, e.getMessage());
+            return;
+        }
+
+        if (!result) {
+            // Only a purged job is lost for good, anything else is tried again later.
+            if ("JOB_NOT_FOUND_IN_JES".equals(connector.getJobCC())) {
+                this.done(State.FAILED, connector.getJobCC());
+            } else {
+                this.attemptFailed(connector.getJobCC());
+            }
+            return;
+        }
+
+        String printableCC = ZOSJobSubmitter.printableCC(connector.getJobCC());
+        String jobName = connector.getJobName();
+        this.run.addAction(new ZOSJobStepsAction(this.jobID, jobName, printableCC, stepParser.getSteps()));
+        JobLogIndex index = indexWriter.getIndex();
+        indexWriter.close();
+        if (connector.getSpoolFileNames() != null)
+            index.nameSpoolFiles(connector.getSpoolFileNames());
+        this.step.keepJobLog(this.run, this.jobID, jobName, logTemp, index);
+        if (!JobLogSearchIndex.DISABLED) {
+            searchTerms.add(jobName, -1);
+            JobLogSearchIndex.get().add(this.run, this.jobID, jobName, searchTerms.getTerms());
+        }
+        for (ZOSJobAction action : this.run.getActions(ZOSJobAction.class)) {
+            if (this.jobID.equals(action.getJobID()))
+                action.finished(connector.getJobCC(), null);
+        }
+
+        listener.getLogger().println("Job [" + this.jobID + "] " + jobName + " ended with CC [" + printableCC + "]");
+        this.done(State.HARVESTED, printableCC);
+        if (this.maxCC.compareTo(printableCC) < 0 && this.step.getNotifyHarvestFailure())
+            this.notifyFailure(printableCC);
+    }
+
+    /**
+     * Status probes gave up before the job ended.
+     *
+     * @param probe Probe of the job.
+     * @param cause Why the wait failed, <code>null</code> if the probe decided.
+     */
+    void probeFailed(Probe probe, Throwable cause) {
+        if (cause instanceof TimeoutException) {
+            this.done(State.FAILED, "JOB_DID_NOT_FINISH_IN_TIME");
+            if (this.step.getNotifyHarvestFailure())
+                this.notifyFailure("JOB_DID_NOT_FINISH_IN_TIME");
+        } else if (cause != null) {
+            this.attemptFailed(cause.toString());
+        } else if (probe.gone) {
+            this.done(State.FAILED, probe.failure);
+        } else {
+            this.attemptFailed(probe.failure);
+        }
+    }
+
+    /**
+     * Only the user ID owning the job is sure to see it: any other ID would not find it and take it for purged.
+     *
+     * @return Credentials of the job owner, <code>null</code> if none resolve (the action failed then).
+     */
+    private List<StandardUsernamePasswordCredentials> resolveCredentials() {
+        List<String> unresolved = new ArrayList<>();
+        List<StandardUsernamePasswordCredentials> pool = CredentialsPool.resolve(this.step.getCredentialsId(),
+                this.step.getCredentialsPool(), this.run, unresolved);
+        if (pool.isEmpty()) {
+            this.done(State.FAILED, "Cannot resolve credentials: " + this.step.getCredentialsId());
+            return null;
+        }
+        if (this.userID != null && CredentialsPool.owners(pool, this.userID).isEmpty()) {
+            this.done(State.FAILED, "OWNER_CREDENTIALS_UNAVAILABLE: no credentials of " + this.userID);
+            return null;
+        }
+        return pool;
+    }
+
+    /**
+     * Record a failed attempt: the result is tried again later, up to {@value #MAX_ATTEMPTS} attempts by default.
+     *
+     * @param reason Why the attempt failed.
+     */
+    void attemptFailed(String reason) {
+        if (this.state != State.PENDING)
+            return;
+        this.attempts++;
+        if (this.attempts >= MAX_ATTEMPTS) {
+            this.done(State.FAILED, "Gave up after " + this.attempts + " attempts: " + reason);
+        } else {
+            logger.warning("Cannot collect z/OS job [" + this.jobID + "] result for " + this.run.getExternalizableId()
+                    + " (attempt " + this.attempts + "/" + MAX_ATTEMPTS + "): " + reason);
+            this.save();
+        }
+    }
+
+    /**
+     * Tell about a job that failed after its build had ended: build description and controller log.
+     *
+     * @param printableCC Job CC.
+     */
+    private void notifyFailure(String printableCC) {
+        String message = "z/OS job [" + this.jobID + "] failed with CC " + printableCC;
+        logger.warning(this.run.getExternalizableId() + ": " + message);
+        try {
+            String description = this.run.getDescription();
+            this.run.setDescription(description == null || description.isEmpty() ? message : message + "<br>" + description);
+        } catch (IOException e) {
+            logger.warning("Cannot update description of " + this.run.getExternalizableId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param state Final state.
+     * @param jobCC Final job CC, or why it could not be collected.
+     */
+    private void done(State state, String jobCC) {
+        if (state == State.FAILED)
+            logger.warning("Cannot collect z/OS job [" + this.jobID + "] result for " + this.run.getExternalizableId() + ": " + jobCC);
+        this.state = state;
+        this.jobCC = jobCC;
+        this.save();
+    }
+
+    /**
+     * Save the build holding the action.
+     */
+    private void save() {
+        try {
+            this.run.save();
+        } catch (IOException e) {
+            logger.warning("Failed to save z/OS job [" + this.jobID + "] result for " + this.run.getExternalizableId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return End of the step wait time (milliseconds since epoch), <code>0</code> to wait forever.
+     */
+    long getDeadline() {
+        if (this.step.getWaitTime() == 0)
+            return 0;
+        return this.submitted + this.step.getWaitTime() * 60L * 1000;
+    }
+
+    /**
+     * @return Log prefix.
+     */
+    private String getLogPrefix() {
+        return this.run.getParent().getDisplayName() + " " + this.run.getId() + ": ";
+    }
+
+    /**
+     * @return JobID in JES.
+     */
+    public String getJobID() {
+        return this.jobID;
+    }
+
+    /**
+     * @return Current state.
+     */
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * @return Final job CC, or why it could not be collected.
+     */
+    public String getJobCC() {
+        return this.jobCC;
+    }
+
+    /**
+     * @return Build holding the action.
+     */
+    Run<?, ?> getRun() {
+        return this.run;
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "z/OS job " + this.jobID + " result";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+    /**
+     * <h2>ZOSJobHarvestAction.Probe</h2>
+     * One status request per check, with credentials of the pool leased for the request only.
+     * A failed request backs off on the scheduler timer, the job log is not touched here.
+     */
+    class Probe implements JobWaitScheduler.Check {
+        /**
+         * Credentials to use.
+         */
+        private final List<StandardUsernamePasswordCredentials> pool;
+        /**
+         * Backoff of failed requests.
+         */
+        private final RetryPolicy retryPolicy;
+        /**
+         * Failed requests in a row.
+         */
+        private int failures;
+        /**
+         * Why the probe gave up.
+         */
+        private String failure;
+        /**
+         * Whether the job is gone from JES, so that its result is lost.
+         */
+        private boolean gone;
+
+        /**
+         * @param pool Credentials to use.
+         */
+        private Probe(List<StandardUsernamePasswordCredentials> pool) {
+            this.pool = pool;
+            this.retryPolicy = new RetryPolicy(step.getRetryAttempts(), step.getRetryBackoff());
+        }
+
+        @Override
+        public Boolean check() throws JobWaitScheduler.Backoff {
+            JobTransport.Status status;
+            try (CredentialsPool.Lease lease = CredentialsPool.acquire(server, this.pool, userID)) {
+                StandardUsernamePasswordCredentials creds = lease.getCredentials();
+                JobTransport transport = new ConnectorSettings(step, server, creds.getUsername(),
+                        creds.getPassword().getPlainText()).probe(getLogPrefix());
+                try {
+                    status = transport.getStatus(jobID);
+                } finally {
+                    transport.close();
+                }
+                this.failures = 0;
+            } catch (IOException e) {
+                if (!this.retryPolicy.allowRetry(++this.failures)) {
+                    this.failure = "CHECK_JOB_AVAILABILITY_IO_ERROR: " + e.getMessage();
+                    return false;
+                }
+                throw new JobWaitScheduler.Backoff(this.retryPolicy.backoff(this.failures));
+            }
+            if (status == null) {
+                this.failure = "JOB_NOT_FOUND_IN_JES";
+                this.gone = true;
+                return false;
+            }
+            return status.isFinished() ? Boolean.TRUE : null;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <h2>ZOSJobHarvester</h2>
+ * Background collection of the results of jobs whose builds did not wait for them,
+ * or were lost while waiting (controller restart).
+ * <br>Each pending job is probed on the shared {@link JobWaitScheduler}, like a waiting build would do,
+ * and a harvest thread only collects the result once the job ended. Builds with pending jobs, and builds waiting for their jobs,
+ * are registered on the controller: a periodic pass picks up the jobs not being followed, e.g. after a restart,
+ * and takes over the jobs of waiting builds that are gone. A job whose harvest keeps failing is given up
+ * after a few attempts (see {@link ZOSJobHarvestAction#attemptFailed(String)}).
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see ZOSJobHarvestAction
+ */
+@Extension
+public class ZOSJobHarvester extends AsyncPeriodicWork {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(ZOSJobHarvester.class.getName());
+    /**
+     * Number of job results collected at once.
+     */
+    private static final int threads = Integer.getInteger(ZOSJobHarvester.class.getName() + ".threads", 4);
+    /**
+     * Time between status probes of a pending job (milliseconds).
+     */
+    private static final long waitInterval = 10 * 1000;
+    /**
+     * Registry of builds with pending jobs, within <code>JENKINS_HOME</code>.
+     */
+    private static final String REGISTRY = "zosJobHarvests.txt";
+    /**
+     * Jobs being followed (<code>build#jobID</code>).
+     */
+    private static final Set<String> active = ConcurrentHashMap.newKeySet();
+    /**
+     * Harvest threads.
+     */
+    private static ExecutorService pool;
+
+    /**
+     * Primitive constructor.
+     */
+    public ZOSJobHarvester() {
+        super("z/OS job harvest");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return 5 * MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        Set<String> done = new HashSet<>();
+        for (String id : readRegistry()) {
+            Run<?, ?> run = Run.fromExternalizableId(id);
+            if (run == null || !follow(run))
+                done.add(id);
+        }
+        synchronized (ZOSJobHarvester.class) {
+            // Re-read: builds registered during the pass stay.
+            Set<String> ids = readRegistry();
+            if (ids.removeAll(done))
+                writeRegistry(ids);
+        }
+    }
+
+    /**
+     * Register the build and start following its pending jobs.
+     *
+     * @param run Build with a pending job.
+     */
+    static void schedule(Run<?, ?> run) {
+        watch(run);
+        follow(run);
+    }
+
+    /**
+     * Register a build waiting for its job, so that the job is followed if the build is lost.
+     *
+     * @param run Build waiting for a job.
+     */
+    static void watch(Run<?, ?> run) {
+        synchronized (ZOSJobHarvester.class) {
+            Set<String> ids = readRegistry();
+            if (ids.add(run.getExternalizableId()))
+                writeRegistry(ids);
+        }
+    }
+
+    /**
+     * Take over the jobs of the build if it was lost while waiting for them.
+     *
+     * @param run Build.
+     * @return Whether the build still waits for a job itself.
+     */
+    private static boolean recover(Run<?, ?> run) {
+        boolean waiting = false;
+        for (ZOSJobAction job : run.getActions(ZOSJobAction.class)) {
+            ZOSJobHarvestAction recovered = job.recover();
+            if (recovered != null) {
+                logger.info("Following z/OS job [" + job.getJobID() + "] of lost build " + run.getExternalizableId());
+                run.addAction(recovered);
+                try {
+                    run.save();
+                } catch (IOException e) {
+                    logger.warning("Cannot save the job to follow for " + run.getExternalizableId() + ": " + e.getMessage());
+                }
+            } else if (job.isWaiting()) {
+                waiting = true;
+            }
+        }
+        return waiting;
+    }
+
+    /**
+     * Start following pending jobs of the build not followed yet.
+     *
+     * @param run Build.
+     * @return Whether the build still has pending jobs, or still waits for a job itself.
+     */
+    private static boolean follow(Run<?, ?> run) {
+        boolean pending = recover(run);
+        for (ZOSJobHarvestAction action : run.getActions(ZOSJobHarvestAction.class)) {
+            if (action.getState() != ZOSJobHarvestAction.State.PENDING)
+                continue;
+            pending = true;
+            String key = run.getExternalizableId() + "#" + action.getJobID();
+            if (!active.add(key))
+                continue;
+            ZOSJobHarvestAction.Probe probe = action.probe();
+            if (probe == null) {
+                active.remove(key);
+                continue;
+            }
+            // Pool threads are only taken once the wait is over.
+            JobWaitScheduler.get().await(action.getJobID() + " of " + run.getExternalizableId(),
+                    waitInterval, action.getDeadline(), probe).whenComplete((ended, e) -> {
+                try {
+                    executor().execute(() -> {
+                        try {
+                            if (Boolean.TRUE.equals(ended)) {
+                                harvest(action);
+                            } else {
+                                action.probeFailed(probe, e);
+                            }
+                        } finally {
+                            active.remove(key);
+                        }
+                    });
+                } catch (RejectedExecutionException rejected) {
+                    active.remove(key);
+                }
+            });
+        }
+        return pending;
+    }
+
+    /**
+     * @param action Pending job that ended.
+     */
+    private static void harvest(ZOSJobHarvestAction action) {
+        Run<?, ?> run = action.getRun();
+        // Kept next to the job logs: the build log is closed by now.
+        File log = new File(new File(run.getRootDir(), ZOSJobLogAction.DIRECTORY), action.getJobID() + ".harvest.log");
+        if (!log.getParentFile().isDirectory() && !log.getParentFile().mkdirs())
+            logger.warning("Cannot create " + log.getParentFile());
+        try (StreamTaskListener listener = new StreamTaskListener(log)) {
+            action.harvest(listener);
+        } catch (IOException e) {
+            action.attemptFailed(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to collect z/OS job [" + action.getJobID() + "] result for " + run.getExternalizableId(), e);
+            action.attemptFailed(e.toString());
+        }
+    }
+
+    /**
+     * @return Harvest threads.
+     */
+    private static synchronized ExecutorService executor() {
+        if (pool == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new NamingThreadFactory(new DaemonThreadFactory(), "z/OS job harvest"));
+            executor.allowCoreThreadTimeOut(true);
+            pool = executor;
+        }
+        return pool;
+    }
+
+    /**
+     * @return Registry file.
+     */
+    private static File registry() {
+        return new File(Jenkins.get().getRootDir(), REGISTRY);
+    }
+
+    /**
+     * @return Builds with pending jobs.
+     */
+    private static synchronized Set<String> readRegistry() {
+        Set<String> ids = new LinkedHashSet<>();
+        File registry = registry();
+        try {
+            if (registry.isFile()) {
+                for (String line : Files.readAllLines(registry.toPath(), StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty())
+                        ids.add(line.trim());
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Cannot read z/OS job harvest registry: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * @param ids Builds with pending jobs.
+     */
+    private static synchronized void writeRegistry(Set<String> ids) {
+        try {
+            Files.write(registry().toPath(), ids, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warning("Cannot update z/OS job harvest registry: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.Util;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * <h2>ZOSJobLogAction</h2>
+ * Job log kept with the build, browsable by spool file and line range.
+ * <br>The log is read through its {@link JobLogIndex}, so a page of a huge log costs one short read.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+public class ZOSJobLogAction implements RunAction2 {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(ZOSJobLogAction.class.getName());
+    /**
+     * Directory within the build directory holding job logs.
+     */
+    static final String DIRECTORY = "zosJobLogs";
+    /**
+     * Default number of lines on a page.
+     */
+    private static final int PAGE = 1000;
+    /**
+     * Maximum number of lines on a page.
+     */
+    private static final int MAX_PAGE = 20000;
+
+    /**
+     * JobID in JES.
+     */
+    private final String jobID;
+    /**
+     * Jobname in JES.
+     */
+    private final String jobName;
+    /**
+     * Build holding this action.
+     */
+    private transient Run<?, ?> run;
+
+    /**
+     * @param jobID   JobID in JES.
+     * @param jobName Jobname in JES.
+     */
+    ZOSJobLogAction(String jobID, String jobName) {
+        this.jobID = jobID;
+        this.jobName = jobName;
+    }
+
+    /**
+     * @param run        Build.
+     * @param jobID      JobID in JES.
+     * @param compressed Whether the log is compressed.
+     * @return Job log file within the build directory.
+     */
+    static File logFile(Run<?, ?> run, String jobID, boolean compressed) {
+        return new File(new File(run.getRootDir(), DIRECTORY), jobID + (compressed ? ".log.gz" : ".log"));
+    }
+
+    /**
+     * @param run   Build.
+     * @param jobID JobID in JES.
+     * @return Recipe of the job log kept in {@link JobLogChunkStore}.
+     */
+    static File recipeFile(Run<?, ?> run, String jobID) {
+        return new File(new File(run.getRootDir(), DIRECTORY), jobID + ".chunks");
+    }
+
+    /**
+     * @param run   Build.
+     * @param jobID JobID in JES.
+     * @return Job log index file within the build directory.
+     */
+    static File indexFile(Run<?, ?> run, String jobID) {
+        return new File(new File(run.getRootDir(), DIRECTORY), jobID + ".idx");
+    }
+
+    /**
+     * @param run Build.
+     * @return New file within the build directory for a job log being downloaded,
+     * moved in place once the JobID and CC are known.
+     * @throws IOException on failure to create the file.
+     */
+    static File tempFile(Run<?, ?> run) throws IOException {
+        File directory = new File(run.getRootDir(), DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+        return File.createTempFile(".zosjob", ".tmp", directory);
+    }
+
+    /**
+     * @return JobID in JES.
+     */
+    public String getJobID() {
+        return this.jobID;
+    }
+
+    /**
+     * @return Jobname in JES.
+     */
+    public String getJobName() {
+        return this.jobName;
+    }
+
+    /**
+     * @return Index of the log, <code>null</code> if it is not available.
+     */
+    JobLogIndex getIndex() {
+        if (this.run == null)
+            return null;
+        try {
+            return JobLogIndex.load(indexFile(this.run, this.jobID));
+        } catch (IOException e) {
+            logger.warning("Cannot read job log index of [" + this.jobID + "] for " + this.run.getExternalizableId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Spool files of the job log.
+     */
+    public List<JobLogIndex.SpoolFile> getSpoolFiles() {
+        JobLogIndex index = this.getIndex();
+        return index == null ? Collections.emptyList() : index.getSpoolFiles();
+    }
+
+    /**
+     * @return Number of lines in the job log.
+     */
+    public long getLines() {
+        JobLogIndex index = this.getIndex();
+        return index == null ? 0 : index.getLines();
+    }
+
+    /**
+     * Serve a range of job log lines as text.
+     * <br>Parameters: <code>dd</code> - spool file number or DD name (lines are then counted within it),
+     * <code>step</code> - step of the named DD (<code>STEPNAME</code> or <code>STEPNAME.PROCSTEP</code>),
+     * <code>from</code> - first line (from <code>0</code>), <code>count</code> - number of lines.
+     *
+     * @param req Request.
+     * @param rsp Response.
+     * @throws IOException on read or write failure.
+     */
+    public void doLines(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        JobLogIndex index = this.getIndex();
+        if (index == null) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND, "Job log is not available");
+            return;
+        }
+        long first;
+        long end;
+        int count;
+        try {
+            first = Math.max(parse(req.getParameter("from"), 0), 0);
+            count = (int) Math.min(Math.max(parse(req.getParameter("count"), PAGE), 1), MAX_PAGE);
+            end = index.getLines();
+            String dd = Util.fixEmptyAndTrim(req.getParameter("dd"));
+            String step = Util.fixEmptyAndTrim(req.getParameter("step"));
+            if (dd != null) {
+                List<JobLogIndex.SpoolFile> spoolFiles = index.getSpoolFiles();
+                int number = dd.matches("-?\\d+") ? Integer.parseInt(dd) : index.findSpoolFile(step, dd);
+                if (number < 0 || number >= spoolFiles.size()) {
+                    rsp.sendError(HttpServletResponse.SC_NOT_FOUND, "No spool file " + (step == null ? "" : step + ".") + dd);
+                    return;
+                }
+                JobLogIndex.SpoolFile spoolFile = spoolFiles.get(number);
+                first += spoolFile.getFirstLine();
+                end = spoolFile.getFirstLine() + spoolFile.getLineCount();
+            }
+        } catch (NumberFormatException e) {
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        if (!this.checkLog(index, rsp))
+            return;
+        rsp.setContentType("text/plain;charset=US-ASCII");
+        try (OutputStream out = new BufferedOutputStream(rsp.getOutputStream())) {
+            this.copyLines(index, first, Math.min(first + count, end), out);
+        }
+    }
+
+    /**
+     * Serve the whole job log as text (decompressed if stored compressed).
+     *
+     * @param rsp Response.
+     * @throws IOException on read or write failure.
+     */
+    public void doDownload(StaplerResponse rsp) throws IOException {
+        JobLogIndex index = this.getIndex();
+        if (index == null) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND, "Job log is not available");
+            return;
+        }
+        if (!this.checkLog(index, rsp))
+            return;
+        rsp.setContentType("text/plain;charset=US-ASCII");
+        rsp.setHeader("Content-Disposition", "attachment; filename=\"" + this.jobName + "-" + this.jobID + ".log\"");
+        try (OutputStream out = new BufferedOutputStream(rsp.getOutputStream())) {
+            this.copyLines(index, 0, index.getLines(), out);
+        }
+    }
+
+    /**
+     * Answer <code>410 Gone</code> if the log file or one of its chunks was removed since it was indexed.
+     *
+     * @param index Job log index.
+     * @param rsp   Response.
+     * @return Whether the log can be served.
+     * @throws IOException on read failure.
+     */
+    private boolean checkLog(JobLogIndex index, StaplerResponse rsp) throws IOException {
+        File recipe = recipeFile(this.run, this.jobID);
+        try {
+            if (recipe.isFile()) {
+                JobLogChunkStore.get().check(recipe);
+            } else {
+                File log = logFile(this.run, this.jobID, index.isCompressed());
+                if (!log.isFile())
+                    throw new FileNotFoundException("Missing job log " + log);
+            }
+        } catch (FileNotFoundException e) {
+            logger.warning("Job log [" + this.jobID + "] of " + this.run.getExternalizableId() + " is gone: " + e.getMessage());
+            rsp.sendError(HttpServletResponse.SC_GONE, "Job log is no longer available");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keep the same log with another build.
+     * Log and index files are hard-linked where the file system allows it: they are never written again.
+     *
+     * @param target Build to keep the log with.
+     * @return Action for the target build.
+     * @throws IOException on copy failure.
+     */
+    ZOSJobLogAction keepWith(Run<?, ?> target) throws IOException {
+        File directory = new File(target.getRootDir(), DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+        File recipe = recipeFile(this.run, this.jobID);
+        if (recipe.isFile())
+            JobLogChunkStore.get().copy(recipe, recipeFile(target, this.jobID));
+        for (boolean compressed : new boolean[]{false, true})
+            link(logFile(this.run, this.jobID, compressed), logFile(target, this.jobID, compressed));
+        link(indexFile(this.run, this.jobID), indexFile(target, this.jobID));
+        return new ZOSJobLogAction(this.jobID, this.jobName);
+    }
+
+    /**
+     * Write the whole job log (decompressed if stored compressed).
+     *
+     * @param out Target stream.
+     * @throws IOException on read or write failure, or if the log is not available.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        JobLogIndex index = this.getIndex();
+        if (index == null)
+            throw new IOException("Job log [" + this.jobID + "] is not available");
+        this.copyLines(index, 0, index.getLines(), out);
+    }
+
+    /**
+     * @param file File to link to, skipped if missing.
+     * @param link Link to create (replaced if it exists).
+     * @throws IOException on copy failure.
+     */
+    private static void link(File file, File link) throws IOException {
+        if (!file.isFile())
+            return;
+        Path target = link.toPath();
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, file.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(file.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Copy lines from wherever the log is kept.
+     *
+     * @param index Job log index.
+     * @param first First line to copy.
+     * @param end   Line after the last one to copy.
+     * @param out   Target stream.
+     * @throws IOException on read or write failure.
+     */
+    private void copyLines(JobLogIndex index, long first, long end, OutputStream out) throws IOException {
+        File recipe = recipeFile(this.run, this.jobID);
+        if (recipe.isFile()) {
+            index.copyLines(JobLogChunkStore.get(), recipe, first, end, out);
+        } else {
+            index.copyLines(logFile(this.run, this.jobID, index.isCompressed()), first, end, out);
+        }
+    }
+
+    /**
+     * @param value        Parameter value.
+     * @param defaultValue Value if the parameter is not set.
+     * @return Parameter as number.
+     */
+    private static long parse(String value, long defaultValue) {
+        value = Util.fixEmptyAndTrim(value);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "notepad.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "z/OS job log " + this.jobName + " (" + this.jobID + ")";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "zosJobLog-" + this.jobID;
+    }
+}
@@ -0,0 +1,36 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+/**
+ * <h2>ZOSJobLogChunkCleanup</h2>
+ * Daily removal of job log chunks left by deleted builds, and of their job logs from the search index.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see JobLogChunkStore
+ * @see JobLogSearchIndex
+ */
+@Extension
+public class ZOSJobLogChunkCleanup extends AsyncPeriodicWork {
+    /**
+     * Primitive constructor.
+     */
+    public ZOSJobLogChunkCleanup() {
+        super("z/OS job log chunk cleanup");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return DAY;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        JobLogChunkStore.get().collectGarbage();
+        if (!JobLogSearchIndex.DISABLED)
+            JobLogSearchIndex.get().merge(true);
+    }
+}
@@ -0,0 +1,75 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <h2>ZOSJobLogSearch</h2>
+ * Search page over job logs of all builds: which builds emitted a message ID, ran a jobname, used a DD or ABENDed with a code.
+ * <br><code>query?q=TERM</code> returns the same results as JSON.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see JobLogSearchIndex
+ */
+@Extension
+public class ZOSJobLogSearch implements RootAction {
+    /**
+     * Maximum number of results.
+     */
+    private static final int LIMIT = 500;
+
+    /**
+     * @param q Term, or term prefix followed by <code>*</code>.
+     * @return Matches, newest first.
+     */
+    public List<JobLogSearchIndex.Posting> search(String q) {
+        if (q == null || JobLogSearchIndex.DISABLED)
+            return Collections.emptyList();
+        return JobLogSearchIndex.get().search(q, LIMIT);
+    }
+
+    /**
+     * Search results as JSON.
+     *
+     * @param q   Term, or term prefix followed by <code>*</code>.
+     * @param rsp Response.
+     * @throws IOException on write failure.
+     */
+    public void doQuery(@QueryParameter String q, StaplerResponse rsp) throws IOException {
+        JSONArray results = new JSONArray();
+        for (JobLogSearchIndex.Posting posting : this.search(q)) {
+            results.element(new JSONObject()
+                    .element("build", posting.getBuild())
+                    .element("url", posting.getBuildUrl())
+                    .element("jobID", posting.getJobID())
+                    .element("jobName", posting.getJobName())
+                    .element("line", posting.getLine()));
+        }
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(new JSONObject().element("query", q).element("results", results).toString());
+    }
+
+    @Override
+    public String getIconFileName() {
+        return JobLogSearchIndex.DISABLED ? null : "search.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "z/OS Job Log Search";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "zosJobLogSearch";
+    }
+}
@@ -0,0 +1,234 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.model.Action;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <h2>ZOSJobStepsAction</h2>
+ * Step-level results of a z/OS job, shown on the build page and saved with the build.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ * @see StepResultParser
+ */
+public class ZOSJobStepsAction implements Action {
+    /**
+     * JobID in JES.
+     */
+    private final String jobID;
+    /**
+     * Jobname in JES.
+     */
+    private final String jobName;
+    /**
+     * Job CC.
+     */
+    private final String jobCC;
+    /**
+     * Steps in order of execution.
+     */
+    private final List<Step> steps;
+
+    /**
+     * @param jobID   JobID in JES.
+     * @param jobName Jobname in JES.
+     * @param jobCC   Job CC.
+     * @param steps   Steps in order of execution.
+     */
+    ZOSJobStepsAction(String jobID, String jobName, String jobCC, List<Step> steps) {
+        this.jobID = jobID;
+        this.jobName = jobName;
+        this.jobCC = jobCC;
+        this.steps = new ArrayList<>(steps);
+    }
+
+    /**
+     * @return JobID in JES.
+     */
+    public String getJobID() {
+        return this.jobID;
+    }
+
+    /**
+     * @return Jobname in JES.
+     */
+    public String getJobName() {
+        return this.jobName;
+    }
+
+    /**
+     * @return Job CC.
+     */
+    public String getJobCC() {
+        return this.jobCC;
+    }
+
+    /**
+     * @return Steps in order of execution.
+     */
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(this.steps);
+    }
+
+    /**
+     * @return Job and step results as JSON.
+     */
+    public JSONObject toJSON() {
+        JSONArray array = new JSONArray();
+        for (Step step : this.steps)
+            array.element(step.toJSON());
+        return new JSONObject()
+                .element("jobID", this.jobID)
+                .element("jobName", this.jobName)
+                .element("jobCC", this.jobCC)
+                .element("steps", array);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "clipboard.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "z/OS job " + this.jobName + " (" + this.jobID + ") steps";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "zosJobSteps-" + this.jobID;
+    }
+
+    /**
+     * <h2>ZOSJobStepsAction.Step</h2>
+     * Completion data of a job step.
+     */
+    public static class Step implements Serializable {
+        private static final long serialVersionUID = 1L;
+        /**
+         * Step name.
+         */
+        private final String stepName;
+        /**
+         * Procedure step name (<code>null</code> outside procedures).
+         */
+        private final String procStep;
+        /**
+         * Step CC: 4 digits, <code>Sxxx</code>/<code>Uxxxx</code> for ABENDs,
+         * <code>FLUSH</code> if not executed. <code>null</code> if unknown.
+         */
+        String cc;
+        /**
+         * ABEND reason code (<code>null</code> if none).
+         */
+        String reason;
+        /**
+         * Step start (<code>yyyyddd.hhmm</code>).
+         */
+        String start;
+        /**
+         * Step stop (<code>yyyyddd.hhmm</code>).
+         */
+        String stop;
+        /**
+         * CPU time in seconds, <code>-1</code> if unknown.
+         */
+        double cpuSeconds;
+        /**
+         * Elapsed time in seconds (minute precision), <code>-1</code> if unknown.
+         */
+        long elapsedSeconds;
+
+        /**
+         * @param stepName Step name.
+         * @param procStep Procedure step name.
+         */
+        Step(String stepName, String procStep) {
+            this.stepName = stepName;
+            this.procStep = procStep;
+            this.cc = null;
+            this.reason = null;
+            this.start = null;
+            this.stop = null;
+            this.cpuSeconds = -1;
+            this.elapsedSeconds = -1;
+        }
+
+        /**
+         * @return Step name.
+         */
+        public String getStepName() {
+            return this.stepName;
+        }
+
+        /**
+         * @return Procedure step name.
+         */
+        public String getProcStep() {
+            return this.procStep;
+        }
+
+        /**
+         * @return Step CC.
+         */
+        public String getCc() {
+            return this.cc;
+        }
+
+        /**
+         * @return ABEND reason code.
+         */
+        public String getReason() {
+            return this.reason;
+        }
+
+        /**
+         * @return Step start.
+         */
+        public String getStart() {
+            return this.start;
+        }
+
+        /**
+         * @return Step stop.
+         */
+        public String getStop() {
+            return this.stop;
+        }
+
+        /**
+         * @return CPU time in seconds.
+         */
+        public double getCpuSeconds() {
+            return this.cpuSeconds;
+        }
+
+        /**
+         * @return Elapsed time in seconds.
+         */
+        public long getElapsedSeconds() {
+            return this.elapsedSeconds;
+        }
+
+        /**
+         * @return Step as JSON.
+         */
+        JSONObject toJSON() {
+            return new JSONObject()
+                    .element("stepName", this.stepName)
+                    .element("procStep", this.procStep)
+                    .element("cc", this.cc)
+                    .element("reason", this.reason)
+                    .element("start", this.start)
+                    .element("stop", this.stop)
+                    .element("cpuSeconds", this.cpuSeconds)
+                    .element("elapsedSeconds", this.elapsedSeconds);
+        }
+    }
+}
@@ -13,18 +13,26 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import jenkins.model.Jenkins;
 import jenkins.tasks.SimpleBuildStep;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import javax.annotation.Nonnull;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * <h2>ZOSJobSubmitter</h2>
@@ -38,6 +46,23 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
      * Simple logger.
      */
     private static final Logger logger = Logger.getLogger(ZOSJobSubmitter.class.getName());
+    /**
+     * JES FTP interface.
+     */
+    static final String TRANSPORT_FTP = "FTP";
+    /**
+     * z/OSMF REST jobs API.
+     */
+    static final String TRANSPORT_ZOSMF = "ZOSMF";
+    /**
+     * JCL fragment library on the controller, within <code>JENKINS_HOME</code>.
+     */
+    static final String CONTROLLER_LIBRARY = "zosJclLibrary";
+    /**
+     * Why spool file selection has no effect.
+     */
+    static final String SPOOL_SELECTION_IGNORED = "JESINTERFACELEVEL=1 cannot list spool files: "
+            + "spool files to retrieve, to skip and size limits are ignored, the whole job log is retrieved";
     /**
      * LPAR name or IP address.
      */
@@ -54,6 +79,58 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
      * Whether need to wait for the job completion.
      */
     private final boolean wait;
+    /**
+     * How to talk to JES: {@link #TRANSPORT_FTP} (default) or {@link #TRANSPORT_ZOSMF}.
+     */
+    private String transport;
+    /**
+     * Whether the connector session runs on the agent holding the workspace.
+     */
+    private boolean runOnAgent;
+    /**
+     * JCL fragment directories within the workspace (comma separated), <code>null</code> for no templates.
+     */
+    private String includeLibrary;
+    /**
+     * Whether the JCL is checked locally before it is submitted.
+     */
+    private boolean validateJcl;
+    /**
+     * Whether the result of the same job in an earlier build is reused instead of submitting the job again.
+     */
+    private boolean reuseResults;
+    /**
+     * Workspace files the job reads (Ant patterns, comma separated), part of the result key.
+     */
+    private String reuseInputs;
+    /**
+     * Oldest result to reuse (minutes), <code>0</code> for no limit.
+     */
+    private int reuseMaxAge;
+    /**
+     * Extra part of the result key (build variables are expanded): change it to invalidate reusable results.
+     */
+    private String reuseKey;
+    /**
+     * Whether the result of a job not waited for is collected in the background.
+     */
+    private boolean harvestResults;
+    /**
+     * Whether a job found failed in the background is reported.
+     */
+    private boolean notifyHarvestFailure;
+    /**
+     * Whether spool purges are left to the {@link SpoolHousekeeper}.
+     */
+    private boolean deferSpoolPurge;
+    /**
+     * Jobname pattern of stale jobs to purge, <code>null</code> for no sweep.
+     */
+    private String staleJobNames;
+    /**
+     * Hours a matching job stays in spool after it ended.
+     */
+    private int staleJobAge;
     /**
      * Whether FTP server is in JESINTERFACELEVEL=1.
      */
@@ -62,6 +139,10 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
      * Whether the job log is to be deleted upon job end.
      */
     private final boolean deleteJobFromSpool;
+    /**
+     * Whether the job is to be cancelled (and purged) when the build is aborted.
+     */
+    private boolean cancelJobOnAbort;
     /**
      * Whether the job log is to be printed to Console.
      */
@@ -82,6 +163,83 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
      * FTP data transfer mode
      */
     private final boolean FTPActiveMode;
+    /**
+     * Additional credentials ids (separated by comma) to spread submissions over.
+     */
+    private String credentialsPool;
+    /**
+     * FTP connect timeout (seconds). <code>0</code> for default.
+     */
+    private int connectTimeout;
+    /**
+     * FTP control connection read timeout (seconds). <code>0</code> for default.
+     */
+    private int readTimeout;
+    /**
+     * FTP data connection read timeout (seconds). <code>0</code> for default.
+     */
+    private int dataTimeout;
+    /**
+     * FTP control connection keep-alive interval during transfers (seconds). <code>0</code> for default.
+     */
+    private int keepAliveInterval;
+    /**
+     * Attempts per idempotent FTP operation (logon, listing, retrieval). <code>0</code> for default.
+     */
+    private int retryAttempts;
+    /**
+     * Delay before the first retry (seconds). <code>0</code> for default.
+     */
+    private int retryBackoff;
+    /**
+     * Whether broken job log retrievals continue where they stopped.
+     */
+    private boolean resumeTransfers;
+    /**
+     * Whether job logs are retrieved compressed (<code>MODE Z</code>).
+     */
+    private boolean compressTransfers;
+    /**
+     * Whether the FTP session is protected by TLS.
+     */
+    private boolean ftps;
+    /**
+     * Whether FTPS is implicit rather than explicit.
+     */
+    private boolean ftpsImplicit;
+    /**
+     * Number of first job log lines printed to console. <code>0</code> together with
+     * <code>consoleTailLines</code> prints the whole log.
+     */
+    private int consoleHeadLines;
+    /**
+     * Number of last job log lines printed to console.
+     */
+    private int consoleTailLines;
+    /**
+     * Whether the job log is kept with the build, browsable from the build page.
+     */
+    private boolean keepJobLog;
+    /**
+     * Whether saved job logs are gzip-compressed.
+     */
+    private boolean compressJobLog;
+    /**
+     * Whether the job log kept with the build goes to the controller-wide deduplicating chunk store.
+     */
+    private boolean dedupJobLog;
+    /**
+     * DD name patterns of the spool files to retrieve, empty for all.
+     */
+    private String spoolInclude;
+    /**
+     * DD name patterns of the spool files not to retrieve.
+     */
+    private String spoolExclude;
+    /**
+     * Size limits of retrieved spool files (<code>PATTERN=KiB</code>).
+     */
+    private String spoolLimits;
 
     /**
      * Constructor. Invoked when 'Apply' or 'Save' button is pressed on the project configuration page.
@@ -150,65 +308,195 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
         String _server = this.server;
         String _jobFile = this.jobFile;
         String _MaxCC = this.MaxCC;
-        String inputJCL;
+        JclSource jcl;
+        JclSource nodeJcl;
+        EnvVars environment;
 
         String logPrefix = run.getParent().getDisplayName() + " " + run.getId() + ": ";
         try {
             logger.info(logPrefix + "will expand variables");
-            EnvVars environment = run.getEnvironment(listener);
+            environment = run.getEnvironment(listener);
             _server = environment.expand(_server);
             _jobFile = environment.expand(_jobFile);
             _MaxCC = environment.expand(_MaxCC);
-            // Read the JCL + expand.
-            try {
-                inputJCL = workspace.child(_jobFile).readToString();
-            } catch (FileNotFoundException e) {
-                throw new AbortException("Job file not found: ./" + _jobFile);
+            // Fragments not found in the workspace come from the controller library.
+            JclTemplate.Library controllerLibrary = null;
+            JclTemplate.Library exportedLibrary = null;
+            if (this.includeLibrary != null) {
+                controllerLibrary = JclTemplate.library(new File(Jenkins.get().getRootDir(), CONTROLLER_LIBRARY), ".", null);
+                exportedLibrary = workspace.getChannel().export(JclTemplate.Library.class, controllerLibrary);
             }
-            inputJCL = environment.expand(inputJCL);
+            // Opened from the controller, and on the node holding the workspace.
+            jcl = new JclSource(_jobFile, environment, this.includeLibrary, controllerLibrary);
+            nodeJcl = new JclSource(_jobFile, environment, this.includeLibrary, exportedLibrary);
+            // The JCL is streamed (and expanded) on submit, never held as a whole: only check it is there.
+            FilePath jobFilePath = workspace.child(_jobFile);
+            if (!jobFilePath.exists() || jobFilePath.isDirectory())
+                throw new AbortException("Job file not found: ./" + _jobFile);
 
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             throw new AbortException(e.getMessage());
         }
 
-        // Get login + pw.
-        DomainRequirement domain = new DomainRequirement();
-        StandardUsernamePasswordCredentials creds = CredentialsProvider.findCredentialById(credentialsId,
-                StandardUsernamePasswordCredentials.class,
-                run, domain);
-        if (creds == null) {
+        // Get login + pw from the least loaded credentials.
+        List<String> unresolved = new ArrayList<>();
+        List<StandardUsernamePasswordCredentials> pool = CredentialsPool.resolve(credentialsId, this.credentialsPool, run, unresolved);
+        for (String id : unresolved) {
+            listener.getLogger().println("Cannot resolve credentials: " + id);
+        }
+        if (pool.isEmpty()) {
             throw new AbortException("Cannot resolve credentials: " + credentialsId);
         }
 
-        // Prepare the input and output stream.
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(inputJCL.getBytes(StandardCharsets.UTF_8));
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-        // Get connector.
-        ZFTPConnector zFTPConnector = new ZFTPConnector(_server,
-                this.port,
-                creds.getUsername(),
-                creds.getPassword().getPlainText(),
-                this.JESINTERFACELEVEL1,
-                logPrefix,
-                this.FTPActiveMode);
-        // Submit the job.
-        boolean result = zFTPConnector.submit(inputStream, this.wait, this.waitTime, outputStream, this.deleteJobFromSpool, listener);
+        // The same JCL with the same inputs already ran fine: take its result instead of running it again.
+        // The JCL is read for the key anyway: it is checked in the same pass.
+        String resultKey = null;
+        if (this.reuseResults && this.wait) {
+            ZOSJobAction.ResultKey key;
+            try {
+                key = workspace.act(new ZOSJobAction.ResultKey(nodeJcl, _server,
+                        Util.fixEmptyAndTrim(environment.expand(Util.fixNull(this.reuseInputs))),
+                        environment.expand(Util.fixNull(this.reuseKey)),
+                        this.validateJcl));
+            } catch (IOException | InterruptedException e) {
+                e.printStackTrace();
+                throw new AbortException(e.getMessage());
+            }
+            resultKey = key.getKey();
+            String maxCC = _MaxCC;
+            ZOSJobAction cached = ZOSJobAction.findReusable(run, _server, resultKey, this.reuseMaxAge, jobCC -> {
+                String cc = printableCC(jobCC);
+                return cc.matches("\\d+") && maxCC.compareTo(cc) >= 0;
+            });
+            if (cached != null && cached.getRun() != null) {
+                this.reuse(run, workspace, listener, cached, _server);
+                return;
+            }
+            if (key.getValidator() != null)
+                report(key.getValidator(), listener);
+        } else if (this.validateJcl) {
+            report(validate(workspace, nodeJcl), listener);
+        }
+
+        // The job log goes to a file in the build directory as it comes, compressed as it comes if it is saved compressed.
+        File logTemp = ZOSJobLogAction.tempFile(run);
+        try (JobLogIndex.Writer indexWriter = new JobLogIndex.Writer(logTemp, this.compressJobLog)) {
+            this.performWith(run, workspace, listener, _server, _MaxCC, nodeJcl, jcl, pool, resultKey, logPrefix, indexWriter, logTemp);
+        } finally {
+            Files.deleteIfExists(logTemp.toPath());
+        }
+    }
+
+    /**
+     * Submit the job and process its outcome.
+     *
+     * @param run         Current run.
+     * @param workspace   Current workspace.
+     * @param listener    Current listener.
+     * @param _server     Expanded LPAR name.
+     * @param _MaxCC      Expanded maximum acceptable CC.
+     * @param nodeJcl     Job file, opened on the node.
+     * @param jcl         Job file, opened from the controller.
+     * @param pool        Credentials to submit with.
+     * @param resultKey   Result key if the result may be reused, <code>null</code> if not.
+     * @param logPrefix   Log prefix.
+     * @param indexWriter Writes the job log to <code>logTemp</code>, building its index.
+     * @param logTemp     Job log file being written.
+     * @throws IOException on failure, or if the job failed.
+     */
+    private void performWith(Run<?, ?> run, FilePath workspace, TaskListener listener, String _server, String _MaxCC,
+                             JclSource nodeJcl, JclSource jcl, List<StandardUsernamePasswordCredentials> pool,
+                             String resultKey, String logPrefix, JobLogIndex.Writer indexWriter, File logTemp)
+            throws IOException {
+        // Step results, the log index and search terms are collected while the log is downloaded.
+        JobLogTerms searchTerms = new JobLogTerms(indexWriter);
+        StepResultParser stepParser = new StepResultParser(searchTerms);
+
+        AgentJobSession.Outcome outcome;
+        ZOSJobAction[] jobAction = new ZOSJobAction[1];
+        try {
+            try (CredentialsPool.Lease lease = CredentialsPool.acquire(_server, pool, null)) {
+                StandardUsernamePasswordCredentials creds = lease.getCredentials();
+                if (pool.size() > 1) {
+                    listener.getLogger().println("Using credentials " + creds.getId() + " (" + creds.getUsername() + ")");
+                }
+
+                ConnectorSettings settings = new ConnectorSettings(this, _server, creds.getUsername(), creds.getPassword().getPlainText());
+                try {
+                    if (settings.getSpoolSelection().isSelective() && spoolSelectionIgnored(this.JESINTERFACELEVEL1, this.transport))
+                        listener.getLogger().println("Warning: " + SPOOL_SELECTION_IGNORED);
+                } catch (IllegalArgumentException e) {
+                    throw new AbortException(e.getMessage());
+                }
+                // Controller shutdown interrupts the wait too, but then the job is to be resumed, not cancelled.
+                BooleanSupplier cancelOnInterrupt = () -> {
+                    Jenkins jenkins = Jenkins.getInstanceOrNull();
+                    return this.cancelJobOnAbort && (jenkins == null || !jenkins.isTerminating());
+                };
+                // Record the job with the build before waiting: if the build is lost on a restart,
+                // the job is followed in the background (see ZOSJobHarvester).
+                String jobServer = _server;
+                String jobMaxCC = _MaxCC;
+                Consumer<String> submitListener = jobID -> {
+                    jobAction[0] = new ZOSJobAction(jobServer, this.port, creds.getUsername(), jobID,
+                            System.currentTimeMillis(), this.wait, this.waitTime, this.deleteJobFromSpool);
+                    if (this.wait)
+                        jobAction[0].recoverWith(this, jobMaxCC);
+                    run.addAction(jobAction[0]);
+                    jobAction[0].save();
+                    if (this.wait)
+                        ZOSJobHarvester.watch(run);
+                };
+
+                if (this.runOnAgent) {
+                    outcome = this.performOnAgent(run, workspace, listener, settings, nodeJcl, logPrefix,
+                            cancelOnInterrupt, submitListener);
+                } else {
+                    // Get connector.
+                    JobConnector zFTPConnector = settings.create(logPrefix);
+                    zFTPConnector.setCancelOnInterrupt(cancelOnInterrupt, 0);
+                    boolean result;
+                    zFTPConnector.setSubmitListener(submitListener);
+                    // Submit the job.
+                    try (InputStream inputStream = jcl.open(workspace)) {
+                        result = zFTPConnector.submit(inputStream, this.wait, this.waitTime, stepParser, this.purgeOnEnd(), listener);
+                    } catch (InterruptedException e) {
+                        throw new AbortException(e.getMessage());
+                    }
+                    outcome = new AgentJobSession.Outcome(zFTPConnector, result, stepParser.getSteps(), searchTerms.getTerms());
+                }
+                // Jobs not waited for are still running, or left to the harvest.
+                this.housekeep(settings, this.wait && outcome.result ? outcome.jobID : null, logPrefix);
+            }
+            if (jobAction[0] != null) {
+                if (outcome.cancelled) {
+                    jobAction[0].cancelled(outcome.jobCC);
+                } else {
+                    jobAction[0].finished(outcome.jobCC, outcome.result ? resultKey : null);
+                }
+            }
+        } finally {
+            // Any other way out leaves the job behind: nobody follows it anymore.
+            if (jobAction[0] != null)
+                jobAction[0].abandoned();
+        }
 
         // Get CC.
-        String printableCC = zFTPConnector.getJobCC();
-        if (printableCC != null)
-            printableCC = printableCC.replaceAll("\\s+", "");
-        else
-            printableCC = "";
+        String printableCC = printableCC(outcome.jobCC);
 
         // Print the info about the job
-        logger.info("Job [" + zFTPConnector.getJobID() + "] processing finished.");
+        logger.info("Job [" + outcome.jobID + "] processing finished.");
         StringBuilder reportBuilder = new StringBuilder();
         reportBuilder.append("Job [")
-                .append(zFTPConnector.getJobID())
-                .append("] processing ");
+                .append(outcome.jobID)
+                .append("] ");
+        if (pool.size() > 1) {
+            reportBuilder.append("of ")
+                    .append(outcome.userID)
+                    .append(" ");
+        }
+        reportBuilder.append("processing ");
         if (this.wait) {
             if (!printableCC.matches("\\d+")) {
                 if (printableCC.startsWith("ABEND")) {
@@ -229,35 +517,263 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
 
         // If wait was requested try to save the job log.
         if (this.wait) {
-            if (this.jobLogToConsole) {
-                listener.getLogger().println(outputStream.toString(StandardCharsets.US_ASCII.name()));
-            }
-            // Save the log.
+            String savedName = savedName(outcome.jobName, printableCC, _server, outcome.jobID,
+                    run.getParent().getDisplayName() + " - " + run.getId());
+            String logSuffix = this.compressJobLog ? ".log.gz" : ".log";
             try {
-                FilePath savedOutput = new FilePath(workspace,
-                        String.format("%s [%s] (%s - %s) %s - %s.log",
-                                zFTPConnector.getJobName(),
-                                printableCC,
-                                _server,
-                                zFTPConnector.getJobID(),
-                                run.getParent().getDisplayName(),
-                                run.getId()
-                        ));
-                outputStream.writeTo(savedOutput.write());
-                outputStream.close();
+                if (this.runOnAgent) {
+                    // Printed and saved on the agent. Only a log kept with the build comes here.
+                    if (this.keepJobLog && outcome.savedName != null && outcome.jobID != null) {
+                        try (InputStream saved = new FilePath(workspace, outcome.savedName + logSuffix).read();
+                             InputStream in = this.compressJobLog ? new GZIPInputStream(saved, 64 * 1024) : saved) {
+                            byte[] buffer = new byte[64 * 1024];
+                            int read;
+                            while ((read = in.read(buffer)) != -1)
+                                indexWriter.write(buffer, 0, read);
+                        }
+                    }
+                    outcome.terms.forEach(searchTerms::add);
+                }
+                JobLogIndex index = indexWriter.getIndex();
+                indexWriter.close();
+                if (!this.runOnAgent) {
+                    if (this.jobLogToConsole) {
+                        try (InputStream in = index.open(logTemp)) {
+                            if (this.consoleHeadLines > 0 || this.consoleTailLines > 0) {
+                                JobLogExcerpt excerpt = new JobLogExcerpt(this.consoleHeadLines, this.consoleTailLines);
+                                in.transferTo(excerpt);
+                                excerpt.printTo(listener.getLogger(), StandardCharsets.US_ASCII, "./" + savedName + logSuffix);
+                            } else {
+                                in.transferTo(listener.getLogger());
+                                listener.getLogger().println();
+                            }
+                        }
+                    }
+                    // Save the log as it was written: compressed on this side, so fewer bytes go to the agent as well.
+                    new FilePath(workspace, savedName + logSuffix).copyFrom(new FilePath(logTemp));
+                }
+
+                // Save step results next to the log, so nobody has to parse the log again.
+                ZOSJobStepsAction stepsAction = new ZOSJobStepsAction(outcome.jobID,
+                        outcome.jobName, printableCC, outcome.steps);
+                new FilePath(workspace, savedName + ".steps.json").write(stepsAction.toJSON().toString(2), "UTF-8");
+                if (outcome.jobID != null)
+                    run.addAction(stepsAction);
+                if (outcome.spoolFileNames != null)
+                    index.nameSpoolFiles(outcome.spoolFileNames);
+                if (this.keepJobLog && outcome.jobID != null)
+                    this.keepJobLog(run, outcome.jobID, outcome.jobName, logTemp, index);
+                if (!JobLogSearchIndex.DISABLED && outcome.jobID != null) {
+                    searchTerms.add(outcome.jobName, -1);
+                    for (ZOSJobStepsAction.Step step : stepsAction.getSteps()) {
+                        if (step.getCc() != null && step.getCc().matches("[SU]\\w{3,4}"))
+                            searchTerms.add(step.getCc(), -1);
+                    }
+                    JobLogSearchIndex.get().add(run, outcome.jobID, outcome.jobName, searchTerms.getTerms());
+                }
             } catch (IOException | InterruptedException e) {
                 e.printStackTrace();
                 throw new AbortException(e.getMessage());
             }
         } else {
             printableCC = "0000"; //set RC = 0
+            if (this.harvestResults && outcome.result && outcome.jobID != null && !outcome.jobID.isEmpty()) {
+                long submitted = jobAction[0] == null ? System.currentTimeMillis() : jobAction[0].getSubmitted();
+                run.addAction(new ZOSJobHarvestAction(this, _server, _MaxCC, outcome.userID, outcome.jobID, submitted));
+                try {
+                    run.save();
+                } catch (IOException e) {
+                    logger.warning(logPrefix + "cannot save the job to collect: " + e.getMessage());
+                }
+                ZOSJobHarvester.schedule(run);
+                listener.getLogger().println("Job [" + outcome.jobID + "] result will be collected in the background and attached to this build");
+            }
         }
 
-        if (!(result && (_MaxCC.compareTo(printableCC) >= 0))) {
+        if (!(outcome.result && (_MaxCC.compareTo(printableCC) >= 0))) {
             throw new AbortException("z/OS job failed with CC " + printableCC);
         }
     }
 
+    /**
+     * Run the connector session on the agent holding the workspace.
+     *
+     * @param run               Current run.
+     * @param workspace         Current workspace.
+     * @param listener          Current listener.
+     * @param settings          Connector to create on the agent.
+     * @param jcl               Job file.
+     * @param logPrefix         Log prefix.
+     * @param cancelOnInterrupt Asked once the wait is interrupted: whether to cancel the job.
+     * @param submitListener    Receives the JobID as soon as the job is submitted.
+     * @return Session outcome.
+     * @throws IOException on agent communication failure or when interrupted.
+     */
+    private AgentJobSession.Outcome performOnAgent(Run<?, ?> run, FilePath workspace, TaskListener listener,
+                                                   ConnectorSettings settings, JclSource jcl,
+                                                   String logPrefix, BooleanSupplier cancelOnInterrupt,
+                                                   Consumer<String> submitListener) throws IOException {
+        AgentJobSession.Callback callback = new AgentJobSession.Callback() {
+            @Override
+            public void submitted(String jobID) {
+                submitListener.accept(jobID);
+            }
+
+            @Override
+            public boolean cancelOnInterrupt() {
+                return cancelOnInterrupt.getAsBoolean();
+            }
+        };
+        AgentJobSession session = new AgentJobSession(settings, jcl, listener,
+                workspace.getChannel().export(AgentJobSession.Callback.class, callback), logPrefix);
+        session.setWait(this.wait, this.waitTime, this.purgeOnEnd());
+        session.setJobLog(this.jobLogToConsole, this.consoleHeadLines, this.consoleTailLines, this.compressJobLog,
+                run.getParent().getDisplayName() + " - " + run.getId());
+        try {
+            return workspace.act(session);
+        } catch (InterruptedException e) {
+            // The agent goes on to cancel the job (if asked to), but the build does not learn how that went:
+            // the job is left as abandoned, or to be followed after the restart on controller shutdown.
+            throw new AbortException("Interrupted.");
+        }
+    }
+
+    /**
+     * Take the result of the same job from an earlier build: CC, step results and the job log if it was kept.
+     *
+     * @param run       Current run.
+     * @param workspace Current workspace.
+     * @param listener  Current listener.
+     * @param cached    Record of the job holding the result.
+     * @param server    LPAR name.
+     * @throws AbortException on failure to copy the results.
+     */
+    private void reuse(Run<?, ?> run, FilePath workspace, TaskListener listener, ZOSJobAction cached, String server) throws AbortException {
+        Run<?, ?> source = cached.getRun();
+        String jobID = cached.getJobID();
+        String printableCC = printableCC(cached.getJobCC());
+        listener.getLogger().println("JCL and inputs unchanged since " + source.getFullDisplayName()
+                + ": reusing the result of job [" + jobID + "], captured RC = [" + printableCC + "]. The job is not submitted");
+        ZOSJobAction action = cached.reused();
+        run.addAction(action);
+        action.save();
+
+        String buildName = run.getParent().getDisplayName() + " - " + run.getId();
+        try {
+            for (ZOSJobStepsAction steps : source.getActions(ZOSJobStepsAction.class)) {
+                if (!jobID.equals(steps.getJobID()))
+                    continue;
+                ZOSJobStepsAction stepsAction = new ZOSJobStepsAction(jobID, steps.getJobName(), printableCC, steps.getSteps());
+                String savedName = savedName(steps.getJobName(), printableCC, server, jobID, buildName);
+                new FilePath(workspace, savedName + ".steps.json").write(stepsAction.toJSON().toString(2), "UTF-8");
+                run.addAction(stepsAction);
+                for (ZOSJobLogAction log : source.getActions(ZOSJobLogAction.class)) {
+                    if (!jobID.equals(log.getJobID()))
+                        continue;
+                    run.addAction(log.keepWith(run));
+                    FilePath savedOutput = new FilePath(workspace, savedName + (this.compressJobLog ? ".log.gz" : ".log"));
+                    try (OutputStream out = this.compressJobLog
+                            ? new GZIPOutputStream(savedOutput.write(), 64 * 1024) : savedOutput.write()) {
+                        log.writeTo(out);
+                    }
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            throw new AbortException(e.getMessage());
+        }
+    }
+
+    /**
+     * Check the JCL before submitting it, where the workspace is.
+     *
+     * @param workspace Current workspace.
+     * @param jcl       Job file, opened on the node.
+     * @return Findings.
+     * @throws AbortException if the JCL cannot be read.
+     */
+    private JclValidator validate(FilePath workspace, JclSource jcl) throws AbortException {
+        try {
+            return workspace.act(new JclValidator.Check(jcl));
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            throw new AbortException(e.getMessage());
+        }
+    }
+
+    /**
+     * Print the findings of the JCL check.
+     *
+     * @param validator Findings.
+     * @param listener  Current listener.
+     * @throws AbortException if the JCL has errors.
+     */
+    private static void report(JclValidator validator, TaskListener listener) throws AbortException {
+        for (String warning : validator.getWarnings())
+            listener.getLogger().println("JCL warning: " + warning);
+        for (String error : validator.getErrors())
+            listener.getLogger().println("JCL error: " + error);
+        if (!validator.getErrors().isEmpty())
+            throw new AbortException("JCL validation failed: " + validator.getErrors().size() + " error(s), job not submitted");
+    }
+
+    /**
+     * @param JESINTERFACELEVEL1 Whether the FTP server is in JESINTERFACELEVEL=1.
+     * @param transport          Transport, <code>null</code> for FTP.
+     * @return Whether spool files cannot be listed, so that the whole job log is retrieved.
+     */
+    static boolean spoolSelectionIgnored(boolean JESINTERFACELEVEL1, String transport) {
+        return JESINTERFACELEVEL1 && !TRANSPORT_ZOSMF.equals(transport);
+    }
+
+    /**
+     * @param jobCC Job completion or the reason of the failure.
+     * @return CC as printed and compared with MaxCC.
+     */
+    static String printableCC(String jobCC) {
+        return jobCC == null ? "" : jobCC.replaceAll("\\s+", "");
+    }
+
+    /**
+     * @param jobName     Jobname in JES.
+     * @param printableCC Job CC.
+     * @param server      LPAR name.
+     * @param jobID       JobID in JES.
+     * @param buildName   Project and build (<code>project - build</code>).
+     * @return Name of the job log saved in the workspace (without suffix).
+     */
+    static String savedName(String jobName, String printableCC, String server, String jobID, String buildName) {
+        return String.format("%s [%s] (%s - %s) %s", jobName, printableCC, server, jobID, buildName);
+    }
+
+    /**
+     * Keep the job log and its index in the build directory.
+     *
+     * @param run     Current run.
+     * @param jobID   JobID in JES.
+     * @param jobName Jobname in JES.
+     * @param log     Job log written by the index writer within the build directory, moved or consumed.
+     * @param index   Job log index.
+     */
+    void keepJobLog(Run<?, ?> run, String jobID, String jobName, File log, JobLogIndex index) {
+        File logFile = ZOSJobLogAction.logFile(run, jobID, index.isCompressed());
+        try {
+            if (!logFile.getParentFile().isDirectory() && !logFile.getParentFile().mkdirs())
+                throw new IOException("Cannot create " + logFile.getParentFile());
+            if (this.dedupJobLog) {
+                try (InputStream in = index.open(log)) {
+                    JobLogChunkStore.get().store(in, ZOSJobLogAction.recipeFile(run, jobID));
+                }
+            } else {
+                Files.move(log.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            index.save(ZOSJobLogAction.indexFile(run, jobID));
+            run.addAction(new ZOSJobLogAction(jobID, jobName));
+        } catch (IOException e) {
+            logger.warning("Cannot keep job log [" + jobID + "] with " + run.getExternalizableId() + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Get LPAR name of IP address.
      *
@@ -283,6 +799,404 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
         return credentialsId;
     }
 
+    /**
+     * @return additional credentials ids provided.
+     */
+    public String getCredentialsPool() {
+        return this.credentialsPool;
+    }
+
+    /**
+     * Set additional credentials to spread submissions over.
+     *
+     * @param credentialsPool Credentials ids separated by comma.
+     */
+    @DataBoundSetter
+    public void setCredentialsPool(String credentialsPool) {
+        this.credentialsPool = String.join(",", CredentialsPool.parseIds(credentialsPool));
+    }
+
+    /**
+     * @return FTP connect timeout (seconds).
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout > 0 ? this.connectTimeout : ZFTPConnector.DEFAULT_CONNECT_TIMEOUT;
+    }
+
+    /**
+     * @param connectTimeout FTP connect timeout (seconds).
+     */
+    @DataBoundSetter
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return FTP control connection read timeout (seconds).
+     */
+    public int getReadTimeout() {
+        return this.readTimeout > 0 ? this.readTimeout : ZFTPConnector.DEFAULT_READ_TIMEOUT;
+    }
+
+    /**
+     * @param readTimeout FTP control connection read timeout (seconds).
+     */
+    @DataBoundSetter
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return FTP data connection read timeout (seconds).
+     */
+    public int getDataTimeout() {
+        return this.dataTimeout > 0 ? this.dataTimeout : ZFTPConnector.DEFAULT_DATA_TIMEOUT;
+    }
+
+    /**
+     * @param dataTimeout FTP data connection read timeout (seconds).
+     */
+    @DataBoundSetter
+    public void setDataTimeout(int dataTimeout) {
+        this.dataTimeout = dataTimeout;
+    }
+
+    /**
+     * @return FTP control connection keep-alive interval (seconds).
+     */
+    public int getKeepAliveInterval() {
+        return this.keepAliveInterval > 0 ? this.keepAliveInterval : ZFTPConnector.DEFAULT_KEEP_ALIVE_INTERVAL;
+    }
+
+    /**
+     * @param keepAliveInterval FTP control connection keep-alive interval during transfers (seconds).
+     */
+    @DataBoundSetter
+    public void setKeepAliveInterval(int keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    /**
+     * @return Attempts per idempotent FTP operation.
+     */
+    public int getRetryAttempts() {
+        return this.retryAttempts > 0 ? this.retryAttempts : RetryPolicy.DEFAULT_ATTEMPTS;
+    }
+
+    /**
+     * @param retryAttempts Attempts per idempotent FTP operation (logon, listing, retrieval).
+     */
+    @DataBoundSetter
+    public void setRetryAttempts(int retryAttempts) {
+        this.retryAttempts = retryAttempts;
+    }
+
+    /**
+     * @return Delay before the first retry (seconds).
+     */
+    public int getRetryBackoff() {
+        return this.retryBackoff > 0 ? this.retryBackoff : RetryPolicy.DEFAULT_BACKOFF;
+    }
+
+    /**
+     * @param retryBackoff Delay before the first retry (seconds), doubled for each next one.
+     */
+    @DataBoundSetter
+    public void setRetryBackoff(int retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * @return Whether job logs are retrieved compressed.
+     */
+    public boolean getCompressTransfers() {
+        return this.compressTransfers;
+    }
+
+    /**
+     * @param compressTransfers Whether to retrieve job logs compressed (<code>MODE Z</code>) if the FTP server supports it.
+     */
+    @DataBoundSetter
+    public void setCompressTransfers(boolean compressTransfers) {
+        this.compressTransfers = compressTransfers;
+    }
+
+    /**
+     * @return Whether the FTP session is protected by TLS.
+     */
+    public boolean getFtps() {
+        return this.ftps;
+    }
+
+    /**
+     * @param ftps Whether to protect control and data connections with TLS (FTPS, <code>PROT P</code>).
+     */
+    @DataBoundSetter
+    public void setFtps(boolean ftps) {
+        this.ftps = ftps;
+    }
+
+    /**
+     * @return Whether FTPS is implicit.
+     */
+    public boolean getFtpsImplicit() {
+        return this.ftpsImplicit;
+    }
+
+    /**
+     * @param ftpsImplicit Whether TLS starts on connect (implicit FTPS) instead of after <code>AUTH TLS</code>.
+     */
+    @DataBoundSetter
+    public void setFtpsImplicit(boolean ftpsImplicit) {
+        this.ftpsImplicit = ftpsImplicit;
+    }
+
+    /**
+     * @return Whether the connector session runs on the agent holding the workspace.
+     */
+    public boolean getRunOnAgent() {
+        return this.runOnAgent;
+    }
+
+    /**
+     * @param runOnAgent Whether the connector session runs on the agent holding the workspace:
+     *                   JCL and job log then do not pass through the controller.
+     */
+    @DataBoundSetter
+    public void setRunOnAgent(boolean runOnAgent) {
+        this.runOnAgent = runOnAgent;
+    }
+
+    /**
+     * @return JCL fragment directories within the workspace.
+     */
+    public String getIncludeLibrary() {
+        return this.includeLibrary;
+    }
+
+    /**
+     * @param includeLibrary JCL fragment directories within the workspace (comma separated).
+     *                       If set, the job file is a template: <code>//*#INCLUDE NAME</code> lines are replaced
+     *                       with fragment <code>NAME</code> (or <code>NAME.jcl</code>), looked up in these directories,
+     *                       then in <code>$JENKINS_HOME/zosJclLibrary</code>.
+     */
+    @DataBoundSetter
+    public void setIncludeLibrary(String includeLibrary) {
+        this.includeLibrary = Util.fixEmptyAndTrim(includeLibrary);
+    }
+
+    /**
+     * @return Whether the JCL is checked locally before it is submitted.
+     */
+    public boolean getValidateJcl() {
+        return this.validateJcl;
+    }
+
+    /**
+     * @param validateJcl Whether the JCL is checked locally before it is submitted:
+     *                    obvious errors then fail the build without a JES round trip.
+     */
+    @DataBoundSetter
+    public void setValidateJcl(boolean validateJcl) {
+        this.validateJcl = validateJcl;
+    }
+
+    /**
+     * @return Whether the result of the same job in an earlier build is reused.
+     */
+    public boolean getReuseResults() {
+        return this.reuseResults;
+    }
+
+    /**
+     * @param reuseResults Whether the result of the same job (same LPAR, expanded JCL and input files)
+     *                     in an earlier build is reused instead of submitting the job again.
+     *                     Only results within MaxCC are reused.
+     */
+    @DataBoundSetter
+    public void setReuseResults(boolean reuseResults) {
+        this.reuseResults = reuseResults;
+    }
+
+    /**
+     * @return Workspace files the job reads.
+     */
+    public String getReuseInputs() {
+        return this.reuseInputs;
+    }
+
+    /**
+     * @param reuseInputs Workspace files the job reads (Ant patterns, comma separated): a change in any of them
+     *                    means the job is submitted again.
+     */
+    @DataBoundSetter
+    public void setReuseInputs(String reuseInputs) {
+        this.reuseInputs = Util.fixEmptyAndTrim(reuseInputs);
+    }
+
+    /**
+     * @return Oldest result to reuse (minutes).
+     */
+    public int getReuseMaxAge() {
+        return this.reuseMaxAge;
+    }
+
+    /**
+     * @param reuseMaxAge Oldest result to reuse (minutes), <code>0</code> for no limit.
+     */
+    @DataBoundSetter
+    public void setReuseMaxAge(int reuseMaxAge) {
+        this.reuseMaxAge = Math.max(reuseMaxAge, 0);
+    }
+
+    /**
+     * @return Extra part of the result key.
+     */
+    public String getReuseKey() {
+        return this.reuseKey;
+    }
+
+    /**
+     * @param reuseKey Extra part of the result key, build variables are expanded:
+     *                 change it (or the variable it refers to) to invalidate reusable results.
+     */
+    @DataBoundSetter
+    public void setReuseKey(String reuseKey) {
+        this.reuseKey = Util.fixEmptyAndTrim(reuseKey);
+    }
+
+    /**
+     * @return Whether the result of a job not waited for is collected in the background.
+     */
+    public boolean getHarvestResults() {
+        return this.harvestResults;
+    }
+
+    /**
+     * @param harvestResults Whether the result of a job not waited for is collected in the background:
+     *                       the build ends right after submit, CC, step results and job log are attached to it later.
+     */
+    @DataBoundSetter
+    public void setHarvestResults(boolean harvestResults) {
+        this.harvestResults = harvestResults;
+    }
+
+    /**
+     * @return Whether a job found failed in the background is reported.
+     */
+    public boolean getNotifyHarvestFailure() {
+        return this.notifyHarvestFailure;
+    }
+
+    /**
+     * @param notifyHarvestFailure Whether a job found failed in the background (CC above MaxCC) is reported
+     *                             in the build description and the controller log.
+     */
+    @DataBoundSetter
+    public void setNotifyHarvestFailure(boolean notifyHarvestFailure) {
+        this.notifyHarvestFailure = notifyHarvestFailure;
+    }
+
+    /**
+     * @return Whether spool purges are left to the {@link SpoolHousekeeper}.
+     */
+    public boolean getDeferSpoolPurge() {
+        return this.deferSpoolPurge;
+    }
+
+    /**
+     * @param deferSpoolPurge Whether the job is purged from spool in the background, batched with other jobs
+     *                        of the same LPAR and user, instead of at the end of the build.
+     */
+    @DataBoundSetter
+    public void setDeferSpoolPurge(boolean deferSpoolPurge) {
+        this.deferSpoolPurge = deferSpoolPurge;
+    }
+
+    /**
+     * @return Jobname pattern of stale jobs to purge, <code>null</code> for no sweep.
+     */
+    public String getStaleJobNames() {
+        return this.staleJobNames;
+    }
+
+    /**
+     * @param staleJobNames Jobname pattern (<code>*</code> and <code>?</code> wildcards) of ended jobs of the user
+     *                      to purge from spool once they are older than {@link #getStaleJobAge()}.
+     */
+    @DataBoundSetter
+    public void setStaleJobNames(String staleJobNames) {
+        this.staleJobNames = Util.fixEmptyAndTrim(staleJobNames);
+    }
+
+    /**
+     * @return Hours a matching job stays in spool after it ended, <code>24</code> if not set.
+     */
+    public int getStaleJobAge() {
+        return this.staleJobAge > 0 ? this.staleJobAge : 24;
+    }
+
+    /**
+     * @param staleJobAge Hours a matching job stays in spool after it ended.
+     */
+    @DataBoundSetter
+    public void setStaleJobAge(int staleJobAge) {
+        this.staleJobAge = Math.max(staleJobAge, 1);
+    }
+
+    /**
+     * @return Whether the connector purges the job itself once its log is fetched.
+     */
+    boolean purgeOnEnd() {
+        return this.deleteJobFromSpool && !this.deferSpoolPurge;
+    }
+
+    /**
+     * Hand the spool purge and the stale job sweep over to the {@link SpoolHousekeeper}, as configured.
+     *
+     * @param settings  Connector of the step.
+     * @param jobID     Ended job with its log fetched, <code>null</code> if there is none to purge.
+     * @param logPrefix Log prefix.
+     */
+    void housekeep(ConnectorSettings settings, String jobID, String logPrefix) {
+        if (this.deleteJobFromSpool && this.deferSpoolPurge && jobID != null && !jobID.isEmpty())
+            SpoolHousekeeper.get().purge(settings, jobID, logPrefix);
+        if (this.staleJobNames != null)
+            SpoolHousekeeper.get().sweep(settings, this.staleJobNames, this.getStaleJobAge(), logPrefix);
+    }
+
+    /**
+     * @return How to talk to JES.
+     */
+    public String getTransport() {
+        return this.transport == null ? TRANSPORT_FTP : this.transport;
+    }
+
+    /**
+     * @param transport {@link #TRANSPORT_FTP} or {@link #TRANSPORT_ZOSMF} (<code>port</code> is then the z/OSMF HTTPS port).
+     *                  FTP-only settings are ignored for z/OSMF.
+     */
+    @DataBoundSetter
+    public void setTransport(String transport) {
+        transport = Util.fixEmptyAndTrim(transport);
+        this.transport = TRANSPORT_FTP.equals(transport) ? null : transport;
+    }
+
+    /**
+     * @return Whether broken job log retrievals continue where they stopped.
+     */
+    public boolean getResumeTransfers() {
+        return this.resumeTransfers;
+    }
+
+    /**
+     * @param resumeTransfers Whether broken job log retrievals continue where they stopped (<code>REST</code>).
+     */
+    @DataBoundSetter
+    public void setResumeTransfers(boolean resumeTransfers) {
+        this.resumeTransfers = resumeTransfers;
+    }
+
     /**
      * @return job file provided.
      */
@@ -317,6 +1231,25 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
         return this.deleteJobFromSpool;
     }
 
+    /**
+     * Get cancelJobOnAbort.
+     *
+     * @return <b><code>cancelJobOnAbort</code></b>
+     */
+    public boolean getCancelJobOnAbort() {
+        return this.cancelJobOnAbort;
+    }
+
+    /**
+     * Cancel the job (JES purges its output as well) when the build is aborted while waiting.
+     *
+     * @param cancelJobOnAbort Whether to cancel the job on build abort.
+     */
+    @DataBoundSetter
+    public void setCancelJobOnAbort(boolean cancelJobOnAbort) {
+        this.cancelJobOnAbort = cancelJobOnAbort;
+    }
+
     /**
      * Get jobLogToConsole.
      *
@@ -326,6 +1259,126 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
         return this.jobLogToConsole;
     }
 
+    /**
+     * @return Number of first job log lines printed to console.
+     */
+    public int getConsoleHeadLines() {
+        return this.consoleHeadLines;
+    }
+
+    /**
+     * @param consoleHeadLines Number of first job log lines printed to console.
+     */
+    @DataBoundSetter
+    public void setConsoleHeadLines(int consoleHeadLines) {
+        this.consoleHeadLines = Math.max(consoleHeadLines, 0);
+    }
+
+    /**
+     * @return Number of last job log lines printed to console.
+     */
+    public int getConsoleTailLines() {
+        return this.consoleTailLines;
+    }
+
+    /**
+     * @param consoleTailLines Number of last job log lines printed to console.
+     */
+    @DataBoundSetter
+    public void setConsoleTailLines(int consoleTailLines) {
+        this.consoleTailLines = Math.max(consoleTailLines, 0);
+    }
+
+    /**
+     * @return Whether the job log is kept with the build.
+     */
+    public boolean getKeepJobLog() {
+        return this.keepJobLog;
+    }
+
+    /**
+     * @param keepJobLog Whether to keep the job log with the build, browsable by spool file and line range.
+     */
+    @DataBoundSetter
+    public void setKeepJobLog(boolean keepJobLog) {
+        this.keepJobLog = keepJobLog;
+    }
+
+    /**
+     * @return Whether saved job logs are gzip-compressed.
+     */
+    public boolean getCompressJobLog() {
+        return this.compressJobLog;
+    }
+
+    /**
+     * @param compressJobLog Whether to gzip the job log saved to the workspace and kept with the build.
+     */
+    @DataBoundSetter
+    public void setCompressJobLog(boolean compressJobLog) {
+        this.compressJobLog = compressJobLog;
+    }
+
+    /**
+     * @return Whether the job log kept with the build goes to the deduplicating chunk store.
+     */
+    public boolean getDedupJobLog() {
+        return this.dedupJobLog;
+    }
+
+    /**
+     * @param dedupJobLog Whether to keep the job log in the controller-wide store sharing identical parts between builds.
+     */
+    @DataBoundSetter
+    public void setDedupJobLog(boolean dedupJobLog) {
+        this.dedupJobLog = dedupJobLog;
+    }
+
+    /**
+     * @return DD name patterns of the spool files to retrieve.
+     */
+    public String getSpoolInclude() {
+        return this.spoolInclude;
+    }
+
+    /**
+     * @param spoolInclude DD name patterns of the spool files to retrieve (e.g. <code>JESMSGLG, SYSPRINT</code>), empty for all.
+     */
+    @DataBoundSetter
+    public void setSpoolInclude(String spoolInclude) {
+        this.spoolInclude = Util.fixEmptyAndTrim(spoolInclude);
+    }
+
+    /**
+     * @return DD name patterns of the spool files not to retrieve.
+     */
+    public String getSpoolExclude() {
+        return this.spoolExclude;
+    }
+
+    /**
+     * @param spoolExclude DD name patterns of the spool files not to retrieve (e.g. <code>SYSUDUMP, CEEDUMP</code>).
+     */
+    @DataBoundSetter
+    public void setSpoolExclude(String spoolExclude) {
+        this.spoolExclude = Util.fixEmptyAndTrim(spoolExclude);
+    }
+
+    /**
+     * @return Size limits of retrieved spool files.
+     */
+    public String getSpoolLimits() {
+        return this.spoolLimits;
+    }
+
+    /**
+     * @param spoolLimits Size limits of retrieved spool files (e.g. <code>SYSOUT=64, *=10240</code>, in KiB).
+     */
+    @DataBoundSetter
+    public void setSpoolLimits(String spoolLimits) {
+        this.spoolLimits = Util.fixEmptyAndTrim(spoolLimits);
+    }
+
     /**
      * Get wait time.
      *
@@ -391,6 +1444,16 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
         }
 
 
+        /**
+         * @return Ways to talk to JES.
+         */
+        public ListBoxModel doFillTransportItems() {
+            ListBoxModel items = new ListBoxModel();
+            items.add("FTP (JES interface)", TRANSPORT_FTP);
+            items.add("z/OSMF REST jobs API", TRANSPORT_ZOSMF);
+            return items;
+        }
+
         /**
          * Fill in credentials IDs.
          *
@@ -443,6 +1506,23 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
             return FormValidation.ok();
         }
 
+        /**
+         * @param item  configuration entity to use permissions from.
+         * @param value Additional credentials ids separated by comma.
+         * @return Whether all the credentials in the pool can be found.
+         */
+        public FormValidation doCheckCredentialsPool(
+                @AncestorInPath Item item,
+                @QueryParameter String value) {
+            for (String id : CredentialsPool.parseIds(value)) {
+                FormValidation resp = this.doCheckCredentialsId(item, id);
+                if (resp.kind == FormValidation.Kind.ERROR) {
+                    return FormValidation.error("Cannot find credentials: " + id);
+                }
+            }
+            return FormValidation.ok();
+        }
+
         /**
          * Function for validation of 'Job file' field on project configuration page
          *
@@ -479,6 +1559,57 @@ public class ZOSJobSubmitter extends Builder implements SimpleBuildStep {
             return FormValidation.ok();
         }
 
+        /**
+         * @param value Spool size limits provided by user
+         * @return Whether spool size limits are OK to use
+         */
+        public FormValidation doCheckSpoolLimits(@QueryParameter String value,
+                                                 @QueryParameter boolean JESINTERFACELEVEL1,
+                                                 @QueryParameter String transport) {
+            try {
+                SpoolSelection.of(null, null, value);
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error(e.getMessage());
+            }
+            return checkSpoolSelection(value, JESINTERFACELEVEL1, transport);
+        }
+
+        /**
+         * @param value              Spool files to retrieve provided by user.
+         * @param JESINTERFACELEVEL1 Whether the FTP server is in JESINTERFACELEVEL=1.
+         * @param transport          Transport.
+         * @return Whether the spool files can be selected.
+         */
+        public FormValidation doCheckSpoolInclude(@QueryParameter String value,
+                                                  @QueryParameter boolean JESINTERFACELEVEL1,
+                                                  @QueryParameter String transport) {
+            return checkSpoolSelection(value, JESINTERFACELEVEL1, transport);
+        }
+
+        /**
+         * @param value              Spool files to skip provided by user.
+         * @param JESINTERFACELEVEL1 Whether the FTP server is in JESINTERFACELEVEL=1.
+         * @param transport          Transport.
+         * @return Whether the spool files can be selected.
+         */
+        public FormValidation doCheckSpoolExclude(@QueryParameter String value,
+                                                  @QueryParameter boolean JESINTERFACELEVEL1,
+                                                  @QueryParameter String transport) {
+            return checkSpoolSelection(value, JESINTERFACELEVEL1, transport);
+        }
+
+        /**
+         * @param value              Spool selection setting.
+         * @param JESINTERFACELEVEL1 Whether the FTP server is in JESINTERFACELEVEL=1.
+         * @param transport          Transport.
+         * @return Warning if the setting is ignored.
+         */
+        private static FormValidation checkSpoolSelection(String value, boolean JESINTERFACELEVEL1, String transport) {
+            if (Util.fixEmptyAndTrim(value) != null && spoolSelectionIgnored(JESINTERFACELEVEL1, transport))
+                return FormValidation.warning(SPOOL_SELECTION_IGNORED);
+            return FormValidation.ok();
+        }
+
         /**
          * If this build step can be used with the project.
          *
@@ -0,0 +1,448 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * <h2>ZOSMFTransport</h2>
+ * Job operations over the z/OSMF REST jobs API (<code>/zosmf/restjobs/jobs</code>).
+ * <br>A status check is one small JSON request on a kept-alive connection instead of an FTP logon and a listing.
+ * Logon happens once: the token z/OSMF returns is sent instead of the password (or PassTicket) afterwards.
+ * Spool files are read in record ranges, so a broken read repeats one range only.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+class ZOSMFTransport implements JobTransport {
+    /**
+     * Simple logger.
+     */
+    private static final Logger logger = Logger.getLogger(ZOSMFTransport.class.getName());
+    /**
+     * Jobs API root.
+     */
+    private static final String JOBS = "/zosmf/restjobs/jobs";
+    /**
+     * Records of a spool file read per request.
+     */
+    private static final int RECORDS_PER_READ = 20000;
+    /**
+     * Cookies holding the z/OSMF logon token.
+     */
+    private static final String[] TOKEN_COOKIES = {"jwtToken", "LtpaToken2"};
+
+    /**
+     * Base URL (<code>https://host:port</code>).
+     */
+    private final String baseURL;
+    /**
+     * UserID.
+     */
+    private final String userID;
+    /**
+     * User password (or secured signon key when PassTickets are used).
+     */
+    private final String password;
+    /**
+     * RACF application name to generate PassTickets for. Password is used as is if <code>null</code>.
+     */
+    private String passTicketApplication;
+    /**
+     * Connect timeout (milliseconds).
+     */
+    private int connectTimeout;
+    /**
+     * Read timeout (milliseconds).
+     */
+    private int readTimeout;
+    /**
+     * Logon token cookie, <code>null</code> until logged on.
+     */
+    private volatile String token;
+    /**
+     * JobID to jobname: the API addresses jobs by both.
+     */
+    private final Map<String, String> jobNames;
+
+    /**
+     * @param baseURL  Base URL (<code>https://host:port</code>).
+     * @param userID   UserID.
+     * @param password User password.
+     */
+    ZOSMFTransport(String baseURL, String userID, String password) {
+        this.baseURL = baseURL.endsWith("/") ? baseURL.substring(0, baseURL.length() - 1) : baseURL;
+        this.userID = userID;
+        this.password = password;
+        this.passTicketApplication = null;
+        this.jobNames = new ConcurrentHashMap<>();
+        this.setTimeouts(0, 0);
+    }
+
+    /**
+     * @param passTicketApplication RACF application name of z/OSMF (e.g. <code>IZUDFLT</code>).
+     *                              <code>null</code> or empty to logon with the password.
+     * @see PassTicketGenerator
+     */
+    void setPassTicketApplication(String passTicketApplication) {
+        this.passTicketApplication = (passTicketApplication == null || passTicketApplication.isEmpty()) ? null : passTicketApplication;
+    }
+
+    /**
+     * Non-positive values select the defaults of {@link ZFTPConnector}.
+     *
+     * @param connectTimeout Time to connect (seconds).
+     * @param readTimeout    Time to wait for data (seconds).
+     */
+    void setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = (connectTimeout > 0 ? connectTimeout : ZFTPConnector.DEFAULT_CONNECT_TIMEOUT) * 1000;
+        this.readTimeout = (readTimeout > 0 ? readTimeout : ZFTPConnector.DEFAULT_DATA_TIMEOUT) * 1000;
+    }
+
+    @Override
+    public String submitJob(InputStream jcl) throws IOException {
+        // The body cannot be sent twice, so an expired token is not risked here.
+        HttpURLConnection connection = this.open("PUT", JOBS, false);
+        connection.setRequestProperty("Content-Type", "text/plain");
+        connection.setRequestProperty("X-IBM-Intrdr-Mode", "TEXT");
+        connection.setRequestProperty("X-IBM-Intrdr-Recfm", "F");
+        connection.setRequestProperty("X-IBM-Intrdr-Lrecl", "80");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(64 * 1024);
+        try (OutputStream out = connection.getOutputStream()) {
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = jcl.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+        }
+        JSONObject job = JSONObject.fromObject(this.read(connection, "PUT", JOBS));
+        String jobID = job.getString("jobid");
+        this.jobNames.put(jobID, job.getString("jobname"));
+        return jobID;
+    }
+
+    @Override
+    public Status getStatus(String jobID) throws IOException {
+        String path = this.jobPath(jobID);
+        if (path == null)
+            return null;
+        HttpURLConnection connection = this.request("GET", path);
+        if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+            drain(connection);
+            return null;
+        }
+        JSONObject job = JSONObject.fromObject(this.read(connection, "GET", path));
+        return new Status(job.getString("jobname"), text(job, "status"), cc(text(job, "retcode")));
+    }
+
+    @Override
+    public List<SpoolSelection.SpoolFile> listSpoolFiles(String jobID) throws IOException {
+        String path = this.jobPath(jobID);
+        if (path == null)
+            throw new IOException("Job [" + jobID + "] cannot be found in JES");
+        path += "/files";
+        JSONArray files = JSONArray.fromObject(this.read(this.request("GET", path), "GET", path));
+        List<SpoolSelection.SpoolFile> spoolFiles = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            JSONObject file = files.getJSONObject(i);
+            spoolFiles.add(new SpoolSelection.SpoolFile(file.getInt("id"), text(file, "stepname"), text(file, "procstep"),
+                    file.getString("ddname"), file.optLong("byte-count", 0), file.optLong("record-count", -1)));
+        }
+        return spoolFiles;
+    }
+
+    @Override
+    public boolean readSpoolFile(String jobID, SpoolSelection.SpoolFile spoolFile, long limit, OutputStream out) throws IOException {
+        String path = this.jobPath(jobID);
+        if (path == null)
+            throw new IOException("Job [" + jobID + "] cannot be found in JES");
+        path += "/files/" + spoolFile.id + "/records";
+        long copied = 0;
+        // A range past the last record is an error: stop at the record count when it is known.
+        for (long first = 0; spoolFile.records < 0 || first < spoolFile.records; first += RECORDS_PER_READ) {
+            String range = first + "-" + (first + RECORDS_PER_READ - 1);
+            HttpURLConnection connection = this.request("GET", path, "X-IBM-Record-Range", range);
+            if (first > 0 && connection.getResponseCode() == HttpURLConnection.HTTP_BAD_REQUEST) {
+                // Without the record count, a file of whole ranges ends with a range past its last record.
+                drain(connection);
+                return false;
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+                this.read(connection, "GET", path);
+            long records = 0;
+            try (InputStream in = connection.getInputStream()) {
+                byte[] buffer = new byte[16 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (limit >= 0 && copied + read > limit) {
+                        // Closed unread: the connection is dropped instead of returned to the pool.
+                        out.write(buffer, 0, (int) (limit - copied));
+                        return true;
+                    }
+                    out.write(buffer, 0, read);
+                    copied += read;
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] == '\n')
+                            records++;
+                    }
+                }
+            }
+            if (records < RECORDS_PER_READ)
+                return false;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean purgeJob(String jobID) throws IOException {
+        String path = this.jobPath(jobID);
+        if (path == null)
+            return false;
+        // Version 2.0 cancels and purges before replying.
+        HttpURLConnection connection = this.request("DELETE", path, "X-IBM-Job-Modify-Version", "2.0");
+        int code = connection.getResponseCode();
+        drain(connection);
+        return code == HttpURLConnection.HTTP_OK || code == HttpURLConnection.HTTP_ACCEPTED;
+    }
+
+    @Override
+    public List<String> listEndedJobs(String jobNames) throws IOException {
+        String path = JOBS + "?owner=" + encode(this.userID) + "&prefix=" + encode(jobNames);
+        JSONArray jobs = JSONArray.fromObject(this.read(this.request("GET", path), "GET", path));
+        List<String> jobIDs = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            JSONObject job = jobs.getJSONObject(i);
+            if (!"OUTPUT".equalsIgnoreCase(text(job, "status")))
+                continue;
+            String jobID = job.getString("jobid");
+            // Saves the lookup when the job is purged.
+            this.jobNames.put(jobID, job.getString("jobname"));
+            jobIDs.add(jobID);
+        }
+        return jobIDs;
+    }
+
+    @Override
+    public void close() {
+        // Connections stay in the JVM keep-alive pool for the next job on the same host.
+        this.jobNames.clear();
+    }
+
+    /**
+     * @param jobID JobID in JES.
+     * @return Path of the job, <code>null</code> if JES does not know the job.
+     * @throws IOException on communication failure.
+     */
+    private String jobPath(String jobID) throws IOException {
+        String jobName = this.jobNames.get(jobID);
+        if (jobName == null) {
+            // A job submitted by an earlier session (e.g. before a controller restart).
+            String path = JOBS + "?owner=*&jobid=" + encode(jobID);
+            JSONArray jobs = JSONArray.fromObject(this.read(this.request("GET", path), "GET", path));
+            if (jobs.isEmpty())
+                return null;
+            jobName = jobs.getJSONObject(0).getString("jobname");
+            this.jobNames.put(jobID, jobName);
+        }
+        return JOBS + "/" + encode(jobName) + "/" + encode(jobID);
+    }
+
+    /**
+     * Send a request without body, logging on again if the token has expired.
+     *
+     * @param method  HTTP method.
+     * @param path    Path from the base URL.
+     * @param headers Additional header names and values.
+     * @return Connection with the response.
+     * @throws IOException on communication failure.
+     */
+    private HttpURLConnection request(String method, String path, String... headers) throws IOException {
+        while (true) {
+            boolean withToken = this.token != null;
+            HttpURLConnection connection = this.open(method, path, withToken);
+            for (int i = 0; i + 1 < headers.length; i += 2)
+                connection.setRequestProperty(headers[i], headers[i + 1]);
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED && withToken) {
+                drain(connection);
+                this.token = null;
+                continue;
+            }
+            this.keepToken(connection);
+            return connection;
+        }
+    }
+
+    /**
+     * @param method    HTTP method.
+     * @param path      Path from the base URL.
+     * @param withToken Whether to authenticate with the token rather than the password.
+     * @return Connection, not yet sent.
+     * @throws IOException on malformed URL.
+     */
+    private HttpURLConnection open(String method, String path, boolean withToken) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.baseURL + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(this.connectTimeout);
+        connection.setReadTimeout(this.readTimeout);
+        connection.setUseCaches(false);
+        connection.setInstanceFollowRedirects(false);
+        // Required by z/OSMF for requests changing anything.
+        connection.setRequestProperty("X-CSRF-ZOSMF-HEADER", "true");
+        String token = this.token;
+        if (withToken && token != null) {
+            connection.setRequestProperty("Cookie", token);
+        } else {
+            String logonPassword = this.password;
+            if (this.passTicketApplication != null) {
+                try {
+                    logonPassword = PassTicketGenerator.generate(this.userID, this.passTicketApplication, this.password);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Could not generate PassTicket: " + e.getMessage(), e);
+                }
+            }
+            connection.setRequestProperty("Authorization", "Basic " + Base64.getEncoder().encodeToString(
+                    (this.userID + ":" + logonPassword).getBytes(StandardCharsets.UTF_8)));
+        }
+        return connection;
+    }
+
+    /**
+     * Remember the logon token z/OSMF returned.
+     *
+     * @param connection Connection with the response.
+     */
+    private void keepToken(HttpURLConnection connection) {
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            // Header names are case-insensitive (proxies often lowercase them).
+            if (!"Set-Cookie".equalsIgnoreCase(header.getKey()))
+                continue;
+            for (String cookie : header.getValue()) {
+                for (String name : TOKEN_COOKIES) {
+                    if (cookie.startsWith(name + "=")) {
+                        int end = cookie.indexOf(';');
+                        this.token = end < 0 ? cookie : cookie.substring(0, end);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the whole response body.
+     *
+     * @param connection Connection with the response.
+     * @param method     HTTP method (for the error message).
+     * @param path       Path (for the error message).
+     * @return Response body.
+     * @throws IOException on communication failure or an error response.
+     */
+    private String read(HttpURLConnection connection, String method, String path) throws IOException {
+        int code = connection.getResponseCode();
+        if (code == HttpURLConnection.HTTP_UNAUTHORIZED)
+            this.token = null;
+        boolean ok = code >= 200 && code < 300;
+        InputStream in = ok ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8 * 1024];
+                int read;
+                while ((read = stream.read(buffer)) != -1)
+                    body.write(buffer, 0, read);
+            }
+        }
+        String text = body.toString(StandardCharsets.UTF_8.name());
+        if (!ok) {
+            logger.fine(method + " " + path + " -> " + code + ": " + text);
+            throw new IOException(method + " " + path + " failed: HTTP " + code + " " + message(text));
+        }
+        return text;
+    }
+
+    /**
+     * Read and close the response, so the connection goes back to the keep-alive pool.
+     *
+     * @param connection Connection with the response.
+     */
+    private static void drain(HttpURLConnection connection) {
+        try {
+            InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in == null)
+                return;
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8 * 1024];
+                while (stream.read(buffer) != -1) {
+                    // Discard.
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @param body Error response body.
+     * @return Error message from the body.
+     */
+    private static String message(String body) {
+        try {
+            JSONObject error = JSONObject.fromObject(body);
+            String message = text(error, "message");
+            if (message != null)
+                return message;
+        } catch (RuntimeException ignored) {
+            // Not JSON.
+        }
+        return body.length() > 200 ? body.substring(0, 200) : body;
+    }
+
+    /**
+     * @param object JSON object.
+     * @param key    Key.
+     * @return String value, <code>null</code> if missing or JSON <code>null</code>.
+     */
+    private static String text(JSONObject object, String key) {
+        Object value = object.opt(key);
+        return value == null || JSONNull.getInstance().equals(value) ? null : value.toString();
+    }
+
+    /**
+     * @param retcode Return code as reported by z/OSMF (<code>CC 0004</code>, <code>ABEND S0C4</code>, <code>JCL ERROR</code>).
+     * @return Completion in <code>jobCC</code> form, <code>null</code> if not reported.
+     */
+    static String cc(String retcode) {
+        if (retcode == null || retcode.trim().isEmpty())
+            return null;
+        String cc = retcode.trim().toUpperCase();
+        if (cc.startsWith("CC "))
+            return cc.substring(3).trim();
+        return cc.replaceAll("\\s+", "_");
+    }
+
+    /**
+     * @param value Path segment or query value.
+     * @return URL-encoded value.
+     */
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
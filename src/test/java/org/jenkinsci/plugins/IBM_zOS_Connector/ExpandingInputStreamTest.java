@@ -0,0 +1,156 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import hudson.EnvVars;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h2>ExpandingInputStreamTest</h2>
+ * Expansion while reading gives the same text as <code>EnvVars.expand</code>, also across chunks.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+public class ExpandingInputStreamTest {
+    /**
+     * Characters expanded at once by {@link ExpandingInputStream}.
+     */
+    private static final int CHUNK = 8 * 1024;
+
+    /**
+     * Variables of the tests.
+     */
+    private static final EnvVars VARIABLES = new EnvVars(
+            "HLQ", "BUILD.USER",
+            "BUILD_NUMBER", "37",
+            "EMPTY", "",
+            "DOLLAR", "$HLQ",
+            "job.name", "BUILDJOB",
+            "PAIR", "\uD83D\uDE00");
+
+    /**
+     * <code>$NAME</code>, <code>${NAME}</code> and <code>$$</code>.
+     */
+    @Test
+    public void expandsReferences() throws IOException {
+        assertExpands("//BUILD.USER.LOAD DD DSN=BUILD.USER.B37");
+        assertExpands("//$HLQ.LOAD DD DSN=${HLQ}.B${BUILD_NUMBER}");
+        assertExpands("$$HLQ costs $$5, ${job.name}, $job.name, [$EMPTY] [${EMPTY}]");
+        assertExpands("$$$HLQ $$${HLQ} $$$$");
+        assertExpands("$HLQ$BUILD_NUMBER${HLQ}${BUILD_NUMBER}");
+    }
+
+    /**
+     * Unknown variables and text that only looks like a reference are kept, values are not expanded again.
+     */
+    @Test
+    public void keepsUnknownReferences() throws IOException {
+        assertExpands("$UNKNOWN ${UNKNOWN} ${job.unknown}");
+        assertExpands("$ ${ ${} ${HLQ ${HLQ-X} $-HLQ $.HLQ ${ HLQ}");
+        assertExpands("$DOLLAR ${DOLLAR}");
+        assertExpands("$");
+        assertExpands("${");
+        assertExpands("${HLQ");
+        assertExpands("text$");
+    }
+
+    /**
+     * Variable lookups are as case-insensitive as <code>EnvVars</code>.
+     */
+    @Test
+    public void looksUpCaseInsensitively() throws IOException {
+        assertExpands("$hlq ${Hlq} ${JOB.NAME} $Build_Number");
+    }
+
+    /**
+     * Names over 256 characters are kept unexpanded, shorter ones are expanded.
+     */
+    @Test
+    public void keepsLongNames() throws IOException {
+        String name = repeat('N', 256);
+        EnvVars variables = new EnvVars(VARIABLES);
+        variables.put(name, "SHORT");
+        variables.put(name + "N", "LONG");
+        assertEquals("SHORT SHORT", expand(variables, "$" + name + " ${" + name + "}"));
+        String longer = "$" + name + "N ${" + name + "N} $" + name + "NN ${" + name + "NN}";
+        assertEquals(longer, expand(variables, longer));
+    }
+
+    /**
+     * References starting on any character around the end of a chunk.
+     */
+    @Test
+    public void expandsReferencesAcrossChunks() throws IOException {
+        for (String reference : new String[]{"$HLQ", "${HLQ}", "$$", "$UNKNOWN", "${job.name}", "$EMPTY", "${HLQ"}) {
+            for (int start = CHUNK - 8; start <= CHUNK + 2; start++) {
+                assertExpands(repeat('A', start) + reference + ".NEXT " + reference + repeat('B', CHUNK));
+            }
+        }
+    }
+
+    /**
+     * Surrogate pairs, written or expanded, are never split at the end of a chunk.
+     */
+    @Test
+    public void keepsSurrogatePairsAcrossChunks() throws IOException {
+        for (String text : new String[]{"\uD83D\uDE00", "$PAIR", "${PAIR}", "\uD83D\uDE00\uD83D\uDE01"}) {
+            for (int start = CHUNK - 3; start <= CHUNK + 1; start++) {
+                assertExpands(repeat('A', start) + text + " \u00E9 " + text);
+            }
+        }
+    }
+
+    /**
+     * Byte by byte reads give the same text as reads into a buffer.
+     */
+    @Test
+    public void readsByteByByte() throws IOException {
+        String jcl = repeat('A', CHUNK - 2) + "${PAIR}$HLQ\u00E9" + repeat('B', CHUNK);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ExpandingInputStream(new ByteArrayInputStream(jcl.getBytes(StandardCharsets.UTF_8)), VARIABLES)) {
+            int b;
+            while ((b = in.read()) != -1)
+                out.write(b);
+        }
+        assertEquals(VARIABLES.expand(jcl), out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    /**
+     * @param jcl JCL text.
+     * @throws IOException on read failure.
+     */
+    private static void assertExpands(String jcl) throws IOException {
+        assertEquals(jcl, VARIABLES.expand(jcl), expand(VARIABLES, jcl));
+    }
+
+    /**
+     * @param variables Variables.
+     * @param jcl       JCL text.
+     * @return JCL text read through the expanding stream.
+     * @throws IOException on read failure.
+     */
+    private static String expand(EnvVars variables, String jcl) throws IOException {
+        try (InputStream in = new ExpandingInputStream(new ByteArrayInputStream(jcl.getBytes(StandardCharsets.UTF_8)), variables)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param c     Character.
+     * @param count Number of times.
+     * @return The character repeated.
+     */
+    private static String repeat(char c, int count) {
+        StringBuilder s = new StringBuilder(count);
+        for (int i = 0; i < count; i++)
+            s.append(c);
+        return s.toString();
+    }
+}
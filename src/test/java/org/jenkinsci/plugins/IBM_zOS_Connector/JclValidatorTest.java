@@ -0,0 +1,177 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h2>JclValidatorTest</h2>
+ * Pre-flight JCL checks: continuation, apostrophes, in-stream data, <code>IF</code>/<code>THEN</code>
+ * and in-stream procedures.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+public class JclValidatorTest {
+    /**
+     * Job card of the jobs below.
+     */
+    private static final String JOB = "//BUILD    JOB (ACCT),'JENKINS',CLASS=A,MSGCLASS=X";
+
+    /**
+     * A plain job has nothing to report.
+     */
+    @Test
+    public void acceptsPlainJob() throws IOException {
+        JclValidator validator = validate(JOB,
+                "//STEP1    EXEC PGM=IEFBR14",
+                "//DD1      DD DSN=USER.BUILD.LOAD(MAIN),DISP=SHR");
+        assertEquals(Collections.emptyList(), validator.getErrors());
+        assertEquals(Collections.emptyList(), validator.getWarnings());
+    }
+
+    /**
+     * Continued parameters resume in columns 4-16, and a continued statement must go on.
+     */
+    @Test
+    public void checksContinuation() throws IOException {
+        assertEquals(Collections.emptyList(), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER,",
+                "//             REGION=0M").getErrors());
+        assertEquals(Collections.singletonList("line 3: continued parameters must start in columns 4-16"), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER,",
+                "//                REGION=0M").getErrors());
+        assertEquals(Collections.singletonList("line 2: statement is not continued on the next line"), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER,",
+                "//SYSUT1   DD DUMMY").getErrors());
+        assertEquals(Collections.singletonList("line 2: last statement is not continued"), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER,").getErrors());
+    }
+
+    /**
+     * Values within apostrophes may hold blanks and commas, and go on through column 71 into column 16.
+     */
+    @Test
+    public void checksQuoting() throws IOException {
+        assertEquals(Collections.emptyList(), validate(JOB,
+                "//STEP1    EXEC PGM=BPXBATCH,PARM='SH make -C src all, install'").getErrors());
+        String first = "//STEP1    EXEC PGM=BPXBATCH,PARM='SH make -C /u/jenkins/build/src ";
+        first += "XXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXX".substring(0, 71 - first.length());
+        assertEquals(71, first.length());
+        assertEquals(Collections.emptyList(), validate(JOB,
+                first,
+                "//             all'").getErrors());
+        assertEquals(Collections.singletonList("line 3: continued value must resume in column 16"), validate(JOB,
+                first,
+                "//    all'").getErrors());
+        assertEquals(Collections.singletonList("line 2: unbalanced apostrophe"), validate(JOB,
+                "//STEP1    EXEC PGM=BPXBATCH,PARM='SH make").getErrors());
+    }
+
+    /**
+     * Build variables within apostrophes may be shell text, elsewhere they are left unexpanded by mistake.
+     */
+    @Test
+    public void reportsBuildVariables() throws IOException {
+        JclValidator validator = validate(JOB,
+                "//STEP1    EXEC PGM=BPXBATCH,PARM='SH echo ${HOME}'",
+                "//DD1      DD DSN=${HLQ}.LOAD,DISP=SHR");
+        assertEquals(Collections.singletonList("line 3: unresolved build variable ${HLQ}"), validator.getErrors());
+        assertEquals(Collections.singletonList("line 2: build variable ${HOME} within apostrophes is not expanded"), validator.getWarnings());
+    }
+
+    /**
+     * In-stream data ends at <code>/*</code>, at the next statement for <code>DD *</code>, or at the <code>DLM</code> delimiter.
+     */
+    @Test
+    public void skipsInStreamData() throws IOException {
+        assertEquals(Collections.emptyList(), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER",
+                "//SYSUT1   DD *",
+                "  not JCL, TAB\there",
+                "//SYSUT2   DD SYSOUT=*").getErrors());
+        assertEquals(Collections.emptyList(), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER",
+                "//SYSUT1   DD DATA",
+                "//NESTED   JOB is data",
+                "/*",
+                "//SYSUT2   DD SYSOUT=*").getErrors());
+        assertEquals(Collections.emptyList(), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER",
+                "//SYSUT1   DD DATA,DLM=@@",
+                "//NESTED   JOB is data",
+                "/*",
+                "@@",
+                "//SYSUT2   DD SYSOUT=*").getErrors());
+        assertEquals(Collections.singletonList("line 3: DLM must be two characters"), validate(JOB,
+                "//STEP1    EXEC PGM=IEBGENER",
+                "//SYSUT1   DD DATA,DLM='ABC'",
+                "ABC").getErrors());
+    }
+
+    /**
+     * The condition of <code>IF</code> may span lines up to <code>THEN</code>, and every <code>IF</code> needs its <code>ENDIF</code>.
+     */
+    @Test
+    public void checksIfThen() throws IOException {
+        assertEquals(Collections.emptyList(), validate(JOB,
+                "//STEP1    EXEC PGM=IEFBR14",
+                "//CHECK    IF (STEP1.RC = 0 &",
+                "//             STEP1.RUN) THEN",
+                "//STEP2    EXEC PGM=IEFBR14",
+                "//         ELSE",
+                "//STEP3    EXEC PGM=IEFBR14",
+                "//         ENDIF").getErrors());
+        assertEquals(Arrays.asList("line 3: ELSE without IF", "line 4: ENDIF without IF"), validate(JOB,
+                "//STEP1    EXEC PGM=IEFBR14",
+                "//         ELSE",
+                "//         ENDIF").getErrors());
+        assertEquals(Collections.singletonList("line 3: IF without ENDIF"), validate(JOB,
+                "//CHECK    IF (RC = 0) THEN",
+                "//STEP1    EXEC PGM=IEFBR14").getErrors());
+    }
+
+    /**
+     * In-stream procedures set their symbols, and need a name and a <code>PEND</code>.
+     */
+    @Test
+    public void checksProcedures() throws IOException {
+        JclValidator validator = validate(JOB,
+                "//COMPILE  PROC MEMBER=MAIN",
+                "//STEP1    EXEC PGM=IEBGENER",
+                "//SYSUT1   DD DSN=USER.SRC(&MEMBER),DISP=SHR",
+                "//SYSUT2   DD DSN=&LIB..LOAD,DISP=SHR",
+                "//         PEND",
+                "//RUN      EXEC COMPILE,LIB=USER");
+        assertEquals(Collections.emptyList(), validator.getErrors());
+        assertEquals(Collections.singletonList("line 5: symbol &LIB is not set in this job"), validator.getWarnings());
+
+        assertEquals(Collections.singletonList("line 2: PEND without PROC"), validate(JOB,
+                "//         PEND").getErrors());
+        assertEquals(Collections.singletonList("line 2: PROC without PEND"), validate(JOB,
+                "//COMPILE  PROC",
+                "//STEP1    EXEC PGM=IEFBR14").getErrors());
+        assertEquals(Collections.singletonList("line 2: in-stream PROC needs a name"), validate(JOB,
+                "//         PROC",
+                "//         PEND").getErrors());
+    }
+
+    /**
+     * @param lines JCL lines.
+     * @return Validator holding the findings.
+     * @throws IOException on read failure.
+     */
+    private static JclValidator validate(String... lines) throws IOException {
+        JclValidator validator = new JclValidator();
+        List<String> jcl = Arrays.asList(lines);
+        validator.validate(new ByteArrayInputStream((String.join("\n", jcl) + "\n").getBytes(StandardCharsets.UTF_8)));
+        return validator;
+    }
+}
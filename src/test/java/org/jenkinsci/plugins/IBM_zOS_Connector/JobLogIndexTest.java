@@ -0,0 +1,366 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h2>JobLogIndexTest</h2>
+ * Job log index offsets: checkpoints and gzip members, memory-mapped windows, spool file separators
+ * and a last line without line end.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+public class JobLogIndexTest {
+    /**
+     * Size of the memory-mapped window of {@link JobLogIndex}.
+     */
+    private static final int WINDOW = 16 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Any line range of an uncompressed log with several checkpoints reads as written.
+     */
+    @Test
+    public void roundTripsUncompressedLog() throws IOException {
+        this.roundTrip(false);
+    }
+
+    /**
+     * Any line range of a compressed log reads as written, starting at the gzip member of its checkpoint.
+     */
+    @Test
+    public void roundTripsCompressedLog() throws IOException {
+        this.roundTrip(true);
+    }
+
+    /**
+     * A compressed log is one gzip file made of members, and the index survives saving.
+     */
+    @Test
+    public void compressedLogIsGzipFile() throws IOException {
+        byte[] log = log(3 * JobLogIndex.CHECKPOINT + 10, 50);
+        File file = this.folder.newFile();
+        JobLogIndex index = write(file, log, true);
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            assertArrayEquals(log, in.readAllBytes());
+        }
+        File indexFile = this.folder.newFile();
+        index.save(indexFile);
+        JobLogIndex loaded = JobLogIndex.load(indexFile);
+        assertTrue(loaded.isCompressed());
+        assertEquals(index.getLines(), loaded.getLines());
+        assertEquals(copy(index, file, 3000, 3080), copy(loaded, file, 3000, 3080));
+    }
+
+    /**
+     * An empty log has no lines, and a compressed one is still a gzip file.
+     */
+    @Test
+    public void keepsEmptyLog() throws IOException {
+        for (boolean compress : new boolean[]{false, true}) {
+            File file = this.folder.newFile();
+            JobLogIndex index = write(file, new byte[0], compress);
+            assertEquals(0, index.getLines());
+            assertEquals(0, index.getSize());
+            assertEquals(compress, index.isCompressed());
+            assertEquals("", copy(index, file, 0, 10));
+            try (InputStream in = index.open(file)) {
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    /**
+     * Ranges crossing the 16 MiB window, ending on its last byte or starting in the next window.
+     */
+    @Test
+    public void copiesAcrossMappedWindows() throws IOException {
+        // Lines of 16 KiB: the window ends with line 1023, the last line of the first checkpoint.
+        // The first line is twice as long, so that the window ends with line 1022 instead.
+        for (int first : new int[]{16 * 1024, 32 * 1024}) {
+            int lines = 1100;
+            byte[] log = new byte[first + (lines - 1) * 16 * 1024];
+            String[] expected = new String[lines];
+            int offset = 0;
+            for (int i = 0; i < lines; i++) {
+                int length = i == 0 ? first : 16 * 1024;
+                char[] line = new char[length];
+                Arrays.fill(line, (char) ('A' + i % 26));
+                line[length - 1] = '\n';
+                expected[i] = new String(line);
+                System.arraycopy(expected[i].getBytes(StandardCharsets.US_ASCII), 0, log, offset, length);
+                offset += length;
+            }
+            File file = this.folder.newFile();
+            JobLogIndex index = write(file, log, false);
+            assertEquals(lines, index.getLines());
+            for (int[] range : new int[][]{{1018, 1023}, {1020, 1024}, {1022, 1023}, {1022, 1024}, {1023, 1024},
+                    {1000, 1030}, {0, 1100}}) {
+                assertEquals(range[0] + "-" + range[1], lines(expected, range[0], range[1]), copy(index, file, range[0], range[1]));
+            }
+        }
+    }
+
+    /**
+     * A log larger than the window read from checkpoints before and after the window end.
+     */
+    @Test
+    public void copiesLargeLog() throws IOException {
+        byte[] log = log(WINDOW / 40 + 20000, 70);
+        String[] expected = split(log);
+        File file = this.folder.newFile();
+        JobLogIndex index = write(file, log, false);
+        assertEquals(expected.length, index.getLines());
+        long windowLine = 0;
+        for (long size = 0; size + expected[(int) windowLine].length() <= WINDOW; windowLine++)
+            size += expected[(int) windowLine].length();
+        // Across the window end from the first checkpoint, and around it from its own checkpoint.
+        for (long[] range : new long[][]{{10, windowLine + 2}, {windowLine - 1, windowLine + 1},
+                {expected.length - 5, expected.length}}) {
+            assertEquals(lines(expected, (int) range[0], (int) range[1]), copy(index, file, range[0], range[1]));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.copyLines(file, 0, index.getLines(), out);
+        assertArrayEquals(log, out.toByteArray());
+    }
+
+    /**
+     * Spool files end at separator lines (blanks and CR allowed around), other lines only look alike.
+     */
+    @Test
+    public void findsSpoolFiles() throws IOException {
+        String separator = JobLogIndex.SPOOL_FILE_SEPARATOR;
+        String[] lines = {
+                "HASP373 BUILD STARTED\n",
+                "HASP395 BUILD ENDED\n",
+                " " + separator + "\n",
+                "//BUILD JOB\r\n",
+                separator + "  \r\n",
+                "X " + separator + "\n",
+                separator + "X\n",
+                "last"};
+        byte[] log = String.join("", lines).getBytes(StandardCharsets.US_ASCII);
+        File file = this.folder.newFile();
+        JobLogIndex index = write(file, log, false);
+        assertEquals(8, index.getLines());
+
+        List<JobLogIndex.SpoolFile> spoolFiles = index.getSpoolFiles();
+        assertEquals(3, spoolFiles.size());
+        assertSpoolFile(spoolFiles.get(0), "JESMSGLG", 0, lines[0].length() + lines[1].length(), 0, 2);
+        int offset = lines[0].length() + lines[1].length() + lines[2].length();
+        assertSpoolFile(spoolFiles.get(1), "JESJCL", offset, lines[3].length(), 3, 1);
+        offset += lines[3].length() + lines[4].length();
+        assertSpoolFile(spoolFiles.get(2), "JESYSMSG", offset, log.length - offset, 5, 3);
+
+        index.nameSpoolFiles(Arrays.asList("JESMSGLG", "JESJCL", "STEP1.COMPILE.SYSPRINT"));
+        assertEquals("SYSPRINT", spoolFiles.get(2).getName());
+        assertEquals("STEP1.COMPILE", spoolFiles.get(2).getStep());
+        assertEquals(2, index.findSpoolFile("STEP1", "SYSPRINT"));
+        assertEquals(2, index.findSpoolFile("step1.compile", "sysprint"));
+        assertEquals(2, index.findSpoolFile(null, "SYSPRINT"));
+        assertEquals(-1, index.findSpoolFile("STEP2", "SYSPRINT"));
+    }
+
+    /**
+     * A job log retrieved whole, not spool file by spool file, is named from the job listing:
+     * the DDs of every step can be found, not only the JES ones.
+     */
+    @Test
+    public void findsSpoolFilesOfWholeLog() throws IOException {
+        String separator = " " + JobLogIndex.SPOOL_FILE_SEPARATOR + "\n";
+        String[] contents = {
+                "HASP373 BUILD STARTED\n",
+                "//BUILD JOB\n",
+                "IEF142I BUILD STEP36 - STEP WAS EXECUTED - COND CODE 0000\n",
+                "STEP36 LISTING\n",
+                "STEP37 LISTING\nPAGE 2\n",
+                "DUMP\n"};
+        byte[] log = (String.join(separator, contents) + separator).getBytes(StandardCharsets.US_ASCII);
+        File file = this.folder.newFile();
+        JobLogIndex index = write(file, log, true);
+        assertEquals(contents.length, index.getSpoolFiles().size());
+        assertEquals(-1, index.findSpoolFile("STEP37", "SYSPRINT"));
+
+        List<String> names = new ArrayList<>();
+        for (SpoolSelection.SpoolFile spoolFile : SpoolSelection.SpoolFile.parse(Arrays.asList(
+                "JOBNAME  JOBID    OWNER    STATUS CLASS",
+                "BUILD    JOB01234 BUILD    OUTPUT A        RC=0004 6 spool files",
+                "--------",
+                "         ID  STEPNAME PROCSTEP C DDNAME   BYTE-COUNT",
+                "         001 JES2              A JESMSGLG        22",
+                "         002 JES2              A JESJCL          12",
+                "         003 JES2              A JESYSMSG        59",
+                "         004 STEP36            A SYSPRINT        15",
+                "         005 STEP37   RUN      A SYSPRINT        22",
+                "         006 STEP37   RUN      A SYSUDUMP         5",
+                "6 spool files")))
+            names.add(spoolFile.getQualifiedName());
+        index.nameSpoolFiles(names);
+
+        int sysprint = index.findSpoolFile("STEP37", "SYSPRINT");
+        assertEquals(4, sysprint);
+        JobLogIndex.SpoolFile spoolFile = index.getSpoolFiles().get(sysprint);
+        assertEquals("STEP37.RUN", spoolFile.getStep());
+        assertEquals(contents[4], copy(index, file, spoolFile.getFirstLine(), spoolFile.getFirstLine() + spoolFile.getLineCount()));
+        assertEquals(3, index.findSpoolFile("STEP36", "SYSPRINT"));
+        assertEquals(5, index.findSpoolFile("STEP37.RUN", "SYSUDUMP"));
+        assertEquals(2, index.findSpoolFile(null, "JESYSMSG"));
+    }
+
+    /**
+     * A last line without line end is a line, in the index and in copies.
+     */
+    @Test
+    public void countsLastLineWithoutLineEnd() throws IOException {
+        for (boolean compress : new boolean[]{false, true}) {
+            byte[] log = "FIRST\nSECOND\nTHIRD".getBytes(StandardCharsets.US_ASCII);
+            File file = this.folder.newFile();
+            JobLogIndex index = write(file, log, compress);
+            assertEquals(3, index.getLines());
+            assertEquals(log.length, index.getSize());
+            assertEquals("THIRD", copy(index, file, 2, 3));
+            assertEquals("SECOND\nTHIRD", copy(index, file, 1, 10));
+            assertEquals(1, index.getSpoolFiles().size());
+            assertEquals(3, index.getSpoolFiles().get(0).getLineCount());
+        }
+    }
+
+    /**
+     * Write a log with several checkpoints in odd pieces, then read ranges around the checkpoints.
+     *
+     * @param compress Whether the log is compressed.
+     * @throws IOException on file failure.
+     */
+    private void roundTrip(boolean compress) throws IOException {
+        int checkpoint = JobLogIndex.CHECKPOINT;
+        byte[] log = log(4 * checkpoint + 100, 40);
+        String[] expected = split(log);
+        File file = this.folder.newFile();
+        JobLogIndex index = write(file, log, compress);
+        assertEquals(compress, index.isCompressed());
+        assertEquals(expected.length, index.getLines());
+        assertEquals(log.length, index.getSize());
+        assertEquals(2 * checkpoint, index.checkpointLine(2 * checkpoint + 5));
+        int[][] ranges = {{0, 1}, {0, checkpoint}, {checkpoint - 1, checkpoint + 1}, {checkpoint, checkpoint + 1},
+                {checkpoint + 1, 3 * checkpoint + 2}, {4 * checkpoint - 1, expected.length}, {expected.length - 1, expected.length + 5},
+                {0, expected.length}};
+        for (int[] range : ranges)
+            assertEquals(range[0] + "-" + range[1], lines(expected, range[0], range[1]), copy(index, file, range[0], range[1]));
+        assertEquals("", copy(index, file, 10, 10));
+        try (InputStream in = index.open(file)) {
+            assertArrayEquals(log, in.readAllBytes());
+        }
+        assertFalse(copy(index, file, expected.length, expected.length + 1).length() > 0);
+    }
+
+    /**
+     * @param spoolFile Spool file.
+     * @param name      Expected DD name.
+     * @param offset    Expected offset.
+     * @param length    Expected length.
+     * @param firstLine Expected first line.
+     * @param lineCount Expected number of lines.
+     */
+    private static void assertSpoolFile(JobLogIndex.SpoolFile spoolFile, String name, long offset, long length, long firstLine, long lineCount) {
+        assertEquals(name, spoolFile.getName());
+        assertEquals(offset, spoolFile.getOffset());
+        assertEquals(length, spoolFile.getLength());
+        assertEquals(firstLine, spoolFile.getFirstLine());
+        assertEquals(lineCount, spoolFile.getLineCount());
+    }
+
+    /**
+     * Write the log through the index writer in odd-sized pieces.
+     *
+     * @param file     Log file.
+     * @param log      Log.
+     * @param compress Whether to compress.
+     * @return Index.
+     * @throws IOException on write failure.
+     */
+    private static JobLogIndex write(File file, byte[] log, boolean compress) throws IOException {
+        try (JobLogIndex.Writer writer = new JobLogIndex.Writer(file, compress)) {
+            // Pieces of 777 bytes, and now and then a single byte.
+            for (int i = 0, n = 0; i < log.length; n++) {
+                if (n % 5 == 0) {
+                    writer.write(log[i++]);
+                } else {
+                    int length = Math.min(777, log.length - i);
+                    writer.write(log, i, length);
+                    i += length;
+                }
+            }
+            return writer.getIndex();
+        }
+    }
+
+    /**
+     * @param index Index.
+     * @param file  Log file.
+     * @param first First line.
+     * @param end   Line after the last one.
+     * @return Copied lines.
+     * @throws IOException on read failure.
+     */
+    private static String copy(JobLogIndex index, File file, long first, long end) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.copyLines(file, first, end, out);
+        return out.toString(StandardCharsets.US_ASCII.name());
+    }
+
+    /**
+     * @param lines Lines.
+     * @param first First line.
+     * @param end   Line after the last one.
+     * @return Lines joined.
+     */
+    private static String lines(String[] lines, int first, int end) {
+        return String.join("", Arrays.asList(lines).subList(first, Math.min(end, lines.length)));
+    }
+
+    /**
+     * @param log Log.
+     * @return Lines with their line ends.
+     */
+    private static String[] split(byte[] log) {
+        return new String(log, StandardCharsets.US_ASCII).split("(?<=\n)");
+    }
+
+    /**
+     * @param lines     Number of lines.
+     * @param maxLength Longest line.
+     * @return Log of lines of varying length, the last one without line end.
+     */
+    private static byte[] log(int lines, int maxLength) {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            StringBuilder line = new StringBuilder("LINE ").append(i).append(' ');
+            while (line.length() < 10 + (i * 31) % (maxLength - 10))
+                line.append((char) ('A' + line.length() % 26));
+            log.append(line);
+            if (i < lines - 1)
+                log.append('\n');
+        }
+        return log.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,140 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import org.junit.Test;
+
+import javax.crypto.Cipher;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * <h2>PassTicketGeneratorTest</h2>
+ * Steps of the PassTicket algorithm: DES against FIPS 81 known answers, padding against IBM-1047 code points,
+ * translation and time-coder against the algorithm description. Whole tickets are not checked against
+ * an IBM reference, only for format and stability.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+public class PassTicketGeneratorTest {
+    /**
+     * DES in ECB mode, FIPS 81 appendix B: "Now is t" under 0123456789ABCDEF.
+     */
+    @Test
+    public void desMatchesFips81() {
+        Cipher des = PassTicketGenerator.cipher("0123456789ABCDEF");
+        assertArrayEquals(bytes("3FA40E8A984D4815"), PassTicketGenerator.encrypt(des, bytes("4E6F772069732074")));
+        assertArrayEquals(bytes("6A271787AB8883F9"), PassTicketGenerator.encrypt(des, bytes("68652074696D6520")));
+        assertArrayEquals(bytes("893D51EC4B563B53"), PassTicketGenerator.encrypt(des, bytes("666F7220616C6C20")));
+    }
+
+    /**
+     * DES known answer with a key using all the parity bits.
+     */
+    @Test
+    public void desMatchesWorkedExample() {
+        Cipher des = PassTicketGenerator.cipher("133457799BBCDFF1");
+        assertArrayEquals(bytes("85E813540F0AB405"), PassTicketGenerator.encrypt(des, bytes("0123456789ABCDEF")));
+    }
+
+    /**
+     * User ID and application name are uppercased, in IBM-1047 and padded with EBCDIC blanks.
+     */
+    @Test
+    public void padsInEbcdic() {
+        assertArrayEquals(bytes("E4E2C5D9F1404040"), PassTicketGenerator.pad("user1", "user ID"));
+        assertArrayEquals(bytes("C6E3D7C440404040"), PassTicketGenerator.pad("FTPD", "application name"));
+        assertArrayEquals(bytes("C9C2D4E4E2C5D9F8"), PassTicketGenerator.pad("IBMUSER8", "user ID"));
+    }
+
+    /**
+     * 6-bit values 0-25 are A-Z, 26-35 are 0-9, 36-61 are A-Z again and 62-63 are 0-1.
+     */
+    @Test
+    public void translatesWithRacfTable() {
+        assertEquals("AAAAAAAA", PassTicketGenerator.translate(0));
+        assertEquals("11111111", PassTicketGenerator.translate(0xFFFFFFFF));
+        // 000000 010000 100000 110001 000001 01|0000 ... rotated.
+        assertEquals("AQ6NBQEI", PassTicketGenerator.translate(0x01083105));
+        assertEquals("090MIWE1", PassTicketGenerator.translate(0x6A3F8C21));
+    }
+
+    /**
+     * The time-coder is a Feistel network: running the rounds backwards gives Result-5 back,
+     * so distinct times never share a Result-6.
+     */
+    @Test
+    public void timeCoderIsInvertible() {
+        Cipher des = PassTicketGenerator.cipher("E001193519561977");
+        byte[] result3 = bytes("0123456789ABCDEF");
+        byte[] block = new byte[8];
+        for (int result5 = -500_000; result5 < 500_000; result5 += 997) {
+            int result6 = PassTicketGenerator.timeCoder(des, result3, result5);
+            int left = result6 >>> 16;
+            int right = result6 & 0xFFFF;
+            for (int round = 0; round < 6; round++) {
+                int temp = (right ^ PassTicketGenerator.round(des, result3, left, block)) & 0xFFFF;
+                right = left;
+                left = temp;
+            }
+            assertEquals(result5, (left << 16) | right);
+        }
+    }
+
+    /**
+     * Round inputs are the right half padded with the right 48 bits of Result-3.
+     */
+    @Test
+    public void roundPadsWithResult3() {
+        Cipher des = PassTicketGenerator.cipher("0123456789ABCDEF");
+        byte[] result3 = bytes("FFFF2074696D6520");
+        // DES(6865 2074696D6520) from FIPS 81: left 16 bits of 6A271787AB8883F9.
+        assertEquals(0x6A27, PassTicketGenerator.round(des, result3, 0x6865, new byte[8]));
+    }
+
+    /**
+     * Tickets are 8 characters of the translation table and only depend on the inputs.
+     */
+    @Test
+    public void generatesStableTickets() {
+        String ticket = PassTicketGenerator.generate("ibmuser", "ftpd", "E001193519561977", 1_700_000_000L);
+        assertTrue(ticket, ticket.matches("[A-Z0-9]{8}"));
+        assertEquals(ticket, PassTicketGenerator.generate("IBMUSER", "FTPD", "e001193519561977", 1_700_000_000L));
+        assertFalse(ticket.equals(PassTicketGenerator.generate("IBMUSER", "FTPD", "E001193519561977", 1_700_000_001L)));
+    }
+
+    /**
+     * Malformed inputs are rejected before anything is sent to RACF.
+     */
+    @Test
+    public void rejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> PassTicketGenerator.generate("IBMUSER", "FTPD", "E00119351956197", 0));
+        assertThrows(IllegalArgumentException.class, () -> PassTicketGenerator.generate("IBMUSER", "FTPD", "G001193519561977", 0));
+        assertThrows(IllegalArgumentException.class, () -> PassTicketGenerator.generate("IBMUSER01", "FTPD", "E001193519561977", 0));
+        assertThrows(IllegalArgumentException.class, () -> PassTicketGenerator.generate("", "FTPD", "E001193519561977", 0));
+    }
+
+    /**
+     * Logons do not use the generator unless it is enabled.
+     */
+    @Test
+    public void logonTicketsNeedEnabling() {
+        assumeFalse("PassTicket generation is enabled for this run", PassTicketGenerator.ENABLED);
+        assertThrows(IllegalArgumentException.class, () -> PassTicketGenerator.generate("IBMUSER", "FTPD", "E001193519561977"));
+    }
+
+    /**
+     * @param hex Hexadecimal digits.
+     * @return Bytes.
+     */
+    private static byte[] bytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        return bytes;
+    }
+}
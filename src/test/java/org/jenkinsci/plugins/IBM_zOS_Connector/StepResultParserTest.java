@@ -0,0 +1,181 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * <h2>StepResultParserTest</h2>
+ * Step results from JESMSGLG and JESYSMSG excerpts: procedure steps, ABENDs reported twice, flushed steps
+ * and CPU time on the line after the step stop.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+public class StepResultParserTest {
+    /**
+     * JESMSGLG of a job whose procedure step <code>LINK</code> ABENDs.
+     */
+    private static final String JESMSGLG = String.join("\n",
+            "                    J E S 2  J O B  L O G  --  S Y S T E M  S 0 W 1  --  N O D E  N 1",
+            "12.01.01 JOB01234 ---- MONDAY,    19 OCT 2026 ----",
+            "12.01.01 JOB01234  IRR010I  USERID BUILD    IS ASSIGNED TO THIS JOB.",
+            "12.01.02 JOB01234  $HASP373 BUILDJOB STARTED - INIT 1    - CLASS A        - SYS S0W1",
+            "12.01.03 JOB01234  IEF403I BUILDJOB - STARTED - TIME=12.01.03",
+            "12.02.10 JOB01234  IEF450I BUILDJOB BUILD LINK - ABEND=S0C4 U0000 REASON=00000004",
+            "12.02.11 JOB01234  IEF404I BUILDJOB - ENDED - TIME=12.02.11",
+            "12.02.11 JOB01234  $HASP395 BUILDJOB ENDED - ABEND=S0C4",
+            " " + JobLogIndex.SPOOL_FILE_SEPARATOR,
+            "");
+
+    /**
+     * JESYSMSG of the same job: <code>BUILD</code> procedure with <code>COMPILE</code>, <code>LINK</code> and
+     * <code>TEST</code>, then <code>CLEANUP</code> with <code>COND=EVEN</code>.
+     */
+    private static final String JESYSMSG = String.join("\n",
+            "IEF236I ALLOC. FOR BUILDJOB COMPILE BUILD",
+            "IEF142I BUILDJOB BUILD COMPILE - STEP WAS EXECUTED - COND CODE 0004",
+            "IEF285I   BUILD.USER.OBJ                               KEPT",
+            "IEF373I STEP/COMPILE /START 2026292.1201",
+            "IEF032I STEP/COMPILE /STOP  2026292.1202 ",
+            "        CPU:     0 HR  00 MIN  01.25 SEC    SRB:     0 HR  00 MIN  00.00 SEC    ",
+            "        VIRT:  1024K  SYS:   256K  EXT:     4096K  SYS:    10768K",
+            "IEF236I ALLOC. FOR BUILDJOB LINK BUILD",
+            "IEF472I BUILDJOB BUILD LINK - COMPLETION CODE - SYSTEM=0C4 USER=0000 REASON=00000004",
+            "IEF373I STEP/LINK    /START 2026292.1202",
+            "IEF374I STEP/LINK    /STOP  2026292.1205 CPU    0MIN 00.37SEC SRB    0MIN 00.01SEC VIRT  1024K SYS   256K",
+            "IEF272I BUILDJOB BUILD TEST - STEP WAS NOT EXECUTED.",
+            "IEF236I ALLOC. FOR BUILDJOB CLEANUP",
+            "IEF142I BUILDJOB CLEANUP - STEP WAS EXECUTED - COND CODE 0000",
+            "IEF373I STEP/CLEANUP /START 2026292.1205",
+            "IEF032I STEP/CLEANUP /STOP  2026292.1207 ",
+            "        CPU:     1 HR  02 MIN  03.50 SEC    SRB:     0 HR  00 MIN  00.00 SEC    ",
+            "IEF375I  JOB/BUILDJOB/START 2026292.1201",
+            "IEF033I  JOB/BUILDJOB/STOP  2026292.1207 ",
+            "        CPU:     1 HR  02 MIN  04.75 SEC    SRB:     0 HR  00 MIN  00.01 SEC    ");
+
+    /**
+     * Steps of a procedure are told apart by the procedure step, and the log passes through unchanged.
+     */
+    @Test
+    public void parsesProcedureSteps() throws IOException {
+        List<ZOSJobStepsAction.Step> steps = parse(JESMSGLG + JESYSMSG);
+        assertEquals(4, steps.size());
+        assertStep(steps.get(0), "BUILD", "COMPILE", "0004");
+        assertStep(steps.get(1), "BUILD", "LINK", "S0C4");
+        assertStep(steps.get(2), "BUILD", "TEST", "FLUSH");
+        assertStep(steps.get(3), "CLEANUP", null, "0000");
+        assertEquals("2026292.1201", steps.get(0).getStart());
+        assertEquals("2026292.1202", steps.get(0).getStop());
+        assertEquals(60, steps.get(0).getElapsedSeconds());
+    }
+
+    /**
+     * An ABEND reported in JESMSGLG and again in JESYSMSG is one step, in its JESYSMSG place.
+     */
+    @Test
+    public void reportsAbendOnce() throws IOException {
+        List<ZOSJobStepsAction.Step> steps = parse(JESMSGLG + JESYSMSG);
+        ZOSJobStepsAction.Step link = steps.get(1);
+        assertStep(link, "BUILD", "LINK", "S0C4");
+        assertEquals("00000004", link.getReason());
+        assertEquals(180, link.getElapsedSeconds());
+        // JESMSGLG alone.
+        steps = parse(JESMSGLG);
+        assertEquals(1, steps.size());
+        assertStep(steps.get(0), "BUILD", "LINK", "S0C4");
+    }
+
+    /**
+     * User ABENDs are reported with the user code.
+     */
+    @Test
+    public void reportsUserAbend() throws IOException {
+        List<ZOSJobStepsAction.Step> steps = parse(String.join("\n",
+                "12.02.10 JOB01235  IEF450I TESTJOB RUN - ABEND=S000 U4038 REASON=00000001",
+                "IEF472I TESTJOB RUN - COMPLETION CODE - SYSTEM=000 USER=4038 REASON=00000001",
+                "IEF472I TESTJOB NEXT - COMPLETION CODE - SYSTEM=000 USER=0016"));
+        assertEquals(2, steps.size());
+        assertStep(steps.get(0), "RUN", null, "U4038");
+        assertEquals("00000001", steps.get(0).getReason());
+        assertStep(steps.get(1), "NEXT", null, "U0016");
+        assertNull(steps.get(1).getReason());
+    }
+
+    /**
+     * A flushed step has no times.
+     */
+    @Test
+    public void reportsFlushedStep() throws IOException {
+        ZOSJobStepsAction.Step test = parse(JESMSGLG + JESYSMSG).get(2);
+        assertStep(test, "BUILD", "TEST", "FLUSH");
+        assertNull(test.getStart());
+        assertNull(test.getStop());
+        assertEquals(-1, test.getCpuSeconds(), 0);
+        assertEquals(-1, test.getElapsedSeconds());
+    }
+
+    /**
+     * CPU time comes from the <code>IEF374I</code> line or from the line after <code>IEF032I</code>,
+     * never from the job totals.
+     */
+    @Test
+    public void readsCpuTime() throws IOException {
+        List<ZOSJobStepsAction.Step> steps = parse(JESMSGLG + JESYSMSG);
+        assertEquals(1.25, steps.get(0).getCpuSeconds(), 0.001);
+        assertEquals(0.37, steps.get(1).getCpuSeconds(), 0.001);
+        assertEquals(3600 + 2 * 60 + 3.5, steps.get(3).getCpuSeconds(), 0.001);
+        assertEquals(120, steps.get(3).getElapsedSeconds());
+    }
+
+    /**
+     * A <code>CPU:</code> line not right after the step stop is not taken.
+     */
+    @Test
+    public void ignoresDistantCpuLine() throws IOException {
+        List<ZOSJobStepsAction.Step> steps = parse(String.join("\n",
+                "IEF142I TESTJOB RUN - STEP WAS EXECUTED - COND CODE 0000",
+                "IEF373I STEP/RUN     /START 2026292.1201",
+                "IEF032I STEP/RUN     /STOP  2026292.1201 ",
+                "        VIRT:  1024K  SYS:   256K  EXT:     4096K  SYS:    10768K",
+                "        CPU:     0 HR  00 MIN  09.00 SEC    SRB:     0 HR  00 MIN  00.00 SEC    "));
+        assertEquals(1, steps.size());
+        assertEquals(-1, steps.get(0).getCpuSeconds(), 0);
+        assertEquals(0, steps.get(0).getElapsedSeconds());
+    }
+
+    /**
+     * @param step     Step.
+     * @param stepName Expected step name.
+     * @param procStep Expected procedure step name.
+     * @param cc       Expected CC.
+     */
+    private static void assertStep(ZOSJobStepsAction.Step step, String stepName, String procStep, String cc) {
+        assertEquals(stepName, step.getStepName());
+        assertEquals(procStep, step.getProcStep());
+        assertEquals(cc, step.getCc());
+    }
+
+    /**
+     * Pass the log through the parser in odd pieces.
+     *
+     * @param log Job log.
+     * @return Steps.
+     * @throws IOException on write failure.
+     */
+    private static List<ZOSJobStepsAction.Step> parse(String log) throws IOException {
+        byte[] bytes = log.getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StepResultParser parser = new StepResultParser(out);
+        for (int i = 0; i < bytes.length; i += 37)
+            parser.write(bytes, i, Math.min(37, bytes.length - i));
+        assertEquals(log, out.toString(StandardCharsets.US_ASCII.name()));
+        return parser.getSteps();
+    }
+}
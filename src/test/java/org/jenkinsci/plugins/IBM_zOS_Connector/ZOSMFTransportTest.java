@@ -0,0 +1,261 @@
+package org.jenkinsci.plugins.IBM_zOS_Connector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h2>ZOSMFTransportTest</h2>
+ * z/OSMF jobs API calls against an embedded HTTP server playing z/OSMF:
+ * logon token handling, ranged spool file reads, job status and completion codes.
+ *
+ * @author <a href="mailto:candiduslynx@gmail.com">Alexander Shcherbakov</a>
+ * @version 1.0
+ */
+public class ZOSMFTransportTest {
+    /**
+     * Basic authentication of <code>IBMUSER:secret</code>.
+     */
+    private static final String BASIC = "Basic SUJNVVNFUjpzZWNyZXQ=";
+
+    /**
+     * Embedded z/OSMF.
+     */
+    private HttpServer server;
+    /**
+     * Transport under test.
+     */
+    private ZOSMFTransport transport;
+    /**
+     * Credentials of each request: <code>Basic</code> or the token cookie.
+     */
+    private final List<String> logons = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * Record ranges requested.
+     */
+    private final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * Token cookie accepted, <code>null</code> once expired.
+     */
+    private volatile String token;
+    /**
+     * Number of tokens issued.
+     */
+    private int tokens;
+    /**
+     * Records of the spool file.
+     */
+    private volatile long records;
+    /**
+     * Whether the spool file listing tells the record count.
+     */
+    private volatile boolean recordCount = true;
+
+    @Before
+    public void start() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/zosmf/restjobs/jobs", this::handle);
+        this.server.start();
+        this.transport = new ZOSMFTransport("http://127.0.0.1:" + this.server.getAddress().getPort() + "/", "IBMUSER", "secret");
+    }
+
+    @After
+    public void stop() {
+        this.transport.close();
+        this.server.stop(0);
+    }
+
+    /**
+     * The password is sent once, then the token; an expired token means one logon with the password again.
+     */
+    @Test
+    public void logsOnAgainWhenTokenExpires() throws IOException {
+        JobTransport.Status status = this.transport.getStatus("JOB00042");
+        assertEquals("BUILD", status.jobName);
+        assertTrue(status.isFinished());
+        assertEquals("0004", status.cc);
+        assertEquals(Arrays.asList(BASIC, "jwtToken=T1"), this.logons);
+
+        this.token = null;
+        this.logons.clear();
+        assertEquals("0004", this.transport.getStatus("JOB00042").cc);
+        assertEquals(Arrays.asList("jwtToken=T1", BASIC), this.logons);
+
+        this.logons.clear();
+        this.transport.getStatus("JOB00042");
+        assertEquals(Collections.singletonList("jwtToken=T2"), this.logons);
+    }
+
+    /**
+     * Jobs JES does not know, or not anymore, have no status.
+     */
+    @Test
+    public void missingJobHasNoStatus() throws IOException {
+        assertNull(this.transport.getStatus("JOB00404"));
+        // Listed, then purged before the status request.
+        assertNull(this.transport.getStatus("JOB00043"));
+    }
+
+    /**
+     * A spool file is read in ranges of 20000 records, and not a range more.
+     */
+    @Test
+    public void readsRecordRanges() throws IOException {
+        assertEquals(Collections.singletonList("0-19999"), this.read(19999));
+        assertEquals(Collections.singletonList("0-19999"), this.read(20000));
+        assertEquals(Arrays.asList("0-19999", "20000-39999"), this.read(20001));
+        assertEquals(Arrays.asList("0-19999", "20000-39999", "40000-59999"), this.read(45000));
+        assertEquals(Collections.emptyList(), this.read(0));
+    }
+
+    /**
+     * Without the record count, a short range ends the spool file.
+     */
+    @Test
+    public void readsRecordRangesWithoutRecordCount() throws IOException {
+        this.recordCount = false;
+        assertEquals(Arrays.asList("0-19999", "20000-39999"), this.read(25000));
+    }
+
+    /**
+     * Without the record count, a spool file of whole ranges ends with the out of range answer to the next one.
+     */
+    @Test
+    public void readsWholeRangesWithoutRecordCount() throws IOException {
+        this.recordCount = false;
+        assertEquals(Arrays.asList("0-19999", "20000-39999"), this.read(20000));
+        assertEquals(Arrays.asList("0-19999", "20000-39999", "40000-59999"), this.read(40000));
+    }
+
+    /**
+     * Reading stops at the size limit.
+     */
+    @Test
+    public void readsUpToLimit() throws IOException {
+        this.records = 30000;
+        SpoolSelection.SpoolFile spoolFile = this.transport.listSpoolFiles("JOB00042").get(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(this.transport.readSpoolFile("JOB00042", spoolFile, 100, out));
+        assertEquals(100, out.size());
+        assertTrue(out.toString(StandardCharsets.US_ASCII.name()).startsWith("RECORD 0\nRECORD 1\n"));
+    }
+
+    /**
+     * <code>retcode</code> values as z/OSMF reports them.
+     */
+    @Test
+    public void mapsRetcode() {
+        assertEquals("0000", ZOSMFTransport.cc("CC 0000"));
+        assertEquals("0012", ZOSMFTransport.cc(" cc 0012 "));
+        assertEquals("ABEND_S0C4", ZOSMFTransport.cc("ABEND S0C4"));
+        assertEquals("ABEND_U4038", ZOSMFTransport.cc("ABEND U4038"));
+        assertEquals("JCL_ERROR", ZOSMFTransport.cc("JCL ERROR"));
+        assertEquals("CANCELED", ZOSMFTransport.cc("CANCELED"));
+        assertEquals("SEC_ERROR", ZOSMFTransport.cc("SEC ERROR"));
+        assertNull(ZOSMFTransport.cc(null));
+        assertNull(ZOSMFTransport.cc(" "));
+    }
+
+    /**
+     * Read the whole spool file.
+     *
+     * @param records Records of the spool file.
+     * @return Record ranges requested.
+     * @throws IOException on communication failure.
+     */
+    private List<String> read(long records) throws IOException {
+        this.records = records;
+        this.ranges.clear();
+        SpoolSelection.SpoolFile spoolFile = this.transport.listSpoolFiles("JOB00042").get(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(this.transport.readSpoolFile("JOB00042", spoolFile, -1, out));
+        String[] lines = out.toString(StandardCharsets.US_ASCII.name()).split("\n", -1);
+        assertEquals(records + 1, lines.length);
+        if (records > 0)
+            assertEquals("RECORD " + (records - 1), lines[lines.length - 2]);
+        return new ArrayList<>(this.ranges);
+    }
+
+    /**
+     * Play z/OSMF.
+     *
+     * @param exchange Request and response.
+     * @throws IOException on communication failure.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        this.logons.add(cookie != null ? cookie : authorization);
+        if (cookie != null ? !cookie.equals(this.token) : !BASIC.equals(authorization)) {
+            this.respond(exchange, 401, "{\"message\":\"Not authorized\"}");
+            return;
+        }
+        if (cookie == null) {
+            synchronized (this) {
+                this.token = "jwtToken=T" + ++this.tokens;
+            }
+            exchange.getResponseHeaders().add("Set-Cookie", this.token + "; Path=/; Secure; HttpOnly");
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        if (path.equals("/zosmf/restjobs/jobs") && query != null && query.contains("jobid=JOB00404")) {
+            this.respond(exchange, 200, "[]");
+        } else if (path.equals("/zosmf/restjobs/jobs") && query != null && query.contains("jobid=")) {
+            String jobID = query.substring(query.indexOf("jobid=") + 6);
+            this.respond(exchange, 200, "[{\"jobname\":\"BUILD\",\"jobid\":\"" + jobID + "\",\"status\":\"OUTPUT\"}]");
+        } else if (path.equals("/zosmf/restjobs/jobs/BUILD/JOB00042")) {
+            this.respond(exchange, 200, "{\"jobname\":\"BUILD\",\"jobid\":\"JOB00042\",\"status\":\"OUTPUT\",\"retcode\":\"CC 0004\"}");
+        } else if (path.equals("/zosmf/restjobs/jobs/BUILD/JOB00042/files")) {
+            this.respond(exchange, 200, "[{\"id\":2,\"ddname\":\"SYSPRINT\",\"stepname\":\"STEP1\",\"procstep\":null,"
+                    + "\"byte-count\":" + (this.records * 10) + (this.recordCount ? ",\"record-count\":" + this.records : "") + "}]");
+        } else if (path.equals("/zosmf/restjobs/jobs/BUILD/JOB00042/files/2/records")) {
+            String range = exchange.getRequestHeaders().getFirst("X-IBM-Record-Range");
+            this.ranges.add(range);
+            long first = Long.parseLong(range.substring(0, range.indexOf('-')));
+            long last = Math.min(Long.parseLong(range.substring(range.indexOf('-') + 1)), this.records - 1);
+            if (first >= this.records) {
+                this.respond(exchange, 400, "{\"message\":\"Record range is out of bounds\"}");
+                return;
+            }
+            StringBuilder body = new StringBuilder();
+            for (long record = first; record <= last; record++)
+                body.append("RECORD ").append(record).append('\n');
+            this.respond(exchange, 200, body.toString());
+        } else {
+            this.respond(exchange, 404, "{\"message\":\"No job " + path + "\"}");
+        }
+    }
+
+    /**
+     * @param exchange Request and response.
+     * @param code     HTTP status.
+     * @param body     Response body.
+     * @throws IOException on communication failure.
+     */
+    private void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}